@@ -6,6 +6,8 @@ import javafx.stage.Stage;
 import java.util.Map;
 import de.lifecircles.service.trainStrategy.TrainMode;
 import de.lifecircles.service.SimulationConfig;
+import de.lifecircles.model.neural.ActivationPrecision;
+import de.lifecircles.model.neural.WeightStorage;
 
 /**
  * Main application class for LifeCircles.
@@ -26,6 +28,50 @@ public class Main extends Application {
                 System.err.println("Unknown trainMode: " + modeStr);
             }
         }
+        String metricsPortStr = named.get("metricsPort");
+        if (metricsPortStr != null) {
+            try {
+                SimulationConfig.getInstance().setMetricsPort(Integer.parseInt(metricsPortStr));
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid metricsPort: " + metricsPortStr);
+            }
+        }
+        String seedStr = named.get("seed");
+        if (seedStr != null) {
+            try {
+                SimulationConfig.getInstance().setRandomSeed(Long.parseLong(seedStr));
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid seed: " + seedStr);
+            }
+        }
+        String parallelStr = named.get("parallel");
+        if (parallelStr != null) {
+            SimulationConfig.getInstance().setParallelCalculation(Boolean.parseBoolean(parallelStr));
+        }
+        String compileBrainsStr = named.get("compileBrains");
+        if (compileBrainsStr != null) {
+            SimulationConfig.getInstance().setNeuralNetEvaluatorCompilation(Boolean.parseBoolean(compileBrainsStr));
+        }
+        String sparseBrainsStr = named.get("sparseBrains");
+        if (sparseBrainsStr != null) {
+            SimulationConfig.getInstance().setNeuralNetSparseUpdate(Boolean.parseBoolean(sparseBrainsStr));
+        }
+        String sparseBrainsEpsilonStr = named.get("sparseBrainsEpsilon");
+        if (sparseBrainsEpsilonStr != null) {
+            SimulationConfig.getInstance().setNeuralNetSparseUpdateEpsilon(Double.parseDouble(sparseBrainsEpsilonStr));
+        }
+        String activationPrecisionStr = named.get("activationPrecision");
+        if (activationPrecisionStr != null) {
+            SimulationConfig.getInstance().setActivationPrecision(ActivationPrecision.valueOf(activationPrecisionStr));
+        }
+        String brainWeightStorageStr = named.get("brainWeightStorage");
+        if (brainWeightStorageStr != null) {
+            SimulationConfig.getInstance().setBrainWeightStorage(WeightStorage.valueOf(brainWeightStorageStr));
+        }
+        String batchBrainsStr = named.get("batchBrains");
+        if (batchBrainsStr != null) {
+            SimulationConfig.getInstance().setNeuralNetBatchInference(Boolean.parseBoolean(batchBrainsStr));
+        }
     }
 
     @Override
@@ -4,6 +4,7 @@ import de.lifecircles.model.Environment;
 import de.lifecircles.service.CalculationService;
 import de.lifecircles.service.FileService;
 import de.lifecircles.service.SimulationConfig;
+import de.lifecircles.service.metrics.PrometheusMetricsServer;
 import de.lifecircles.view.ConfigPanel;
 import de.lifecircles.view.SimulationView;
 import de.lifecircles.view.StatisticsPanel;
@@ -243,6 +244,7 @@ public class MainController extends BorderPane {
 
     public void shutdown() {
         calculationService.stop();
+        PrometheusMetricsServer.stop();
     }
 }
 
@@ -1,11 +1,12 @@
 package de.lifecircles.model;
 
 import de.lifecircles.model.neural.*;
+import de.lifecircles.service.RandomService;
 import de.lifecircles.service.SimulationConfig;
 import java.util.ArrayList;
 import java.util.List;
 import java.io.*;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Represents a cell in the simulation.
@@ -15,6 +16,7 @@ import java.util.Random;
 public class Cell implements SensableCell, Serializable {
     private static final long serialVersionUID = 1L;
 
+    private transient long id; // Laufzeit-Id, Schlüssel für die Zufalls-Streams der Zelle
     private Vector2D position;
     private Vector2D velocity;
     private transient Vector2D velocityForce;
@@ -35,11 +37,18 @@ public class Cell implements SensableCell, Serializable {
     private int cellState; // Zustand der Zelle, beeinflusst zusätzliche Hidden-Layer
     private double mutationRateFactor; // Faktor für die Mutationsrate
     private double mutationStrengthFactor; // Faktor für die Mutationsstärke
-    private transient long sizeChangeTimestamp = -1; // Zeitstempel für verzögerte Größenänderung
-    private transient final Random random = new Random();
+    private transient double sizeChangeAge = -1.0D; // Alter (Simulationszeit) der letzten Größenänderung
     //private int tempThinkHackCounter = SimulationConfig.CELL_TEMP_THINK_HACK_COUNTER_MAX;
 
     public Cell(final Vector2D position, final double radiusSize, final CellBrainInterface cellBrain) {
+        this(RandomService.nextCellId(), position, radiusSize, cellBrain);
+    }
+
+    /**
+     * @param id vorab mit {@link RandomService#nextCellId()} vergebene Id, wenn das Gehirn schon mit dem Stream der Zelle erzeugt wurde
+     */
+    public Cell(final long id, final Vector2D position, final double radiusSize, final CellBrainInterface cellBrain) {
+        this.id = id;
         this.position = position;
         this.velocity = new Vector2D(0, 0);
         this.velocityForce = new Vector2D(0, 0);
@@ -50,7 +59,8 @@ public class Cell implements SensableCell, Serializable {
         this.targetRadiusSize = radiusSize;
         this.isGrowing = false;
         this.growthAge = 0;
-        this.type = new CellType(this.random.nextDouble(), this.random.nextDouble(), this.random.nextDouble());
+        final SplittableRandom random = RandomService.stream(RandomService.Stream.CELL_TYPE, this.id, 0L);
+        this.type = new CellType(random.nextDouble(), random.nextDouble(), random.nextDouble());
         this.sensorActors = this.createSensorActors(this);
         this.brain = cellBrain;
         this.energy = SimulationConfig.CELL_MAX_ENERGY;
@@ -69,6 +79,10 @@ public class Cell implements SensableCell, Serializable {
         return sensorActors;
     }
 
+    public long getId() {
+        return this.id;
+    }
+
     public Vector2D getPosition() {
         return this.position;
     }
@@ -125,8 +139,8 @@ public class Cell implements SensableCell, Serializable {
         this.targetRadiusSize = Math.max(SimulationConfig.getInstance().getCellMinRadiusSize(),
                 Math.min(SimulationConfig.getInstance().getCellMaxRadiusSize(), radiusSize));
         
-        // Setze den Zeitstempel für die Verzögerung
-        this.sizeChangeTimestamp = System.currentTimeMillis();
+        // Merke die Simulationszeit für die Verzögerung (keine Wanduhr, damit Läufe reproduzierbar bleiben)
+        this.sizeChangeAge = this.age;
     }
 
     public void setRealRadiusSize(double radiusSize) {
@@ -156,16 +170,20 @@ public class Cell implements SensableCell, Serializable {
         return this.isGrowing;
     }
 
-    // Neue Methode, um die verzögerte Größenänderung zu prüfen und anzuwenden
-    public void applyDelayedSizeChange() {
-        if (this.sizeChangeTimestamp > 0) {
-            long elapsedTime = System.currentTimeMillis() - this.sizeChangeTimestamp;
+    /**
+     * Prüft die verzögerte Größenänderung und wendet sie an.
+     * Die Verzögerung läuft in Simulationszeit, einschließlich des laufenden Schritts.
+     * @param deltaTime Time step in seconds
+     */
+    public void applyDelayedSizeChange(final double deltaTime) {
+        if (this.sizeChangeAge >= 0.0D) {
+            final double elapsedTime = (this.age + deltaTime - this.sizeChangeAge) * 1000.0D;
             if (elapsedTime >= SimulationConfig.getInstance().getSizeChangeDelay()) {
                 this.radiusSize = this.targetRadiusSize;
-                this.sizeChangeTimestamp = -1; // Zurücksetzen des Zeitstempels
+                this.sizeChangeAge = -1.0D; // Zurücksetzen des Zeitstempels
             } else {
                 // Berechne den Fortschritt der Verzögerung
-                double progress = (double) elapsedTime / SimulationConfig.getInstance().getSizeChangeDelay();
+                double progress = elapsedTime / SimulationConfig.getInstance().getSizeChangeDelay();
                 // Interpolieren zwischen der aktuellen Größe und der Zielgröße
                 this.radiusSize = this.radiusSize + (this.targetRadiusSize - this.radiusSize) * progress;
             }
@@ -345,6 +363,11 @@ public class Cell implements SensableCell, Serializable {
         return normalizedState;
     }
 
+    @Override
+    public double getNormalizedCellState(final int statePos) {
+        return (this.cellState & (1 << statePos)) != 0 ? 1.0 : 0.0;
+    }
+
     /**
      * Returns the index of the sensor that is currently at the top position.
      * @return Index of the topmost sensor (0-11)
@@ -373,7 +396,7 @@ public class Cell implements SensableCell, Serializable {
      * Speichert die Zelle in eine Datei.
      */
     public void saveToFile(String filePath) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
             oos.writeObject(this);
         }
     }
@@ -382,7 +405,7 @@ public class Cell implements SensableCell, Serializable {
      * Lädt eine Zelle aus einer Datei.
      */
     public static Cell loadFromFile(String filePath) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
             return (Cell) ois.readObject();
         }
     }
@@ -404,7 +427,7 @@ public class Cell implements SensableCell, Serializable {
     }
 
     public void mutateMutationFactors(double mutationRate, double mutationStrength) {
-        Random random = new Random();
+        final SplittableRandom random = RandomService.stream(RandomService.Stream.CELL_MUTATION_FACTORS, this.id, 0L);
 
         // Mutate mutationRateFactor
         if (random.nextDouble() < mutationRate) {
@@ -423,6 +446,8 @@ public class Cell implements SensableCell, Serializable {
     @Serial
     private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
         ois.defaultReadObject();
+        this.id = RandomService.nextCellId();
+        this.sizeChangeAge = -1.0D;
         this.velocityForce = new Vector2D(0, 0);
         this.angularVelocityForce = 0.0D;
         // Setze parentCell in allen SensorActor-Instanzen
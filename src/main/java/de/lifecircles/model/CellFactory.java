@@ -1,6 +1,7 @@
 package de.lifecircles.model;
 
 import de.lifecircles.model.neural.*;
+import de.lifecircles.service.RandomService;
 import de.lifecircles.service.SimulationConfig;
 
 public abstract class CellFactory {
@@ -16,12 +17,16 @@ public abstract class CellFactory {
         final int sensorActorCount = SimulationConfig.CELL_SENSOR_ACTOR_COUNT;
         final NeuronValueFunctionFactory neuronValueFunctionFactory = new ValuesNeuronValueFunctionFactory();
 
-        final CellBrain cellBrain = new CellBrain(neuronValueFunctionFactory,
-                calcInputCount(sensorActorCount), calcOutputCount(sensorActorCount),
-                hiddenCountFactor,
-                stateHiddenLayerSynapseConnectivity, hiddenLayerSynapseConnectivity);
+        // Das Gehirn wird mit dem Zufalls-Stream der neuen Zelle erzeugt.
+        final long cellId = RandomService.nextCellId();
+        final CellBrain cellBrain = NeuralNetwork.callWithRandom(
+                RandomService.javaRandom(RandomService.Stream.CELL_BRAIN, cellId, 0L),
+                () -> new CellBrain(neuronValueFunctionFactory,
+                        calcInputCount(sensorActorCount), calcOutputCount(sensorActorCount),
+                        hiddenCountFactor,
+                        stateHiddenLayerSynapseConnectivity, hiddenLayerSynapseConnectivity));
 
-        return new Cell(position, radiusSize, cellBrain);
+        return new Cell(cellId, position, radiusSize, cellBrain);
     }
 
     public static Cell createCell(final Vector2D position, final double radiusSize, final CellBrainInterface cellBrain) {
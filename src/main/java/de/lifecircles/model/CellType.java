@@ -5,6 +5,7 @@ import java.io.Serializable;
 /**
  * Represents a cell or sensor/actor type using RGB values.
  * Each type is defined by its red, green, and blue components.
+ * Immutable: types are read by the UI thread while the simulation sets new ones.
  */
 public class CellType implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -19,7 +20,17 @@ public class CellType implements Serializable {
         this.blue = clamp(blue);
     }
 
-    private double clamp(double value) {
+    /**
+     * Hat dieser Typ die Farbwerte, die {@code new CellType(red, green, blue)} ergeben würde?
+     * Damit muss bei unveränderten Werten kein neuer Typ erzeugt werden.
+     */
+    public boolean hasRgb(final double red, final double green, final double blue) {
+        return Double.compare(this.red, clamp(red)) == 0
+            && Double.compare(this.green, clamp(green)) == 0
+            && Double.compare(this.blue, clamp(blue)) == 0;
+    }
+
+    private static double clamp(double value) {
         return Math.max(0.0, Math.min(1.0, value));
     }
 
@@ -1,6 +1,10 @@
 package de.lifecircles.model;
 
 import de.lifecircles.service.*;
+import de.lifecircles.service.metrics.EnvironmentPhaseEvent;
+import de.lifecircles.service.metrics.ReproductionBatchEvent;
+import de.lifecircles.service.metrics.SimulationMetrics;
+import de.lifecircles.service.metrics.SimulationPhase;
 import de.lifecircles.service.partitioningStrategy.PartitioningStrategy;
 
 import java.util.*;
@@ -12,7 +16,6 @@ import java.util.*;
 public class Environment {
     public static double GroundBlockerHeight = 50.0D;
 
-    private static final Random random = new Random();
     private final SimulationConfig config;
     private final EnergySunCalcService energySunCalcService;
     private final List<SunRay> sunRayList;
@@ -21,6 +24,10 @@ public class Environment {
     private final List<Cell> cellList;
     private final List<Blocker> blockerList;
     private Cell lastDeadCell;
+    private long lastProcessedSynapses;
+    private int lastBirthCount;
+    private int lastDeathCount;
+    private long stepCount; // Schlüssel für die Zufalls-Streams pro Schritt
 
     // Singleton-Instanz für einfachen Zugriff
     private static Environment instance;
@@ -111,21 +118,32 @@ public class Environment {
      * @param partitioner Pre-built partitioning strategy for interactions
      */
     public void update(final double deltaTime, final PartitioningStrategy partitioner) {
+        this.stepCount++;
+
         // Calculate sun energy rays
+        EnvironmentPhaseEvent phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.SUN_ENERGY);
         this.sunRayList.clear();
         this.sunRayList.addAll(
                 this.energySunCalcService.calculateSunEnergy(
-                        this.cellList, this.blockerList, this.width, this.height, this.config, deltaTime
+                        this.cellList, this.blockerList, this.width, this.height, this.config, deltaTime, this.stepCount
                 )
         );
+        phaseEvent.finish(this.cellList.size());
 
         // Process repulsive forces
+        phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.REPULSION);
         RepulsionCellCalcService.processRepulsiveForces(this.cellList, partitioner);
+        phaseEvent.finish(this.cellList.size());
         // Process sensor/actor interactions
+        phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.SENSOR_ACTOR);
         SensorActorForceCellCalcService.processInteractions(this.cellList, partitioner);
+        phaseEvent.finish(this.cellList.size());
         // Process energy transfers between cells
+        phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.ENERGY_TRANSFER);
         EnergyTransferCellCalcService.processEnergyTransfers(this.cellList);
+        phaseEvent.finish(this.cellList.size());
 
+        phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.PHYSICS);
         for (final Cell cell : this.cellList) {
         //this.cells.parallelStream().forEach(cell -> {
             // Apply viscosity
@@ -141,21 +159,36 @@ public class Environment {
             BlockerCellCalcService.handleBlockerCollisions(cell, this.blockerList);
         }
         //);
+        phaseEvent.finish(this.cellList.size());
 
-        this.cellList.parallelStream().forEach(cell -> {
+        phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.FORCES);
+        CellCalcService.cellStream(this.cellList).forEach(cell -> {
             CellCalcService.updateForces(cell);
         });
+        phaseEvent.finish(this.cellList.size());
 
         // Parallel execution of neural networks and cell updates
-        this.cellList.parallelStream().forEach(cell -> {
+        phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.CELL_UPDATE);
+        final SimulationMetrics metrics = SimulationMetrics.getInstance();
+        // Erst alle Eingänge lesen, dann aktualisieren: keine Zelle sieht den neuen Zustand ihrer Nachbarn.
+        CellCalcService.cellStream(this.cellList).forEach(CellCalcService::prepareCell);
+        CellCalcService.prepareBrains(this.cellList);
+        this.lastProcessedSynapses = CellCalcService.cellStream(this.cellList).mapToLong(cell -> {
             CellCalcService.updateCell(cell, deltaTime);
             // Wrap position around environment boundaries
             this.wrapPosition(cell);
-        });
+            final long processedSynapses = cell.getBrain().getProccessedSynapses();
+            metrics.recordCellUpdate(cell, processedSynapses, cell.getBrain().getSkippedSynapses());
+            return processedSynapses;
+        }).sum();
+        phaseEvent.finish(this.cellList.size());
 
         // Update cells and handle reproduction
+        phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.REPRODUCTION);
+        final ReproductionBatchEvent reproductionEvent = ReproductionBatchEvent.start("step");
         final List<Cell> newCells = new ArrayList<>();
         final Iterator<Cell> iterator = this.cellList.iterator();
+        int deathCount = 0;
 
         while (iterator.hasNext()) {
             final Cell cell = iterator.next();
@@ -183,26 +216,39 @@ public class Environment {
             if ((cell.getAge() >= this.config.getCellDeathAge()) || (cell.getEnergy() <= 0.0D)) {
                 this.lastDeadCell = cell;
                 iterator.remove();
+                deathCount++;
             }
         }
 
         // Add new cells from reproduction (skip in HIGH_ENERGY mode)
         this.cellList.addAll(newCells);
+        reproductionEvent.finish(this.cellList.size(), newCells.size(), deathCount);
+        phaseEvent.finish(this.cellList.size());
 
         // Repopulation (skip in HIGH_ENERGY mode)
         //if (config.getTrainMode() == TrainMode.NONE) {
-        this.calcRepopulationIfNeeded();
+        phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.REPOPULATION);
+        final int repopulationBirthCount = this.calcRepopulationIfNeeded();
+        phaseEvent.finish(this.cellList.size());
         //}
 
+        this.lastBirthCount = newCells.size() + repopulationBirthCount;
+        this.lastDeathCount = deathCount;
+
         // Update statistics
+        phaseEvent = EnvironmentPhaseEvent.start(SimulationPhase.STATISTICS);
         StatisticsManagerService.getInstance().update(this.cellList);
+        phaseEvent.finish(this.cellList.size());
     }
 
     /**
      * Repopulation: when only REPOPULATION_THRESHOLD_PERCENT of initial cells remain, generate mutated offspring and split energy
+     * @return number of cells added by the repopulation
      */
-    private void calcRepopulationIfNeeded() {
+    private int calcRepopulationIfNeeded() {
         int currentCount = this.cellList.size();
+        final ReproductionBatchEvent repopulationEvent = ReproductionBatchEvent.start("repopulation");
+        final SplittableRandom random = RandomService.stream(RandomService.Stream.REPOPULATION, 0L, this.stepCount);
         int initialCount = this.config.getInitialCellCount();
         // If all cells are dead, repopulate with random initial cells
         if (currentCount == 0) {
@@ -219,7 +265,7 @@ public class Environment {
                 }
             } else {
                 for (int i = 0; i < initialCount; i++) {
-                    Vector2D pos = new Vector2D(this.random.nextDouble() * this.width, random.nextDouble() * this.height);
+                    Vector2D pos = new Vector2D(random.nextDouble() * this.width, random.nextDouble() * this.height);
                     Cell newCell = CellFactory.createCell(pos, this.config.getCellMaxRadiusSize() / 2.0D);
                     cellList.add(newCell);
                 }
@@ -242,6 +288,11 @@ public class Environment {
                 }
             }
         }
+        final int birthCount = this.cellList.size() - currentCount;
+        if (birthCount > 0) {
+            repopulationEvent.finish(this.cellList.size(), birthCount, 0);
+        }
+        return birthCount;
     }
 
     private void wrapPosition(Cell cell) {
@@ -267,6 +318,34 @@ public class Environment {
         return new ArrayList<>(sunRayList);
     }
 
+    /**
+     * Anzahl der bisher berechneten Schritte.
+     */
+    public long getStepCount() {
+        return this.stepCount;
+    }
+
+    /**
+     * Anzahl der im letzten {@link #update} verarbeiteten Synapsen aller Zellen.
+     */
+    public long getLastProcessedSynapses() {
+        return this.lastProcessedSynapses;
+    }
+
+    /**
+     * Anzahl der im letzten {@link #update} entstandenen Zellen (Reproduktion und Wiederbevölkerung).
+     */
+    public int getLastBirthCount() {
+        return this.lastBirthCount;
+    }
+
+    /**
+     * Anzahl der im letzten {@link #update} gestorbenen Zellen.
+     */
+    public int getLastDeathCount() {
+        return this.lastDeathCount;
+    }
+
     public double getWidth() {
         return this.width;
     }
@@ -30,6 +30,15 @@ public interface SensableCell {
         return new double[]{0.0D, 0.0D, 0.0D};
     }
 
+    /**
+     * Einzelner Wert aus {@link #getNormalizedCellState()}, ohne Array.
+     * @param statePos Bit des Zellzustands
+     * @return 1.0 wenn das Bit gesetzt ist, sonst 0.0
+     */
+    default double getNormalizedCellState(final int statePos) {
+        return 0.0D;
+    }
+
     void setEnergy(double energy);
 
     double getMaxEnergy();
@@ -12,6 +12,17 @@ public enum ActivationFunction {
             double sigmoid = apply(x);
             return sigmoid * (1 - sigmoid);
         }
+
+        @Override
+        public double apply(final double x, final ActivationPrecision precision) {
+            return precision.sigmoid(x);
+        }
+
+        @Override
+        public double derivative(final double x, final ActivationPrecision precision) {
+            final double sigmoid = precision.sigmoid(x);
+            return sigmoid * (1 - sigmoid);
+        }
     },
     ReLU {
         @Override
@@ -35,6 +46,17 @@ public enum ActivationFunction {
             double tanh = Math.tanh(x);
             return 1 - (tanh * tanh);
         }
+
+        @Override
+        public double apply(final double x, final ActivationPrecision precision) {
+            return precision.tanh(x);
+        }
+
+        @Override
+        public double derivative(final double x, final ActivationPrecision precision) {
+            final double tanh = precision.tanh(x);
+            return 1 - (tanh * tanh);
+        }
     },
     LeakyReLU {
         @Override
@@ -58,4 +80,18 @@ public enum ActivationFunction {
      * @return Die Ableitung am Punkt x
      */
     public abstract double derivative(double x);
+
+    /**
+     * Wie {@link #apply(double)} mit der angegebenen Genauigkeit (nur für Sigmoid und Tanh relevant).
+     */
+    public double apply(final double x, final ActivationPrecision precision) {
+        return this.apply(x);
+    }
+
+    /**
+     * Wie {@link #derivative(double)} mit der angegebenen Genauigkeit (nur für Sigmoid und Tanh relevant).
+     */
+    public double derivative(final double x, final ActivationPrecision precision) {
+        return this.derivative(x);
+    }
 }
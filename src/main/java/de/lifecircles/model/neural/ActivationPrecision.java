@@ -0,0 +1,106 @@
+package de.lifecircles.model.neural;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Genauigkeitsstufen für Sigmoid und Tanh in {@link ActivationFunction}.
+ * ReLU und LeakyReLU sind in allen Stufen exakt.
+ *
+ * Maximale absolute Fehler (siehe ActivationPrecisionTest):
+ * <ul>
+ *     <li>{@link #EXACT}: {@link Math#exp} und {@link Math#tanh}.</li>
+ *     <li>{@link #LOOKUP_TABLE}: Tabelle mit linearer Interpolation, Fehler unter 2e-6.</li>
+ *     <li>{@link #RATIONAL}: rationale Näherung (Kettenbruch nach Lambert), Fehler unter 1e-4.</li>
+ * </ul>
+ */
+public enum ActivationPrecision {
+    EXACT {
+        @Override
+        public double sigmoid(final double x) {
+            return 1.0 / (1.0 + Math.exp(-x));
+        }
+
+        @Override
+        public double tanh(final double x) {
+            return Math.tanh(x);
+        }
+    },
+    LOOKUP_TABLE {
+        @Override
+        public double sigmoid(final double x) {
+            return lookup(SIGMOID_TABLE_ARR, SIGMOID_TABLE_RANGE, 0.0D, 1.0D, x);
+        }
+
+        @Override
+        public double tanh(final double x) {
+            return lookup(TANH_TABLE_ARR, TANH_TABLE_RANGE, -1.0D, 1.0D, x);
+        }
+    },
+    RATIONAL {
+        @Override
+        public double sigmoid(final double x) {
+            return 0.5D * (1.0D + rationalTanh(0.5D * x));
+        }
+
+        @Override
+        public double tanh(final double x) {
+            return rationalTanh(x);
+        }
+    };
+
+    // Außerhalb der Bereiche weichen die Funktionen um weniger als 2.5e-7 von ihren Grenzwerten ab.
+    private static final double SIGMOID_TABLE_RANGE = 16.0D;
+    private static final double TANH_TABLE_RANGE = 8.0D;
+    private static final int TABLE_STEPS_PER_UNIT = 256;
+    private static final double[] SIGMOID_TABLE_ARR = createTable(SIGMOID_TABLE_RANGE, EXACT::sigmoid);
+    private static final double[] TANH_TABLE_ARR = createTable(TANH_TABLE_RANGE, EXACT::tanh);
+
+    /**
+     * Ab hier ist die rationale Näherung größer als 1 - 1e-4, darüber wird ±1 geliefert.
+     */
+    private static final double RATIONAL_TANH_LIMIT = 4.97D;
+
+    public abstract double sigmoid(double x);
+
+    public abstract double tanh(double x);
+
+    private static double[] createTable(final double range, final DoubleUnaryOperator function) {
+        final int size = (int) (2.0D * range * TABLE_STEPS_PER_UNIT) + 2;
+        final double[] tableArr = new double[size];
+        for (int tablePos = 0; tablePos < size; tablePos++) {
+            tableArr[tablePos] = function.applyAsDouble(-range + (double) tablePos / TABLE_STEPS_PER_UNIT);
+        }
+        return tableArr;
+    }
+
+    private static double lookup(final double[] tableArr, final double range,
+                                 final double minValue, final double maxValue, final double x) {
+        if (x >= range) {
+            return maxValue;
+        }
+        if (x <= -range) {
+            return minValue;
+        }
+        if (Double.isNaN(x)) {
+            return x;
+        }
+        final double tablePosition = (x + range) * TABLE_STEPS_PER_UNIT;
+        final int tablePos = (int) tablePosition;
+        final double fraction = tablePosition - tablePos;
+        final double lowerValue = tableArr[tablePos];
+        return lowerValue + (tableArr[tablePos + 1] - lowerValue) * fraction;
+    }
+
+    private static double rationalTanh(final double x) {
+        if (x >= RATIONAL_TANH_LIMIT) {
+            return 1.0D;
+        }
+        if (x <= -RATIONAL_TANH_LIMIT) {
+            return -1.0D;
+        }
+        final double x2 = x * x;
+        final double value = x * (135135.0D + x2 * (17325.0D + x2 * (378.0D + x2))) /
+                (135135.0D + x2 * (62370.0D + x2 * (3150.0D + x2 * 28.0D)));
+        return Math.max(-1.0D, Math.min(1.0D, value));
+    }
+}
@@ -1,6 +1,7 @@
 package de.lifecircles.model.neural;
 
 import de.lifecircles.service.SimulationConfig;
+import java.io.Serial;
 import java.io.Serializable;
 
 /**
@@ -9,6 +10,15 @@ import java.io.Serializable;
 public class CellBrain implements CellBrainInterface, Serializable {
     private static final long serialVersionUID = 1L;
     private final NeuralNetwork network;
+    /**
+     * Im Batch vorab berechnete Ausgänge ({@link CellBrainService#processBrainBatches}), vom nächsten
+     * {@link #process()} verbraucht.
+     */
+    private transient double[] batchOutputArr;
+    /**
+     * Wiederverwendeter Ausgabe-Puffer von {@link #process()}.
+     */
+    private transient double[] outputArr;
 
     /**
      * Erstellt ein neues CellBrain mit angegebener Synapsen-Konnektivität.
@@ -44,6 +54,19 @@ public class CellBrain implements CellBrainInterface, Serializable {
         this.network = neuralNetwork;
     }
 
+    /**
+     * Beim Speichern fasst {@link GenomeStore} gleiche Netze zu einem Exemplar zusammen; Netze tragen aber
+     * Zustand pro Zelle (aktive Layer, Ausführungsplan) und werden mutiert. Jedes weitere Gehirn mit
+     * demselben Netz bekommt daher beim Einlesen eine eigene Kopie.
+     */
+    @Serial
+    private Object readResolve() {
+        if (this.network.getNeuralNet().claimOwner()) {
+            return this;
+        }
+        return new CellBrain(this.network.withNeuralNet(this.network.getNeuralNet().copyWithSameIds()));
+    }
+
     public int getSynapseCount() {
         return this.network.getSynapseCount();
     }
@@ -58,12 +81,37 @@ public class CellBrain implements CellBrainInterface, Serializable {
 
     @Override
     public void setInputs(final double[] inputs) {
+        this.batchOutputArr = null;
         this.network.setInputs(inputs);
     }
 
     @Override
     public double[] process() {
-        return this.network.process();
+        final double[] outputArr = this.batchOutputArr;
+        if (outputArr != null) {
+            this.batchOutputArr = null;
+            return outputArr;
+        }
+        final SimulationConfig config = SimulationConfig.getInstance();
+        if (config.isNeuralNetSparseUpdate()) {
+            return this.network.processSparse(this.fetchOutputArr(), config.getNeuralNetSparseUpdateEpsilon());
+        }
+        return this.network.process(this.fetchOutputArr());
+    }
+
+    /**
+     * Ausgabe-Puffer dieses Gehirns, auch für die Batch-Berechnung.
+     */
+    double[] fetchOutputArr() {
+        final int outputCount = this.network.getNeuralNet().getOutputLayerSize();
+        if ((this.outputArr == null) || (this.outputArr.length != outputCount)) {
+            this.outputArr = new double[outputCount];
+        }
+        return this.outputArr;
+    }
+
+    void setBatchOutputs(final double[] batchOutputArr) {
+        this.batchOutputArr = batchOutputArr;
     }
 
     @Override
@@ -76,6 +124,16 @@ public class CellBrain implements CellBrainInterface, Serializable {
         return this.network.getProccessedSynapses();
     }
 
+    @Override
+    public long getSkippedSynapses() {
+        return this.network.getSkippedSynapses();
+    }
+
+    @Override
+    public long estimateMemoryBytes() {
+        return this.network.estimateMemoryBytes();
+    }
+
     @Override
     public NeuralNetwork mutate(final double mutationRate, final double mutationStrength) {
         return this.network.mutate(
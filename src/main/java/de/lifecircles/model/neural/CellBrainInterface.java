@@ -7,12 +7,26 @@ public interface CellBrainInterface {
 
     void setInputs(double[] inputs);
 
+    /**
+     * @return die Ausgaben; das Array kann beim nächsten Aufruf wiederverwendet werden
+     */
     double[] process();
 
     int getInputCount();
 
     long getProccessedSynapses();
 
+    /**
+     * @return der Anteil von {@link #getProccessedSynapses()}, der bei der inkrementellen Berechnung
+     *         übersprungen wurde
+     */
+    long getSkippedSynapses();
+
+    /**
+     * @return geschätzter Speicher des Gehirns in Bytes
+     */
+    long estimateMemoryBytes();
+
     NeuralNetwork mutate(double mutationRate, double mutationStrength);
 
     double getOutputValue(int outputNeuronPos);
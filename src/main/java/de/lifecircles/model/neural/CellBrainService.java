@@ -1,6 +1,9 @@
 package de.lifecircles.model.neural;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import de.lifecircles.model.*;
@@ -8,12 +11,31 @@ import de.lifecircles.service.SimulationConfig;
 
 public class CellBrainService {
 
+    /**
+     * Mindestanzahl strukturgleicher Netze, ab der gemeinsam gerechnet wird.
+     */
+    static final int MIN_BATCH_SIZE = 2;
+
+    private static final int GLOBAL_INPUT_COUNT = GlobalInputFeature.values().length;
+    private static final int SENSOR_INPUT_COUNT = SensorInputFeature.values().length;
+    private static final int GLOBAL_OUTPUT_COUNT = GlobalOutputFeature.values().length;
+    private static final int ACTOR_OUTPUT_COUNT = ActorOutputFeature.values().length;
+
+    /**
+     * Eingabe-Puffer pro Thread für {@link #senseInputs}; {@link NeuralNet#setInputs} kopiert die Werte.
+     */
+    private static final ThreadLocal<double[]> INPUT_BUFFER = ThreadLocal.withInitial(() -> new double[0]);
+
     public static double[] generateInputs(final Cell cell) {
+        return generateInputs(cell, new double[cell.getBrain().getInputCount()]);
+    }
+
+    /**
+     * Wie {@link #generateInputs(Cell)}, schreibt alle Eingänge in das übergebene Array.
+     */
+    public static double[] generateInputs(final Cell cell, final double[] inputs) {
         final List<SensorActor> myActorList = cell.getSensorActors();
         final int actorCount = myActorList.size();
-        final CellBrainInterface cellBrain = cell.getBrain();
-        final int totalInputs = cellBrain.getInputCount();
-        final double[] inputs = new double[totalInputs];
 
         // Global inputs (cell type and energy)
         CellType cellType = cell.getType();
@@ -25,13 +47,11 @@ public class CellBrainService {
         inputs[GlobalInputFeature.MY_CELL_SUNRAY_HIT.ordinal()] = cell.isSunRayHit() ? 1.0 : 0.0;
 
         // Add cell state as global input
-        double[] normalizedCellState = cell.getNormalizedCellState();
+        inputs[GlobalInputFeature.MY_CELL_STATE_0.ordinal()] = cell.getNormalizedCellState(0);
+        inputs[GlobalInputFeature.MY_CELL_STATE_1.ordinal()] = cell.getNormalizedCellState(1);
+        inputs[GlobalInputFeature.MY_CELL_STATE_2.ordinal()] = cell.getNormalizedCellState(2);
 
-        inputs[GlobalInputFeature.MY_CELL_STATE_0.ordinal()] = normalizedCellState[0];
-        inputs[GlobalInputFeature.MY_CELL_STATE_1.ordinal()] = normalizedCellState[1];
-        inputs[GlobalInputFeature.MY_CELL_STATE_2.ordinal()] = normalizedCellState[2];
-
-        int baseGlobal = GlobalInputFeature.values().length;
+        int baseGlobal = GLOBAL_INPUT_COUNT;
 
         final int topSensorIndex = cell.getTopSensorIndex();
 
@@ -66,11 +86,9 @@ public class CellBrainService {
                 sensedCellAge = sensedCell.getAge();
 
                 // Sensed cell state as sensor input:
-                double[] normalizedSensedCellState = sensedCell.getNormalizedCellState();
-
-                inputs[baseGlobal + SensorInputFeature.SENSED_CELL_STATE_0.ordinal()] = normalizedSensedCellState[0];
-                inputs[baseGlobal + SensorInputFeature.SENSED_CELL_STATE_1.ordinal()] = normalizedSensedCellState[1];
-                inputs[baseGlobal + SensorInputFeature.SENSED_CELL_STATE_2.ordinal()] = normalizedSensedCellState[2];
+                inputs[baseGlobal + SensorInputFeature.SENSED_CELL_STATE_0.ordinal()] = sensedCell.getNormalizedCellState(0);
+                inputs[baseGlobal + SensorInputFeature.SENSED_CELL_STATE_1.ordinal()] = sensedCell.getNormalizedCellState(1);
+                inputs[baseGlobal + SensorInputFeature.SENSED_CELL_STATE_2.ordinal()] = sensedCell.getNormalizedCellState(2);
             } else {
                 sensedCellTypeR = 0;
                 sensedCellTypeG = 0;
@@ -104,7 +122,7 @@ public class CellBrainService {
                 inputs[baseGlobal + SensorInputFeature.SENSED_ACTOR_FORCE_STRENGTH.ordinal()] = 0;
             }
 
-            baseGlobal += SensorInputFeature.values().length;
+            baseGlobal += SENSOR_INPUT_COUNT;
         }
 
         return inputs;
@@ -130,18 +148,18 @@ public class CellBrainService {
                 (config.getCellMaxRadiusSize() - config.getCellMinRadiusSize())) +
                 config.getCellMinRadiusSize());
 
-        int index = GlobalOutputFeature.values().length;
+        int index = GLOBAL_OUTPUT_COUNT;
 
         // Apply actor outputs
         final List<SensorActor> actorList = cell.getSensorActors();
         for (final SensorActor actor : actorList) {
-            // Set actor type
-            final CellType newType = new CellType(
-                    outputs[index + ActorOutputFeature.TYPE_RED.ordinal()],
-                    outputs[index + ActorOutputFeature.TYPE_GREEN.ordinal()],
-                    outputs[index + ActorOutputFeature.TYPE_BLUE.ordinal()]
-            );
-            actor.setType(newType);
+            // Set actor type; CellType ist unveränderlich (die UI liest ihn), neu nur bei geänderten Werten.
+            final double typeRed = outputs[index + ActorOutputFeature.TYPE_RED.ordinal()];
+            final double typeGreen = outputs[index + ActorOutputFeature.TYPE_GREEN.ordinal()];
+            final double typeBlue = outputs[index + ActorOutputFeature.TYPE_BLUE.ordinal()];
+            if (!actor.getType().hasRgb(typeRed, typeGreen, typeBlue)) {
+                actor.setType(new CellType(typeRed, typeGreen, typeBlue));
+            }
 
             // Set force strength (range -1 to 1)
             //actor.setForceStrength(outputs[index + ActorOutputFeature.FORCE.ordinal()] * 2.0D - 1.0D);
@@ -180,7 +198,7 @@ public class CellBrainService {
             }
             actor.setReproductionState(childState);
 
-            index += ActorOutputFeature.values().length;
+            index += ACTOR_OUTPUT_COUNT;
         }
     }
 
@@ -188,14 +206,76 @@ public class CellBrainService {
      * Updates the cell's behavior based on its current state and environment.
      */
     public static void think(final Cell cell) {
-        final CellBrainInterface cellBrain = cell.getBrain();
+        CellBrainService.senseInputs(cell);
+        CellBrainService.processOutputs(cell);
+    }
 
-        final double[] inputs = CellBrainService.generateInputs(cell);
+    /**
+     * Erster Teil von {@link #think}: liest die Umgebung und setzt die Eingänge des Gehirns.
+     * Wird im Simulationsschritt für alle Zellen ausgeführt, bevor eine Zelle ihre Ausgänge anwendet,
+     * damit keine Zelle den bereits aktualisierten Zustand ihrer Nachbarn sieht.
+     */
+    public static void senseInputs(final Cell cell) {
+        final CellBrainInterface cellBrain = cell.getBrain();
+        double[] inputs = INPUT_BUFFER.get();
+        if (inputs.length != cellBrain.getInputCount()) {
+            inputs = new double[cellBrain.getInputCount()];
+            INPUT_BUFFER.set(inputs);
+        }
+        CellBrainService.generateInputs(cell, inputs);
         cellBrain.setInputs(inputs);
+    }
 
-        final double[] outputs = cellBrain.process();
-
+    /**
+     * Zweiter Teil von {@link #think}: berechnet das Gehirn und wendet die Ausgänge auf die Zelle an.
+     */
+    public static void processOutputs(final Cell cell) {
+        final double[] outputs = cell.getBrain().process();
         CellBrainService.applyOutputs(cell, outputs);
     }
 
+    /**
+     * Berechnet die Gehirne der Zellen vorab, Zellen mit gleicher Netz-Struktur gemeinsam
+     * (siehe {@link NeuralNet#processBatch}). Die Eingänge müssen mit {@link #senseInputs} gesetzt sein,
+     * {@link #processOutputs} übernimmt dann die vorab berechneten Ausgänge.
+     * Zellen mit eigener Struktur oder Netzen in Neuronen werden weiterhin einzeln berechnet.
+     */
+    public static void processBrainBatches(final List<Cell> cellList) {
+        final Map<NeuralNetExecutionPlan.TopologyKey, List<CellBrain>> brainGroupMap = new LinkedHashMap<>();
+        for (final Cell cell : cellList) {
+            if ((cell.getBrain() instanceof CellBrain cellBrain) &&
+                    (cellBrain.getNeuralNetwork().getNeuronValueFunction() instanceof ValuesNeuronValueFunction)) {
+                final NeuralNetExecutionPlan plan = cellBrain.getNeuralNetwork().getNeuralNet().fetchExecutionPlan();
+                if (plan.isFullyFlat()) {
+                    brainGroupMap.computeIfAbsent(plan.getStructureKey(), structureKey -> new ArrayList<>()).add(cellBrain);
+                }
+            }
+        }
+        final List<List<CellBrain>> brainGroupList = new ArrayList<>();
+        for (final List<CellBrain> brainGroup : brainGroupMap.values()) {
+            if (brainGroup.size() >= MIN_BATCH_SIZE) {
+                brainGroupList.add(brainGroup);
+            }
+        }
+        (SimulationConfig.getInstance().isParallelCalculation() ? brainGroupList.parallelStream() : brainGroupList.stream())
+                .forEach(CellBrainService::processBrainBatch);
+    }
+
+    private static void processBrainBatch(final List<CellBrain> brainGroup) {
+        final int batchSize = brainGroup.size();
+        final NeuralNet[] neuralNetArr = new NeuralNet[batchSize];
+        final ValuesNeuronValueFunction[] valueFunctionArr = new ValuesNeuronValueFunction[batchSize];
+        final double[][] outputArrArr = new double[batchSize][];
+        for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+            final CellBrain cellBrain = brainGroup.get(batchPos);
+            final NeuralNetwork network = cellBrain.getNeuralNetwork();
+            neuralNetArr[batchPos] = network.getNeuralNet();
+            valueFunctionArr[batchPos] = (ValuesNeuronValueFunction) network.getNeuronValueFunction();
+            outputArrArr[batchPos] = cellBrain.fetchOutputArr();
+        }
+        NeuralNet.processBatch(neuralNetArr, valueFunctionArr, outputArrArr);
+        for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+            brainGroup.get(batchPos).setBatchOutputs(outputArrArr[batchPos]);
+        }
+    }
 }
@@ -0,0 +1,166 @@
+package de.lifecircles.model.neural;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Veränderlicher Zustand einer Berechnung (Werte, Eingangssummen, Deltas, Ausgaben) getrennt vom Netz.
+ *
+ * Topologie, Gewichte und Bias bleiben im {@link NeuralNet}; mehrere Threads können dasselbe Netz mit je
+ * einem eigenen Kontext gleichzeitig berechnen, solange das Netz dabei nicht verändert wird.
+ * Für {@link NeuronNetwork}-Neuronen wird pro Neuron ein eigener Unter-Kontext angelegt.
+ *
+ * Ein Kontext darf immer nur von einem Thread verwendet werden. Die Werte der letzten Berechnung
+ * bleiben erhalten (z.B. für rückwärts gerichtete Synapsen), {@link #clear()} setzt sie zurück.
+ * Kontexte werden über {@link NeuralNetwork#acquireEvaluationContext()} aus einem Pool geholt und
+ * dabei zurückgesetzt; der Zustand gilt damit nur, solange ein Aufrufer den Kontext behält.
+ *
+ * Die inneren Netze der {@link NeuronNetwork}s werden von allen Neuronen eines Typs geteilt. Ihre Kontexte
+ * (Unter-Kontexte und der eigene Kontext jedes Neurons) führen deshalb auch die Layer-Aktivität selbst,
+ * die Layer des geteilten Netzes werden dabei nur gelesen (Startwerte) und nie geschrieben.
+ */
+public final class EvaluationContext {
+
+    private final ValuesNeuronValueFunction neuronValueFunction;
+    private double[] outputArr = { };
+    // Eingaben des inneren Netzes eines NeuronNetwork, das mit diesem Kontext berechnet wird.
+    private double[] inputArr = { };
+    private Map<NeuronNetwork, EvaluationContext> subContextMap;
+    private long proccessedSynapses;
+    // Layer-Aktivität des berechneten Netzes pro Kontext; nur für innere Netze, sonst gelten die Layer des Netzes.
+    private final boolean layerActivationTracked;
+    private double[] layerActivationCounterArr;
+    private boolean[] layerActiveArr;
+
+    public EvaluationContext() {
+        this(new ValuesNeuronValueFunction(), false);
+    }
+
+    /**
+     * Kontext für ein inneres Netz, der die Werte in neuronValueFunction hält (z.B. die eines {@link NeuronNetwork}s,
+     * damit das Training sie dort findet) und die Layer-Aktivität selbst führt.
+     */
+    EvaluationContext(final ValuesNeuronValueFunction neuronValueFunction) {
+        this(neuronValueFunction, true);
+    }
+
+    private EvaluationContext(final ValuesNeuronValueFunction neuronValueFunction, final boolean layerActivationTracked) {
+        this.neuronValueFunction = neuronValueFunction;
+        this.layerActivationTracked = layerActivationTracked;
+    }
+
+    /**
+     * Ausgaben der letzten Berechnung, gültig bis zur nächsten.
+     */
+    public double[] getOutputArr() {
+        return this.outputArr;
+    }
+
+    /**
+     * Anzahl der verarbeiteten Synapsen der letzten Berechnung, inklusive der Unter-Netze.
+     */
+    public long getProccessedSynapses() {
+        return this.proccessedSynapses;
+    }
+
+    /**
+     * Setzt alle Werte zurück, als wäre der Kontext neu.
+     */
+    public void clear() {
+        Arrays.fill(this.neuronValueFunction.getValuesArr(), 0.0D);
+        Arrays.fill(this.neuronValueFunction.getInputSumArr(), 0.0D);
+        Arrays.fill(this.outputArr, 0.0D);
+        this.subContextMap = null;
+        this.proccessedSynapses = 0L;
+        this.layerActiveArr = null;
+        this.layerActivationCounterArr = null;
+    }
+
+    ValuesNeuronValueFunction getNeuronValueFunction() {
+        return this.neuronValueFunction;
+    }
+
+    double[] fetchOutputArr(final int outputCount) {
+        if (this.outputArr.length != outputCount) {
+            this.outputArr = new double[outputCount];
+        }
+        return this.outputArr;
+    }
+
+    double[] fetchInputArr(final int inputCount) {
+        if (this.inputArr.length != inputCount) {
+            this.inputArr = new double[inputCount];
+        }
+        return this.inputArr;
+    }
+
+    void setProccessedSynapses(final long proccessedSynapses) {
+        this.proccessedSynapses = proccessedSynapses;
+    }
+
+    /**
+     * Liefert den Unter-Kontext für das innere Netz des Neurons.
+     */
+    EvaluationContext fetchSubContext(final NeuronNetwork neuron) {
+        if (this.subContextMap == null) {
+            this.subContextMap = new IdentityHashMap<>();
+        }
+        return this.subContextMap.computeIfAbsent(neuron, key -> new EvaluationContext(new ValuesNeuronValueFunction()));
+    }
+
+    /**
+     * Das innere Netz wurde mit {@link NeuralNet#copyWithSameIds(Map)} ersetzt: die Unter-Kontexte gehören
+     * ab jetzt zu den kopierten Neuronen. Die Werte bleiben gültig, da die Ids gleich sind.
+     */
+    void replaceSubContextNeurons(final Map<NeuronInterface, NeuronInterface> neuronMap) {
+        if (this.subContextMap == null) {
+            return;
+        }
+        final Map<NeuronNetwork, EvaluationContext> replacedSubContextMap = new IdentityHashMap<>();
+        for (final Map.Entry<NeuronNetwork, EvaluationContext> entry : this.subContextMap.entrySet()) {
+            if (neuronMap.get(entry.getKey()) instanceof NeuronNetwork neuron) {
+                replacedSubContextMap.put(neuron, entry.getValue());
+            }
+        }
+        this.subContextMap = replacedSubContextMap;
+    }
+
+    /**
+     * Führt der Kontext die Layer-Aktivität selbst (siehe {@link #isLayerActive(int, Layer)})?
+     */
+    boolean isLayerActivationTracked() {
+        return this.layerActivationTracked;
+    }
+
+    /**
+     * Bereitet die Layer-Aktivität für das Netz vor; bei neuem Kontext oder geänderter Layer-Anzahl
+     * starten alle Layer mit dem Zustand der Layer des Netzes.
+     */
+    void prepareLayerActivation(final Layer[] hiddenLayerArr) {
+        if ((this.layerActiveArr == null) || (this.layerActiveArr.length != hiddenLayerArr.length)) {
+            this.layerActiveArr = new boolean[hiddenLayerArr.length];
+            this.layerActivationCounterArr = new double[hiddenLayerArr.length];
+            for (int layerPos = 0; layerPos < hiddenLayerArr.length; layerPos++) {
+                this.layerActiveArr[layerPos] = hiddenLayerArr[layerPos].isActiveLayer();
+                this.layerActivationCounterArr[layerPos] = hiddenLayerArr[layerPos].getActivationCounter();
+            }
+        }
+    }
+
+    /**
+     * Ist der Hidden-Layer layerPos aktiv? Ohne eigene Layer-Aktivität gilt das Flag des Layers.
+     */
+    boolean isLayerActive(final int layerPos, final Layer layer) {
+        return this.layerActivationTracked ? this.layerActiveArr[layerPos] : layer.isActiveLayer();
+    }
+
+    double getLayerActivationCounter(final int layerPos) {
+        return this.layerActivationCounterArr[layerPos];
+    }
+
+    void setLayerActivation(final int layerPos, final double activationCounter, final boolean activeLayer) {
+        this.layerActivationCounterArr[layerPos] = activationCounter;
+        this.layerActiveArr[layerPos] = activeLayer;
+    }
+}
@@ -0,0 +1,34 @@
+package de.lifecircles.model.neural;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Schreibt inhaltsgleiche Gehirn-Netze nur einmal: Über {@link GenomeStore} wird jedes NeuralNet auf das erste
+ * Netz mit gleichem Genom abgebildet, das die Java-Serialisierung danach nur noch referenziert.
+ * Beim Einlesen bekommt jedes Gehirn wieder eine eigene Kopie (siehe {@link CellBrain}).
+ */
+public final class GenomeDedupObjectOutputStream extends ObjectOutputStream {
+    private final GenomeStore genomeStore = new GenomeStore();
+
+    public GenomeDedupObjectOutputStream(final OutputStream out) throws IOException {
+        super(out);
+        this.enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(final Object obj) throws IOException {
+        if (obj instanceof NeuralNet neuralNet) {
+            return this.genomeStore.intern(neuralNet);
+        }
+        return obj;
+    }
+
+    /**
+     * Anzahl der bisher geschriebenen unterschiedlichen Netze (inkl. Typ-Netze).
+     */
+    public int getUniqueGenomeCount() {
+        return this.genomeStore.getUniqueGenomeCount();
+    }
+}
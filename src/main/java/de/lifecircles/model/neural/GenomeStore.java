@@ -0,0 +1,95 @@
+package de.lifecircles.model.neural;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Inhaltsadressierter Speicher für Gehirn-Genome: Netze werden über Ids, Topologie, Gewichte, Biases,
+ * Aktivierungsfunktionen und Typ-Netze gehasht, gleiche Genome auf ein Exemplar abgebildet.
+ * Der Laufzeit-Zustand eines Netzes (Werte, Ausführungsplan) zählt nicht zum Genom.
+ * Nicht threadsicher.
+ */
+public final class GenomeStore {
+
+    /**
+     * Genom als Schlüssel; der Hash wird einmal berechnet.
+     */
+    private static final class GenomeKey {
+        private final byte[] genomeArr;
+        private final int hash;
+
+        private GenomeKey(final byte[] genomeArr) {
+            this.genomeArr = genomeArr;
+            this.hash = Arrays.hashCode(genomeArr);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return (obj instanceof GenomeKey other) && (this.hash == other.hash) &&
+                    Arrays.equals(this.genomeArr, other.genomeArr);
+        }
+    }
+
+    private final Map<NeuralNet, byte[]> genomeByNetMap = new IdentityHashMap<>();
+    private final Map<GenomeKey, NeuralNet> netByGenomeMap = new HashMap<>();
+    private int internCount = 0;
+
+    /**
+     * Liefert das bereits gespeicherte Netz mit gleichem Genom oder speichert neuralNet.
+     * Das Ergebnis darf nur gelesen werden, solange es geteilt ist.
+     */
+    public NeuralNet intern(final NeuralNet neuralNet) {
+        this.internCount++;
+        final GenomeKey genomeKey = new GenomeKey(this.fetchGenome(neuralNet));
+        final NeuralNet storedNeuralNet = this.netByGenomeMap.putIfAbsent(genomeKey, neuralNet);
+        return (storedNeuralNet != null) ? storedNeuralNet : neuralNet;
+    }
+
+    /**
+     * Anzahl unterschiedlicher Genome.
+     */
+    public int getUniqueGenomeCount() {
+        return this.netByGenomeMap.size();
+    }
+
+    /**
+     * Anzahl der Aufrufe von {@link #intern(NeuralNet)}.
+     */
+    public int getInternCount() {
+        return this.internCount;
+    }
+
+    /**
+     * Vergleicht den Inhalt zweier Netze wie {@link #intern(NeuralNet)}.
+     */
+    public static boolean isSameGenome(final NeuralNet neuralNet, final NeuralNet otherNeuralNet) {
+        final GenomeStore genomeStore = new GenomeStore();
+        return Arrays.equals(genomeStore.fetchGenome(neuralNet), genomeStore.fetchGenome(otherNeuralNet));
+    }
+
+    private byte[] fetchGenome(final NeuralNet neuralNet) {
+        // Typ-Netze werden von vielen Neuronen geteilt und nur einmal kodiert.
+        byte[] genomeArr = this.genomeByNetMap.get(neuralNet);
+        if (genomeArr == null) {
+            final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(byteOut)) {
+                neuralNet.writeGenome(out, this::fetchGenome);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Genome of neural net could not be written.", e);
+            }
+            genomeArr = byteOut.toByteArray();
+            this.genomeByNetMap.put(neuralNet, genomeArr);
+        }
+        return genomeArr;
+    }
+}
@@ -0,0 +1,42 @@
+package de.lifecircles.model.neural;
+
+import java.util.Random;
+
+/**
+ * Auswahl von Elementen mit Wahrscheinlichkeit p ohne Zufallszahl pro Element.
+ *
+ * Statt für jedes Element {@code random.nextDouble() < p} zu prüfen, wird die Anzahl der übersprungenen
+ * Elemente bis zum nächsten ausgewählten direkt aus der geometrischen Verteilung gezogen:
+ * skip = floor(ln(U) / ln(1 - p)), U gleichverteilt in (0, 1].
+ * Die Auswahl ist statistisch gleichwertig (jedes Element unabhängig mit Wahrscheinlichkeit p),
+ * braucht aber nur eine Zufallszahl pro ausgewähltem Element.
+ */
+final class GeometricSkipSampler {
+
+    private GeometricSkipSampler() {
+    }
+
+    /**
+     * @return Anzahl der Elemente, die vor dem nächsten ausgewählten übersprungen werden;
+     *         {@link Integer#MAX_VALUE}, wenn kein weiteres Element ausgewählt wird.
+     *         Für p &gt;= 1 wird keine Zufallszahl verbraucht.
+     */
+    static int nextSkip(final Random random, final double probability) {
+        if (probability >= 1.0D) {
+            return 0;
+        }
+        if (!(probability > 0.0D)) {
+            return Integer.MAX_VALUE;
+        }
+        final double skip = Math.floor(Math.log(1.0D - random.nextDouble()) / Math.log1p(-probability));
+        return skip >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) skip;
+    }
+
+    /**
+     * @return Index des nächsten ausgewählten Elements nach {@code index}; bei Überlauf {@link Integer#MAX_VALUE}.
+     */
+    static int nextIndex(final Random random, final double probability, final int index) {
+        final long nextIndex = (long) index + 1L + nextSkip(random, probability);
+        return nextIndex >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) nextIndex;
+    }
+}
@@ -20,6 +20,14 @@ public class Layer implements Serializable {
         this.isActiveLayer = true; // Default to active
     }
 
+    /**
+     * Layer mit den übergebenen Neuronen; das Array wird übernommen, nicht kopiert.
+     */
+    public Layer(final NeuronInterface[] neuronArr) {
+        this.neuronArr = neuronArr;
+        this.isActiveLayer = true; // Default to active
+    }
+
     /**
      * Gibt die Neuronen als Array zurück (Performance-Variante).
      * Gibt das interne Array zurück.
@@ -67,6 +75,13 @@ public class Layer implements Serializable {
         neuronArr = newArr;
     }
 
+    /**
+     * Ersetzt die Neuronen; das Array wird übernommen, nicht kopiert.
+     */
+    void setNeuronsArr(final NeuronInterface[] neuronArr) {
+        this.neuronArr = neuronArr;
+    }
+
     public NeuronInterface getNeuron(final int idx) {
         if (idx < 0 || idx >= this.neuronArr.length) throw new IndexOutOfBoundsException();
         return this.neuronArr[idx];
@@ -2,16 +2,30 @@ package de.lifecircles.model.neural;
 
 import de.lifecircles.service.SimulationConfig;
 
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static de.lifecircles.model.neural.NeuralNetwork.DEFAULT_MUTATION_RATE;
 
 public class NeuralNet implements Serializable {
+    @Serial
+    private static final long serialVersionUID = -1847201268253122334L;
+
+    // Schätzwerte für 64-Bit-JVMs mit Compressed-Oops (inkl. Objekt-Header und Referenzen auf das Objekt).
+    private static final long ESTIMATED_SYNAPSE_BYTES = 48L;
+    private static final long ESTIMATED_NEURON_BYTES = 160L;
+
     private Neuron[] inputNeuronArr;
     private Layer[] hiddenLayerArr; // Array statt List
     private Neuron[] outputNeuronArr;
@@ -24,7 +38,71 @@ public class NeuralNet implements Serializable {
      */
     private transient boolean disableLayerDeactivation = false;
 
+    /**
+     * Breite Layer großer Netze werden auf den Fork-Join-Pool verteilt, siehe {@link #setParallelLayerEvaluation(boolean)}.
+     */
+    private transient boolean parallelLayerEvaluation = false;
+
+    /**
+     * Mindestanzahl an Synapsen, ab der die Gewichte beim Training parallel angepasst werden.
+     */
+    static final int PARALLEL_MIN_SYNAPSE_COUNT = 4096;
+    /**
+     * Synapsen pro Abschnitt der parallelen Gewichtsanpassung.
+     */
+    private static final int PARALLEL_SYNAPSE_CHUNK_SIZE = 1024;
+
     private transient long proccessedSynapses = 0L;
+    /**
+     * Von {@link #processSparse} übersprungene Synapsen (in proccessedSynapses enthalten).
+     */
+    private transient long skippedSynapses = 0L;
+    /**
+     * Zustand für {@link #processSparse}, wird bei Bedarf erzeugt.
+     */
+    private transient NeuralNetExecutionPlan.SparseState sparseState;
+
+    /**
+     * Kompilierter Ausführungsplan, gültig für seine {@link #getStructureVersion() Struktur-Version}
+     * (wird bei Bedarf neu erzeugt).
+     */
+    private transient volatile NeuralNetExecutionPlan executionPlan;
+    /**
+     * Bias, Aktivierungsfunktion oder Gewichte wurden seit dem letzten Nachführen des Plans geändert.
+     */
+    private transient volatile boolean executionPlanParametersChanged = false;
+    /**
+     * Hidden-Layer des Ziel-Neurons pro Synapse (Index wie synapseArray), null für Input- und Output-Neuronen.
+     * Wird bei Bedarf aufgebaut und wie der Ausführungsplan bei strukturellen Änderungen verworfen.
+     */
+    private transient Layer[] synapseTargetLayerArr;
+
+    /**
+     * Quelle der Struktur-Versionen; jede Version wird nur einmal vergeben, auch über Netze hinweg.
+     */
+    private static final AtomicLong STRUCTURE_VERSION_COUNTER = new AtomicLong();
+    /**
+     * Siehe {@link #getStructureVersion()}, 0 solange noch keine Version vergeben wurde.
+     */
+    private transient volatile long structureVersion = 0L;
+    /**
+     * Abgeleitete Struktur-Daten zur aktuellen Version, null nach strukturellen Änderungen.
+     */
+    private transient NeuralNetStructureInfo structureInfo;
+
+    /**
+     * Offene Strukturänderung (siehe {@link #beginStructureChange()}): Verschachtelungstiefe,
+     * neue Synapsen, die erst beim Abschluss in die Arrays übernommen werden,
+     * und Anzahl der als null markierten Synapsen im synapseArray.
+     */
+    private transient int structureChangeDepth = 0;
+    private transient List<Synapse> pendingSynapseList;
+    private transient int synapseTombstoneCount = 0;
+
+    /**
+     * Siehe {@link #claimOwner()}.
+     */
+    private transient boolean ownerClaimed = false;
 
     private boolean enableNeuronType = false;
 
@@ -38,6 +116,13 @@ public class NeuralNet implements Serializable {
         }
     };
 
+    /**
+     * Einträge der neuronTypeInfoDataList, deren Typ-Netz nur dieses Netz kennt: von ihm erstellt oder kopiert,
+     * seitdem weder an ein Neuron noch per Kopie an ein anderes Netz weitergegeben.
+     * Nur diese darf {@link #ensureOwnNeuronType} an Ort und Stelle mutieren; nach dem Einlesen ist die Menge leer.
+     */
+    private transient Set<NeuronTypeInfoData> ownNeuronTypeSet;
+
     /**
      * Copy-Konstruktor: Erstellt eine exakte Kopie des übergebenen neuronalen Netzwerks
      *
@@ -49,27 +134,20 @@ public class NeuralNet implements Serializable {
             this.inputNeuronArr = new Neuron[original.inputNeuronArr.length];
             this.outputNeuronArr = new Neuron[original.outputNeuronArr.length];
             // Synapsen-Array initialisieren
-            this.synapseArray = new Synapse[original.synapseArray.length];
+            this.synapseArray = new Synapse[0];
 
             this.disableLayerDeactivation = original.disableLayerDeactivation;
+            this.parallelLayerEvaluation = original.parallelLayerEvaluation;
             this.fixedHiddenLayerCount = original.fixedHiddenLayerCount;
             this.enableNeuronType = original.enableNeuronType;
 
-            this.neuronTypeInfoDataList = new ArrayList<>();
-            // Kopiere die NeuronTypeInfoData
-            for (final NeuronTypeInfoData typeInfo : original.neuronTypeInfoDataList) {
-                final NeuralNet newNeuralNet;
-                final NeuralNet typeInfoNeuralNet = typeInfo.getNeuralNet();
-                if (Objects.nonNull(typeInfoNeuralNet)) {
-                    newNeuralNet = new NeuralNet(typeInfoNeuralNet, true, neuronValueFunctionFactory, neuronValueFunctionFactory.create());
-                } else {
-                    newNeuralNet = null; // Kein Neuron-Typ, daher null
-                }
-                this.neuronTypeInfoDataList.add(new NeuronTypeInfoData(typeInfo.getInputCount(), typeInfo.getOutputCount(), newNeuralNet));
-            }
+            // Die Neuron-Typen werden geteilt (Copy-on-Write, siehe ensureOwnNeuronType()):
+            // Typ-Netze werden nur kopiert, wenn dieses Netz sie später selbst mutiert.
+            this.neuronTypeInfoDataList = new ArrayList<>(original.neuronTypeInfoDataList);
+            original.releaseOwnNeuronTypes();
 
             // Erstelle eine Map, die die Originalneuronen den neuen Neuronen zuordnet
-            final Map<NeuronInterface, NeuronInterface> neuronMap = new HashMap<>();
+            final Map<NeuronInterface, NeuronInterface> neuronMap = new IdentityHashMap<>();
 
             // Kopiere Input-Neuronen
             for (int inputNeuronPos = 0; inputNeuronPos < original.inputNeuronArr.length; inputNeuronPos++) {
@@ -93,14 +171,17 @@ public class NeuralNet implements Serializable {
             this.hiddenLayerArr = new Layer[original.hiddenLayerArr.length];
             for (int hiddenLayerPos = 0; hiddenLayerPos < original.hiddenLayerArr.length; hiddenLayerPos++) {
                 final Layer originalLayer = original.hiddenLayerArr[hiddenLayerPos];
-                final Layer newLayer = new Layer();
-                newLayer.setActiveLayer(originalLayer.isActiveLayer());
+                final NeuronInterface[] originalNeuronArr = originalLayer.getNeuronsArr();
+                final NeuronInterface[] newNeuronArr = new NeuronInterface[originalNeuronArr.length];
 
-                for (final NeuronInterface originalNeuron : originalLayer.getNeuronsArr()) {
-                    final NeuronInterface newNeuron = originalNeuron.cloneNeuron(this, neuronValueFunction, newLayer.isActiveLayer());
-                    newLayer.addNeuron(newNeuron);
+                for (int neuronPos = 0; neuronPos < originalNeuronArr.length; neuronPos++) {
+                    final NeuronInterface originalNeuron = originalNeuronArr[neuronPos];
+                    final NeuronInterface newNeuron = originalNeuron.cloneNeuron(this, neuronValueFunction, originalLayer.isActiveLayer());
+                    newNeuronArr[neuronPos] = newNeuron;
                     neuronMap.put(originalNeuron, newNeuron);
                 }
+                final Layer newLayer = new Layer(newNeuronArr);
+                newLayer.setActiveLayer(originalLayer.isActiveLayer());
                 this.hiddenLayerArr[hiddenLayerPos] = newLayer;
             }
 
@@ -121,23 +202,18 @@ public class NeuralNet implements Serializable {
             }
 
             // Kopiere alle Synapsen mit den korrekten Verbindungen zwischen den neuen Neuronen
-            int synapseIndex = 0;
+            this.beginStructureChange();
             for (int synapsePos = 0; synapsePos < original.synapseArray.length; synapsePos++) {
                 final Synapse originalSynapse = original.synapseArray[synapsePos];
                 final NeuronInterface sourceNeuron = neuronMap.get(originalSynapse.getSourceNeuron());
                 final NeuronInterface targetNeuron = neuronMap.get(originalSynapse.getTargetNeuron());
                 if (sourceNeuron != null && targetNeuron != null) {
-                    Synapse newSynapse = new Synapse(sourceNeuron, originalSynapse.getSourceOutputTypePos(),
+                    this.addNewSynapse(sourceNeuron, originalSynapse.getSourceOutputTypePos(),
                             targetNeuron, originalSynapse.getTargetInputTypePos(),
                             originalSynapse.getWeight());
-                    this.synapseArray[synapseIndex++] = newSynapse;
                 }
             }
-            if (synapseIndex < this.synapseArray.length) {
-                final Synapse[] resized = new Synapse[synapseIndex];
-                System.arraycopy(this.synapseArray, 0, resized, 0, synapseIndex);
-                this.synapseArray = resized;
-            }
+            this.commitStructureChange();
         } else {
             this.inputNeuronArr = original.inputNeuronArr;
             this.outputNeuronArr = original.outputNeuronArr;
@@ -145,6 +221,7 @@ public class NeuralNet implements Serializable {
             this.synapseArray = original.synapseArray;
 
             this.disableLayerDeactivation = original.disableLayerDeactivation;
+            this.parallelLayerEvaluation = original.parallelLayerEvaluation;
             this.fixedHiddenLayerCount = original.fixedHiddenLayerCount;
             this.enableNeuronType = original.enableNeuronType;
 
@@ -182,11 +259,11 @@ public class NeuralNet implements Serializable {
         this.hiddenLayerArr = new Layer[hiddenCounts.length];
         for (int i = 0; i < hiddenCounts.length; i++) {
             int count = hiddenCounts[i];
-            Layer layer = new Layer();
+            final NeuronInterface[] neuronArr = new NeuronInterface[count];
             for (int j = 0; j < count; j++) {
-                layer.addNeuron(createNewNeuron(neuronValueFunctionFactory, neuronValueFunction, this.neuronTypeInfoDataList.get(0)));
+                neuronArr[j] = createNewNeuron(neuronValueFunctionFactory, neuronValueFunction, this.neuronTypeInfoDataList.get(0));
             }
-            this.hiddenLayerArr[i] = layer;
+            this.hiddenLayerArr[i] = new Layer(neuronArr);
         }
 
         // create output neurons
@@ -197,47 +274,163 @@ public class NeuralNet implements Serializable {
         }
 
         // connect layers sequentially: input -> hidden1 -> ... -> hiddenN -> output
+        this.beginStructureChange();
         NeuronInterface[] prev = this.inputNeuronArr;
         for (Layer layer : this.hiddenLayerArr) {
             this.connectLayers(prev, layer.getNeuronsArr(), synapseConnectivity);
             prev = layer.getNeuronsArr();
         }
         this.connectLayers(prev, this.outputNeuronArr, synapseConnectivity);
+        this.commitStructureChange();
     }
 
     /**
      * Processes the inputs through the network and returns the outputs.
      */
     public double[] process(final NeuronValueFunction neuronValueFunction) {
-        this.proccessedSynapses = 0L;
-        final double[] outputArr = new double[this.outputNeuronArr.length];
+        return this.process(neuronValueFunction, new double[this.outputNeuronArr.length]);
+    }
 
-        // process hidden layers
-        for (final Layer layer : this.hiddenLayerArr) {
-            final NeuronInterface[] neuronArr = layer.getNeuronsArr();
-            if (layer.isActiveLayer() || this.disableLayerDeactivation) {
-                for (final NeuronInterface neuron : neuronArr) {
-                    this.proccessedSynapses += this.activate(neuronValueFunction, neuron);
-                }
-            } else {
-                if (neuronArr.length > 0) {
-                    // For inactive layers aktivete allwayse the first neuron.
-                    this.proccessedSynapses += this.activate(neuronValueFunction, layer.getNeuronsArr()[0]);
-                }
-            }
+    /**
+     * Wie {@link #process(NeuronValueFunction)}, schreibt die Ausgaben in das übergebene Array.
+     *
+     * @param outputArr Array mit der Größe des Output-Layers
+     * @return outputArr
+     */
+    public double[] process(final NeuronValueFunction neuronValueFunction, final double[] outputArr) {
+        this.skippedSynapses = 0L;
+        this.invalidateSparseState();
+        if (neuronValueFunction instanceof ValuesNeuronValueFunction valuesNeuronValueFunction) {
+            this.proccessedSynapses = this.fetchExecutionPlan().execute(this, valuesNeuronValueFunction,
+                    this.disableLayerDeactivation, outputArr);
+        } else {
+            this.proccessedSynapses = this.processInterpreted(neuronValueFunction, outputArr);
         }
+        this.updateLayerActivation(neuronValueFunction);
+        return outputArr;
+    }
 
-        // process output layer
-        for (final NeuronInterface neuron : this.outputNeuronArr) {
-            this.proccessedSynapses += this.activate(neuronValueFunction, neuron);
+    /**
+     * Wie {@link #process(NeuronValueFunction, double[])}, berechnet aber nur Neuronen neu, deren gewichtete
+     * Eingänge sich um mehr als epsilon geändert haben (siehe {@link NeuralNetExecutionPlan#executeSparse}).
+     * {@link #getProccessedSynapses()} zählt weiterhin alle Synapsen einer vollständigen Berechnung,
+     * der übersprungene Anteil steht in {@link #getSkippedSynapses()}.
+     * Ohne {@link ValuesNeuronValueFunction} wird vollständig berechnet.
+     */
+    public double[] processSparse(final NeuronValueFunction neuronValueFunction, final double[] outputArr,
+                                  final double epsilon) {
+        if (!(neuronValueFunction instanceof ValuesNeuronValueFunction valuesNeuronValueFunction)) {
+            return this.process(neuronValueFunction, outputArr);
         }
+        if (this.sparseState == null) {
+            this.sparseState = new NeuralNetExecutionPlan.SparseState();
+        }
+        this.proccessedSynapses = this.fetchExecutionPlan().executeSparse(this, valuesNeuronValueFunction,
+                this.disableLayerDeactivation, outputArr, this.sparseState, epsilon);
+        this.skippedSynapses = this.sparseState.getSkippedSynapses();
+        this.updateLayerActivation(neuronValueFunction);
+        return outputArr;
+    }
 
-        // Collect outputs
-        for (int outputNeuronPos = 0; outputNeuronPos < this.outputNeuronArr.length; outputNeuronPos++) {
-            final int outputTypePos = 0; // Default-Output-Type for output neurons.
-            outputArr[outputNeuronPos] = neuronValueFunction.readValue(this, this.outputNeuronArr[outputNeuronPos], outputTypePos);
+    /**
+     * Berechnet die Ausgaben für inputArr mit dem Zustand aus context; das Netz selbst wird nicht verändert.
+     * Mehrere Threads können so mit je einem Kontext gleichzeitig rechnen, solange das Netz unverändert bleibt.
+     * Die Layer-Aktivität wird in Kontexten innerer Netze dort nachgeführt, sonst nur aus den Layern gelesen.
+     *
+     * @return die Ausgaben, gültig bis zur nächsten Berechnung mit context
+     */
+    public double[] process(final EvaluationContext context, final double[] inputArr) {
+        this.setInputs(context.getNeuronValueFunction(), inputArr);
+        return this.process(context);
+    }
+
+    /**
+     * Wie {@link #process(EvaluationContext, double[])} mit den bereits im Kontext stehenden Eingaben.
+     */
+    double[] process(final EvaluationContext context) {
+        final ValuesNeuronValueFunction neuronValueFunction = context.getNeuronValueFunction();
+        final NeuralNetExecutionPlan plan;
+        // Plan wird beim ersten Aufruf kompiliert bzw. nachgeführt.
+        synchronized (this) {
+            plan = this.fetchExecutionPlan();
+        }
+        final double[] outputArr = context.fetchOutputArr(this.outputNeuronArr.length);
+        if (context.isLayerActivationTracked()) {
+            context.prepareLayerActivation(this.hiddenLayerArr);
+        }
+        context.setProccessedSynapses(plan.execute(this, neuronValueFunction, this.disableLayerDeactivation,
+                outputArr, context));
+        if (context.isLayerActivationTracked()) {
+            this.updateLayerActivation(context);
+        }
+        return outputArr;
+    }
+
+    /**
+     * Die Werte wurden ohne {@link #processSparse} berechnet, der nächste Aufruf rechnet vollständig.
+     */
+    private void invalidateSparseState() {
+        if (this.sparseState != null) {
+            this.sparseState.invalidate();
+        }
+    }
+
+    /**
+     * Berechnet mehrere Netze wie {@link #process(NeuronValueFunction)}. Netze mit gleicher Struktur
+     * werden gemeinsam über {@link NeuralNetBatchProcessor} berechnet, die übrigen einzeln.
+     *
+     * @return die Ausgaben in der Reihenfolge der Netze
+     */
+    static double[][] processBatch(final NeuralNet[] neuralNetArr, final ValuesNeuronValueFunction[] valueFunctionArr) {
+        final double[][] outputArrArr = new double[neuralNetArr.length][];
+        for (int batchPos = 0; batchPos < neuralNetArr.length; batchPos++) {
+            outputArrArr[batchPos] = new double[neuralNetArr[batchPos].outputNeuronArr.length];
+        }
+        return processBatch(neuralNetArr, valueFunctionArr, outputArrArr);
+    }
+
+    /**
+     * Wie {@link #processBatch(NeuralNet[], ValuesNeuronValueFunction[])}, schreibt die Ausgaben in die übergebenen
+     * Arrays (je mit der Größe des Output-Layers des Netzes).
+     *
+     * @return outputArrArr
+     */
+    static double[][] processBatch(final NeuralNet[] neuralNetArr, final ValuesNeuronValueFunction[] valueFunctionArr,
+                                   final double[][] outputArrArr) {
+        final int batchSize = neuralNetArr.length;
+        boolean batchable = batchSize > 1;
+        final NeuralNetExecutionPlan firstPlan = neuralNetArr[0].fetchExecutionPlan();
+        for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+            final NeuralNetExecutionPlan plan = neuralNetArr[batchPos].fetchExecutionPlan();
+            // INT8 wendet den Faktor auf die Summe an, der Batch auf jedes Gewicht.
+            batchable &= plan.isFullyFlat() && (plan.getWeightStorage() != WeightStorage.INT8) &&
+                    plan.getStructureKey().equals(firstPlan.getStructureKey());
         }
+        if (!batchable) {
+            for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+                neuralNetArr[batchPos].process(valueFunctionArr[batchPos], outputArrArr[batchPos]);
+            }
+            return outputArrArr;
+        }
+        NeuralNetBatchProcessor.execute(neuralNetArr, valueFunctionArr, outputArrArr);
+        return outputArrArr;
+    }
+
+    /**
+     * Übernimmt das Ergebnis einer Berechnung durch {@link NeuralNetBatchProcessor}, wie am Ende von
+     * {@link #process(NeuronValueFunction, double[])}.
+     */
+    void finishBatchProcess(final ValuesNeuronValueFunction neuronValueFunction, final long proccessedSynapses) {
+        this.proccessedSynapses = proccessedSynapses;
+        this.skippedSynapses = 0L;
+        this.invalidateSparseState();
+        this.updateLayerActivation(neuronValueFunction);
+    }
 
+    /**
+     * Aktualisiert nach der Berechnung die Aktivierungszähler der Hidden-Layer.
+     */
+    private void updateLayerActivation(final NeuronValueFunction neuronValueFunction) {
         // process hidden layer activation counters (ohne fixed layers)
         if (!this.disableLayerDeactivation) {
             for (int layerPos = this.fixedHiddenLayerCount; layerPos < hiddenLayerArr.length; layerPos++) {
@@ -246,8 +439,8 @@ public class NeuralNet implements Serializable {
                 if (neuronArr.length > 0) {
                     final NeuronInterface activationNeuron = neuronArr[0];
                     final int activationOutputTypePos = 0; // Default-Output-Type for activation.
-                    final double activationValue = Math.max(1.0D / 1000,
-                            layer.getActivationCounter() + neuronValueFunction.readValue(this, activationNeuron, activationOutputTypePos));
+                    final double activationValue = calcActivationValue(layer.getActivationCounter(),
+                            neuronValueFunction.readValue(this, activationNeuron, activationOutputTypePos));
                     if (activationValue >= 1.0D) {
                         layer.setActivationCounter(0.0D);
                         layer.setActiveLayer(true);
@@ -263,25 +456,249 @@ public class NeuralNet implements Serializable {
                 layer.setActiveLayer(true);
             }
         }
+    }
 
-        return outputArr;
+    /**
+     * Wie {@link #updateLayerActivation(NeuronValueFunction)}, führt aber die Layer-Aktivität des Kontexts nach;
+     * die Layer des Netzes bleiben unverändert.
+     */
+    private void updateLayerActivation(final EvaluationContext context) {
+        if (this.disableLayerDeactivation) {
+            // Die Layer-Aktivität wird dann nicht gelesen.
+            return;
+        }
+        final NeuronValueFunction neuronValueFunction = context.getNeuronValueFunction();
+        for (int layerPos = this.fixedHiddenLayerCount; layerPos < this.hiddenLayerArr.length; layerPos++) {
+            final NeuronInterface[] neuronArr = this.hiddenLayerArr[layerPos].getNeuronsArr();
+            if (neuronArr.length > 0) {
+                final int activationOutputTypePos = 0; // Default-Output-Type for activation.
+                final double activationValue = calcActivationValue(context.getLayerActivationCounter(layerPos),
+                        neuronValueFunction.readValue(this, neuronArr[0], activationOutputTypePos));
+                if (activationValue >= 1.0D) {
+                    context.setLayerActivation(layerPos, 0.0D, true);
+                } else {
+                    context.setLayerActivation(layerPos, activationValue, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Neuer Aktivierungszähler eines Layers aus dem bisherigen und dem Wert seines ersten Neurons;
+     * ab 1 wird der Layer aktiv und der Zähler beginnt wieder bei 0.
+     */
+    private static double calcActivationValue(final double activationCounter, final double activationNeuronValue) {
+        return Math.max(1.0D / 1000, activationCounter + activationNeuronValue);
     }
 
     /**
-     * Findet das Layer, zu dem ein bestimmtes Neuron gehört.
+     * Berechnet Hidden- und Output-Layer über die Neuronen-Objekte.
+     * Wird für NeuronValueFunctions verwendet, die der Ausführungsplan nicht direkt adressieren kann.
      *
-     * @param searchedNeuron ist das gesuchte Neuron.
-     * @return den Layer oder null, wenn das Neuron nicht gefunden wurde.
+     * @return Anzahl der verarbeiteten Synapsen
+     */
+    private long processInterpreted(final NeuronValueFunction neuronValueFunction, final double[] outputArr) {
+        long processedSynapses = 0L;
+
+        // process hidden layers
+        for (final Layer layer : this.hiddenLayerArr) {
+            final NeuronInterface[] neuronArr = layer.getNeuronsArr();
+            if (layer.isActiveLayer() || this.disableLayerDeactivation) {
+                for (final NeuronInterface neuron : neuronArr) {
+                    processedSynapses += this.activate(neuronValueFunction, neuron);
+                }
+            } else {
+                if (neuronArr.length > 0) {
+                    // For inactive layers aktivete allwayse the first neuron.
+                    processedSynapses += this.activate(neuronValueFunction, layer.getNeuronsArr()[0]);
+                }
+            }
+        }
+
+        // process output layer
+        for (final NeuronInterface neuron : this.outputNeuronArr) {
+            processedSynapses += this.activate(neuronValueFunction, neuron);
+        }
+
+        // Collect outputs
+        for (int outputNeuronPos = 0; outputNeuronPos < this.outputNeuronArr.length; outputNeuronPos++) {
+            final int outputTypePos = 0; // Default-Output-Type for output neurons.
+            outputArr[outputNeuronPos] = neuronValueFunction.readValue(this, this.outputNeuronArr[outputNeuronPos], outputTypePos);
+        }
+        return processedSynapses;
+    }
+
+    /**
+     * Liefert den Ausführungsplan; nach strukturellen Änderungen wird er neu kompiliert,
+     * nach Parameteränderungen nur nachgeführt.
+     */
+    NeuralNetExecutionPlan fetchExecutionPlan() {
+        NeuralNetExecutionPlan plan = this.executionPlan;
+        if ((plan == null) || (plan.getStructureVersion() != this.getStructureVersion()) ||
+                (plan.getWeightStorage() != SimulationConfig.getInstance().getBrainWeightStorage())) {
+            this.executionPlanParametersChanged = false;
+            plan = NeuralNetExecutionPlan.compile(this);
+            this.executionPlan = plan;
+        } else if (this.executionPlanParametersChanged) {
+            // Erst zurücksetzen, damit Änderungen während des Nachführens nicht verloren gehen.
+            this.executionPlanParametersChanged = false;
+            plan.refreshParameters();
+        }
+        return plan;
+    }
+
+    /**
+     * Verwirft den Ausführungsplan nach einer Änderung der Topologie: mit der neuen Struktur-Version
+     * passt er nicht mehr und wird beim nächsten {@link #fetchExecutionPlan()} neu kompiliert.
+     */
+    private void invalidateExecutionPlan() {
+        this.synapseTargetLayerArr = null;
+        this.markStructureChanged();
+    }
+
+    /**
+     * Vergibt eine neue Struktur-Version und verwirft die abgeleiteten Struktur-Daten.
+     */
+    private void markStructureChanged() {
+        this.structureVersion = STRUCTURE_VERSION_COUNTER.incrementAndGet();
+        this.structureInfo = null;
+    }
+
+    /**
+     * Version der Topologie (Neuronen, Layer, Synapsen, Ids); ändert sich bei jeder strukturellen Änderung,
+     * zusammen mit dem Verwerfen des Ausführungsplans. Gewichte, Bias und Werte zählen nicht dazu.
+     * Versionen sind über alle Netze eindeutig, ein Aufrufer kann damit eigene abgeleitete Daten
+     * (z.B. ein Layout) gegen die Version prüfen, statt sie jedes Mal neu zu berechnen.
+     */
+    public long getStructureVersion() {
+        if (this.structureVersion == 0L) {
+            this.markStructureChanged();
+        }
+        return this.structureVersion;
+    }
+
+    /**
+     * Abgeleitete Struktur-Daten zur aktuellen {@link #getStructureVersion() Version}, einmal pro Version erzeugt.
+     */
+    public NeuralNetStructureInfo getStructureInfo() {
+        final long structureVersion = this.getStructureVersion();
+        NeuralNetStructureInfo structureInfo = this.structureInfo;
+        if ((structureInfo == null) || (structureInfo.getStructureVersion() != structureVersion)) {
+            structureInfo = new NeuralNetStructureInfo(structureVersion, this.inputNeuronArr, this.hiddenLayerArr,
+                    this.outputNeuronArr, this.synapseArray);
+            this.structureInfo = structureInfo;
+        }
+        return structureInfo;
+    }
+
+    /**
+     * Alle Neuronen ohne Duplikate: Input, Hidden, Output, danach nur noch über Synapsen
+     * erreichbare Neuronen (z.B. von entfernten Hidden-Layern).
      */
-    private Layer findLayerForNeuron(final NeuronInterface searchedNeuron) {
+    private List<NeuronInterface> collectNeuronList() {
+        final Set<NeuronInterface> neuronSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<NeuronInterface> neuronList = new ArrayList<>();
+        final Consumer<NeuronInterface> collector = neuron -> {
+            if (neuronSet.add(neuron)) {
+                neuronList.add(neuron);
+            }
+        };
+        for (final Neuron neuron : this.inputNeuronArr) {
+            collector.accept(neuron);
+        }
         for (final Layer layer : this.hiddenLayerArr) {
             for (final NeuronInterface neuron : layer.getNeuronsArr()) {
-                if (neuron == searchedNeuron) {
-                    return layer;
+                collector.accept(neuron);
+            }
+        }
+        for (final Neuron neuron : this.outputNeuronArr) {
+            collector.accept(neuron);
+        }
+        for (final Synapse synapse : this.synapseArray) {
+            if (synapse != null) {
+                collector.accept(synapse.getSourceNeuron());
+                collector.accept(synapse.getTargetNeuron());
+            }
+        }
+        return neuronList;
+    }
+
+    /**
+     * Nummeriert die Neuronen lückenlos neu (Input, Hidden, Output, danach nur noch über Synapsen
+     * erreichbare Neuronen entfernter Layer) und verkleinert die Arrays von neuronValueFunction passend.
+     * Neuronen mit gleicher alter Id erhalten wieder eine gemeinsame Id, die Ausgaben bleiben unverändert.
+     * neuronValueFunction muss die Werte dieses Netzes halten.
+     *
+     * @param onlyIfSparse nur verdichten, wenn {@link ValuesNeuronValueFunction#isSparse(int)} zutrifft
+     * @return true, wenn neu nummeriert wurde
+     */
+    boolean compactNeuronIds(final ValuesNeuronValueFunction neuronValueFunction, final boolean onlyIfSparse) {
+        final List<NeuronInterface> neuronList = this.collectNeuronList();
+
+        final int neuronCount = neuronList.size();
+        final int[] oldIdArr = new int[neuronCount];
+        int maxOldId = neuronValueFunction.getIdSpaceSize() - 1;
+        for (int neuronPos = 0; neuronPos < neuronCount; neuronPos++) {
+            oldIdArr[neuronPos] = neuronList.get(neuronPos).getId();
+            maxOldId = Math.max(maxOldId, oldIdArr[neuronPos]);
+        }
+        final int[] newIdByOldIdArr = new int[maxOldId + 1];
+        Arrays.fill(newIdByOldIdArr, -1);
+        int idCount = 0;
+        for (final int oldId : oldIdArr) {
+            if (newIdByOldIdArr[oldId] < 0) {
+                newIdByOldIdArr[oldId] = idCount++;
+            }
+        }
+        if (onlyIfSparse && !neuronValueFunction.isSparse(idCount)) {
+            return false;
+        }
+
+        final int[] oldIdByNewIdArr = new int[idCount];
+        for (int oldId = 0; oldId <= maxOldId; oldId++) {
+            final int newId = newIdByOldIdArr[oldId];
+            if (newId >= 0) {
+                oldIdByNewIdArr[newId] = oldId;
+            }
+        }
+        neuronValueFunction.compact(oldIdByNewIdArr);
+        for (int neuronPos = 0; neuronPos < neuronCount; neuronPos++) {
+            neuronList.get(neuronPos).setId(newIdByOldIdArr[oldIdArr[neuronPos]]);
+        }
+        this.invalidateExecutionPlan();
+        this.invalidateSparseState();
+        return true;
+    }
+
+    /**
+     * Muss aufgerufen werden, wenn Bias oder Aktivierungsfunktion eines Neurons außerhalb
+     * der Methoden dieses Netzes geändert werden. Gewichtsänderungen über
+     * {@link Synapse#setWeight(double)} werden automatisch gemeldet.
+     */
+    public void markExecutionPlanParametersChanged() {
+        this.executionPlanParametersChanged = true;
+    }
+
+    /**
+     * Liefert zu jeder Synapse den Hidden-Layer ihres Ziel-Neurons (erster Layer, der das Neuron enthält).
+     * Der Aufbau ist linear in Neuronen und Synapsen, statt alle Layer pro Synapse zu durchsuchen.
+     */
+    Layer[] fetchSynapseTargetLayerArr() {
+        Layer[] synapseTargetLayerArr = this.synapseTargetLayerArr;
+        if ((synapseTargetLayerArr == null) || (synapseTargetLayerArr.length != this.synapseArray.length)) {
+            final Map<NeuronInterface, Layer> neuronLayerMap = new IdentityHashMap<>();
+            for (final Layer layer : this.hiddenLayerArr) {
+                for (final NeuronInterface neuron : layer.getNeuronsArr()) {
+                    neuronLayerMap.putIfAbsent(neuron, layer);
                 }
             }
+            synapseTargetLayerArr = new Layer[this.synapseArray.length];
+            for (int synapsePos = 0; synapsePos < this.synapseArray.length; synapsePos++) {
+                synapseTargetLayerArr[synapsePos] = neuronLayerMap.get(this.synapseArray[synapsePos].getTargetNeuron());
+            }
+            this.synapseTargetLayerArr = synapseTargetLayerArr;
         }
-        return null;
+        return synapseTargetLayerArr;
     }
 
     public double getOutputValue(final NeuronValueFunction neuronValueFunction, final int outputNeuronPos) {
@@ -301,19 +718,24 @@ public class NeuralNet implements Serializable {
         final Random random = NeuralNetwork.getRandom();
 
         // Mutate weights and biases
+        // Die ausgewählten Neuronen und Synapsen werden per GeometricSkipSampler direkt angesprungen.
+        final int[] neuronSkipArr = { GeometricSkipSampler.nextSkip(random, mutationRate) };
         this.applyToAllNeurons(neuron -> {
-            if (random.nextDouble() < mutationRate) {
+            if (neuronSkipArr[0] == 0) {
                 final double mutation = (random.nextDouble() * 2.0D - 1.0D) * mutationStrength;
                 final int inputTypePos = random.nextInt(neuron.getNeuronTypeInfoData().getInputCount());
                 neuron.setBias(inputTypePos, neuron.getBias(inputTypePos) + mutation);
+                neuronSkipArr[0] = GeometricSkipSampler.nextSkip(random, mutationRate);
+            } else {
+                neuronSkipArr[0]--;
             }
         });
 
-        for (final Synapse synapse : this.synapseArray) {
-            if (random.nextDouble() < mutationRate) {
-                final double mutation = (random.nextDouble() * 2.0D - 1.0D) * mutationStrength;
-                synapse.setWeight(synapse.getWeight() + mutation);
-            }
+        for (int synapsePos = GeometricSkipSampler.nextSkip(random, mutationRate); synapsePos < this.synapseArray.length;
+             synapsePos = GeometricSkipSampler.nextIndex(random, mutationRate, synapsePos)) {
+            final Synapse synapse = this.synapseArray[synapsePos];
+            final double mutation = (random.nextDouble() * 2.0D - 1.0D) * mutationStrength;
+            synapse.setWeight(synapse.getWeight() + mutation);
         }
 
         // Apply structural mutations
@@ -376,15 +798,22 @@ public class NeuralNet implements Serializable {
         if (this.hiddenLayerArr.length > 0 &&
                 (random.nextDouble() < structuralMutationRate)) {
             // Wähle ein zufälliges Hidden Layer
-            List<NeuronInterface> layer = this.hiddenLayerArr[random.nextInt(this.hiddenLayerArr.length)].getNeuronList();
+            List<NeuronInterface> layer = this.getStructureInfo().getLayerNeuronListList().get(1 + random.nextInt(this.hiddenLayerArr.length));
             if (!layer.isEmpty()) {
                 final NeuronInterface neuron = layer.get(random.nextInt(layer.size()));
 
                 neuron.mutateNeuron(random, mutationRate, mutationStrength);
+                this.markExecutionPlanParametersChanged();
             }
         }
     }
 
+    /**
+     * Mutiert die Neuron-Typen dieses Netzes. Geändert wird nur die eigene Liste: neue Typen werden angehängt,
+     * ein geteiltes Typ-Netz wird vor der Mutation mit {@link #ensureOwnNeuronType} kopiert.
+     * Auf einem Typ-Netz wird die Methode nur über {@link NeuronNetwork#mutateNeuron} aufgerufen,
+     * nachdem das Neuron eine eigene Kopie erhalten hat.
+     */
     void mutateNeuronTypeInfoDataList(final NeuronValueFunctionFactory neuronValueFunctionFactory,
                                       final NeuronValueFunction neuronValueFunction,
                                       Random random, double mutationRate, double structuralMutationRate) {
@@ -402,13 +831,15 @@ public class NeuralNet implements Serializable {
                     synapseConnectivity, fixedHiddenLayerCount);
             final NeuronTypeInfoData newNeuronTypeInfoData = new NeuronTypeInfoData(inputCount, outputCount, newNeuralNet);
             this.neuronTypeInfoDataList.add(newNeuronTypeInfoData);
+            this.fetchOwnNeuronTypeSet().add(newNeuronTypeInfoData);
         } else  {
             final NeuralNet selectedNeuralNet = selectedNeuronTypeInfoData.getNeuralNet();
 
             if (random.nextDouble() < structuralMutationRate) {
                 // Existierenden Neuron-Typ mutieren:
                 final boolean mutateNeuronType = false; // Keine strukturelle Mutation des Typs, nur der Neuronen
-                selectedNeuralNet.mutate(neuronValueFunctionFactory, neuronValueFunction, mutationRate, structuralMutationRate, mutateNeuronType);
+                final NeuralNet ownNeuralNet = this.ensureOwnNeuronType(neuronValueFunctionFactory, neuronTypeInfoPos);
+                ownNeuralNet.mutate(neuronValueFunctionFactory, neuronValueFunction, mutationRate, structuralMutationRate, mutateNeuronType);
             } else {
                 // Neuen Neuron-Typ als Mutation des ausgewählten Typs erstellen:
                 final NeuralNet newNeuralNet = new NeuralNet(selectedNeuralNet, true,
@@ -454,6 +885,7 @@ public class NeuralNet implements Serializable {
                                 newNeuralNet);
 
                 this.neuronTypeInfoDataList.add(newNeuronTypeInfoData);
+                this.fetchOwnNeuronTypeSet().add(newNeuronTypeInfoData);
             }
         }
         if (random.nextDouble() < structuralMutationRate) {
@@ -462,6 +894,46 @@ public class NeuralNet implements Serializable {
         }
     }
 
+    /**
+     * Copy-on-Write für die Neuron-Typen: Der Copy-Konstruktor teilt die Einträge der neuronTypeInfoDataList
+     * mit dem Original. Bevor ein Typ-Netz an Ort und Stelle mutiert wird, ersetzt diese Methode den Eintrag
+     * durch eine eigene Kopie, damit Eltern und Geschwister unverändert bleiben.
+     * Bestehende Neuronen behalten ihren bisherigen Typ, wie beim früheren Kopieren aller Typ-Netze.
+     * Kopiert wird nur beim ersten Schreiben: ein Eintrag aus {@link #ownNeuronTypeSet} wird direkt geliefert.
+     */
+    private NeuralNet ensureOwnNeuronType(final NeuronValueFunctionFactory neuronValueFunctionFactory,
+                                          final int neuronTypeInfoPos) {
+        final NeuronTypeInfoData sharedNeuronTypeInfoData = this.neuronTypeInfoDataList.get(neuronTypeInfoPos);
+        final Set<NeuronTypeInfoData> ownNeuronTypeSet = this.fetchOwnNeuronTypeSet();
+        if (ownNeuronTypeSet.contains(sharedNeuronTypeInfoData)) {
+            return sharedNeuronTypeInfoData.getNeuralNet();
+        }
+        final NeuralNet ownNeuralNet = new NeuralNet(sharedNeuronTypeInfoData.getNeuralNet(), true,
+                neuronValueFunctionFactory, neuronValueFunctionFactory.create());
+        final NeuronTypeInfoData ownNeuronTypeInfoData =
+                new NeuronTypeInfoData(sharedNeuronTypeInfoData.getInputCount(), sharedNeuronTypeInfoData.getOutputCount(),
+                        ownNeuralNet);
+        this.neuronTypeInfoDataList.set(neuronTypeInfoPos, ownNeuronTypeInfoData);
+        ownNeuronTypeSet.add(ownNeuronTypeInfoData);
+        return ownNeuralNet;
+    }
+
+    private Set<NeuronTypeInfoData> fetchOwnNeuronTypeSet() {
+        if (this.ownNeuronTypeSet == null) {
+            this.ownNeuronTypeSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+        return this.ownNeuronTypeSet;
+    }
+
+    /**
+     * Die Typen werden ab jetzt geteilt (Kopie dieses Netzes), die nächste Mutation muss sie wieder kopieren.
+     */
+    private void releaseOwnNeuronTypes() {
+        if (this.ownNeuronTypeSet != null) {
+            this.ownNeuronTypeSet.clear();
+        }
+    }
+
     /**
      * Creates a mutated copy with more radikalen Änderungen wenn nötig.
      * Diese Methode ermöglicht stärkere Mutationen als die Standardmethode.
@@ -497,10 +969,7 @@ public class NeuralNet implements Serializable {
 
     public void addRandomSynapse(final Random random) {
         // Wählen Sie zufällige Quelle und Ziel-Layer
-        List<List<NeuronInterface>> allLayers = new ArrayList<>();
-        allLayers.add(Arrays.asList(this.inputNeuronArr));
-        for (Layer l : this.hiddenLayerArr) allLayers.add(l.getNeuronList());
-        allLayers.add(Arrays.asList(this.outputNeuronArr));
+        final List<List<NeuronInterface>> allLayers = this.getStructureInfo().getLayerNeuronListList();
 
         int sourceLayerIndex = random.nextInt(allLayers.size());
         // Exclude the input layer for the target.
@@ -544,14 +1013,14 @@ public class NeuralNet implements Serializable {
 
         final Random random = NeuralNetwork.getRandom();
 
-        final Layer newLayer = new Layer();
-        newLayer.setActiveLayer(true); // Set new layer as active by default
-
         // Erstelle die neuen Neuronen
+        final NeuronInterface[] newNeuronArr = new NeuronInterface[neuronCount];
         for (int i = 0; i < neuronCount; i++) {
-            newLayer.addNeuron(createNewNeuron(neuronValueFunctionFactory, neuronValueFunction,
-                    this.neuronTypeInfoDataList.get(random.nextInt(this.neuronTypeInfoDataList.size()))));
+            newNeuronArr[i] = createNewNeuron(neuronValueFunctionFactory, neuronValueFunction,
+                    this.neuronTypeInfoDataList.get(random.nextInt(this.neuronTypeInfoDataList.size())));
         }
+        final Layer newLayer = new Layer(newNeuronArr);
+        newLayer.setActiveLayer(true); // Set new layer as active by default
 
         // Bestimme die angrenzenden Layer
         final List<NeuronInterface> prevLayer = index == 0 ? Arrays.asList(this.inputNeuronArr) : this.hiddenLayerArr[index - 1].getNeuronList();
@@ -559,17 +1028,19 @@ public class NeuralNet implements Serializable {
 
         // Füge den neuen Layer ein
         this.hiddenLayerArr = insertLayer(this.hiddenLayerArr, index, newLayer);
+        this.invalidateExecutionPlan();
 
+        this.beginStructureChange();
         // Verbinde den vorherigen Layer mit dem neuen Layer
         for (final NeuronInterface srcNeuron : prevLayer) {
             for (final NeuronInterface tgtNeuron : newLayer.getNeuronsArr()) {
                 if (connectivity >= 1.0D || random.nextDouble() < connectivity) {
                     final double weight = random.nextDouble() * 0.002D - 0.001D;
-                    addSynapse(new Synapse(srcNeuron,
+                    this.addNewSynapse(srcNeuron,
                             srcNeuron.getNeuronTypeInfoData().getOutputCount() == 1 ? 0 : random.nextInt(srcNeuron.getNeuronTypeInfoData().getOutputCount()),
                             tgtNeuron,
                             tgtNeuron.getNeuronTypeInfoData().getInputCount() == 1 ? 0 : random.nextInt(tgtNeuron.getNeuronTypeInfoData().getInputCount()),
-                            weight));
+                            weight);
                 }
             }
         }
@@ -579,14 +1050,15 @@ public class NeuralNet implements Serializable {
             for (final NeuronInterface tgtNeuron : nextLayer) {
                 if (connectivity >= 1.0D || random.nextDouble() < connectivity) {
                     final double weight = random.nextDouble() * 0.002D - 0.001D;
-                    addSynapse(new Synapse(srcNeuron,
+                    this.addNewSynapse(srcNeuron,
                             srcNeuron.getNeuronTypeInfoData().getOutputCount() == 1 ? 0 : random.nextInt(srcNeuron.getNeuronTypeInfoData().getOutputCount()),
                             tgtNeuron,
                             tgtNeuron.getNeuronTypeInfoData().getInputCount() == 1 ? 0 : random.nextInt(tgtNeuron.getNeuronTypeInfoData().getInputCount()),
-                            weight));
+                            weight);
                 }
             }
         }
+        this.commitStructureChange();
     }
 
     private NeuronInterface createNewNeuron(final NeuronValueFunctionFactory neuronValueFunctionFactory,
@@ -599,6 +1071,10 @@ public class NeuralNet implements Serializable {
         if (Objects.nonNull(neuronTypeInfoDataList.getNeuralNet())) {
             retNeuron = new NeuronNetwork(neuronValueFunction.fetchNextFreeId(this),
                     neuronTypeInfoDataList, neuronValueFunctionFactory);
+            // Das Neuron verwendet das Typ-Netz direkt, es darf nicht mehr an Ort und Stelle mutiert werden.
+            if (this.ownNeuronTypeSet != null) {
+                this.ownNeuronTypeSet.remove(neuronTypeInfoDataList);
+            }
         } else {
             retNeuron = new Neuron(neuronValueFunction.fetchNextFreeId(this),
                     neuronTypeInfoDataList);
@@ -611,16 +1087,20 @@ public class NeuralNet implements Serializable {
         if (layer.getNeuronList().size() == 1) {
             // Entferne Layer aus Array
             this.hiddenLayerArr = removeLayer(this.hiddenLayerArr, pos);
+            this.invalidateExecutionPlan();
         }
     }
 
     public void addNeuronToHiddenLayer(final NeuronValueFunctionFactory neuronValueFunctionFactory, final NeuronValueFunction neuronValueFunction, final Random random, final int layerIndex, final double connectivity) {
         final  NeuronInterface newNeuron = createNewNeuron(neuronValueFunctionFactory, neuronValueFunction, this.neuronTypeInfoDataList.get(random.nextInt(this.neuronTypeInfoDataList.size())));
 
+        this.beginStructureChange();
         this.createPrevSynapses(random, layerIndex, connectivity, newNeuron);
         this.createNextSynapses(random, layerIndex, connectivity, newNeuron);
+        this.commitStructureChange();
 
         this.hiddenLayerArr[layerIndex].addNeuron(newNeuron);
+        this.invalidateExecutionPlan();
     }
 
     private void createPrevSynapses(final Random random, final int layerIndex, final double connectivity, final NeuronInterface newNeuron) {
@@ -628,11 +1108,11 @@ public class NeuralNet implements Serializable {
         for (final NeuronInterface srcNeuron : prevNeuronList) {
             if (connectivity >= 1.0 || random.nextDouble() < connectivity) {
                 final double weight = random.nextDouble() * 0.002D - 0.001D;
-                this.addSynapse(new Synapse(srcNeuron,
+                this.addNewSynapse(srcNeuron,
                         srcNeuron.getNeuronTypeInfoData().getOutputCount() == 1 ? 0 : random.nextInt(srcNeuron.getNeuronTypeInfoData().getOutputCount()),
                         newNeuron,
                         newNeuron.getNeuronTypeInfoData().getInputCount() == 1 ? 0 : random.nextInt(newNeuron.getNeuronTypeInfoData().getInputCount()),
-                        weight));
+                        weight);
             }
         }
     }
@@ -642,11 +1122,11 @@ public class NeuralNet implements Serializable {
         for (final NeuronInterface tgtNeuron : nextNeuronList) {
             if (connectivity >= 1.0 || random.nextDouble() < connectivity) {
                 final double weight = random.nextDouble() * 0.002D - 0.001D;
-                this.addSynapse(new Synapse(newNeuron,
-                                newNeuron.getNeuronTypeInfoData().getOutputCount() == 1 ? 0 : random.nextInt(newNeuron.getNeuronTypeInfoData().getOutputCount()),
+                this.addNewSynapse(newNeuron,
+                        newNeuron.getNeuronTypeInfoData().getOutputCount() == 1 ? 0 : random.nextInt(newNeuron.getNeuronTypeInfoData().getOutputCount()),
                         tgtNeuron,
                         tgtNeuron.getNeuronTypeInfoData().getInputCount() == 1 ? 0 : random.nextInt(tgtNeuron.getNeuronTypeInfoData().getInputCount()),
-                        weight));
+                        weight);
             }
         }
     }
@@ -674,6 +1154,7 @@ public class NeuralNet implements Serializable {
         final NeuronInterface removedNeuron = layerNeuronList.remove(neuronIdx);
 
         this.removeNeuronNeuronSynapses(removedNeuron);
+        this.invalidateExecutionPlan();
 
         neuronValueFunction.releaseNeuron(this, removedNeuron);
     }
@@ -692,6 +1173,7 @@ public class NeuralNet implements Serializable {
         //}
 
         this.removeNeuronNeuronSynapses(removedNeuron);
+        this.invalidateExecutionPlan();
 
         neuronValueFunction.releaseNeuron(this, removedNeuron);
     }
@@ -704,6 +1186,7 @@ public class NeuralNet implements Serializable {
         this.outputNeuronArr = newOutputNeuronArr;
 
         this.removeNeuronNeuronSynapses(removedNeuron);
+        this.invalidateExecutionPlan();
 
         neuronValueFunction.releaseNeuron(this, removedNeuron);
     }
@@ -714,6 +1197,7 @@ public class NeuralNet implements Serializable {
         final Neuron[] newInputNeuronArr = addNeuronToArr(this.inputNeuronArr, newNeuron);
 
         this.inputNeuronArr = newInputNeuronArr;
+        this.invalidateExecutionPlan();
 
         //for (int pos = 0; pos < this.inputNeuronArr.length; pos++) {
         //    if (this.inputNeuronArr[pos] == null) {
@@ -721,7 +1205,9 @@ public class NeuralNet implements Serializable {
         //    }
         //}
 
+        this.beginStructureChange();
         this.createNextSynapses(random, -1, connectivity, newNeuron);
+        this.commitStructureChange();
     }
 
     public void addNewNeuronToOutputLayer(final NeuronValueFunctionFactory neuronValueFunctionFactory, final NeuronValueFunction neuronValueFunction, final Random random, final double connectivity) {
@@ -730,8 +1216,11 @@ public class NeuralNet implements Serializable {
         final Neuron[] newOutputNeuronArr = addNeuronToArr(this.outputNeuronArr, newNeuron);
 
         this.outputNeuronArr = newOutputNeuronArr;
+        this.invalidateExecutionPlan();
 
+        this.beginStructureChange();
         this.createPrevSynapses(random, this.hiddenLayerArr.length, connectivity, newNeuron);
+        this.commitStructureChange();
     }
 
     private static Neuron[] addNeuronToArr(Neuron[] neuronArr, Neuron newNeuron) {
@@ -749,51 +1238,204 @@ public class NeuralNet implements Serializable {
     }
 
     private void removeNeuronNeuronSynapses(final NeuronInterface removedNeuron) {
-        int synapsePos = 0;
-        while (synapsePos < this.synapseArray.length) {
+        // Entfernte Synapsen werden als Tombstone markiert und beim Abschluss in einem Durchgang entfernt.
+        this.beginStructureChange();
+        for (int synapsePos = 0; synapsePos < this.synapseArray.length; synapsePos++) {
             final Synapse synapse = this.synapseArray[synapsePos];
+            if (synapse == null) {
+                continue;
+            }
             final NeuronInterface sourceNeuron = synapse.getSourceNeuron();
             final NeuronInterface targetNeuron = synapse.getTargetNeuron();
             if (sourceNeuron == removedNeuron || targetNeuron == removedNeuron) {
                 final int outputTypePos = synapse.getSourceOutputTypePos();
                 sourceNeuron.removeOutputSynapse(outputTypePos, synapse);
-                if (targetNeuron == removedNeuron) {
-                    // Entferne Synapse
-                    removeSynapseAt(synapsePos);
-                    continue;
+                if (targetNeuron != removedNeuron) {
+                    int inputTypePos = synapse.getTargetInputTypePos();
+                    targetNeuron.removeInputSynapse(inputTypePos, synapse);
                 }
-                int inputTypePos = synapse.getTargetInputTypePos();
-                targetNeuron.removeInputSynapse(inputTypePos, synapse);
+                // Entferne Synapse
                 this.removeSynapseAt(synapsePos);
-            } else {
-                synapsePos++;
             }
         }
+        // Noch nicht übernommene Synapsen sind nur beim Quell-Neuron eingetragen.
+        this.pendingSynapseList.removeIf(synapse -> {
+            final boolean removed = (synapse.getSourceNeuron() == removedNeuron) || (synapse.getTargetNeuron() == removedNeuron);
+            if (removed) {
+                synapse.getSourceNeuron().removeOutputSynapse(synapse.getSourceOutputTypePos(), synapse);
+            }
+            return removed;
+        });
+        this.commitStructureChange();
     }
 
-    public void removeRandomSynapse(final Random random) {
-        if (this.synapseArray.length == 0) return;
-        final int synapseIdx = random.nextInt(this.synapseArray.length);
-        final Synapse removedSynapse = this.synapseArray[synapseIdx];
-        //removedSynapse.getSourceNeuron().getOutputSynapseList(removedSynapse.getSourceOutputTypePos()).remove(removedSynapse);
-        removedSynapse.getSourceNeuron().removeOutputSynapse(removedSynapse.getSourceOutputTypePos(), removedSynapse);
-        removedSynapse.getTargetNeuron().removeInputSynapse(removedSynapse.getTargetInputTypePos(), removedSynapse);
-        removeSynapseAt(synapseIdx);
-    }
-
-    // Hilfsmethode zum Entfernen einer Synapse an Index
-    private void removeSynapseAt(int idx) {
-        if (this.synapseArray.length == 0) return;
-        Synapse[] newArr = new Synapse[this.synapseArray.length - 1];
-        System.arraycopy(this.synapseArray, 0, newArr, 0, idx);
-        System.arraycopy(this.synapseArray, idx + 1, newArr, idx, this.synapseArray.length - idx - 1);
-        this.synapseArray = newArr;
+    /**
+     * Wird der Hidden-Layer gerade vollständig berechnet? Das gilt, wenn die Layer-Deaktivierung abgeschaltet ist,
+     * oder für Layer hinter den über den Zell-Zustand geschalteten Layern, solange sie aktiv sind.
+     * Der Zustand kann sich mit jedem Schritt ändern; bei eingeschalteter Deaktivierung zählen die ersten
+     * fixedHiddenLayerCount Layer nie dazu.
+     */
+    private boolean isLayerCurrentlyActive(final int layerPos) {
+        return this.disableLayerDeactivation ||
+                ((layerPos >= this.fixedHiddenLayerCount) && this.hiddenLayerArr[layerPos].isActiveLayer());
     }
 
-    // Hilfsmethode zum Einfügen eines Layers in ein Array
-    private static Layer[] insertLayer(Layer[] arr, int index, Layer layer) {
-        Layer[] result = new Layer[arr.length + 1];
-        System.arraycopy(arr, 0, result, 0, index);
+    /**
+     * Entfernt Synapsen mit |Gewicht| < minAbsWeight und danach Hidden-Neuronen, die nichts mehr beitragen:
+     * <ul>
+     *     <li>Neuronen ohne Input-Synapsen liefern konstant f(bias); dieser Beitrag wird in den Bias
+     *     der Ziel-Neuronen übernommen (nur einfache {@link Neuron}s, in Layer-Reihenfolge,
+     *     sodass auch Neuronen wegfallen, deren Eingänge alle entfernt wurden). Das gilt nur für Layer, die gerade
+     *     aktiv sind ({@link #isLayerCurrentlyActive(int)}): in abschaltbaren Layern (die ersten
+     *     fixedHiddenLayerCount, über den Zell-Zustand gesteuert) wird nur das erste Neuron berechnet, die anderen liefern dann 0 bzw. ihren alten Wert.</li>
+     *     <li>Neuronen ohne Pfad zu einem Output-Neuron (Erreichbarkeit rückwärts über die Input-Synapsen).</li>
+     * </ul>
+     * Input- und Output-Neuronen sowie das erste Neuron jedes Hidden-Layers (steuert die Layer-Aktivierung)
+     * bleiben erhalten, Layer werden nicht entfernt. Die Ausgaben ändern sich nur um die entfernten kleinen
+     * Gewichte und durch die andere Summationsreihenfolge der gefalteten Biases.
+     * Die geteilten Typ-Netze der {@link NeuronNetwork}s werden nicht verändert.
+     *
+     * @return Anzahl der entfernten Synapsen
+     */
+    public int prune(final NeuronValueFunction neuronValueFunction, final double minAbsWeight) {
+        if (this.structureChangeDepth > 0) {
+            throw new IllegalStateException("Cannot prune during a structure change.");
+        }
+        final Set<Synapse> removedSynapseSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Set<NeuronInterface> removedNeuronSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Map<NeuronInterface, Integer> inputSynapseCountMap = new IdentityHashMap<>();
+        for (final Synapse synapse : this.synapseArray) {
+            if (Math.abs(synapse.getWeight()) < minAbsWeight) {
+                removedSynapseSet.add(synapse);
+            } else {
+                inputSynapseCountMap.merge(synapse.getTargetNeuron(), 1, Integer::sum);
+            }
+        }
+
+        // Neuronen ohne Eingänge in den Bias der Ziele falten.
+        final ActivationPrecision activationPrecision = SimulationConfig.getInstance().getActivationPrecision();
+        for (int layerPos = 0; layerPos < this.hiddenLayerArr.length; layerPos++) {
+            if (!this.isLayerCurrentlyActive(layerPos)) {
+                continue;
+            }
+            final NeuronInterface[] neuronArr = this.hiddenLayerArr[layerPos].getNeuronsArr();
+            for (int neuronPos = 1; neuronPos < neuronArr.length; neuronPos++) {
+                if ((neuronArr[neuronPos] instanceof Neuron neuron) && (inputSynapseCountMap.getOrDefault(neuron, 0) == 0)) {
+                    final double value = neuron.getActivationFunction().apply(neuron.getBias(0), activationPrecision);
+                    for (final Synapse synapse : neuron.getOutputSynapseList(0)) {
+                        if (removedSynapseSet.add(synapse)) {
+                            final NeuronInterface targetNeuron = synapse.getTargetNeuron();
+                            final int inputTypePos = synapse.getTargetInputTypePos();
+                            targetNeuron.setBias(inputTypePos, targetNeuron.getBias(inputTypePos) + synapse.getWeight() * value);
+                            inputSynapseCountMap.merge(targetNeuron, -1, Integer::sum);
+                        }
+                    }
+                    removedNeuronSet.add(neuron);
+                }
+            }
+        }
+
+        // Rückwärts erreichbare Neuronen ab den Outputs und den Aktivierungs-Neuronen der Layer.
+        final Set<NeuronInterface> reachableNeuronSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<NeuronInterface> neuronStack = new ArrayDeque<>();
+        Collections.addAll(neuronStack, this.outputNeuronArr);
+        for (final Layer layer : this.hiddenLayerArr) {
+            if (layer.size() > 0) {
+                neuronStack.push(layer.getNeuronsArr()[0]);
+            }
+        }
+        reachableNeuronSet.addAll(neuronStack);
+        while (!neuronStack.isEmpty()) {
+            final NeuronInterface neuron = neuronStack.pop();
+            for (int inputTypePos = 0; inputTypePos < neuron.getNeuronTypeInfoData().getInputCount(); inputTypePos++) {
+                for (final Synapse synapse : neuron.getInputSynapseArr(inputTypePos)) {
+                    final NeuronInterface sourceNeuron = synapse.getSourceNeuron();
+                    if (!removedSynapseSet.contains(synapse) && !removedNeuronSet.contains(sourceNeuron) &&
+                            reachableNeuronSet.add(sourceNeuron)) {
+                        neuronStack.push(sourceNeuron);
+                    }
+                }
+            }
+        }
+        for (final Layer layer : this.hiddenLayerArr) {
+            for (final NeuronInterface neuron : layer.getNeuronsArr()) {
+                if (!reachableNeuronSet.contains(neuron)) {
+                    removedNeuronSet.add(neuron);
+                }
+            }
+        }
+
+        // Arrays in einem Durchgang neu aufbauen.
+        final List<Synapse> keptSynapseList = new ArrayList<>(this.synapseArray.length);
+        for (final Synapse synapse : this.synapseArray) {
+            if (!removedSynapseSet.contains(synapse) &&
+                    !removedNeuronSet.contains(synapse.getSourceNeuron()) && !removedNeuronSet.contains(synapse.getTargetNeuron())) {
+                keptSynapseList.add(synapse);
+            }
+        }
+        final int removedSynapseCount = this.synapseArray.length - keptSynapseList.size();
+        if (removedSynapseCount == 0 && removedNeuronSet.isEmpty()) {
+            return 0;
+        }
+        final Set<Synapse> keptSynapseSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        keptSynapseSet.addAll(keptSynapseList);
+        for (final NeuronInterface neuron : this.collectNeuronList()) {
+            if (removedNeuronSet.contains(neuron)) {
+                continue;
+            }
+            for (int inputTypePos = 0; inputTypePos < neuron.getNeuronTypeInfoData().getInputCount(); inputTypePos++) {
+                neuron.setInputSynapseArr(inputTypePos, Arrays.stream(neuron.getInputSynapseArr(inputTypePos))
+                        .filter(keptSynapseSet::contains).toArray(Synapse[]::new));
+            }
+            for (int outputTypePos = 0; outputTypePos < neuron.getNeuronTypeInfoData().getOutputCount(); outputTypePos++) {
+                neuron.setOutputSynapseArr(outputTypePos, neuron.getOutputSynapseList(outputTypePos).stream()
+                        .filter(keptSynapseSet::contains).toArray(Synapse[]::new));
+            }
+        }
+        for (final Layer layer : this.hiddenLayerArr) {
+            layer.setNeuronsArr(Arrays.stream(layer.getNeuronsArr())
+                    .filter(neuron -> !removedNeuronSet.contains(neuron)).toArray(NeuronInterface[]::new));
+        }
+        this.synapseArray = keptSynapseList.toArray(new Synapse[0]);
+        for (final NeuronInterface neuron : removedNeuronSet) {
+            neuronValueFunction.releaseNeuron(this, neuron);
+        }
+        this.invalidateExecutionPlan();
+        this.invalidateSparseState();
+        return removedSynapseCount;
+    }
+
+    public void removeRandomSynapse(final Random random) {
+        if (this.synapseArray.length == 0) return;
+        final int synapseIdx = random.nextInt(this.synapseArray.length);
+        final Synapse removedSynapse = this.synapseArray[synapseIdx];
+        //removedSynapse.getSourceNeuron().getOutputSynapseList(removedSynapse.getSourceOutputTypePos()).remove(removedSynapse);
+        removedSynapse.getSourceNeuron().removeOutputSynapse(removedSynapse.getSourceOutputTypePos(), removedSynapse);
+        removedSynapse.getTargetNeuron().removeInputSynapse(removedSynapse.getTargetInputTypePos(), removedSynapse);
+        removeSynapseAt(synapseIdx);
+    }
+
+    // Hilfsmethode zum Entfernen einer Synapse an Index
+    private void removeSynapseAt(int idx) {
+        if (this.synapseArray.length == 0) return;
+        if (this.structureChangeDepth > 0) {
+            // Tombstone, wird in commitStructureChange() entfernt.
+            this.synapseArray[idx] = null;
+            this.synapseTombstoneCount++;
+            this.markStructureChanged();
+            return;
+        }
+        Synapse[] newArr = new Synapse[this.synapseArray.length - 1];
+        System.arraycopy(this.synapseArray, 0, newArr, 0, idx);
+        System.arraycopy(this.synapseArray, idx + 1, newArr, idx, this.synapseArray.length - idx - 1);
+        this.synapseArray = newArr;
+        this.invalidateExecutionPlan();
+    }
+
+    // Hilfsmethode zum Einfügen eines Layers in ein Array
+    private static Layer[] insertLayer(Layer[] arr, int index, Layer layer) {
+        Layer[] result = new Layer[arr.length + 1];
+        System.arraycopy(arr, 0, result, 0, index);
         result[index] = layer;
         System.arraycopy(arr, index, result, index + 1, arr.length - index);
         return result;
@@ -806,6 +1448,9 @@ public class NeuralNet implements Serializable {
      * @param function Die Funktion, die auf jedes Neuron angewendet werden soll
      */
     public void applyToAllNeurons(final Consumer<NeuronInterface> function) {
+        // Die Funktion kann Bias oder Aktivierungsfunktion ändern.
+        this.markExecutionPlanParametersChanged();
+
         // Anwenden auf Input-Neuronen
         for (final NeuronInterface neuron : this.inputNeuronArr) {
             function.accept(neuron);
@@ -842,11 +1487,17 @@ public class NeuralNet implements Serializable {
         // 1. Berechne den Fehler für die Ausgabeneuronen
         this.calcOutputNeuronDelta(neuronValueFunction, targetOutput);
 
+        final NeuralNetExecutionPlan parallelPlan = this.fetchParallelPlan(neuronValueFunction);
+
         // 2. Backpropagiere den Fehler durch alle versteckten Schichten (von hinten nach vorne)
-        this.backpropagateDelta(neuronValueFunction);
+        if (parallelPlan != null) {
+            this.backpropagateDeltaParallel(neuronValueFunction, parallelPlan);
+        } else {
+            this.backpropagateDelta(neuronValueFunction);
+        }
 
         // 3. Aktualisiere Gewichte und Bias-Werte
-        this.updateBiasAndWeights(neuronValueFunction, learningRate);
+        this.updateBiasAndWeights(neuronValueFunction, learningRate, parallelPlan != null);
 
         // 4. Backpropagiere die speziellen Neuronen (NeuronNetwork).
         this.backpropagateExtra(learningRate);
@@ -872,7 +1523,8 @@ public class NeuralNet implements Serializable {
                 //final double inputSum = outputNeuron.getInputSum(outputTypePos);
                 final double inputSum = neuronValueFunction.readInputSum(this, outputNeuron, outputTypePos);
                 final double delta = (output - target) *
-                        outputNeuron.getActivationFunction().derivative(inputSum);
+                        outputNeuron.getActivationFunction().derivative(inputSum,
+                                SimulationConfig.getInstance().getActivationPrecision());
                 //outputNeuron.setDelta(outputTypePos, delta);
                 neuronValueFunction.writeDelta(this, outputNeuron, outputTypePos, delta);
             }
@@ -895,11 +1547,67 @@ public class NeuralNet implements Serializable {
         }
     }
 
+    /**
+     * Plan für die parallele Rückwärtsrechnung oder null, wenn {@link #setParallelLayerEvaluation(boolean)} aus ist
+     * oder das Netz nicht flach ist. Die Werte-Arrays werden vorab vergrößert, damit parallel nur gelesen
+     * und an disjunkten Ids geschrieben wird.
+     */
+    private NeuralNetExecutionPlan fetchParallelPlan(final NeuronValueFunction neuronValueFunction) {
+        if (!this.parallelLayerEvaluation ||
+                !(neuronValueFunction instanceof ValuesNeuronValueFunction valuesNeuronValueFunction)) {
+            return null;
+        }
+        final NeuralNetExecutionPlan plan = this.fetchExecutionPlan();
+        if (!plan.isFullyFlat()) {
+            return null;
+        }
+        valuesNeuronValueFunction.ensureCapacity(plan.getValueCount());
+        return plan;
+    }
+
+    /**
+     * Wie {@link #backpropagateDelta(NeuronValueFunction)}; die Neuronen paralleler Segmente
+     * ({@link NeuralNetExecutionPlan#isParallelSegment(int)}) werden auf den Fork-Join-Pool verteilt.
+     * Jedes Neuron schreibt nur sein eigenes Delta und liest keine Deltas seines Layers.
+     */
+    private void backpropagateDeltaParallel(final NeuronValueFunction neuronValueFunction,
+                                            final NeuralNetExecutionPlan plan) {
+        for (int hiddenLayerPos = this.hiddenLayerArr.length - 1; hiddenLayerPos >= 0; hiddenLayerPos--) {
+            final Layer layer = this.hiddenLayerArr[hiddenLayerPos];
+            if (!layer.isActiveLayer() && !disableLayerDeactivation) continue; // Überspringe inaktive Layer
+
+            final NeuronInterface[] neuronArr = layer.getNeuronsArr();
+            if (plan.isParallelSegment(hiddenLayerPos)) {
+                ParallelRangeTask.forEachRange(0, neuronArr.length, NeuralNetExecutionPlan.PARALLEL_OP_CHUNK_SIZE,
+                        (neuronStart, neuronEnd) -> {
+                            for (int neuronPos = neuronStart; neuronPos < neuronEnd; neuronPos++) {
+                                neuronArr[neuronPos].backpropagateDelta(this, neuronValueFunction);
+                            }
+                        });
+            } else {
+                for (final NeuronInterface neuron : neuronArr) {
+                    neuron.backpropagateDelta(this, neuronValueFunction);
+                }
+            }
+        }
+    }
+
     /**
      * 3. Aktualisiert die Gewichte und Bias-Werte basierend auf den berechneten Deltas.
      * Wird als Teil des Backpropagation-Algorithmus aufgerufen.
      */
     void updateBiasAndWeights(final NeuronValueFunction neuronValueFunction, final double learningRate) {
+        this.updateBiasAndWeights(neuronValueFunction, learningRate, false);
+    }
+
+    /**
+     * Wie {@link #updateBiasAndWeights(NeuronValueFunction, double)}; mit parallelWeights werden die Gewichte
+     * ab {@link #PARALLEL_MIN_SYNAPSE_COUNT} Synapsen in Abschnitten auf den Fork-Join-Pool verteilt.
+     * Jede Synapse ändert nur ihr eigenes Gewicht, dafür müssen die Werte-Arrays vorab groß genug sein
+     * (siehe {@link #fetchParallelPlan}).
+     */
+    private void updateBiasAndWeights(final NeuronValueFunction neuronValueFunction, final double learningRate,
+                                      final boolean parallelWeights) {
         // Aktualisiere alle Bias-Werte und Gewichte
 
         // 1. Aktualisiere die Bias-Werte in allen Neuronen
@@ -939,15 +1647,33 @@ public class NeuralNet implements Serializable {
             }
         }
 
+        this.markExecutionPlanParametersChanged();
+
         // 2. Aktualisiere alle Synapsengewichte
-        for (final Synapse synapse : this.synapseArray) {
+        final Layer[] synapseTargetLayerArr = this.disableLayerDeactivation ? null : this.fetchSynapseTargetLayerArr();
+        if (parallelWeights && (this.synapseArray.length >= PARALLEL_MIN_SYNAPSE_COUNT)) {
+            ParallelRangeTask.forEachRange(0, this.synapseArray.length, PARALLEL_SYNAPSE_CHUNK_SIZE,
+                    (synapseStart, synapseEnd) -> this.updateWeights(neuronValueFunction, learningRate,
+                            synapseTargetLayerArr, synapseStart, synapseEnd));
+        } else {
+            this.updateWeights(neuronValueFunction, learningRate, synapseTargetLayerArr, 0, this.synapseArray.length);
+        }
+    }
+
+    /**
+     * Passt die Gewichte der Synapsen synapseStart bis synapseEnd an, siehe {@link #updateBiasAndWeights}.
+     */
+    private void updateWeights(final NeuronValueFunction neuronValueFunction, final double learningRate,
+                               final Layer[] synapseTargetLayerArr, final int synapseStart, final int synapseEnd) {
+        for (int synapsePos = synapseStart; synapsePos < synapseEnd; synapsePos++) {
+            final Synapse synapse = this.synapseArray[synapsePos];
             final NeuronInterface targetNeuron = synapse.getTargetNeuron();
             final NeuronInterface sourceNeuron = synapse.getSourceNeuron();
 
             // Überspringe Synapsen zu deaktivierten Layern
             if (!this.disableLayerDeactivation) {
                 if (targetNeuron instanceof Neuron && !((Neuron) targetNeuron).isOutputNeuron()) {
-                    final Layer targetLayer = this.findLayerForNeuron(targetNeuron);
+                    final Layer targetLayer = synapseTargetLayerArr[synapsePos];
                     if (targetLayer != null && !targetLayer.isActiveLayer()) {
                         continue;
                     }
@@ -969,6 +1695,96 @@ public class NeuralNet implements Serializable {
         }
     }
 
+    /**
+     * Anzahl der Bias-Werte für {@link #accumulateGradient}: Hidden-Neuronen in Layer-Reihenfolge, dann Output-Neuronen.
+     */
+    int getBiasGradientCount() {
+        int count = this.outputNeuronArr.length;
+        for (final Layer layer : this.hiddenLayerArr) {
+            count += layer.size();
+        }
+        return count;
+    }
+
+    /**
+     * Vorwärts- und Rückwärtsdurchlauf für ein Beispiel mit eigener NeuronValueFunction.
+     * Addiert die Änderungen, die {@link #updateBiasAndWeights} anwenden würde, auf die Gradienten-Arrays,
+     * ohne das Netz zu ändern; dadurch können mehrere Threads gleichzeitig rechnen.
+     * Nur für flache Netze ({@link NeuralNetExecutionPlan#isFullyFlat()}); Plan und Layer-Index müssen
+     * vorher auf dem aufrufenden Thread geholt werden, die Layer-Aktivität bleibt unverändert.
+     *
+     * @return der quadratische Fehler vor dem Training
+     */
+    double accumulateGradient(final NeuralNetExecutionPlan plan, final Layer[] synapseTargetLayerArr,
+                              final ValuesNeuronValueFunction neuronValueFunction,
+                              final double[] inputArr, final double[] targetOutput, final double learningRate,
+                              final double[] outputArr, final double[] biasGradientArr, final double[] weightGradientArr) {
+        this.setInputs(neuronValueFunction, inputArr);
+        plan.execute(this, neuronValueFunction, this.disableLayerDeactivation, outputArr);
+        final double error = this.calculateError(neuronValueFunction, targetOutput);
+        this.calcOutputNeuronDelta(neuronValueFunction, targetOutput);
+        this.backpropagateDelta(neuronValueFunction);
+
+        final int outputTypePos = 0; // Flache Neuronen haben genau einen Ein- und Ausgang.
+        int biasPos = 0;
+        for (final Layer layer : this.hiddenLayerArr) {
+            if (!layer.isActiveLayer() && !this.disableLayerDeactivation) {
+                biasPos += layer.size();
+                continue; // Überspringe inaktive Layer
+            }
+            for (final NeuronInterface neuron : layer.getNeuronsArr()) {
+                biasGradientArr[biasPos++] += learningRate * neuronValueFunction.readDelta(this, neuron, outputTypePos);
+            }
+        }
+        for (final Neuron neuron : this.outputNeuronArr) {
+            biasGradientArr[biasPos++] += learningRate * neuronValueFunction.readDelta(this, neuron, outputTypePos);
+        }
+
+        for (int synapsePos = 0; synapsePos < this.synapseArray.length; synapsePos++) {
+            final Synapse synapse = this.synapseArray[synapsePos];
+            if (!this.disableLayerDeactivation) {
+                final Layer targetLayer = synapseTargetLayerArr[synapsePos];
+                if (targetLayer != null && !targetLayer.isActiveLayer()) {
+                    continue;
+                }
+            }
+            final double sourceValue = neuronValueFunction.readValue(this, synapse.getSourceNeuron(), outputTypePos);
+            final double targetDelta = neuronValueFunction.readDelta(this, synapse.getTargetNeuron(), outputTypePos);
+            weightGradientArr[synapsePos] += targetDelta * sourceValue * learningRate;
+        }
+        return error;
+    }
+
+    /**
+     * Zieht die mit {@link #accumulateGradient} gesammelten Änderungen geteilt durch sampleCount ab.
+     * Mit einem Beispiel entspricht das {@link #updateBiasAndWeights}.
+     */
+    void applyGradient(final double[] biasGradientArr, final double[] weightGradientArr, final int sampleCount) {
+        final int inputTypePos = 0;
+        int biasPos = 0;
+        for (final Layer layer : this.hiddenLayerArr) {
+            if (!layer.isActiveLayer() && !this.disableLayerDeactivation) {
+                biasPos += layer.size();
+                continue; // Überspringe inaktive Layer
+            }
+            for (final NeuronInterface neuron : layer.getNeuronsArr()) {
+                neuron.setBias(inputTypePos, neuron.getBias(inputTypePos) - biasGradientArr[biasPos++] / sampleCount);
+            }
+        }
+        for (final Neuron neuron : this.outputNeuronArr) {
+            neuron.setBias(inputTypePos, neuron.getBias(inputTypePos) - biasGradientArr[biasPos++] / sampleCount);
+        }
+        this.markExecutionPlanParametersChanged();
+
+        for (int synapsePos = 0; synapsePos < this.synapseArray.length; synapsePos++) {
+            final double weightGradient = weightGradientArr[synapsePos];
+            if (weightGradient != 0.0D) {
+                final Synapse synapse = this.synapseArray[synapsePos];
+                synapse.setWeight(synapse.getWeight() - weightGradient / sampleCount);
+            }
+        }
+    }
+
     /**
      * 4. Backpropagiere die speziellen Neuronen (NeuronNetwork).
      */
@@ -988,6 +1804,29 @@ public class NeuralNet implements Serializable {
         }
     }
 
+    /**
+     * Wie {@link #backpropagateExtra(double)} für ein inneres Netz, das mit context berechnet wurde:
+     * die {@link NeuronNetwork}s finden ihre Werte in den Unter-Kontexten, nicht in ihrer eigenen NeuronValueFunction.
+     */
+    void backpropagateExtra(final EvaluationContext context, final double learningRate) {
+        for (final Layer layer : this.hiddenLayerArr) {
+            if (!layer.isActiveLayer() && !disableLayerDeactivation) continue; // Überspringe inaktive Layer
+
+            for (final NeuronInterface neuron : layer.getNeuronsArr()) {
+                if (neuron instanceof NeuronNetwork neuronNetwork) {
+                    neuronNetwork.backpropagateExtra(context.fetchSubContext(neuronNetwork), learningRate);
+                } else {
+                    neuron.backpropagateExtra(learningRate);
+                }
+            }
+        }
+
+        // Output Neuronen
+        for (final Neuron neuron : this.outputNeuronArr) {
+            neuron.backpropagateExtra(learningRate);
+        }
+    }
+
     /**
      * Berechnet den quadratischen Fehler des Netzwerks
      *
@@ -1048,6 +1887,10 @@ public class NeuralNet implements Serializable {
         return this.proccessedSynapses;
     }
 
+    public long getSkippedSynapses() {
+        return this.skippedSynapses;
+    }
+
     /**
      * Aktiviert oder deaktiviert die Layer-Deaktivierung (z.B. für Tests)
      */
@@ -1059,26 +1902,26 @@ public class NeuralNet implements Serializable {
         return this.disableLayerDeactivation;
     }
 
+    /**
+     * Berechnet breite Layer innerhalb eines Aufrufs parallel: Vorwärtsrechnung und Deltas pro Neuron
+     * (siehe {@link NeuralNetExecutionPlan#isParallelSegment(int)}), Gewichte pro Synapse.
+     * Gedacht für einzelne, sehr große Netze; Zell-Gehirne werden bereits zellweise parallel berechnet.
+     * Die Ergebnisse sind identisch mit der sequentiellen Berechnung.
+     */
+    public void setParallelLayerEvaluation(final boolean parallelLayerEvaluation) {
+        this.parallelLayerEvaluation = parallelLayerEvaluation;
+    }
+
+    public boolean isParallelLayerEvaluation() {
+        return this.parallelLayerEvaluation;
+    }
+
     /**
      * Gibt die Größen aller Layer (Input, Hidden, Output) im Netzwerk zurück
      * @return Array mit den Größen der einzelnen Layer
      */
     public int[] getLayerSizes() {
-        int totalLayers = 2 + this.hiddenLayerArr.length; // Input + Hidden + Output
-        int[] sizes = new int[totalLayers];
-
-        // Input Layer
-        sizes[0] = this.inputNeuronArr.length;
-
-        // Hidden Layers
-        for (int i = 0; i < this.hiddenLayerArr.length; i++) {
-            sizes[i + 1] = this.hiddenLayerArr[i].getNeuronsArr().length;
-        }
-
-        // Output Layer
-        sizes[totalLayers - 1] = this.outputNeuronArr.length;
-
-        return sizes;
+        return this.getStructureInfo().getLayerSizes();
     }
 
     /**
@@ -1154,18 +1997,20 @@ public class NeuralNet implements Serializable {
 
     private void connectLayers(NeuronInterface[] sourceLayer, NeuronInterface[] targetLayer, double connectivity) {
         connectivity = Math.max(0.0, Math.min(1.0, connectivity));
-        for (NeuronInterface source : sourceLayer) {
-            for (NeuronInterface target : targetLayer) {
-                if (connectivity >= 1.0 || NeuralNetwork.getRandom().nextDouble() < connectivity) {
-                    double limit = Math.sqrt(6.0 / (this.getInputLayerSize() + this.getOutputLayerSize()));
-                    final double weight = NeuralNetwork.getRandom().nextDouble() * 2.0D * limit - limit;
-                    this.addSynapse(new Synapse(source,
-                            source.getNeuronTypeInfoData().getOutputCount() == 1 ? 0 : NeuralNetwork.getRandom().nextInt(source.getNeuronTypeInfoData().getOutputCount()),
-                            target,
-                            target.getNeuronTypeInfoData().getInputCount() == 1 ? 0 : NeuralNetwork.getRandom().nextInt(target.getNeuronTypeInfoData().getInputCount()),
-                            weight));
-                }
-            }
+        final Random random = NeuralNetwork.getRandom();
+        // Paare (source, target) zeilenweise durchnummeriert, die ausgewählten werden direkt angesprungen.
+        final int pairCount = sourceLayer.length * targetLayer.length;
+        for (int pairPos = GeometricSkipSampler.nextSkip(random, connectivity); pairPos < pairCount;
+             pairPos = GeometricSkipSampler.nextIndex(random, connectivity, pairPos)) {
+            final NeuronInterface source = sourceLayer[pairPos / targetLayer.length];
+            final NeuronInterface target = targetLayer[pairPos % targetLayer.length];
+            double limit = Math.sqrt(6.0 / (this.getInputLayerSize() + this.getOutputLayerSize()));
+            final double weight = random.nextDouble() * 2.0D * limit - limit;
+            this.addNewSynapse(source,
+                    source.getNeuronTypeInfoData().getOutputCount() == 1 ? 0 : random.nextInt(source.getNeuronTypeInfoData().getOutputCount()),
+                    target,
+                    target.getNeuronTypeInfoData().getInputCount() == 1 ? 0 : random.nextInt(target.getNeuronTypeInfoData().getInputCount()),
+                    weight);
         }
     }
 
@@ -1174,6 +2019,77 @@ public class NeuralNet implements Serializable {
         System.arraycopy(this.synapseArray, 0, newArr, 0, this.synapseArray.length);
         newArr[this.synapseArray.length] = synapse;
         this.synapseArray = newArr;
+        synapse.setNeuralNet(this);
+        this.invalidateExecutionPlan();
+    }
+
+    /**
+     * Erzeugt eine Synapse; in einer offenen Strukturänderung wird sie erst beim Abschluss übernommen.
+     */
+    private void addNewSynapse(final NeuronInterface sourceNeuron, final int sourceOutputTypePos,
+                               final NeuronInterface targetNeuron, final int targetInputTypePos,
+                               final double weight) {
+        if (this.structureChangeDepth > 0) {
+            final Synapse synapse = new Synapse(sourceNeuron, sourceOutputTypePos,
+                    targetNeuron, targetInputTypePos, weight, false);
+            synapse.setNeuralNet(this);
+            this.pendingSynapseList.add(synapse);
+        } else {
+            this.addSynapse(new Synapse(sourceNeuron, sourceOutputTypePos, targetNeuron, targetInputTypePos, weight));
+        }
+    }
+
+    /**
+     * Beginnt eine Strukturänderung: Neue Synapsen werden gesammelt und entfernte als Tombstone (null)
+     * im synapseArray markiert. {@link #commitStructureChange()} erzeugt die Arrays des Netzes und
+     * die Input-Arrays der Ziel-Neuronen einmal in exakter Größe, statt sie pro Synapse um eins zu kopieren.
+     * Aufrufe können verschachtelt werden, übernommen wird beim äußersten Abschluss.
+     *
+     * Bis zum Abschluss enthalten synapseArray und Input-Arrays noch nicht die neuen Synapsen.
+     */
+    public void beginStructureChange() {
+        if (this.structureChangeDepth++ == 0) {
+            this.pendingSynapseList = new ArrayList<>();
+            this.synapseTombstoneCount = 0;
+        }
+    }
+
+    /**
+     * Schließt eine mit {@link #beginStructureChange()} begonnene Strukturänderung ab.
+     */
+    public void commitStructureChange() {
+        if (this.structureChangeDepth <= 0) {
+            throw new IllegalStateException("No structure change in progress.");
+        }
+        if (--this.structureChangeDepth > 0) {
+            return;
+        }
+        final List<Synapse> addedSynapseList = this.pendingSynapseList;
+        this.pendingSynapseList = null;
+        if (addedSynapseList.isEmpty() && (this.synapseTombstoneCount == 0)) {
+            return;
+        }
+
+        // Input-Synapsen pro Ziel-Neuron gesammelt anhängen, die Reihenfolge pro Neuron bleibt erhalten.
+        final Map<NeuronInterface, List<Synapse>> targetSynapseMap = new IdentityHashMap<>();
+        for (final Synapse synapse : addedSynapseList) {
+            targetSynapseMap.computeIfAbsent(synapse.getTargetNeuron(), targetNeuron -> new ArrayList<>()).add(synapse);
+        }
+        targetSynapseMap.forEach(NeuronInterface::addInputSynapseList);
+
+        final Synapse[] newArr = new Synapse[this.synapseArray.length - this.synapseTombstoneCount + addedSynapseList.size()];
+        int newSynapsePos = 0;
+        for (final Synapse synapse : this.synapseArray) {
+            if (synapse != null) {
+                newArr[newSynapsePos++] = synapse;
+            }
+        }
+        for (final Synapse synapse : addedSynapseList) {
+            newArr[newSynapsePos++] = synapse;
+        }
+        this.synapseArray = newArr;
+        this.synapseTombstoneCount = 0;
+        this.invalidateExecutionPlan();
     }
 
     /**
@@ -1189,15 +2105,36 @@ public class NeuralNet implements Serializable {
         return this.synapseArray.length;
     }
 
+    /**
+     * Geschätzter Speicher des Netzes in Bytes: Neuronen, Synapsen und der kompilierte Ausführungsplan.
+     * Innere Netze von {@link NeuronNetwork}-Neuronen werden nicht mitgezählt.
+     */
+    public long estimateMemoryBytes() {
+        long neuronCount = this.inputNeuronArr.length + this.outputNeuronArr.length;
+        for (final Layer layer : this.hiddenLayerArr) {
+            neuronCount += layer.getNeuronsArr().length;
+        }
+        long bytes = (neuronCount * ESTIMATED_NEURON_BYTES) + (this.synapseArray.length * ESTIMATED_SYNAPSE_BYTES);
+        final NeuralNetExecutionPlan plan = this.executionPlan;
+        if ((plan != null) && (plan.getStructureVersion() == this.getStructureVersion())) {
+            bytes += plan.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+
     public List<Synapse> getSynapseList() {
         // Gibt eine unveränderliche Liste der Synapsen zurück
-        return Collections.unmodifiableList(Arrays.asList(this.synapseArray));
+        return this.getStructureInfo().getSynapseList();
     }
 
     public Synapse[] getSynapseArr() {
         return this.synapseArray;
     }
 
+    List<NeuronTypeInfoData> getNeuronTypeInfoDataList() {
+        return Collections.unmodifiableList(this.neuronTypeInfoDataList);
+    }
+
     /**
      * Returns the total count of all neurons in the network.
      * This is more efficient than creating a list of all neurons first.
@@ -1205,36 +2142,414 @@ public class NeuralNet implements Serializable {
      * @return the total number of neurons in the network
      */
     public int getAllNeuronsSize() {
-        int count = this.inputNeuronArr.length + this.outputNeuronArr.length;
+        return this.getStructureInfo().getAllNeuronsSize();
+    }
 
-        for (Layer layer : this.hiddenLayerArr) {
-            count += layer.getNeuronList().size();
+    /**
+     * Das Netz wird flach geschrieben (siehe {@link #writeFlatStructure}), die Graph-Felder bleiben
+     * als serialisierbare Felder deklariert, damit ältere Streams weiterhin gelesen werden können.
+     */
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("inputNeuronArr", Neuron[].class),
+            new ObjectStreamField("hiddenLayerArr", Layer[].class),
+            new ObjectStreamField("outputNeuronArr", Neuron[].class),
+            new ObjectStreamField("synapseArray", Synapse[].class),
+            new ObjectStreamField("fixedHiddenLayerCount", int.class),
+            new ObjectStreamField("enableNeuronType", boolean.class),
+            new ObjectStreamField("neuronTypeInfoDataList", List.class),
+            new ObjectStreamField("flatFormatVersion", int.class)
+    };
+
+    /**
+     * Version des flachen Formats; 0 (fehlendes Feld) kennzeichnet ältere Streams mit Objekt-Graph.
+     */
+    private static final int FLAT_FORMAT_VERSION = 1;
+    private static final byte FLAT_NEURON = 0;
+    private static final byte FLAT_NEURON_NETWORK = 1;
+
+    @Serial
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("fixedHiddenLayerCount", this.fixedHiddenLayerCount);
+        fields.put("enableNeuronType", this.enableNeuronType);
+        fields.put("neuronTypeInfoDataList", new ArrayList<>(this.neuronTypeInfoDataList));
+        fields.put("flatFormatVersion", FLAT_FORMAT_VERSION);
+        out.writeFields();
+        this.writeFlatStructure(out);
+    }
+
+    /**
+     * Schreibt die Neuronen-Tabelle, die Layer-Tabelle (Indizes in die Neuronen-Tabelle),
+     * die Synapsen-Tabelle (Quelle, Ziel, Gewicht als Primitive) und zuletzt je Neuron
+     * die Reihenfolge seiner Input- und Output-Synapsen als Indizes in die Synapsen-Tabelle.
+     * Dadurch entsteht keine Rekursion über Neuronen und Synapsen.
+     */
+    private void writeFlatStructure(final ObjectOutputStream out) throws IOException {
+        final List<NeuronInterface> neuronList = this.collectNeuronList();
+        final Map<NeuronInterface, Integer> neuronPosMap = new IdentityHashMap<>();
+        out.writeInt(neuronList.size());
+        for (final NeuronInterface neuron : neuronList) {
+            neuronPosMap.put(neuron, neuronPosMap.size());
+            if (neuron instanceof NeuronNetwork neuronNetwork) {
+                out.writeByte(FLAT_NEURON_NETWORK);
+                neuronNetwork.writeFlat(out);
+            } else {
+                out.writeByte(FLAT_NEURON);
+                ((Neuron) neuron).writeFlat(out);
+            }
         }
 
-        return count;
+        writeNeuronPosArr(out, this.inputNeuronArr, neuronPosMap);
+        out.writeInt(this.hiddenLayerArr.length);
+        for (final Layer layer : this.hiddenLayerArr) {
+            out.writeBoolean(layer.isActiveLayer());
+            writeNeuronPosArr(out, layer.getNeuronsArr(), neuronPosMap);
+        }
+        writeNeuronPosArr(out, this.outputNeuronArr, neuronPosMap);
+
+        final Map<Synapse, Integer> synapsePosMap = new IdentityHashMap<>();
+        for (final Synapse synapse : this.synapseArray) {
+            if (synapse != null) {
+                synapsePosMap.put(synapse, synapsePosMap.size());
+            }
+        }
+        out.writeInt(synapsePosMap.size());
+        for (final Synapse synapse : this.synapseArray) {
+            if (synapse != null) {
+                out.writeInt(neuronPosMap.get(synapse.getSourceNeuron()));
+                out.writeInt(synapse.getSourceOutputTypePos());
+                out.writeInt(neuronPosMap.get(synapse.getTargetNeuron()));
+                out.writeInt(synapse.getTargetInputTypePos());
+                out.writeDouble(synapse.getWeight());
+            }
+        }
+
+        // Synapsen außerhalb von synapseArray (nicht mehr Teil des Netzes) werden nicht geschrieben.
+        for (final NeuronInterface neuron : neuronList) {
+            for (int inputTypePos = 0; inputTypePos < neuron.getNeuronTypeInfoData().getInputCount(); inputTypePos++) {
+                writeSynapsePosList(out, Arrays.asList(neuron.getInputSynapseArr(inputTypePos)), synapsePosMap);
+            }
+            for (int outputTypePos = 0; outputTypePos < neuron.getNeuronTypeInfoData().getOutputCount(); outputTypePos++) {
+                writeSynapsePosList(out, neuron.getOutputSynapseList(outputTypePos), synapsePosMap);
+            }
+        }
+    }
+
+    private static void writeNeuronPosArr(final DataOutput out, final NeuronInterface[] neuronArr,
+                                          final Map<NeuronInterface, Integer> neuronPosMap) throws IOException {
+        out.writeInt(neuronArr.length);
+        for (final NeuronInterface neuron : neuronArr) {
+            out.writeInt(neuronPosMap.get(neuron));
+        }
+    }
+
+    private static void writeSynapsePosList(final DataOutput out, final List<Synapse> synapseList,
+                                            final Map<Synapse, Integer> synapsePosMap) throws IOException {
+        int synapseCount = 0;
+        for (final Synapse synapse : synapseList) {
+            if (synapsePosMap.containsKey(synapse)) {
+                synapseCount++;
+            }
+        }
+        out.writeInt(synapseCount);
+        for (final Synapse synapse : synapseList) {
+            final Integer synapsePos = synapsePosMap.get(synapse);
+            if (synapsePos != null) {
+                out.writeInt(synapsePos);
+            }
+        }
+    }
+
+    /**
+     * Schreibt den Inhalt des Netzes kanonisch für {@link GenomeStore}: Ids, Topologie, Gewichte, Biases,
+     * Aktivierungsfunktionen, Layer-Flags und Typ-Netze (über typeNetGenomeFunction).
+     * Werte und Laufzeit-Zustand (Ausführungsplan, Aktivierungszähler) gehören nicht dazu.
+     */
+    void writeGenome(final DataOutputStream out, final Function<NeuralNet, byte[]> typeNetGenomeFunction) throws IOException {
+        out.writeInt(this.fixedHiddenLayerCount);
+        out.writeBoolean(this.enableNeuronType);
+        out.writeInt(this.neuronTypeInfoDataList.size());
+        for (final NeuronTypeInfoData neuronTypeInfoData : this.neuronTypeInfoDataList) {
+            writeNeuronTypeGenome(out, neuronTypeInfoData, typeNetGenomeFunction);
+        }
+
+        final List<NeuronInterface> neuronList = this.collectNeuronList();
+        final Map<NeuronInterface, Integer> neuronPosMap = new IdentityHashMap<>();
+        out.writeInt(neuronList.size());
+        for (final NeuronInterface neuron : neuronList) {
+            neuronPosMap.put(neuron, neuronPosMap.size());
+            out.writeByte(neuron instanceof NeuronNetwork ? FLAT_NEURON_NETWORK : FLAT_NEURON);
+            out.writeInt(neuron.getId());
+            writeNeuronTypeGenome(out, neuron.getNeuronTypeInfoData(), typeNetGenomeFunction);
+            for (int inputTypePos = 0; inputTypePos < neuron.getNeuronTypeInfoData().getInputCount(); inputTypePos++) {
+                out.writeDouble(neuron.getBias(inputTypePos));
+            }
+            if (neuron instanceof Neuron plainNeuron) {
+                out.writeInt(plainNeuron.getActivationFunction().ordinal());
+                out.writeBoolean(plainNeuron.isOutputNeuron());
+            }
+        }
+
+        writeNeuronPosArr(out, this.inputNeuronArr, neuronPosMap);
+        out.writeInt(this.hiddenLayerArr.length);
+        for (final Layer layer : this.hiddenLayerArr) {
+            out.writeBoolean(layer.isActiveLayer());
+            writeNeuronPosArr(out, layer.getNeuronsArr(), neuronPosMap);
+        }
+        writeNeuronPosArr(out, this.outputNeuronArr, neuronPosMap);
+
+        final Map<Synapse, Integer> synapsePosMap = new IdentityHashMap<>();
+        out.writeInt(this.synapseArray.length);
+        for (final Synapse synapse : this.synapseArray) {
+            synapsePosMap.put(synapse, synapsePosMap.size());
+            out.writeInt(neuronPosMap.get(synapse.getSourceNeuron()));
+            out.writeInt(synapse.getSourceOutputTypePos());
+            out.writeInt(neuronPosMap.get(synapse.getTargetNeuron()));
+            out.writeInt(synapse.getTargetInputTypePos());
+            out.writeLong(Double.doubleToLongBits(synapse.getWeight()));
+        }
+        // Die Reihenfolge der Input-Synapsen bestimmt die Summationsreihenfolge.
+        for (final NeuronInterface neuron : neuronList) {
+            for (int inputTypePos = 0; inputTypePos < neuron.getNeuronTypeInfoData().getInputCount(); inputTypePos++) {
+                writeSynapsePosList(out, Arrays.asList(neuron.getInputSynapseArr(inputTypePos)), synapsePosMap);
+            }
+        }
+    }
+
+    private static void writeNeuronTypeGenome(final DataOutputStream out, final NeuronTypeInfoData neuronTypeInfoData,
+                                              final Function<NeuralNet, byte[]> typeNetGenomeFunction) throws IOException {
+        out.writeInt(neuronTypeInfoData.getInputCount());
+        out.writeInt(neuronTypeInfoData.getOutputCount());
+        if (neuronTypeInfoData.getNeuralNet() == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] typeNetGenomeArr = typeNetGenomeFunction.apply(neuronTypeInfoData.getNeuralNet());
+            out.writeInt(typeNetGenomeArr.length);
+            out.write(typeNetGenomeArr);
+        }
+    }
+
+    /**
+     * Markiert das Netz beim Einlesen als von einem Gehirn belegt.
+     *
+     * @return false, wenn es bereits belegt war, z.B. weil {@link GenomeStore} gleiche Genome zusammengelegt hat
+     */
+    synchronized boolean claimOwner() {
+        if (this.ownerClaimed) {
+            return false;
+        }
+        this.ownerClaimed = true;
+        return true;
+    }
+
+    /**
+     * Eigenständige Kopie mit denselben Ids, sodass die Werte der NeuronValueFunction des Besitzers weiter passen.
+     * Neuronen, Layer und Synapsen werden direkt kopiert (gleiche Reihenfolgen), die Typ-Netze werden wie beim
+     * Copy-Konstruktor geteilt.
+     */
+    NeuralNet copyWithSameIds() {
+        return this.copyWithSameIds(new IdentityHashMap<>());
+    }
+
+    /**
+     * Wie {@link #copyWithSameIds()}; neuronMap erhält zu jedem Neuron dieses Netzes sein Gegenstück in der Kopie.
+     */
+    NeuralNet copyWithSameIds(final Map<NeuronInterface, NeuronInterface> neuronMap) {
+        if (this.structureChangeDepth > 0) {
+            throw new IllegalStateException("Cannot copy during a structure change.");
+        }
+        return new NeuralNet(this, neuronMap);
+    }
+
+    private NeuralNet(final NeuralNet original, final Map<NeuronInterface, NeuronInterface> neuronMap) {
+        this.fixedHiddenLayerCount = original.fixedHiddenLayerCount;
+        this.enableNeuronType = original.enableNeuronType;
+        this.neuronTypeInfoDataList = new ArrayList<>(original.neuronTypeInfoDataList);
+        original.releaseOwnNeuronTypes();
+        this.disableLayerDeactivation = original.disableLayerDeactivation;
+        this.parallelLayerEvaluation = original.parallelLayerEvaluation;
+
+        final List<NeuronInterface> originalNeuronList = original.collectNeuronList();
+        for (final NeuronInterface neuron : originalNeuronList) {
+            neuronMap.put(neuron, (neuron instanceof NeuronNetwork neuronNetwork) ?
+                    neuronNetwork.copyWithSameId() : ((Neuron) neuron).copyWithSameId());
+        }
+        this.inputNeuronArr = copyNeuronArr(original.inputNeuronArr, neuronMap, new Neuron[original.inputNeuronArr.length]);
+        this.hiddenLayerArr = new Layer[original.hiddenLayerArr.length];
+        for (int layerPos = 0; layerPos < this.hiddenLayerArr.length; layerPos++) {
+            final Layer originalLayer = original.hiddenLayerArr[layerPos];
+            final NeuronInterface[] originalLayerNeuronArr = originalLayer.getNeuronsArr();
+            final Layer layer = new Layer(copyNeuronArr(originalLayerNeuronArr, neuronMap,
+                    new NeuronInterface[originalLayerNeuronArr.length]));
+            layer.setActiveLayer(originalLayer.isActiveLayer());
+            layer.setActivationCounter(originalLayer.getActivationCounter());
+            this.hiddenLayerArr[layerPos] = layer;
+        }
+        this.outputNeuronArr = copyNeuronArr(original.outputNeuronArr, neuronMap, new Neuron[original.outputNeuronArr.length]);
+
+        final Map<Synapse, Synapse> synapseMap = new IdentityHashMap<>();
+        this.synapseArray = new Synapse[original.synapseArray.length];
+        for (int synapsePos = 0; synapsePos < this.synapseArray.length; synapsePos++) {
+            final Synapse originalSynapse = original.synapseArray[synapsePos];
+            final Synapse synapse = new Synapse(neuronMap.get(originalSynapse.getSourceNeuron()),
+                    originalSynapse.getSourceOutputTypePos(), neuronMap.get(originalSynapse.getTargetNeuron()),
+                    originalSynapse.getTargetInputTypePos(), originalSynapse.getWeight(), false, false);
+            synapse.setNeuralNet(this);
+            synapseMap.put(originalSynapse, synapse);
+            this.synapseArray[synapsePos] = synapse;
+        }
+        // Reihenfolge der Synapsen pro Neuron beibehalten, sie bestimmt die Summationsreihenfolge.
+        for (final NeuronInterface originalNeuron : originalNeuronList) {
+            final NeuronInterface neuron = neuronMap.get(originalNeuron);
+            for (int inputTypePos = 0; inputTypePos < originalNeuron.getNeuronTypeInfoData().getInputCount(); inputTypePos++) {
+                neuron.setInputSynapseArr(inputTypePos,
+                        copySynapseArr(Arrays.asList(originalNeuron.getInputSynapseArr(inputTypePos)), synapseMap));
+            }
+            for (int outputTypePos = 0; outputTypePos < originalNeuron.getNeuronTypeInfoData().getOutputCount(); outputTypePos++) {
+                neuron.setOutputSynapseArr(outputTypePos,
+                        copySynapseArr(originalNeuron.getOutputSynapseList(outputTypePos), synapseMap));
+            }
+        }
+    }
+
+    private static <T extends NeuronInterface> T[] copyNeuronArr(final NeuronInterface[] originalNeuronArr,
+                                                                 final Map<NeuronInterface, NeuronInterface> neuronMap,
+                                                                 final T[] targetArr) {
+        for (int neuronPos = 0; neuronPos < targetArr.length; neuronPos++) {
+            @SuppressWarnings("unchecked")
+            final T neuron = (T) neuronMap.get(originalNeuronArr[neuronPos]);
+            targetArr[neuronPos] = neuron;
+        }
+        return targetArr;
+    }
+
+    /**
+     * Synapsen außerhalb von synapseArray (nicht mehr Teil des Netzes) werden wie beim Schreiben ausgelassen.
+     */
+    private static Synapse[] copySynapseArr(final List<Synapse> originalSynapseList, final Map<Synapse, Synapse> synapseMap) {
+        final List<Synapse> synapseList = new ArrayList<>(originalSynapseList.size());
+        for (final Synapse originalSynapse : originalSynapseList) {
+            final Synapse synapse = synapseMap.get(originalSynapse);
+            if (synapse != null) {
+                synapseList.add(synapse);
+            }
+        }
+        return synapseList.toArray(new Synapse[0]);
     }
 
-    // Deserialisierung: Output-Synapsen wiederherstellen
     @Serial
-    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        in.defaultReadObject();
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = in.readFields();
+        this.fixedHiddenLayerCount = fields.get("fixedHiddenLayerCount", SimulationConfig.CELL_STATE_ACTIVE_LAYER_COUNT);
+        this.enableNeuronType = fields.get("enableNeuronType", false);
+        this.neuronTypeInfoDataList = (List<NeuronTypeInfoData>) fields.get("neuronTypeInfoDataList", null);
+
+        final int flatFormatVersion = fields.get("flatFormatVersion", 0);
+        if (flatFormatVersion == 0) {
+            this.inputNeuronArr = (Neuron[]) fields.get("inputNeuronArr", null);
+            this.hiddenLayerArr = (Layer[]) fields.get("hiddenLayerArr", null);
+            this.outputNeuronArr = (Neuron[]) fields.get("outputNeuronArr", null);
+            this.synapseArray = (Synapse[]) fields.get("synapseArray", null);
+            this.restoreLegacySynapses();
+        } else if (flatFormatVersion == FLAT_FORMAT_VERSION) {
+            this.readFlatStructure(in);
+        } else {
+            throw new InvalidObjectException("Unbekannte Version des NeuralNet-Formats: " + flatFormatVersion);
+        }
+    }
+
+    /**
+     * Gegenstück zu {@link #writeFlatStructure}, ein Durchlauf pro Tabelle.
+     */
+    private void readFlatStructure(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final NeuronInterface[] neuronArr = new NeuronInterface[in.readInt()];
+        for (int neuronPos = 0; neuronPos < neuronArr.length; neuronPos++) {
+            final byte neuronKind = in.readByte();
+            if (neuronKind == FLAT_NEURON_NETWORK) {
+                neuronArr[neuronPos] = NeuronNetwork.readFlat(in);
+            } else if (neuronKind == FLAT_NEURON) {
+                neuronArr[neuronPos] = Neuron.readFlat(in);
+            } else {
+                throw new InvalidObjectException("Unbekannte Neuron-Art: " + neuronKind);
+            }
+        }
+
+        this.inputNeuronArr = readNeuronArr(in, neuronArr, new Neuron[in.readInt()]);
+        this.hiddenLayerArr = new Layer[in.readInt()];
+        for (int hiddenLayerPos = 0; hiddenLayerPos < this.hiddenLayerArr.length; hiddenLayerPos++) {
+            final boolean isActiveLayer = in.readBoolean();
+            final Layer layer = new Layer(readNeuronArr(in, neuronArr, new NeuronInterface[in.readInt()]));
+            layer.setActiveLayer(isActiveLayer);
+            this.hiddenLayerArr[hiddenLayerPos] = layer;
+        }
+        this.outputNeuronArr = readNeuronArr(in, neuronArr, new Neuron[in.readInt()]);
+
+        this.synapseArray = new Synapse[in.readInt()];
+        for (int synapsePos = 0; synapsePos < this.synapseArray.length; synapsePos++) {
+            final NeuronInterface sourceNeuron = neuronArr[in.readInt()];
+            final int sourceOutputTypePos = in.readInt();
+            final NeuronInterface targetNeuron = neuronArr[in.readInt()];
+            final int targetInputTypePos = in.readInt();
+            final Synapse synapse = new Synapse(sourceNeuron, sourceOutputTypePos, targetNeuron, targetInputTypePos,
+                    in.readDouble(), false, false);
+            synapse.setNeuralNet(this);
+            this.synapseArray[synapsePos] = synapse;
+        }
+
+        for (final NeuronInterface neuron : neuronArr) {
+            for (int inputTypePos = 0; inputTypePos < neuron.getNeuronTypeInfoData().getInputCount(); inputTypePos++) {
+                neuron.setInputSynapseArr(inputTypePos, this.readSynapseArr(in));
+            }
+            for (int outputTypePos = 0; outputTypePos < neuron.getNeuronTypeInfoData().getOutputCount(); outputTypePos++) {
+                neuron.setOutputSynapseArr(outputTypePos, this.readSynapseArr(in));
+            }
+        }
+    }
+
+    private static <T extends NeuronInterface> T[] readNeuronArr(final ObjectInputStream in, final NeuronInterface[] neuronArr,
+                                                                 final T[] targetArr) throws IOException {
+        for (int neuronPos = 0; neuronPos < targetArr.length; neuronPos++) {
+            @SuppressWarnings("unchecked")
+            final T neuron = (T) neuronArr[in.readInt()];
+            targetArr[neuronPos] = neuron;
+        }
+        return targetArr;
+    }
+
+    private Synapse[] readSynapseArr(final ObjectInputStream in) throws IOException {
+        final Synapse[] synapseArr = new Synapse[in.readInt()];
+        for (int synapsePos = 0; synapsePos < synapseArr.length; synapsePos++) {
+            synapseArr[synapsePos] = this.synapseArray[in.readInt()];
+        }
+        return synapseArr;
+    }
+
+    /**
+     * Stellt die Verknüpfungen für Streams vor dem flachen Format wieder her.
+     * Die Input-Synapsen werden in einem Durchlauf pro Ziel-Neuron gesammelt und nach Input-Typ verteilt.
+     */
+    private void restoreLegacySynapses() {
+        final Map<NeuronInterface, List<Synapse>> inputSynapseListMap = new IdentityHashMap<>();
         for (Synapse synapse : this.synapseArray) {
             synapse.getSourceNeuron().addOutputSynapse(synapse.getSourceOutputTypePos(), synapse);
+            synapse.setNeuralNet(this);
+            inputSynapseListMap.computeIfAbsent(synapse.getTargetNeuron(), neuron -> new ArrayList<>()).add(synapse);
         }
-        // Nach der Wiederherstellung der Synapsen: Input-Synapsen-Array und Zähler für alle Neuronen korrekt setzen
-        // Alle Neuronen einsammeln
+        // Nach der Wiederherstellung der Synapsen: Input-Synapsen-Array für alle Neuronen korrekt setzen
         List<NeuronInterface> allNeurons = new ArrayList<>();
         Collections.addAll(allNeurons, inputNeuronArr);
         for (Layer layer : hiddenLayerArr) {
             Collections.addAll(allNeurons, layer.getNeuronsArr());
         }
         Collections.addAll(allNeurons, outputNeuronArr);
-        // Für jedes Neuron: Input-Synapsen-Array neu aufbauen
         for (final NeuronInterface neuron : allNeurons) {
+            final List<Synapse> targetSynapseList = inputSynapseListMap.getOrDefault(neuron, Collections.emptyList());
             for (int inputTypePos = 0; inputTypePos < neuron.getNeuronTypeInfoData().getInputCount(); inputTypePos++) {
                 final List<Synapse> inputSynapseList = new ArrayList<>();
-                for (final Synapse synapse : this.synapseArray) {
-                    if (synapse.getTargetNeuron() == neuron) {
+                for (final Synapse synapse : targetSynapseList) {
+                    if (synapse.getTargetInputTypePos() == inputTypePos) {
                         inputSynapseList.add(synapse);
                     }
                 }
@@ -0,0 +1,194 @@
+package de.lifecircles.model.neural;
+
+import de.lifecircles.service.SimulationConfig;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Berechnet mehrere Netze mit gleicher Struktur ({@link NeuralNetExecutionPlan#getStructureKey()}) gemeinsam.
+ *
+ * Werte, Eingangssummen, Gewichte und Bias werden spaltenweise in Matrizen [Zeile * batchSize + Netz] gepackt,
+ * die Index-Dekodierung erfolgt einmal pro Synapse für den ganzen Batch und die innere Schleife läuft
+ * zusammenhängend über die Netze. Pro Netz bleibt die Reihenfolge der Additionen die des Plans,
+ * die Ergebnisse sind bitgleich zur Einzelberechnung.
+ *
+ * Pro Struktur bleibt ein Prozessor mit seinen Matrizen erhalten. Gewichte, Bias und Aktivierungen einer Spalte
+ * werden nur neu gepackt, wenn dort ein anderer Plan steht oder sich dessen Parameter-Version geändert hat.
+ */
+final class NeuralNetBatchProcessor {
+
+    private static final int MAX_CACHE_SIZE = 256;
+
+    private static final Map<NeuralNetExecutionPlan.TopologyKey, NeuralNetBatchProcessor> processorCache = new ConcurrentHashMap<>();
+
+    private static final AtomicLong packedParameterColumnCount = new AtomicLong();
+
+    // Plan und Parameter-Version, mit denen jede Spalte gepackt wurde.
+    private NeuralNetExecutionPlan[] packedPlanArr = new NeuralNetExecutionPlan[0];
+    private int[] packedParameterVersionArr = new int[0];
+
+    private double[] valuesMatrix;
+    private double[] inputSumMatrix;
+    private double[] weightMatrix;
+    private double[] biasMatrix;
+    private int[] activationCodeMatrix;
+    private boolean[] segmentActiveArr;
+    private double[] sumArr;
+    private long[] processedSynapsesArr;
+    // Pläne und Flags der Netze des laufenden Batches.
+    private NeuralNetExecutionPlan[] planArr = new NeuralNetExecutionPlan[0];
+    private boolean[] disableLayerDeactivationArr = new boolean[0];
+
+    private NeuralNetBatchProcessor() {
+    }
+
+    /**
+     * Die Pläne aller Netze müssen flach ({@link NeuralNetExecutionPlan#isFullyFlat()}) und strukturgleich sein;
+     * die Parameter der Pläne müssen aktuell sein. Die Anzahl verarbeiteter Synapsen und die Layer-Aktivität
+     * werden noch unter der Sperre des Prozessors an die Netze übergeben ({@link NeuralNet#finishBatchProcess}).
+     */
+    static void execute(final NeuralNet[] neuralNetArr, final ValuesNeuronValueFunction[] valueFunctionArr,
+                        final double[][] outputArrArr) {
+        final NeuralNetExecutionPlan.TopologyKey key = neuralNetArr[0].fetchExecutionPlan().getStructureKey();
+        NeuralNetBatchProcessor processor = processorCache.get(key);
+        if (processor == null) {
+            if (processorCache.size() >= MAX_CACHE_SIZE) {
+                // Strukturen ausgestorbener Zellen nicht festhalten.
+                processorCache.clear();
+            }
+            processor = processorCache.computeIfAbsent(key, structureKey -> new NeuralNetBatchProcessor());
+        }
+        synchronized (processor) {
+            final long[] processedSynapsesArr = processor.executeBatch(neuralNetArr, valueFunctionArr, outputArrArr);
+            for (int batchPos = 0; batchPos < neuralNetArr.length; batchPos++) {
+                neuralNetArr[batchPos].finishBatchProcess(valueFunctionArr[batchPos], processedSynapsesArr[batchPos]);
+            }
+        }
+    }
+
+    /**
+     * Anzahl der seit dem Start neu gepackten Parameter-Spalten.
+     */
+    static long getPackedParameterColumnCount() {
+        return packedParameterColumnCount.get();
+    }
+
+    /**
+     * @return pro Netz die Anzahl verarbeiteter Synapsen, gültig bis zum nächsten Batch dieses Prozessors
+     */
+    private long[] executeBatch(final NeuralNet[] neuralNetArr, final ValuesNeuronValueFunction[] valueFunctionArr,
+                                final double[][] outputArrArr) {
+        final int batchSize = neuralNetArr.length;
+        if (this.planArr.length != batchSize) {
+            this.planArr = new NeuralNetExecutionPlan[batchSize];
+            this.disableLayerDeactivationArr = new boolean[batchSize];
+        }
+        final NeuralNetExecutionPlan[] planArr = this.planArr;
+        final boolean[] disableLayerDeactivationArr = this.disableLayerDeactivationArr;
+        for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+            planArr[batchPos] = neuralNetArr[batchPos].fetchExecutionPlan();
+            disableLayerDeactivationArr[batchPos] = neuralNetArr[batchPos].isDisableLayerDeactivation();
+        }
+        final NeuralNetExecutionPlan firstPlan = planArr[0];
+        final int valueCount = firstPlan.getValueCount();
+        final int opCount = firstPlan.getOperationCount();
+        final int synapseCount = firstPlan.getSynapseCount();
+
+        if ((this.packedPlanArr.length != batchSize) || (this.valuesMatrix.length != valueCount * batchSize)) {
+            // Andere Batch-Größe: Matrizen neu anlegen, alle Spalten neu packen.
+            this.packedPlanArr = new NeuralNetExecutionPlan[batchSize];
+            this.packedParameterVersionArr = new int[batchSize];
+            this.valuesMatrix = new double[valueCount * batchSize];
+            this.inputSumMatrix = new double[valueCount * batchSize];
+            this.weightMatrix = new double[synapseCount * batchSize];
+            this.biasMatrix = new double[opCount * batchSize];
+            this.activationCodeMatrix = new int[opCount * batchSize];
+            this.segmentActiveArr = new boolean[batchSize];
+            this.sumArr = new double[batchSize];
+            this.processedSynapsesArr = new long[batchSize];
+        }
+        final double[] valuesMatrix = this.valuesMatrix;
+        final double[] inputSumMatrix = this.inputSumMatrix;
+        final double[] weightMatrix = this.weightMatrix;
+        final double[] biasMatrix = this.biasMatrix;
+        final int[] activationCodeMatrix = this.activationCodeMatrix;
+
+        for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+            final NeuralNetExecutionPlan plan = planArr[batchPos];
+            final ValuesNeuronValueFunction valueFunction = valueFunctionArr[batchPos];
+            valueFunction.ensureCapacity(valueCount);
+            final double[] valuesArr = valueFunction.getValuesArr();
+            final double[] inputSumArr = valueFunction.getInputSumArr();
+            for (int id = 0; id < valueCount; id++) {
+                valuesMatrix[id * batchSize + batchPos] = valuesArr[id];
+                inputSumMatrix[id * batchSize + batchPos] = inputSumArr[id];
+            }
+            if ((this.packedPlanArr[batchPos] != plan) || (this.packedParameterVersionArr[batchPos] != plan.getParameterVersion())) {
+                for (int synapsePos = 0; synapsePos < synapseCount; synapsePos++) {
+                    weightMatrix[synapsePos * batchSize + batchPos] = plan.getWeight(synapsePos);
+                }
+                for (int opPos = 0; opPos < opCount; opPos++) {
+                    biasMatrix[opPos * batchSize + batchPos] = plan.getBias(opPos);
+                    activationCodeMatrix[opPos * batchSize + batchPos] = plan.getActivationCode(opPos);
+                }
+                this.packedPlanArr[batchPos] = plan;
+                this.packedParameterVersionArr[batchPos] = plan.getParameterVersion();
+                packedParameterColumnCount.incrementAndGet();
+            }
+        }
+
+        final ActivationPrecision precision = SimulationConfig.getInstance().getActivationPrecision();
+        final long[] processedSynapsesArr = this.processedSynapsesArr;
+        Arrays.fill(processedSynapsesArr, 0L);
+        final boolean[] segmentActiveArr = this.segmentActiveArr;
+        final double[] sumArr = this.sumArr;
+        for (int segmentPos = 0; segmentPos < firstPlan.getSegmentCount(); segmentPos++) {
+            for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+                segmentActiveArr[batchPos] = planArr[batchPos].isSegmentActive(segmentPos, disableLayerDeactivationArr[batchPos]);
+            }
+            final int opStart = firstPlan.getSegmentStart(segmentPos);
+            for (int opPos = opStart; opPos < firstPlan.getSegmentEnd(segmentPos); opPos++) {
+                final int synapseStart = firstPlan.getSynapseStart(opPos);
+                final int synapseEnd = firstPlan.getSynapseEnd(opPos);
+                System.arraycopy(biasMatrix, opPos * batchSize, sumArr, 0, batchSize);
+                for (int synapsePos = synapseStart; synapsePos < synapseEnd; synapsePos++) {
+                    final int valueRow = firstPlan.getSourceId(synapsePos) * batchSize;
+                    final int weightRow = synapsePos * batchSize;
+                    for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+                        sumArr[batchPos] += valuesMatrix[valueRow + batchPos] * weightMatrix[weightRow + batchPos];
+                    }
+                }
+                final int targetRow = firstPlan.getTargetId(opPos) * batchSize;
+                final boolean firstOp = (opPos == opStart);
+                for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+                    // For inactive layers aktivete allwayse the first neuron.
+                    if (firstOp || segmentActiveArr[batchPos]) {
+                        final double sum = sumArr[batchPos];
+                        inputSumMatrix[targetRow + batchPos] = sum;
+                        valuesMatrix[targetRow + batchPos] =
+                                NeuralNetExecutionPlan.activate(activationCodeMatrix[opPos * batchSize + batchPos], sum, precision);
+                        processedSynapsesArr[batchPos] += synapseEnd - synapseStart;
+                    }
+                }
+            }
+        }
+
+        for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+            final ValuesNeuronValueFunction valueFunction = valueFunctionArr[batchPos];
+            final double[] valuesArr = valueFunction.getValuesArr();
+            final double[] inputSumArr = valueFunction.getInputSumArr();
+            for (int id = 0; id < valueCount; id++) {
+                valuesArr[id] = valuesMatrix[id * batchSize + batchPos];
+                inputSumArr[id] = inputSumMatrix[id * batchSize + batchPos];
+            }
+            final double[] outputArr = outputArrArr[batchPos];
+            for (int outputNeuronPos = 0; outputNeuronPos < outputArr.length; outputNeuronPos++) {
+                outputArr[outputNeuronPos] = valuesMatrix[firstPlan.getOutputId(outputNeuronPos) * batchSize + batchPos];
+            }
+        }
+        return processedSynapsesArr;
+    }
+}
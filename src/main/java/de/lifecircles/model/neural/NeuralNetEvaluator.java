@@ -0,0 +1,15 @@
+package de.lifecircles.model.neural;
+
+/**
+ * Zur Laufzeit für eine Topologie erzeugte Berechnung der Segmente eines {@link NeuralNetExecutionPlan}.
+ * Quell- und Ziel-Ids sind fest im Code, Gewichte und Bias werden aus den Arrays des Plans gelesen.
+ *
+ * @see NeuralNetEvaluatorCompiler
+ */
+interface NeuralNetEvaluator {
+
+    /**
+     * Berechnet alle Operationen des Segments; Segmente mit Aufrufen ({@link NeuronNetwork}) sind nicht enthalten.
+     */
+    void evaluateSegment(int segmentPos, double[] valuesArr, double[] inputSumArr, double[] weightArr, double[] biasArr);
+}
@@ -0,0 +1,403 @@
+package de.lifecircles.model.neural;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Erzeugt für die Topologie eines {@link NeuralNetExecutionPlan} eine Hidden-Class mit geradlinigem
+ * Multiply-Accumulate-Code ({@link MethodHandles.Lookup#defineHiddenClass}).
+ *
+ * Die erzeugten Klassen werden über die Topologie gecacht, Netze mit gleicher Form teilen sich also eine Klasse
+ * und der JIT kann sie vollständig optimieren. Die Rechenreihenfolge entspricht exakt dem Plan,
+ * die Ergebnisse sind bitgleich.
+ */
+final class NeuralNetEvaluatorCompiler {
+
+    /**
+     * Größere Netze bleiben beim Plan (Methoden sind auf 64 KB Bytecode begrenzt).
+     */
+    static final int MAX_SYNAPSE_COUNT = 4000;
+    private static final int MAX_CODE_LENGTH = 65535;
+    private static final int MAX_CACHE_SIZE = 2048;
+
+    private static final String CLASS_NAME = "de/lifecircles/model/neural/NeuralNetEvaluator$Compiled";
+    private static final String EVALUATE_DESCRIPTOR = "(I[D[D[D[D)V";
+
+    // Konstanten-Pool (Indizes siehe writeConstantPool).
+    private static final int CP_THIS_CLASS = 2;
+    private static final int CP_OBJECT_CLASS = 4;
+    private static final int CP_EVALUATOR_CLASS = 6;
+    private static final int CP_INIT_NAME = 7;
+    private static final int CP_VOID_DESCRIPTOR = 8;
+    private static final int CP_OBJECT_INIT = 10;
+    private static final int CP_CODE = 11;
+    private static final int CP_STACK_MAP_TABLE = 12;
+    private static final int CP_EVALUATE_NAME = 13;
+    private static final int CP_EVALUATE_DESCRIPTOR = 14;
+    private static final int CP_MATH_EXP = 20;
+    private static final int CP_MATH_TANH = 23;
+    private static final int CP_MATH_MAX = 27;
+    private static final int CP_PLAN_ACTIVATE = 33;
+    private static final int CP_COUNT = 34;
+
+    // Lokale Variablen von evaluateSegment.
+    private static final int LOCAL_SEGMENT_POS = 1;
+    private static final int LOCAL_VALUES = 2;
+    private static final int LOCAL_INPUT_SUMS = 3;
+    private static final int LOCAL_WEIGHTS = 4;
+    private static final int LOCAL_BIASES = 5;
+    private static final int LOCAL_SUM = 6;
+
+    /**
+     * Schlüssel: alle Werte, die im erzeugten Code als Konstanten stehen (Struktur und Aktivierungsfunktionen).
+     */
+    private static final Map<NeuralNetExecutionPlan.TopologyKey, NeuralNetEvaluator> evaluatorCache = new ConcurrentHashMap<>();
+
+    private NeuralNetEvaluatorCompiler() {
+    }
+
+    /**
+     * Liefert den Evaluator für die Topologie des Plans oder null, wenn er nicht erzeugt werden kann
+     * (zu groß, Ids außerhalb des Konstantenbereichs, keine flachen Segmente).
+     *
+     * @throws IllegalStateException wenn die erzeugte Klasse nicht geladen werden kann, der Aufrufer rechnet
+     *                               dann weiter über den Plan
+     */
+    static NeuralNetEvaluator fetchEvaluator(final NeuralNetExecutionPlan plan) {
+        if ((plan.getSynapseCount() > MAX_SYNAPSE_COUNT) || !plan.hasFlatSegment()) {
+            return null;
+        }
+        final NeuralNetExecutionPlan.TopologyKey key = new NeuralNetExecutionPlan.TopologyKey(plan.createStructureArr(true));
+        final NeuralNetEvaluator evaluator = evaluatorCache.get(key);
+        if (Objects.nonNull(evaluator)) {
+            return evaluator;
+        }
+        final NeuralNetEvaluator newEvaluator = compile(plan);
+        if (Objects.nonNull(newEvaluator)) {
+            if (evaluatorCache.size() >= MAX_CACHE_SIZE) {
+                // Nicht mehr referenzierte Hidden-Classes werden danach entladen.
+                evaluatorCache.clear();
+            }
+            evaluatorCache.put(key, newEvaluator);
+        }
+        return newEvaluator;
+    }
+
+    static int getCacheSize() {
+        return evaluatorCache.size();
+    }
+
+    private static NeuralNetEvaluator compile(final NeuralNetExecutionPlan plan) {
+        try {
+            final byte[] classBytes = createClassBytes(plan);
+            if (Objects.isNull(classBytes)) {
+                return null;
+            }
+            final MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+            return (NeuralNetEvaluator) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (final Throwable e) {
+            throw new IllegalStateException("Compiling neural net evaluator failed.", e);
+        }
+    }
+
+    private static byte[] createClassBytes(final NeuralNetExecutionPlan plan) throws IOException {
+        final byte[] evaluateCode = createEvaluateCode(plan);
+        if (Objects.isNull(evaluateCode)) {
+            return null;
+        }
+        final ByteArrayOutputStream byteOut = new ByteArrayOutputStream(evaluateCode.length + 512);
+        final DataOutputStream out = new DataOutputStream(byteOut);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0); // minor
+        out.writeShort(61); // major (Java 17)
+        writeConstantPool(out);
+        out.writeShort(0x0010 | 0x0020); // ACC_FINAL | ACC_SUPER
+        out.writeShort(CP_THIS_CLASS);
+        out.writeShort(CP_OBJECT_CLASS);
+        out.writeShort(1);
+        out.writeShort(CP_EVALUATOR_CLASS);
+        out.writeShort(0); // fields
+        out.writeShort(2); // methods
+
+        // public <init>() { super(); }
+        out.writeShort(0x0001);
+        out.writeShort(CP_INIT_NAME);
+        out.writeShort(CP_VOID_DESCRIPTOR);
+        out.writeShort(1);
+        final byte[] initCode = { 0x2A, (byte) 0xB7, 0x00, (byte) CP_OBJECT_INIT, (byte) 0xB1 };
+        writeCodeAttribute(out, 1, 1, initCode, null);
+
+        // public void evaluateSegment(int, double[], double[], double[], double[])
+        out.writeShort(0x0001);
+        out.writeShort(CP_EVALUATE_NAME);
+        out.writeShort(CP_EVALUATE_DESCRIPTOR);
+        out.writeShort(1);
+        writeCodeAttribute(out, 8, LOCAL_SUM + 2, evaluateCode, createStackMapTable(plan, evaluateCode));
+
+        out.writeShort(0); // class attributes
+        out.flush();
+        return byteOut.toByteArray();
+    }
+
+    private static void writeConstantPool(final DataOutputStream out) throws IOException {
+        out.writeShort(CP_COUNT);
+        writeUtf8(out, CLASS_NAME);                                 // 1
+        writeClass(out, 1);                                         // 2
+        writeUtf8(out, "java/lang/Object");                         // 3
+        writeClass(out, 3);                                         // 4
+        writeUtf8(out, "de/lifecircles/model/neural/NeuralNetEvaluator"); // 5
+        writeClass(out, 5);                                         // 6
+        writeUtf8(out, "<init>");                                   // 7
+        writeUtf8(out, "()V");                                      // 8
+        writeNameAndType(out, 7, 8);                                // 9
+        writeMethodref(out, 4, 9);                                  // 10
+        writeUtf8(out, "Code");                                     // 11
+        writeUtf8(out, "StackMapTable");                            // 12
+        writeUtf8(out, "evaluateSegment");                          // 13
+        writeUtf8(out, EVALUATE_DESCRIPTOR);                        // 14
+        writeUtf8(out, "java/lang/Math");                           // 15
+        writeClass(out, 15);                                        // 16
+        writeUtf8(out, "exp");                                      // 17
+        writeUtf8(out, "(D)D");                                     // 18
+        writeNameAndType(out, 17, 18);                              // 19
+        writeMethodref(out, 16, 19);                                // 20
+        writeUtf8(out, "tanh");                                     // 21
+        writeNameAndType(out, 21, 18);                              // 22
+        writeMethodref(out, 16, 22);                                // 23
+        writeUtf8(out, "max");                                      // 24
+        writeUtf8(out, "(DD)D");                                    // 25
+        writeNameAndType(out, 24, 25);                              // 26
+        writeMethodref(out, 16, 26);                                // 27
+        writeUtf8(out, "de/lifecircles/model/neural/NeuralNetExecutionPlan"); // 28
+        writeClass(out, 28);                                        // 29
+        writeUtf8(out, "activate");                                 // 30
+        writeUtf8(out, "(ID)D");                                    // 31
+        writeNameAndType(out, 30, 31);                              // 32
+        writeMethodref(out, 29, 32);                                // 33
+    }
+
+    /**
+     * iload_1; tableswitch über die Segmente; pro flachem Segment die Operationen und return.
+     * Die Summe wird auf dem Operanden-Stack gebildet, damit die Reihenfolge der Additionen dem Plan entspricht.
+     */
+    private static byte[] createEvaluateCode(final NeuralNetExecutionPlan plan) {
+        final int segmentCount = plan.getSegmentCount();
+        final int switchPadding = 2; // tableswitch an Offset 1, Operanden ab Offset 4.
+        final int switchLength = 1 + switchPadding + 12 + segmentCount * 4;
+        final int defaultOffset = 1 + switchLength;
+
+        final ByteArrayOutputStream bodyOut = new ByteArrayOutputStream();
+        bodyOut.write(0xB1); // default: return
+        final int[] caseOffsetArr = new int[segmentCount];
+        for (int segmentPos = 0; segmentPos < segmentCount; segmentPos++) {
+            if (!plan.isFlatSegment(segmentPos)) {
+                caseOffsetArr[segmentPos] = defaultOffset;
+                continue;
+            }
+            caseOffsetArr[segmentPos] = defaultOffset + bodyOut.size();
+            for (int opPos = plan.getSegmentStart(segmentPos); opPos < plan.getSegmentEnd(segmentPos); opPos++) {
+                if (!writeOperation(bodyOut, plan, opPos)) {
+                    return null;
+                }
+            }
+            bodyOut.write(0xB1);
+        }
+        if (defaultOffset + bodyOut.size() > MAX_CODE_LENGTH) {
+            return null;
+        }
+
+        final ByteArrayOutputStream codeOut = new ByteArrayOutputStream(defaultOffset + bodyOut.size());
+        codeOut.write(0x1B); // iload_1
+        codeOut.write(0xAA); // tableswitch
+        for (int padPos = 0; padPos < switchPadding; padPos++) {
+            codeOut.write(0);
+        }
+        writeInt(codeOut, defaultOffset - 1);
+        writeInt(codeOut, 0);
+        writeInt(codeOut, segmentCount - 1);
+        for (final int caseOffset : caseOffsetArr) {
+            writeInt(codeOut, caseOffset - 1);
+        }
+        codeOut.writeBytes(bodyOut.toByteArray());
+        return codeOut.toByteArray();
+    }
+
+    private static boolean writeOperation(final ByteArrayOutputStream out, final NeuralNetExecutionPlan plan, final int opPos) {
+        final int targetId = plan.getTargetId(opPos);
+        if (!isShortConstant(opPos) || !isShortConstant(targetId)) {
+            return false;
+        }
+        // sum = biasArr[opPos]
+        writeLoad(out, 0x19, LOCAL_BIASES);
+        writeIntConstant(out, opPos);
+        out.write(0x31); // daload
+        for (int synapsePos = plan.getSynapseStart(opPos); synapsePos < plan.getSynapseEnd(opPos); synapsePos++) {
+            final int sourceId = plan.getSourceId(synapsePos);
+            if (!isShortConstant(synapsePos) || !isShortConstant(sourceId)) {
+                return false;
+            }
+            // sum += valuesArr[sourceId] * weightArr[synapsePos]
+            writeLoad(out, 0x19, LOCAL_VALUES);
+            writeIntConstant(out, sourceId);
+            out.write(0x31); // daload
+            writeLoad(out, 0x19, LOCAL_WEIGHTS);
+            writeIntConstant(out, synapsePos);
+            out.write(0x31); // daload
+            out.write(0x6B); // dmul
+            out.write(0x63); // dadd
+        }
+        writeLoad(out, 0x39, LOCAL_SUM); // dstore
+
+        // inputSumArr[targetId] = sum
+        writeLoad(out, 0x19, LOCAL_INPUT_SUMS);
+        writeIntConstant(out, targetId);
+        writeLoad(out, 0x18, LOCAL_SUM); // dload
+        out.write(0x52); // dastore
+
+        // valuesArr[targetId] = activation(sum)
+        writeLoad(out, 0x19, LOCAL_VALUES);
+        writeIntConstant(out, targetId);
+        switch (plan.getActivationCode(opPos)) {
+            case NeuralNetExecutionPlan.ACTIVATION_SIGMOID -> {
+                // 1.0 / (1.0 + Math.exp(-x))
+                out.write(0x0F); // dconst_1
+                out.write(0x0F); // dconst_1
+                writeLoad(out, 0x18, LOCAL_SUM);
+                out.write(0x77); // dneg
+                writeInvokeStatic(out, CP_MATH_EXP);
+                out.write(0x63); // dadd
+                out.write(0x6F); // ddiv
+            }
+            case NeuralNetExecutionPlan.ACTIVATION_RELU -> {
+                // Math.max(0, x)
+                out.write(0x0E); // dconst_0
+                writeLoad(out, 0x18, LOCAL_SUM);
+                writeInvokeStatic(out, CP_MATH_MAX);
+            }
+            case NeuralNetExecutionPlan.ACTIVATION_TANH -> {
+                writeLoad(out, 0x18, LOCAL_SUM);
+                writeInvokeStatic(out, CP_MATH_TANH);
+            }
+            default -> {
+                // Mit Verzweigung: über den Plan, damit der Code ohne weitere Stack-Map-Frames auskommt.
+                writeIntConstant(out, plan.getActivationCode(opPos));
+                writeLoad(out, 0x18, LOCAL_SUM);
+                writeInvokeStatic(out, CP_PLAN_ACTIVATE);
+            }
+        }
+        out.write(0x52); // dastore
+        return true;
+    }
+
+    /**
+     * Ein same_frame_extended pro Sprungziel des tableswitch; die Locals sind dort die Parameter.
+     */
+    private static byte[] createStackMapTable(final NeuralNetExecutionPlan plan, final byte[] evaluateCode) {
+        final int segmentCount = plan.getSegmentCount();
+        final TreeSet<Integer> targetOffsetSet = new TreeSet<>();
+        final int switchOperandPos = 4;
+        targetOffsetSet.add(1 + readInt(evaluateCode, switchOperandPos));
+        for (int segmentPos = 0; segmentPos < segmentCount; segmentPos++) {
+            targetOffsetSet.add(1 + readInt(evaluateCode, switchOperandPos + 12 + segmentPos * 4));
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeShort(out, targetOffsetSet.size());
+        int previousOffset = -1;
+        for (final int targetOffset : targetOffsetSet) {
+            out.write(251); // same_frame_extended
+            writeShort(out, targetOffset - previousOffset - 1);
+            previousOffset = targetOffset;
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeCodeAttribute(final DataOutputStream out, final int maxStack, final int maxLocals,
+                                           final byte[] code, final byte[] stackMapTable) throws IOException {
+        final int stackMapLength = Objects.nonNull(stackMapTable) ? 6 + stackMapTable.length : 0;
+        out.writeShort(CP_CODE);
+        out.writeInt(12 + code.length + stackMapLength);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // exception table
+        if (Objects.nonNull(stackMapTable)) {
+            out.writeShort(1);
+            out.writeShort(CP_STACK_MAP_TABLE);
+            out.writeInt(stackMapTable.length);
+            out.write(stackMapTable);
+        } else {
+            out.writeShort(0);
+        }
+    }
+
+    private static boolean isShortConstant(final int value) {
+        return (value >= Short.MIN_VALUE) && (value <= Short.MAX_VALUE);
+    }
+
+    private static void writeIntConstant(final ByteArrayOutputStream out, final int value) {
+        if ((value >= -1) && (value <= 5)) {
+            out.write(0x03 + value); // iconst_<n>
+        } else if ((value >= Byte.MIN_VALUE) && (value <= Byte.MAX_VALUE)) {
+            out.write(0x10); // bipush
+            out.write(value);
+        } else {
+            out.write(0x11); // sipush
+            writeShort(out, value);
+        }
+    }
+
+    private static void writeLoad(final ByteArrayOutputStream out, final int opcode, final int local) {
+        out.write(opcode);
+        out.write(local);
+    }
+
+    private static void writeInvokeStatic(final ByteArrayOutputStream out, final int methodref) {
+        out.write(0xB8);
+        writeShort(out, methodref);
+    }
+
+    private static void writeShort(final ByteArrayOutputStream out, final int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeInt(final ByteArrayOutputStream out, final int value) {
+        writeShort(out, value >>> 16);
+        writeShort(out, value);
+    }
+
+    private static int readInt(final byte[] code, final int pos) {
+        return ((code[pos] & 0xFF) << 24) | ((code[pos + 1] & 0xFF) << 16) | ((code[pos + 2] & 0xFF) << 8) | (code[pos + 3] & 0xFF);
+    }
+
+    private static void writeUtf8(final DataOutputStream out, final String value) throws IOException {
+        out.writeByte(1);
+        out.writeUTF(value);
+    }
+
+    private static void writeClass(final DataOutputStream out, final int nameIndex) throws IOException {
+        out.writeByte(7);
+        out.writeShort(nameIndex);
+    }
+
+    private static void writeNameAndType(final DataOutputStream out, final int nameIndex, final int descriptorIndex) throws IOException {
+        out.writeByte(12);
+        out.writeShort(nameIndex);
+        out.writeShort(descriptorIndex);
+    }
+
+    private static void writeMethodref(final DataOutputStream out, final int classIndex, final int nameAndTypeIndex) throws IOException {
+        out.writeByte(10);
+        out.writeShort(classIndex);
+        out.writeShort(nameAndTypeIndex);
+    }
+}
@@ -0,0 +1,946 @@
+package de.lifecircles.model.neural;
+
+import de.lifecircles.service.SimulationConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Kompilierter Ausführungsplan für {@link NeuralNet#process(NeuronValueFunction)}.
+ *
+ * Die Topologie wird in primitive Arrays (CSR-Layout) abgeflacht: pro Operation (Neuron) die Ziel-Id,
+ * der Bias, ein Aktivierungs-Code und der Beginn ihrer Synapsen; pro Synapse die Quell-Id und das Gewicht.
+ * Ein Segment fasst die Operationen eines Hidden-Layers bzw. des Output-Layers zusammen.
+ *
+ * Die Struktur ist unveränderlich und wird nur nach strukturellen Mutationen neu erzeugt.
+ * Bias, Aktivierungsfunktion und Gewichte werden per {@link #refreshParameters()} nachgeführt.
+ * {@link NeuronNetwork}-Neuronen werden als eigene Operation übersetzt: ihre Eingangssynapsen liegen wie die der
+ * flachen Neuronen in den Plan-Arrays, das innere Netz wird über seinen eigenen (pro Typ geteilten) Plan berechnet.
+ * Übrige Neuronen, die nicht flach berechnet werden können, werden über
+ * {@link NeuronInterface#activate(NeuronValueFunction, NeuralNet)} aufgerufen.
+ *
+ * Optional werden die Segmente nach {@link #EVALUATOR_COMPILE_THRESHOLD} unveränderten Ausführungen
+ * von einem für die Topologie erzeugten {@link NeuralNetEvaluator} berechnet.
+ *
+ * Die Gewichte werden je nach {@link WeightStorage} als double, float oder int8 mit Faktor pro Segment gehalten.
+ *
+ * {@link #executeSparse} berechnet nur Operationen neu, deren Quellen sich seit der letzten Weitergabe
+ * um mehr als ein Epsilon geändert haben (siehe {@link SparseState}).
+ *
+ * Mit {@link NeuralNet#setParallelLayerEvaluation(boolean)} werden breite, flache Segmente ohne Abhängigkeiten
+ * innerhalb des Segments auf den Fork-Join-Pool verteilt (siehe {@link #isParallelSegment(int)}).
+ */
+final class NeuralNetExecutionPlan {
+
+    /**
+     * Aktivierungs-Code für Neuronen, die über {@link NeuronInterface#activate} berechnet werden.
+     */
+    static final int ACTIVATION_CALL = -1;
+    /**
+     * Aktivierungs-Code für {@link NeuronNetwork}-Neuronen, siehe {@link #executeSubNet}.
+     */
+    static final int ACTIVATION_SUB_NET = -2;
+    static final int ACTIVATION_SIGMOID = 0;
+    static final int ACTIVATION_RELU = 1;
+    static final int ACTIVATION_TANH = 2;
+    static final int ACTIVATION_LEAKY_RELU = 3;
+
+    /**
+     * Ausführungen ohne Änderung der Topologie, bevor ein {@link NeuralNetEvaluator} erzeugt wird.
+     * Häufig mutierende Netze bleiben so beim Plan.
+     */
+    static final int EVALUATOR_COMPILE_THRESHOLD = 64;
+    // Fehlgeschlagene Evaluator-Erzeugung nur einmal pro Lauf ausgeben.
+    private static final AtomicBoolean evaluatorFailureLogged = new AtomicBoolean(false);
+
+    /**
+     * Mindestbreite eines Segments für die parallele Berechnung; schmalere Layer lohnen die Aufteilung nicht.
+     */
+    static final int PARALLEL_MIN_SEGMENT_WIDTH = 256;
+    /**
+     * Operationen pro Abschnitt der parallelen Berechnung.
+     */
+    static final int PARALLEL_OP_CHUNK_SIZE = 64;
+
+    // Struktur-Version des Netzes, aus der der Plan kompiliert wurde.
+    private final long structureVersion;
+
+    // Segmente: Hidden-Layer in Reihenfolge, zuletzt der Output-Layer (Layer null).
+    private final int[] segmentStartArr;
+    private final Layer[] segmentLayerArr;
+
+    // Operationen.
+    private final int[] targetIdArr;
+    private final int[] synapseStartArr;
+    private final double[] biasArr;
+    private final int[] activationCodeArr;
+    private final NeuronInterface[] opNeuronArr;
+    // Pro NeuronNetwork-Operation der Beginn der Synapsen jedes Eingangs (plus Ende), sonst null.
+    private final int[][] subNetInputStartArrArr;
+
+    // Synapsen.
+    private final int[] sourceIdArr;
+    private final Synapse[] synapseArr;
+    // Gewichte, nur das Array der Speicherform ist belegt.
+    private final WeightStorage weightStorage;
+    private final double[] weightArr;
+    private final float[] weightFloatArr;
+    private final byte[] weightByteArr;
+    // INT8: Faktor pro Operation (gleich für alle Operationen eines Segments).
+    private final double[] weightScaleArr;
+
+    private final int[] outputIdArr;
+    private final int valueCount;
+    // Ids, die eine Synapse liest, bevor ihre Operation sie im selben Schritt neu schreibt (Rückkopplung).
+    private final boolean[] backwardSourceArr;
+
+    // Segmente ohne Aufrufe, die der Evaluator berechnen kann.
+    private final boolean[] segmentFlatArr;
+    // Flache Segmente ab PARALLEL_MIN_SEGMENT_WIDTH, deren Operationen sich nicht gegenseitig lesen.
+    private final boolean[] segmentParallelArr;
+    private TopologyKey structureKey;
+    private volatile NeuralNetEvaluator evaluator;
+    private int executeCount = 0;
+    // Für diese Topologie kann kein Evaluator erzeugt werden (zu groß, Fehler beim Erzeugen).
+    private boolean evaluatorUnavailable = false;
+    // Zählt refreshParameters(), damit ein SparseState geänderte Parameter erkennt.
+    private int parameterVersion = 0;
+
+    /**
+     * Zustand von {@link #executeSparse} für ein Netz: pro Id der zuletzt weitergegebene Wert und ob er sich
+     * in diesem Schritt geändert hat, pro Segment die Aktivität im letzten Schritt.
+     * Wird bei neuem Plan, geänderten Parametern oder nach {@link #invalidate()} vollständig neu berechnet.
+     */
+    static final class SparseState {
+        private NeuralNetExecutionPlan plan;
+        private int parameterVersion;
+        private ValuesNeuronValueFunction neuronValueFunction;
+        private double[] propagatedValueArr = new double[0];
+        private boolean[] changedArr = new boolean[0];
+        // Änderungen von Rückkopplungs-Quellen, die erst im nächsten Schritt gelesen werden.
+        private boolean[] carryArr = new boolean[0];
+        private boolean[] segmentActiveArr = new boolean[0];
+        private long skippedSynapses = 0L;
+
+        void invalidate() {
+            this.plan = null;
+        }
+
+        long getSkippedSynapses() {
+            return this.skippedSynapses;
+        }
+
+        private boolean isValidFor(final NeuralNetExecutionPlan plan, final ValuesNeuronValueFunction neuronValueFunction) {
+            return (this.plan == plan) && (this.parameterVersion == plan.parameterVersion) &&
+                    (this.neuronValueFunction == neuronValueFunction);
+        }
+
+        private void reset(final NeuralNetExecutionPlan plan, final ValuesNeuronValueFunction neuronValueFunction) {
+            this.plan = plan;
+            this.parameterVersion = plan.parameterVersion;
+            this.neuronValueFunction = neuronValueFunction;
+            if (this.propagatedValueArr.length != plan.valueCount) {
+                this.propagatedValueArr = new double[plan.valueCount];
+                this.changedArr = new boolean[plan.valueCount];
+                this.carryArr = new boolean[plan.valueCount];
+            }
+            if (this.segmentActiveArr.length != plan.segmentLayerArr.length) {
+                this.segmentActiveArr = new boolean[plan.segmentLayerArr.length];
+            }
+        }
+    }
+
+    /**
+     * Vergleichbarer Schlüssel über Struktur-Werte eines Plans (Segmente, Ids, Synapsen-Offsets).
+     */
+    static final class TopologyKey {
+        private final int[] topologyArr;
+        private final int hash;
+
+        TopologyKey(final int[] topologyArr) {
+            this.topologyArr = topologyArr;
+            this.hash = Arrays.hashCode(topologyArr);
+        }
+
+        int[] getTopologyArr() {
+            return this.topologyArr;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return (obj instanceof TopologyKey other) && (this.hash == other.hash) &&
+                    Arrays.equals(this.topologyArr, other.topologyArr);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private NeuralNetExecutionPlan(final long structureVersion, final int[] segmentStartArr, final Layer[] segmentLayerArr,
+                                   final List<NeuronInterface> opNeuronList, final List<Synapse> synapseList,
+                                   final int[] synapseStartArr, final int[][] subNetInputStartArrArr,
+                                   final int[] outputIdArr, final int valueCount, final WeightStorage weightStorage) {
+        this.structureVersion = structureVersion;
+        this.segmentStartArr = segmentStartArr;
+        this.segmentLayerArr = segmentLayerArr;
+        this.opNeuronArr = opNeuronList.toArray(new NeuronInterface[0]);
+        this.synapseStartArr = synapseStartArr;
+        this.subNetInputStartArrArr = subNetInputStartArrArr;
+        this.synapseArr = synapseList.toArray(new Synapse[0]);
+        this.outputIdArr = outputIdArr;
+        this.valueCount = valueCount;
+
+        this.targetIdArr = new int[this.opNeuronArr.length];
+        this.biasArr = new double[this.opNeuronArr.length];
+        this.activationCodeArr = new int[this.opNeuronArr.length];
+        for (int opPos = 0; opPos < this.opNeuronArr.length; opPos++) {
+            this.targetIdArr[opPos] = this.opNeuronArr[opPos].getId();
+        }
+        this.sourceIdArr = new int[this.synapseArr.length];
+        this.weightStorage = weightStorage;
+        final int synapseCount = this.synapseArr.length;
+        this.weightArr = (weightStorage == WeightStorage.DOUBLE) ? new double[synapseCount] : null;
+        this.weightFloatArr = (weightStorage == WeightStorage.FLOAT32) ? new float[synapseCount] : null;
+        this.weightByteArr = (weightStorage == WeightStorage.INT8) ? new byte[synapseCount] : null;
+        this.weightScaleArr = (weightStorage == WeightStorage.INT8) ? new double[this.opNeuronArr.length] : null;
+        for (int synapsePos = 0; synapsePos < this.synapseArr.length; synapsePos++) {
+            this.sourceIdArr[synapsePos] = this.synapseArr[synapsePos].getSourceNeuron().getId();
+        }
+        final int[] lastWriteOpArr = new int[valueCount];
+        Arrays.fill(lastWriteOpArr, -1);
+        for (int opPos = 0; opPos < this.targetIdArr.length; opPos++) {
+            lastWriteOpArr[this.targetIdArr[opPos]] = opPos;
+        }
+        this.backwardSourceArr = new boolean[valueCount];
+        for (int opPos = 0; opPos < this.targetIdArr.length; opPos++) {
+            for (int synapsePos = synapseStartArr[opPos]; synapsePos < synapseStartArr[opPos + 1]; synapsePos++) {
+                final int sourceId = this.sourceIdArr[synapsePos];
+                this.backwardSourceArr[sourceId] |= (lastWriteOpArr[sourceId] >= opPos);
+            }
+        }
+        this.segmentFlatArr = new boolean[segmentLayerArr.length];
+        for (int segmentPos = 0; segmentPos < segmentLayerArr.length; segmentPos++) {
+            boolean segmentFlat = true;
+            for (int opPos = segmentStartArr[segmentPos]; opPos < segmentStartArr[segmentPos + 1]; opPos++) {
+                segmentFlat &= isFlat(this.opNeuronArr[opPos]);
+            }
+            this.segmentFlatArr[segmentPos] = segmentFlat;
+        }
+        this.segmentParallelArr = new boolean[segmentLayerArr.length];
+        for (int segmentPos = 0; segmentPos < segmentLayerArr.length; segmentPos++) {
+            this.segmentParallelArr[segmentPos] = this.segmentFlatArr[segmentPos] &&
+                    (segmentStartArr[segmentPos + 1] - segmentStartArr[segmentPos] >= PARALLEL_MIN_SEGMENT_WIDTH) &&
+                    this.isIndependentSegment(segmentPos, valueCount);
+        }
+        this.refreshParameters();
+    }
+
+    /**
+     * Die Operationen des Segments schreiben verschiedene Ids und lesen keine Id, die im Segment geschrieben wird.
+     * Nur dann hängt das Ergebnis nicht von der Reihenfolge der Operationen ab.
+     */
+    private boolean isIndependentSegment(final int segmentPos, final int valueCount) {
+        final boolean[] segmentTargetArr = new boolean[valueCount];
+        final int opStart = this.segmentStartArr[segmentPos];
+        final int opEnd = this.segmentStartArr[segmentPos + 1];
+        for (int opPos = opStart; opPos < opEnd; opPos++) {
+            if (segmentTargetArr[this.targetIdArr[opPos]]) {
+                return false;
+            }
+            segmentTargetArr[this.targetIdArr[opPos]] = true;
+        }
+        for (int synapsePos = this.synapseStartArr[opStart]; synapsePos < this.synapseStartArr[opEnd]; synapsePos++) {
+            if (segmentTargetArr[this.sourceIdArr[synapsePos]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Kompiliert die aktuelle Topologie des Netzes.
+     */
+    static NeuralNetExecutionPlan compile(final NeuralNet neuralNet) {
+        final long structureVersion = neuralNet.getStructureVersion();
+        final Layer[] hiddenLayerArr = neuralNet.getHiddenLayerArr();
+        final Neuron[] outputNeuronArr = neuralNet.getOutputNeuronArr();
+
+        final int[] segmentStartArr = new int[hiddenLayerArr.length + 2];
+        final Layer[] segmentLayerArr = new Layer[hiddenLayerArr.length + 1];
+        final List<NeuronInterface> opNeuronList = new ArrayList<>();
+        final List<Synapse> synapseList = new ArrayList<>();
+        final List<Integer> synapseStartList = new ArrayList<>();
+        final List<int[]> subNetInputStartList = new ArrayList<>();
+        int maxId = -1;
+
+        for (final Neuron inputNeuron : neuralNet.getInputNeuronArr()) {
+            maxId = Math.max(maxId, inputNeuron.getId());
+        }
+        for (int segmentPos = 0; segmentPos <= hiddenLayerArr.length; segmentPos++) {
+            final NeuronInterface[] neuronArr;
+            if (segmentPos < hiddenLayerArr.length) {
+                segmentLayerArr[segmentPos] = hiddenLayerArr[segmentPos];
+                neuronArr = hiddenLayerArr[segmentPos].getNeuronsArr();
+            } else {
+                neuronArr = outputNeuronArr;
+            }
+            segmentStartArr[segmentPos] = opNeuronList.size();
+            for (final NeuronInterface neuron : neuronArr) {
+                opNeuronList.add(neuron);
+                synapseStartList.add(synapseList.size());
+                maxId = Math.max(maxId, neuron.getId());
+                int[] subNetInputStartArr = null;
+                if (isFlat(neuron)) {
+                    for (final Synapse synapse : neuron.getInputSynapseArr(0)) {
+                        synapseList.add(synapse);
+                        maxId = Math.max(maxId, synapse.getSourceNeuron().getId());
+                    }
+                } else if (neuron instanceof NeuronNetwork) {
+                    final int inputCount = neuron.getNeuronTypeInfoData().getInputCount();
+                    subNetInputStartArr = new int[inputCount + 1];
+                    for (int inputTypePos = 0; inputTypePos < inputCount; inputTypePos++) {
+                        subNetInputStartArr[inputTypePos] = synapseList.size();
+                        for (final Synapse synapse : neuron.getInputSynapseArr(inputTypePos)) {
+                            synapseList.add(synapse);
+                            maxId = Math.max(maxId, synapse.getSourceNeuron().getId());
+                        }
+                    }
+                    subNetInputStartArr[inputCount] = synapseList.size();
+                }
+                subNetInputStartList.add(subNetInputStartArr);
+            }
+        }
+        segmentStartArr[hiddenLayerArr.length + 1] = opNeuronList.size();
+        synapseStartList.add(synapseList.size());
+
+        final int[] synapseStartArr = new int[synapseStartList.size()];
+        for (int opPos = 0; opPos < synapseStartArr.length; opPos++) {
+            synapseStartArr[opPos] = synapseStartList.get(opPos);
+        }
+        final int[] outputIdArr = new int[outputNeuronArr.length];
+        for (int outputNeuronPos = 0; outputNeuronPos < outputNeuronArr.length; outputNeuronPos++) {
+            outputIdArr[outputNeuronPos] = outputNeuronArr[outputNeuronPos].getId();
+        }
+        return new NeuralNetExecutionPlan(structureVersion, segmentStartArr, segmentLayerArr, opNeuronList, synapseList,
+                synapseStartArr, subNetInputStartList.toArray(new int[0][]), outputIdArr, maxId + 1,
+                SimulationConfig.getInstance().getBrainWeightStorage());
+    }
+
+    /**
+     * Einfache Neuronen mit genau einem Eingang werden flach berechnet.
+     */
+    private static boolean isFlat(final NeuronInterface neuron) {
+        return (neuron instanceof Neuron) && (neuron.getNeuronTypeInfoData().getInputCount() == 1);
+    }
+
+    private static int toActivationCode(final ActivationFunction activationFunction) {
+        return switch (activationFunction) {
+            case Sigmoid -> ACTIVATION_SIGMOID;
+            case ReLU -> ACTIVATION_RELU;
+            case Tanh -> ACTIVATION_TANH;
+            case LeakyReLU -> ACTIVATION_LEAKY_RELU;
+        };
+    }
+
+    /**
+     * Übernimmt Bias, Aktivierungsfunktion und Gewichte aus den Neuronen und Synapsen.
+     * Die Struktur bleibt unverändert.
+     */
+    void refreshParameters() {
+        boolean activationChanged = false;
+        for (int opPos = 0; opPos < this.opNeuronArr.length; opPos++) {
+            final NeuronInterface neuron = this.opNeuronArr[opPos];
+            if (isFlat(neuron)) {
+                final Neuron flatNeuron = (Neuron) neuron;
+                this.biasArr[opPos] = flatNeuron.getBias(0);
+                final int activationCode = toActivationCode(flatNeuron.getActivationFunction());
+                activationChanged |= (this.activationCodeArr[opPos] != activationCode);
+                this.activationCodeArr[opPos] = activationCode;
+            } else {
+                this.activationCodeArr[opPos] = (this.subNetInputStartArrArr[opPos] != null) ?
+                        ACTIVATION_SUB_NET : ACTIVATION_CALL;
+            }
+        }
+        switch (this.weightStorage) {
+            case DOUBLE -> {
+                for (int synapsePos = 0; synapsePos < this.synapseArr.length; synapsePos++) {
+                    this.weightArr[synapsePos] = this.synapseArr[synapsePos].getWeight();
+                }
+            }
+            case FLOAT32 -> {
+                for (int synapsePos = 0; synapsePos < this.synapseArr.length; synapsePos++) {
+                    this.weightFloatArr[synapsePos] = (float) this.synapseArr[synapsePos].getWeight();
+                }
+            }
+            case INT8 -> this.quantizeWeights();
+        }
+        this.parameterVersion++;
+        if (activationChanged) {
+            // Die Aktivierungsfunktionen sind Teil des erzeugten Codes.
+            this.evaluator = null;
+            this.executeCount = 0;
+            this.evaluatorUnavailable = false;
+        }
+    }
+
+    /**
+     * Quantisiert die Gewichte pro Segment symmetrisch auf -127..127.
+     */
+    private void quantizeWeights() {
+        for (int segmentPos = 0; segmentPos < this.segmentLayerArr.length; segmentPos++) {
+            final int synapseStart = this.synapseStartArr[this.segmentStartArr[segmentPos]];
+            final int synapseEnd = this.synapseStartArr[this.segmentStartArr[segmentPos + 1]];
+            double maxAbsWeight = 0.0D;
+            for (int synapsePos = synapseStart; synapsePos < synapseEnd; synapsePos++) {
+                maxAbsWeight = Math.max(maxAbsWeight, Math.abs(this.synapseArr[synapsePos].getWeight()));
+            }
+            final double scale = maxAbsWeight / Byte.MAX_VALUE;
+            for (int synapsePos = synapseStart; synapsePos < synapseEnd; synapsePos++) {
+                this.weightByteArr[synapsePos] = (scale > 0.0D) ?
+                        (byte) Math.round(this.synapseArr[synapsePos].getWeight() / scale) : 0;
+            }
+            Arrays.fill(this.weightScaleArr, this.segmentStartArr[segmentPos], this.segmentStartArr[segmentPos + 1], scale);
+        }
+    }
+
+    /**
+     * Bias plus gewichtete Summe der Quellen einer Operation in der Speicherform der Gewichte.
+     */
+    private double calcInputSum(final int opPos, final double[] valuesArr) {
+        return this.calcInputSum(opPos, this.biasArr[opPos], this.synapseStartArr[opPos], this.synapseStartArr[opPos + 1],
+                valuesArr);
+    }
+
+    /**
+     * Bias plus gewichtete Summe der Synapsen synapseStart bis synapseEnd der Operation.
+     */
+    private double calcInputSum(final int opPos, final double bias, final int synapseStart, final int synapseEnd,
+                                final double[] valuesArr) {
+        double sum = bias;
+        switch (this.weightStorage) {
+            case DOUBLE -> {
+                for (int synapsePos = synapseStart; synapsePos < synapseEnd; synapsePos++) {
+                    sum += valuesArr[this.sourceIdArr[synapsePos]] * this.weightArr[synapsePos];
+                }
+            }
+            case FLOAT32 -> {
+                for (int synapsePos = synapseStart; synapsePos < synapseEnd; synapsePos++) {
+                    sum += valuesArr[this.sourceIdArr[synapsePos]] * this.weightFloatArr[synapsePos];
+                }
+            }
+            case INT8 -> {
+                double quantizedSum = 0.0D;
+                for (int synapsePos = synapseStart; synapsePos < synapseEnd; synapsePos++) {
+                    quantizedSum += valuesArr[this.sourceIdArr[synapsePos]] * this.weightByteArr[synapsePos];
+                }
+                sum += quantizedSum * this.weightScaleArr[opPos];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Berechnet Hidden- und Output-Layer wie {@link NeuralNet#process(NeuronValueFunction)}
+     * und schreibt die Ausgaben nach outputArr.
+     *
+     * @return Anzahl der verarbeiteten Synapsen
+     */
+    long execute(final NeuralNet neuralNet, final ValuesNeuronValueFunction neuronValueFunction,
+                 final boolean disableLayerDeactivation, final double[] outputArr) {
+        return this.execute(neuralNet, neuronValueFunction, disableLayerDeactivation, outputArr, null);
+    }
+
+    /**
+     * Wie {@link #execute(NeuralNet, ValuesNeuronValueFunction, boolean, double[])};
+     * mit context werden Aufrufe über {@link NeuronInterface#activate(EvaluationContext, NeuralNet)} ausgeführt.
+     *
+     * @param context der Kontext, zu dem neuronValueFunction gehört, oder null
+     */
+    long execute(final NeuralNet neuralNet, final ValuesNeuronValueFunction neuronValueFunction,
+                 final boolean disableLayerDeactivation, final double[] outputArr, final EvaluationContext context) {
+        neuronValueFunction.ensureCapacity(this.valueCount);
+        double[] valuesArr = neuronValueFunction.getValuesArr();
+        double[] inputSumArr = neuronValueFunction.getInputSumArr();
+        long processedSynapses = 0L;
+        final ActivationPrecision precision = SimulationConfig.getInstance().getActivationPrecision();
+        // Der erzeugte Code rechnet die Aktivierungen exakt und mit double-Gewichten.
+        final NeuralNetEvaluator evaluator =
+                ((precision == ActivationPrecision.EXACT) && (this.weightStorage == WeightStorage.DOUBLE)) ?
+                        this.fetchEvaluator() : null;
+        final boolean parallelLayerEvaluation = neuralNet.isParallelLayerEvaluation();
+
+        for (int segmentPos = 0; segmentPos < this.segmentLayerArr.length; segmentPos++) {
+            final int opStart = this.segmentStartArr[segmentPos];
+            final Layer layer = this.segmentLayerArr[segmentPos];
+            final int opEnd;
+            if ((layer == null) || disableLayerDeactivation ||
+                    ((context != null) ? context.isLayerActive(segmentPos, layer) : layer.isActiveLayer())) {
+                opEnd = this.segmentStartArr[segmentPos + 1];
+                if (parallelLayerEvaluation && this.segmentParallelArr[segmentPos]) {
+                    final double[] segmentValuesArr = valuesArr;
+                    final double[] segmentInputSumArr = inputSumArr;
+                    ParallelRangeTask.forEachRange(opStart, opEnd, PARALLEL_OP_CHUNK_SIZE, (chunkStart, chunkEnd) ->
+                            this.executeFlatOps(chunkStart, chunkEnd, segmentValuesArr, segmentInputSumArr, precision));
+                    processedSynapses += this.synapseStartArr[opEnd] - this.synapseStartArr[opStart];
+                    continue;
+                }
+                if ((evaluator != null) && this.segmentFlatArr[segmentPos]) {
+                    evaluator.evaluateSegment(segmentPos, valuesArr, inputSumArr, this.weightArr, this.biasArr);
+                    processedSynapses += this.synapseStartArr[opEnd] - this.synapseStartArr[opStart];
+                    continue;
+                }
+            } else {
+                // For inactive layers aktivete allwayse the first neuron.
+                opEnd = Math.min(opStart + 1, this.segmentStartArr[segmentPos + 1]);
+            }
+            for (int opPos = opStart; opPos < opEnd; opPos++) {
+                final int activationCode = this.activationCodeArr[opPos];
+                if (activationCode == ACTIVATION_SUB_NET) {
+                    processedSynapses += this.executeSubNet(opPos, neuralNet, neuronValueFunction, context);
+                    continue;
+                }
+                if (activationCode == ACTIVATION_CALL) {
+                    processedSynapses += (context == null) ?
+                            this.opNeuronArr[opPos].activate(neuronValueFunction, neuralNet) :
+                            this.opNeuronArr[opPos].activate(context, neuralNet);
+                    // Der Aufruf kann die Arrays vergrößert haben.
+                    valuesArr = neuronValueFunction.getValuesArr();
+                    inputSumArr = neuronValueFunction.getInputSumArr();
+                    continue;
+                }
+                final double sum = this.calcInputSum(opPos, valuesArr);
+                final int targetId = this.targetIdArr[opPos];
+                inputSumArr[targetId] = sum;
+                valuesArr[targetId] = activate(activationCode, sum, precision);
+                processedSynapses += this.synapseStartArr[opPos + 1] - this.synapseStartArr[opPos];
+            }
+        }
+
+        for (int outputNeuronPos = 0; outputNeuronPos < this.outputIdArr.length; outputNeuronPos++) {
+            outputArr[outputNeuronPos] = valuesArr[this.outputIdArr[outputNeuronPos]];
+        }
+        return processedSynapses;
+    }
+
+    /**
+     * Berechnet die flachen Operationen opStart bis opEnd, siehe {@link #execute}.
+     */
+    private void executeFlatOps(final int opStart, final int opEnd, final double[] valuesArr, final double[] inputSumArr,
+                                final ActivationPrecision precision) {
+        for (int opPos = opStart; opPos < opEnd; opPos++) {
+            final double sum = this.calcInputSum(opPos, valuesArr);
+            final int targetId = this.targetIdArr[opPos];
+            inputSumArr[targetId] = sum;
+            valuesArr[targetId] = activate(this.activationCodeArr[opPos], sum, precision);
+        }
+    }
+
+    /**
+     * Wie {@link #execute}, berechnet aber nur Operationen neu, bei denen sich mindestens eine Quelle seit ihrer
+     * letzten Weitergabe um mehr als epsilon geändert hat; die übrigen behalten ihren Wert aus dem Vorschritt.
+     * Ein Wert wird weitergegeben (und gilt als geändert), sobald er um mehr als epsilon vom zuletzt
+     * weitergegebenen Wert abweicht, die Abweichung bleibt so pro Neuron auf epsilon begrenzt.
+     * Mit epsilon 0 ist das Ergebnis bitgleich zu {@link #execute}.
+     *
+     * Aufrufe über {@link NeuronInterface#activate} werden immer ausgeführt.
+     * Die übersprungenen Synapsen stehen danach in {@link SparseState#getSkippedSynapses()}.
+     *
+     * @return Anzahl der Synapsen, die {@link #execute} verarbeitet hätte
+     */
+    long executeSparse(final NeuralNet neuralNet, final ValuesNeuronValueFunction neuronValueFunction,
+                       final boolean disableLayerDeactivation, final double[] outputArr,
+                       final SparseState sparseState, final double epsilon) {
+        neuronValueFunction.ensureCapacity(this.valueCount);
+        double[] valuesArr = neuronValueFunction.getValuesArr();
+        double[] inputSumArr = neuronValueFunction.getInputSumArr();
+        final boolean reset = !sparseState.isValidFor(this, neuronValueFunction);
+        if (reset) {
+            sparseState.reset(this, neuronValueFunction);
+        }
+        final double[] propagatedValueArr = sparseState.propagatedValueArr;
+        final boolean[] changedArr = sparseState.changedArr;
+        final boolean[] carryArr = sparseState.carryArr;
+        // Eingänge, alle von außen geschriebenen Werte und Rückkopplungen aus dem Vorschritt.
+        for (int id = 0; id < this.valueCount; id++) {
+            final boolean changed = reset || isChanged(valuesArr[id], propagatedValueArr[id], epsilon) || carryArr[id];
+            if (changed) {
+                propagatedValueArr[id] = valuesArr[id];
+            }
+            changedArr[id] = changed;
+            carryArr[id] = false;
+        }
+
+        final ActivationPrecision precision = SimulationConfig.getInstance().getActivationPrecision();
+        long processedSynapses = 0L;
+        long skippedSynapses = 0L;
+        for (int segmentPos = 0; segmentPos < this.segmentLayerArr.length; segmentPos++) {
+            final int opStart = this.segmentStartArr[segmentPos];
+            final Layer layer = this.segmentLayerArr[segmentPos];
+            final boolean segmentActive = (layer == null) || layer.isActiveLayer() || disableLayerDeactivation;
+            // Ein wieder aktiver Layer hat veraltete Werte und wird komplett berechnet.
+            final boolean segmentReset = reset || (segmentActive && !sparseState.segmentActiveArr[segmentPos]);
+            sparseState.segmentActiveArr[segmentPos] = segmentActive;
+            final int opEnd = segmentActive ? this.segmentStartArr[segmentPos + 1] :
+                    // For inactive layers aktivete allwayse the first neuron.
+                    Math.min(opStart + 1, this.segmentStartArr[segmentPos + 1]);
+            for (int opPos = opStart; opPos < opEnd; opPos++) {
+                final int activationCode = this.activationCodeArr[opPos];
+                final int targetId = this.targetIdArr[opPos];
+                if (activationCode < 0) {
+                    processedSynapses += (activationCode == ACTIVATION_SUB_NET) ?
+                            this.executeSubNet(opPos, neuralNet, neuronValueFunction, null) :
+                            this.opNeuronArr[opPos].activate(neuronValueFunction, neuralNet);
+                    // Der Aufruf kann die Arrays vergrößert haben.
+                    valuesArr = neuronValueFunction.getValuesArr();
+                    inputSumArr = neuronValueFunction.getInputSumArr();
+                    final boolean changed = segmentReset ||
+                            isChanged(valuesArr[targetId], propagatedValueArr[targetId], epsilon);
+                    if (changed) {
+                        propagatedValueArr[targetId] = valuesArr[targetId];
+                    }
+                    changedArr[targetId] = changed;
+                    carryArr[targetId] = changed && this.backwardSourceArr[targetId];
+                    continue;
+                }
+                final int synapseStart = this.synapseStartArr[opPos];
+                final int synapseEnd = this.synapseStartArr[opPos + 1];
+                processedSynapses += synapseEnd - synapseStart;
+                // Auch neu berechnen, wenn der eigene Wert von außen überschrieben wurde.
+                boolean sourceChanged = segmentReset || changedArr[targetId];
+                for (int synapsePos = synapseStart; !sourceChanged && (synapsePos < synapseEnd); synapsePos++) {
+                    sourceChanged = changedArr[this.sourceIdArr[synapsePos]];
+                }
+                if (!sourceChanged) {
+                    changedArr[targetId] = false;
+                    skippedSynapses += synapseEnd - synapseStart;
+                    continue;
+                }
+                final double sum = this.calcInputSum(opPos, valuesArr);
+                final double value = activate(activationCode, sum, precision);
+                inputSumArr[targetId] = sum;
+                valuesArr[targetId] = value;
+                final boolean changed = segmentReset || isChanged(value, propagatedValueArr[targetId], epsilon);
+                if (changed) {
+                    propagatedValueArr[targetId] = value;
+                }
+                changedArr[targetId] = changed;
+                carryArr[targetId] = changed && this.backwardSourceArr[targetId];
+            }
+        }
+        sparseState.skippedSynapses = skippedSynapses;
+
+        for (int outputNeuronPos = 0; outputNeuronPos < this.outputIdArr.length; outputNeuronPos++) {
+            outputArr[outputNeuronPos] = valuesArr[this.outputIdArr[outputNeuronPos]];
+        }
+        return processedSynapses;
+    }
+
+    /**
+     * Berechnet ein {@link NeuronNetwork} wie {@link NeuronNetwork#activate(NeuronValueFunction, NeuralNet)}:
+     * die Eingangssummen kommen aus den Plan-Arrays und werden direkt in die Werte des inneren Netzes geschrieben,
+     * das innere Netz rechnet mit seinem eigenen Plan und dem Unter-Kontext bzw. dem eigenen Kontext des Neurons.
+     * Das innere Netz wird von allen Neuronen des Typs geteilt und dabei nicht verändert.
+     *
+     * @return Anzahl der im inneren Netz verarbeiteten Synapsen
+     */
+    private long executeSubNet(final int opPos, final NeuralNet neuralNet,
+                               final ValuesNeuronValueFunction neuronValueFunction, final EvaluationContext context) {
+        final NeuronNetwork neuron = (NeuronNetwork) this.opNeuronArr[opPos];
+        final NeuralNet subNeuralNet = neuron.getSubNeuralNet();
+        final Neuron[] subInputNeuronArr = subNeuralNet.getInputNeuronArr();
+        final int[] subNetInputStartArr = this.subNetInputStartArrArr[opPos];
+        if (subInputNeuronArr.length != subNetInputStartArr.length - 1) {
+            return (context == null) ? neuron.activate(neuronValueFunction, neuralNet) : neuron.activate(context, neuralNet);
+        }
+        final EvaluationContext subContext = (context != null) ? context.fetchSubContext(neuron) : neuron.fetchEvaluationContext();
+        final ValuesNeuronValueFunction subValuesNeuronValueFunction = subContext.getNeuronValueFunction();
+        final double[] valuesArr = neuronValueFunction.getValuesArr();
+        final int outputTypePos = 0; // Default-Output-Type für Input-Neuronen.
+        for (int inputTypePos = 0; inputTypePos < subInputNeuronArr.length; inputTypePos++) {
+            final double sum = this.calcInputSum(opPos, neuron.getBias(inputTypePos),
+                    subNetInputStartArr[inputTypePos], subNetInputStartArr[inputTypePos + 1], valuesArr);
+            subValuesNeuronValueFunction.writeValue(subNeuralNet, subInputNeuronArr[inputTypePos], outputTypePos, sum);
+        }
+
+        subNeuralNet.process(subContext);
+
+        // Wie in NeuronNetwork.activate: alle Ausgänge schreiben auf die Id des Neurons, der letzte bleibt.
+        final double[] subValuesArr = subValuesNeuronValueFunction.getValuesArr();
+        final double[] subInputSumArr = subValuesNeuronValueFunction.getInputSumArr();
+        final Neuron[] subOutputNeuronArr = subNeuralNet.getOutputNeuronArr();
+        final int targetId = this.targetIdArr[opPos];
+        for (int subOutputPos = 0; subOutputPos < neuron.getNeuronTypeInfoData().getOutputCount(); subOutputPos++) {
+            final int subOutputId = subOutputNeuronArr[subOutputPos].getId();
+            neuronValueFunction.getInputSumArr()[targetId] = subInputSumArr[subOutputId];
+            valuesArr[targetId] = subValuesArr[subOutputId];
+        }
+        return subContext.getProccessedSynapses();
+    }
+
+    /**
+     * Mit epsilon 0 zählt jede Änderung des Bit-Musters (auch -0.0 und NaN), sonst eine Abweichung über epsilon.
+     */
+    private static boolean isChanged(final double value, final double propagatedValue, final double epsilon) {
+        if (epsilon <= 0.0D) {
+            return Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(propagatedValue);
+        }
+        return !(Math.abs(value - propagatedValue) <= epsilon);
+    }
+
+    /**
+     * Liefert den Evaluator, sobald der Plan oft genug unverändert ausgeführt wurde und die Option aktiv ist.
+     */
+    private NeuralNetEvaluator fetchEvaluator() {
+        // Die Option wird bei jedem Aufruf geprüft, sie kann zur Laufzeit umgeschaltet werden.
+        if (!SimulationConfig.getInstance().isNeuralNetEvaluatorCompilation()) {
+            return null;
+        }
+        final NeuralNetEvaluator evaluator = this.evaluator;
+        if ((evaluator != null) || this.evaluatorUnavailable) {
+            return evaluator;
+        }
+        // Zählen ohne Synchronisation; bei parallelen Aufrufen wird höchstens etwas später kompiliert.
+        if (++this.executeCount <= EVALUATOR_COMPILE_THRESHOLD) {
+            return null;
+        }
+        NeuralNetEvaluator compiledEvaluator;
+        try {
+            compiledEvaluator = NeuralNetEvaluatorCompiler.fetchEvaluator(this);
+        } catch (final IllegalStateException e) {
+            if (evaluatorFailureLogged.compareAndSet(false, true)) {
+                System.err.println("Compiling neural net evaluator failed, using the execution plan: " + e.getCause());
+            }
+            compiledEvaluator = null;
+        }
+        this.evaluatorUnavailable = (compiledEvaluator == null);
+        this.evaluator = compiledEvaluator;
+        return compiledEvaluator;
+    }
+
+    /**
+     * Entspricht {@link ActivationFunction#apply(double, ActivationPrecision)}.
+     */
+    static double activate(final int activationCode, final double x, final ActivationPrecision precision) {
+        if (precision == ActivationPrecision.EXACT) {
+            return activate(activationCode, x);
+        }
+        return switch (activationCode) {
+            case ACTIVATION_SIGMOID -> precision.sigmoid(x);
+            case ACTIVATION_TANH -> precision.tanh(x);
+            default -> activate(activationCode, x);
+        };
+    }
+
+    /**
+     * Entspricht {@link ActivationFunction#apply(double)}, ohne virtuellen Aufruf.
+     */
+    static double activate(final int activationCode, final double x) {
+        return switch (activationCode) {
+            case ACTIVATION_SIGMOID -> 1.0 / (1.0 + Math.exp(-x));
+            case ACTIVATION_RELU -> Math.max(0, x);
+            case ACTIVATION_TANH -> Math.tanh(x);
+            default -> (x > 0) ? x : 0.01 * x;
+        };
+    }
+
+    int getOperationCount() {
+        return this.opNeuronArr.length;
+    }
+
+    int getSynapseCount() {
+        return this.synapseArr.length;
+    }
+
+    int getSegmentCount() {
+        return this.segmentLayerArr.length;
+    }
+
+    int getSegmentStart(final int segmentPos) {
+        return this.segmentStartArr[segmentPos];
+    }
+
+    int getSegmentEnd(final int segmentPos) {
+        return this.segmentStartArr[segmentPos + 1];
+    }
+
+    boolean isFlatSegment(final int segmentPos) {
+        return this.segmentFlatArr[segmentPos];
+    }
+
+    /**
+     * Das Segment kann mit {@link NeuralNet#setParallelLayerEvaluation(boolean)} parallel berechnet werden:
+     * flach, mindestens {@link #PARALLEL_MIN_SEGMENT_WIDTH} breit und ohne Synapsen innerhalb des Segments.
+     * Das gilt auch für die Rückwärtsrechnung der Deltas des zugehörigen Layers.
+     */
+    boolean isParallelSegment(final int segmentPos) {
+        return this.segmentParallelArr[segmentPos];
+    }
+
+    boolean hasFlatSegment() {
+        for (final boolean segmentFlat : this.segmentFlatArr) {
+            if (segmentFlat) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getTargetId(final int opPos) {
+        return this.targetIdArr[opPos];
+    }
+
+    int getActivationCode(final int opPos) {
+        return this.activationCodeArr[opPos];
+    }
+
+    int getSynapseStart(final int opPos) {
+        return this.synapseStartArr[opPos];
+    }
+
+    int getSynapseEnd(final int opPos) {
+        return this.synapseStartArr[opPos + 1];
+    }
+
+    int getSourceId(final int synapsePos) {
+        return this.sourceIdArr[synapsePos];
+    }
+
+    NeuralNetEvaluator getEvaluator() {
+        return this.evaluator;
+    }
+
+    int getValueCount() {
+        return this.valueCount;
+    }
+
+    int getOutputId(final int outputNeuronPos) {
+        return this.outputIdArr[outputNeuronPos];
+    }
+
+    int getOutputCount() {
+        return this.outputIdArr.length;
+    }
+
+    double getBias(final int opPos) {
+        return this.biasArr[opPos];
+    }
+
+    int getParameterVersion() {
+        return this.parameterVersion;
+    }
+
+    /**
+     * Gewicht in der Speicherform des Plans (bei INT8 dequantisiert).
+     */
+    double getWeight(final int synapsePos) {
+        return switch (this.weightStorage) {
+            case DOUBLE -> this.weightArr[synapsePos];
+            case FLOAT32 -> this.weightFloatArr[synapsePos];
+            case INT8 -> this.weightByteArr[synapsePos] * this.weightScaleArr[this.findOperation(synapsePos)];
+        };
+    }
+
+    private int findOperation(final int synapsePos) {
+        int opPos = Arrays.binarySearch(this.synapseStartArr, synapsePos);
+        if (opPos < 0) {
+            opPos = -opPos - 2;
+        }
+        // Operationen ohne Synapsen haben denselben Beginn wie die folgende.
+        while (this.synapseStartArr[opPos + 1] <= synapsePos) {
+            opPos++;
+        }
+        return opPos;
+    }
+
+    WeightStorage getWeightStorage() {
+        return this.weightStorage;
+    }
+
+    /**
+     * Geschätzter Speicher der Plan-Arrays in Bytes (ohne Objekt-Header).
+     */
+    long estimateMemoryBytes() {
+        final long opCount = this.opNeuronArr.length;
+        final long synapseCount = this.synapseArr.length;
+        long bytes = opCount * (Integer.BYTES * 3L + Double.BYTES + 4L);
+        bytes += synapseCount * (Integer.BYTES + 4L + this.weightStorage.getBytesPerWeight());
+        if (this.weightScaleArr != null) {
+            bytes += opCount * Double.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Ein Hidden-Layer-Segment wird vollständig berechnet, wenn der Layer aktiv ist, sonst nur die erste Operation.
+     */
+    boolean isSegmentActive(final int segmentPos, final boolean disableLayerDeactivation) {
+        final Layer layer = this.segmentLayerArr[segmentPos];
+        return (layer == null) || layer.isActiveLayer() || disableLayerDeactivation;
+    }
+
+    /**
+     * Der Plan gilt nur für diese {@link NeuralNet#getStructureVersion() Struktur-Version} seines Netzes.
+     */
+    long getStructureVersion() {
+        return this.structureVersion;
+    }
+
+    /**
+     * Alle Segmente sind flach, der Plan kommt ohne Aufrufe von {@link NeuronInterface#activate} aus.
+     */
+    boolean isFullyFlat() {
+        for (final boolean segmentFlat : this.segmentFlatArr) {
+            if (!segmentFlat) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Schlüssel über die Struktur ohne Parameter; Pläne mit gleichem Schlüssel unterscheiden sich nur in
+     * Gewichten, Bias und Aktivierungsfunktionen.
+     */
+    TopologyKey getStructureKey() {
+        TopologyKey structureKey = this.structureKey;
+        if (structureKey == null) {
+            structureKey = new TopologyKey(this.createStructureArr(false));
+            this.structureKey = structureKey;
+        }
+        return structureKey;
+    }
+
+    /**
+     * Struktur-Werte des Plans, optional mit den Aktivierungs-Codes.
+     */
+    int[] createStructureArr(final boolean withActivationCodes) {
+        final int segmentCount = this.segmentLayerArr.length;
+        final int opCount = this.opNeuronArr.length;
+        final int[] structureArr = new int[1 + segmentCount * 2 + opCount * (withActivationCodes ? 3 : 2) +
+                this.synapseArr.length + this.outputIdArr.length];
+        int pos = 0;
+        structureArr[pos++] = segmentCount;
+        for (int segmentPos = 0; segmentPos < segmentCount; segmentPos++) {
+            structureArr[pos++] = this.segmentFlatArr[segmentPos] ? 1 : 0;
+            structureArr[pos++] = this.segmentStartArr[segmentPos + 1] - this.segmentStartArr[segmentPos];
+            for (int opPos = this.segmentStartArr[segmentPos]; opPos < this.segmentStartArr[segmentPos + 1]; opPos++) {
+                structureArr[pos++] = this.targetIdArr[opPos];
+                if (withActivationCodes) {
+                    structureArr[pos++] = this.activationCodeArr[opPos];
+                }
+                structureArr[pos++] = this.synapseStartArr[opPos + 1] - this.synapseStartArr[opPos];
+                for (int synapsePos = this.synapseStartArr[opPos]; synapsePos < this.synapseStartArr[opPos + 1]; synapsePos++) {
+                    structureArr[pos++] = this.sourceIdArr[synapsePos];
+                }
+            }
+        }
+        for (final int outputId : this.outputIdArr) {
+            structureArr[pos++] = outputId;
+        }
+        return structureArr;
+    }
+}
@@ -0,0 +1,160 @@
+package de.lifecircles.model.neural;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Mini-Batch-Training für flache Netze.
+ *
+ * Die Beispiele eines Batches werden in Abschnitte fester Größe ({@link #CHUNK_SIZE}) aufgeteilt.
+ * Jeder Abschnitt rechnet mit eigener {@link ValuesNeuronValueFunction} (Werte, Deltas, Eingangssummen)
+ * und eigenen Gradienten-Arrays ({@link NeuralNet#accumulateGradient}); die Threads übernehmen ganze
+ * Abschnitte, danach werden die Gradienten in Abschnitts-Reihenfolge addiert und einmal angewendet
+ * ({@link NeuralNet#applyGradient}). Das Ergebnis hängt damit weder vom Scheduling noch von der Thread-Anzahl ab.
+ *
+ * Mit Batch-Größe 1 entspricht das Training {@link NeuralNetwork#train(double[][], double[][], int)}
+ * mit abgeschalteter Layer-Deaktivierung. Die Layer-Aktivität wird während des Trainings nicht nachgeführt.
+ */
+final class NeuralNetMiniBatchTrainer {
+
+    /**
+     * Beispiele pro Abschnitt; bestimmt die Summationsreihenfolge und ist deshalb fest.
+     */
+    static final int CHUNK_SIZE = 4;
+
+    private NeuralNetMiniBatchTrainer() {
+    }
+
+    /**
+     * Scratch eines Abschnitts, wird über alle Batches wiederverwendet. Der Abschnitt an gleicher Position
+     * rechnet in jedem Batch mit derselben NeuronValueFunction, rückgekoppelte Werte hängen so nicht
+     * vom Thread ab, der ihn berechnet.
+     */
+    private static final class Chunk {
+        private final ValuesNeuronValueFunction neuronValueFunction;
+        private final double[] outputArr;
+        private final double[] biasGradientArr;
+        private final double[] weightGradientArr;
+        private int sampleStart;
+        private int sampleEnd;
+
+        private Chunk(final ValuesNeuronValueFunction neuronValueFunction, final NeuralNet neuralNet) {
+            this.neuronValueFunction = neuronValueFunction;
+            this.outputArr = new double[neuralNet.getOutputLayerSize()];
+            this.biasGradientArr = new double[neuralNet.getBiasGradientCount()];
+            this.weightGradientArr = new double[neuralNet.getSynapseArr().length];
+        }
+    }
+
+    /**
+     * @return der durchschnittliche Fehler pro Beispiel in der letzten Epoche
+     */
+    static double train(final NeuralNet neuralNet, final NeuronValueFunctionFactory neuronValueFunctionFactory,
+                        final double[][] trainingInputs, final double[][] trainingTargets, final int epochs,
+                        final double learningRate, final int batchSize, final int threadCount) {
+        final int chunkCount = (batchSize + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final List<Chunk> chunkList = new ArrayList<>(chunkCount);
+        for (int chunkPos = 0; chunkPos < chunkCount; chunkPos++) {
+            chunkList.add(new Chunk((ValuesNeuronValueFunction) neuronValueFunctionFactory.create(), neuralNet));
+        }
+        final int workerCount = Math.max(1, Math.min(threadCount, chunkCount));
+        final ExecutorService executorService = (workerCount > 1) ? Executors.newFixedThreadPool(workerCount, runnable -> {
+            final Thread thread = new Thread(runnable, "NeuralNetMiniBatchTrainer");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        try {
+            double totalError = 0.0D;
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                totalError = 0.0D;
+                for (int batchStart = 0; batchStart < trainingInputs.length; batchStart += batchSize) {
+                    final int batchEnd = Math.min(batchStart + batchSize, trainingInputs.length);
+                    totalError += trainBatch(neuralNet, chunkList, executorService,
+                            trainingInputs, trainingTargets, batchStart, batchEnd, learningRate);
+                }
+                // Durchschnittlicher Fehler pro Trainingssatz
+                totalError /= trainingInputs.length;
+            }
+            return totalError;
+        } finally {
+            if (executorService != null) {
+                executorService.shutdown();
+            }
+        }
+    }
+
+    private static double trainBatch(final NeuralNet neuralNet, final List<Chunk> chunkList,
+                                     final ExecutorService executorService,
+                                     final double[][] trainingInputs, final double[][] trainingTargets,
+                                     final int batchStart, final int batchEnd, final double learningRate) {
+        // Plan und Layer-Index auf diesem Thread nachführen, die Abschnitte lesen nur.
+        final NeuralNetExecutionPlan plan = neuralNet.fetchExecutionPlan();
+        final Layer[] synapseTargetLayerArr = neuralNet.fetchSynapseTargetLayerArr();
+
+        final int sampleCount = batchEnd - batchStart;
+        final int usedChunkCount = (sampleCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final List<Callable<Double>> taskList = new ArrayList<>(usedChunkCount);
+        for (int chunkPos = 0; chunkPos < usedChunkCount; chunkPos++) {
+            final Chunk chunk = chunkList.get(chunkPos);
+            chunk.sampleStart = batchStart + chunkPos * CHUNK_SIZE;
+            chunk.sampleEnd = Math.min(chunk.sampleStart + CHUNK_SIZE, batchEnd);
+            Arrays.fill(chunk.biasGradientArr, 0.0D);
+            Arrays.fill(chunk.weightGradientArr, 0.0D);
+            taskList.add(() -> {
+                double error = 0.0D;
+                for (int samplePos = chunk.sampleStart; samplePos < chunk.sampleEnd; samplePos++) {
+                    error += neuralNet.accumulateGradient(plan, synapseTargetLayerArr, chunk.neuronValueFunction,
+                            trainingInputs[samplePos], trainingTargets[samplePos], learningRate,
+                            chunk.outputArr, chunk.biasGradientArr, chunk.weightGradientArr);
+                }
+                return error;
+            });
+        }
+
+        // Fehler und Gradienten in fester Abschnitts-Reihenfolge addieren.
+        double batchError = 0.0D;
+        if (executorService == null) {
+            for (final Callable<Double> task : taskList) {
+                batchError += call(task);
+            }
+        } else {
+            try {
+                for (final Future<Double> future : executorService.invokeAll(taskList)) {
+                    batchError += future.get();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Mini-batch training interrupted.", e);
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException("Mini-batch training failed.", e.getCause());
+            }
+        }
+
+        final Chunk firstChunk = chunkList.get(0);
+        for (int chunkPos = 1; chunkPos < usedChunkCount; chunkPos++) {
+            final Chunk chunk = chunkList.get(chunkPos);
+            for (int biasPos = 0; biasPos < firstChunk.biasGradientArr.length; biasPos++) {
+                firstChunk.biasGradientArr[biasPos] += chunk.biasGradientArr[biasPos];
+            }
+            for (int synapsePos = 0; synapsePos < firstChunk.weightGradientArr.length; synapsePos++) {
+                firstChunk.weightGradientArr[synapsePos] += chunk.weightGradientArr[synapsePos];
+            }
+        }
+        neuralNet.applyGradient(firstChunk.biasGradientArr, firstChunk.weightGradientArr, sampleCount);
+        return batchError;
+    }
+
+    private static double call(final Callable<Double> task) {
+        try {
+            return task.call();
+        } catch (final Exception e) {
+            throw new IllegalStateException("Mini-batch training failed.", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package de.lifecircles.model.neural;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aus der Topologie eines {@link NeuralNet} abgeleitete Daten, gültig für eine
+ * {@link NeuralNet#getStructureVersion() Struktur-Version}. Das Netz erzeugt sie bei Bedarf einmal pro Version
+ * ({@link NeuralNet#getStructureInfo()}), statt Neuronen-Anzahlen, Layer-Größen und Listen bei jedem Aufruf
+ * neu aufzubauen. Unveränderlich; die Listen sind Sichten und dürfen nicht verändert werden.
+ * Vergleiche der Topologie zwischen Netzen laufen über den Schlüssel des Ausführungsplans
+ * ({@link NeuralNetExecutionPlan#getStructureKey()}).
+ */
+public final class NeuralNetStructureInfo {
+
+    private final long structureVersion;
+    private final int allNeuronsSize;
+    private final int[] layerSizeArr;
+    private final List<List<NeuronInterface>> layerNeuronListList;
+    private final List<Synapse> synapseList;
+
+    NeuralNetStructureInfo(final long structureVersion, final Neuron[] inputNeuronArr, final Layer[] hiddenLayerArr,
+                           final Neuron[] outputNeuronArr, final Synapse[] synapseArr) {
+        this.structureVersion = structureVersion;
+
+        final List<List<NeuronInterface>> layerNeuronListList = new ArrayList<>(hiddenLayerArr.length + 2);
+        layerNeuronListList.add(Collections.unmodifiableList(Arrays.asList(inputNeuronArr)));
+        for (final Layer layer : hiddenLayerArr) {
+            layerNeuronListList.add(Collections.unmodifiableList(Arrays.asList(layer.getNeuronsArr())));
+        }
+        layerNeuronListList.add(Collections.unmodifiableList(Arrays.asList(outputNeuronArr)));
+        this.layerNeuronListList = Collections.unmodifiableList(layerNeuronListList);
+
+        this.layerSizeArr = new int[layerNeuronListList.size()];
+        int allNeuronsSize = 0;
+        for (int layerPos = 0; layerPos < this.layerSizeArr.length; layerPos++) {
+            this.layerSizeArr[layerPos] = layerNeuronListList.get(layerPos).size();
+            allNeuronsSize += this.layerSizeArr[layerPos];
+        }
+        this.allNeuronsSize = allNeuronsSize;
+        this.synapseList = Collections.unmodifiableList(Arrays.asList(synapseArr));
+    }
+
+    public long getStructureVersion() {
+        return this.structureVersion;
+    }
+
+    /**
+     * Anzahl aller Neuronen (Input, Hidden, Output).
+     */
+    public int getAllNeuronsSize() {
+        return this.allNeuronsSize;
+    }
+
+    /**
+     * Anzahl der Layer inklusive Input- und Output-Layer.
+     */
+    public int getLayerCount() {
+        return this.layerSizeArr.length;
+    }
+
+    public int getLayerSize(final int layerPos) {
+        return this.layerSizeArr[layerPos];
+    }
+
+    /**
+     * Kopie der Layer-Größen, siehe {@link NeuralNet#getLayerSizes()}.
+     */
+    public int[] getLayerSizes() {
+        return this.layerSizeArr.clone();
+    }
+
+    /**
+     * Neuronen pro Layer: Input, Hidden-Layer in Reihenfolge, Output.
+     */
+    public List<List<NeuronInterface>> getLayerNeuronListList() {
+        return this.layerNeuronListList;
+    }
+
+    public List<Synapse> getSynapseList() {
+        return this.synapseList;
+    }
+}
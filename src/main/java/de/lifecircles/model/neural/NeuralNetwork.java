@@ -1,6 +1,8 @@
 package de.lifecircles.model.neural;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
 import java.io.Serializable;
 
 /**
@@ -9,6 +11,7 @@ import java.io.Serializable;
 public class NeuralNetwork implements Serializable {
     private static final long serialVersionUID = 1L;
     private static Random random = new Random();
+    private static final ThreadLocal<Random> scopedRandom = new ThreadLocal<>();
 
     private static final int INITIAL_SYNAPSE_CAPACITY = 64;
     public static final double DEFAULT_MUTATION_RATE = 0.1D;
@@ -21,6 +24,11 @@ public class NeuralNetwork implements Serializable {
 
     private final NeuralNet neuralNet;
 
+    /**
+     * Freie Kontexte für {@link #process(EvaluationContext, double[])}, wird bei Bedarf angelegt.
+     */
+    private transient volatile Queue<EvaluationContext> evaluationContextPool;
+
     /**
      * Copy-Konstruktor: Erstellt eine exakte Kopie des übergebenen neuronalen Netzwerks
      *
@@ -52,6 +60,22 @@ public class NeuralNetwork implements Serializable {
         this.neuralNet = neuralNet;
     }
 
+    private NeuralNetwork(final NeuralNetwork original, final NeuralNet neuralNet) {
+        this.neuronValueFunctionFactory = original.neuronValueFunctionFactory;
+        this.neuronValueFunction = original.neuronValueFunction;
+        this.learningRate = original.learningRate;
+
+        this.neuralNet = neuralNet;
+    }
+
+    /**
+     * Netzwerk mit gleicher NeuronValueFunction (Werte und Id-Vergabe), aber eigenem NeuralNet,
+     * das dieselben Ids verwenden muss. Siehe {@link CellBrain} und {@link GenomeStore}.
+     */
+    NeuralNetwork withNeuralNet(final NeuralNet neuralNet) {
+        return new NeuralNetwork(this, neuralNet);
+    }
+
     /**
      * Constructs a network with a single hidden layer.
      *
@@ -91,7 +115,26 @@ public class NeuralNetwork implements Serializable {
     }
 
     public static Random getRandom() {
-        return random;
+        final Random scoped = scopedRandom.get();
+        return Objects.nonNull(scoped) ? scoped : random;
+    }
+
+    /**
+     * Führt den Supplier mit einer eigenen Zufallsquelle für {@link #getRandom()} im aktuellen Thread aus,
+     * z.B. mit einem Stream pro Zelle, damit Erzeugung und Mutation unabhängig von anderen Zellen reproduzierbar sind.
+     */
+    public static <T> T callWithRandom(final Random random, final Supplier<T> supplier) {
+        final Random previous = scopedRandom.get();
+        scopedRandom.set(random);
+        try {
+            return supplier.get();
+        } finally {
+            if (Objects.nonNull(previous)) {
+                scopedRandom.set(previous);
+            } else {
+                scopedRandom.remove();
+            }
+        }
     }
 
     public static void setRandom(final Random random) {
@@ -130,10 +173,20 @@ public class NeuralNetwork implements Serializable {
         mutated.neuralNet.mutate(this.getNeuronValueFunctionFactory(), mutated.getNeuronValueFunction(),
                 mutationRate, mutationStrength,
                 mutateNeuronType);
+        mutated.compactNeuronIdsIfSparse();
 
         return mutated;
     }
 
+    /**
+     * Verdichtet die Neuronen-Ids, wenn durch Mutationen mehr als die Hälfte des Id-Raums ungenutzt ist.
+     */
+    void compactNeuronIdsIfSparse() {
+        if (this.neuronValueFunction instanceof ValuesNeuronValueFunction valuesNeuronValueFunction) {
+            this.neuralNet.compactNeuronIds(valuesNeuronValueFunction, true);
+        }
+    }
+
     /**
      * Adds a hidden layer and ensures it is active by default.
      * Existing connections between adjacent layers are preserved.
@@ -164,14 +217,39 @@ public class NeuralNetwork implements Serializable {
         final NeuralNetwork mutated = this.mutate(mutationRate, mutationStrength);
 
         mutated.neuralNet.mutateAggressively(neuronValueFunctionFactory, neuronValueFunction, mutationRate, mutationStrength);
+        mutated.compactNeuronIdsIfSparse();
 
         return mutated;
     }
 
+    /**
+     * Entfernt kleine Gewichte und tote Neuronen, siehe {@link NeuralNet#prune(NeuronValueFunction, double)}.
+     *
+     * @return Anzahl der entfernten Synapsen
+     */
+    public int prune(final double minAbsWeight) {
+        return this.neuralNet.prune(this.neuronValueFunction, minAbsWeight);
+    }
+
     public long getProccessedSynapses() {
         return this.neuralNet.getProccessedSynapses();
     }
 
+    public long getSkippedSynapses() {
+        return this.neuralNet.getSkippedSynapses();
+    }
+
+    /**
+     * Geschätzter Speicher des Netzes und seiner Neuronen-Werte in Bytes.
+     */
+    public long estimateMemoryBytes() {
+        long bytes = this.neuralNet.estimateMemoryBytes();
+        if (this.neuronValueFunction instanceof ValuesNeuronValueFunction valuesNeuronValueFunction) {
+            bytes += valuesNeuronValueFunction.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+
     /**
      * Aktiviert oder deaktiviert die Layer-Deaktivierung (z.B. für Tests)
      */
@@ -183,6 +261,17 @@ public class NeuralNetwork implements Serializable {
         return this.neuralNet.isDisableLayerDeactivation();
     }
 
+    /**
+     * Siehe {@link NeuralNet#setParallelLayerEvaluation(boolean)}.
+     */
+    public void setParallelLayerEvaluation(final boolean parallelLayerEvaluation) {
+        this.neuralNet.setParallelLayerEvaluation(parallelLayerEvaluation);
+    }
+
+    public boolean isParallelLayerEvaluation() {
+        return this.neuralNet.isParallelLayerEvaluation();
+    }
+
     /**
      * Sets the learning rate for backpropagation.
      *
@@ -242,6 +331,77 @@ public class NeuralNetwork implements Serializable {
         return totalError;
     }
 
+    /**
+     * Trainiert das Netzwerk in Mini-Batches: die Gradienten eines Batches werden in Abschnitten fester Größe
+     * mit eigenem Scratch auf bis zu threadCount Threads berechnet, in Abschnitts-Reihenfolge addiert und
+     * gemittelt einmal angewendet. Das Ergebnis ist deterministisch und hängt nicht von threadCount ab.
+     * Die Layer-Aktivität wird während des Trainings nicht nachgeführt.
+     *
+     * Netze mit NeuronNetwork-Neuronen oder ohne {@link ValuesNeuronValueFunction} werden
+     * wie bei {@link #train(double[][], double[][], int)} Beispiel für Beispiel trainiert.
+     *
+     * @param batchSize Anzahl der Beispiele pro Gewichtsänderung
+     * @param threadCount Anzahl der Threads pro Batch
+     * @return Der durchschnittliche Fehler nach dem Training
+     */
+    public double train(final double[][] trainingInputs, final double[][] trainingTargets, final int epochs,
+                        final int batchSize, final int threadCount) {
+        if (trainingInputs.length != trainingTargets.length) {
+            throw new IllegalArgumentException("Anzahl der Eingaben und Ziele muss übereinstimmen");
+        }
+        if (batchSize < 1 || threadCount < 1) {
+            throw new IllegalArgumentException("batchSize und threadCount müssen mindestens 1 sein");
+        }
+        if (!(this.neuronValueFunction instanceof ValuesNeuronValueFunction) ||
+                !this.neuralNet.fetchExecutionPlan().isFullyFlat()) {
+            return this.train(trainingInputs, trainingTargets, epochs);
+        }
+        return NeuralNetMiniBatchTrainer.train(this.neuralNet, this.neuronValueFunctionFactory,
+                trainingInputs, trainingTargets, epochs, this.learningRate, batchSize, threadCount);
+    }
+
+    /**
+     * Holt einen Kontext aus dem Pool oder legt einen neuen an; kann von jedem Thread aufgerufen werden.
+     * Ein Kontext aus dem Pool wird zurückgesetzt ({@link EvaluationContext#clear()}), damit keine Werte
+     * (z.B. für rückwärts gerichtete Synapsen) aus der Berechnung eines anderen Aufrufers übernommen werden.
+     * Der Kontext muss nach der Verwendung mit {@link #releaseEvaluationContext(EvaluationContext)}
+     * zurückgegeben werden.
+     */
+    public EvaluationContext acquireEvaluationContext() {
+        final EvaluationContext context = this.fetchEvaluationContextPool().poll();
+        if (context == null) {
+            return new EvaluationContext();
+        }
+        context.clear();
+        return context;
+    }
+
+    public void releaseEvaluationContext(final EvaluationContext context) {
+        this.fetchEvaluationContextPool().offer(context);
+    }
+
+    /**
+     * Berechnet die Ausgaben mit eigenem Zustand in context, siehe {@link NeuralNet#process(EvaluationContext, double[])}.
+     * Das Netz darf währenddessen nicht verändert (mutiert, trainiert) werden.
+     */
+    public double[] process(final EvaluationContext context, final double[] inputArr) {
+        return this.neuralNet.process(context, inputArr);
+    }
+
+    private Queue<EvaluationContext> fetchEvaluationContextPool() {
+        Queue<EvaluationContext> pool = this.evaluationContextPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = this.evaluationContextPool;
+                if (pool == null) {
+                    pool = new ConcurrentLinkedQueue<>();
+                    this.evaluationContextPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
     public double[] calcTrain(final double[] trainingInputs, final double[] trainingTargets) {
         // Forward pass
         final double[] outputArray = this.calcProcess(trainingInputs);
@@ -292,6 +452,14 @@ public class NeuralNetwork implements Serializable {
         return this.neuralNet.process(this.neuronValueFunction);
     }
 
+    public double[] process(final double[] outputArr) {
+        return this.neuralNet.process(this.neuronValueFunction, outputArr);
+    }
+
+    public double[] processSparse(final double[] outputArr, final double epsilon) {
+        return this.neuralNet.processSparse(this.neuronValueFunction, outputArr, epsilon);
+    }
+
     public Layer[] getHiddenLayerArr() {
         return this.neuralNet.getHiddenLayerArr();
     }
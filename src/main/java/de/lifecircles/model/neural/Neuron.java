@@ -1,7 +1,10 @@
 package de.lifecircles.model.neural;
 
+import de.lifecircles.service.SimulationConfig;
+
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -12,7 +15,7 @@ import java.util.Random;
 public class Neuron implements NeuronInterface {
     private static final long serialVersionUID = 1L;
 
-    private final int id;
+    private int id;
     private double value;
     private double bias;
     private transient Synapse[] inputSynapseArr; // Als transient markiert
@@ -27,10 +30,14 @@ public class Neuron implements NeuronInterface {
     private final NeuronTypeInfoData neuronTypeInfoData;
 
     public Neuron(final int id, final NeuronTypeInfoData neuronTypeInfoData) {
+        this(id, neuronTypeInfoData, NeuralNetwork.getRandom().nextDouble() * 2.0D - 1.0D); // Random bias between -1 and 1
+    }
+
+    private Neuron(final int id, final NeuronTypeInfoData neuronTypeInfoData, final double bias) {
         this.id = id;
         this.neuronTypeInfoData = neuronTypeInfoData;
         this.value = 0.0;
-        this.bias = NeuralNetwork.getRandom().nextDouble() * 2.0D - 1.0D; // Random bias between -1 and 1
+        this.bias = bias;
         this.inputSynapseArr = new Synapse[0];
         this.outputSynapseList = new ArrayList<>();
         this.activationFunction = ActivationFunction.Sigmoid;
@@ -48,6 +55,17 @@ public class Neuron implements NeuronInterface {
         this.inputSynapseArr = newInputSynapses;
     }
 
+    @Override
+    public void addInputSynapseList(final List<Synapse> synapseList) {
+        final Synapse[] newInputSynapses = new Synapse[this.inputSynapseArr.length + synapseList.size()];
+        System.arraycopy(this.inputSynapseArr, 0, newInputSynapses, 0, this.inputSynapseArr.length);
+        int inputSynapsePos = this.inputSynapseArr.length;
+        for (final Synapse synapse : synapseList) {
+            newInputSynapses[inputSynapsePos++] = synapse;
+        }
+        this.inputSynapseArr = newInputSynapses;
+    }
+
     @Override
     public void mutateNeuron(final Random random, double mutationRate, double mutationStrength) {
         // Wähle eine zufällige Aktivierungsfunktion
@@ -146,11 +164,21 @@ public class Neuron implements NeuronInterface {
         this.inputSynapseArr = inputSynapses;
     }
 
+    @Override
+    public void setOutputSynapseArr(final int outputTypePos, final Synapse[] outputSynapses) {
+        this.outputSynapseList = new ArrayList<>(Arrays.asList(outputSynapses));
+    }
+
     @Override
     public int getId() {
         return this.id;
     }
 
+    @Override
+    public void setId(final int id) {
+        this.id = id;
+    }
+
     @Override
     public NeuronTypeInfoData getNeuronTypeInfoData() {
         return this.neuronTypeInfoData;
@@ -172,7 +200,7 @@ public class Neuron implements NeuronInterface {
             //this.setInputSum(inputTypePos, sum);
             neuronValueFunction.writeInputSum(neuralNet, this, outputTypePos, sum);
 
-            double value = this.getActivationFunction().apply(sum);
+            double value = this.getActivationFunction().apply(sum, SimulationConfig.getInstance().getActivationPrecision());
             //this.writeNeuronValue(neuron, outputTypePos, value);
             neuronValueFunction.writeValue(neuralNet, this, outputTypePos, value);
 
@@ -181,6 +209,11 @@ public class Neuron implements NeuronInterface {
         return synapseCount;
     }
 
+    @Override
+    public long activate(final EvaluationContext context, final NeuralNet neuralNet) {
+        return this.activate(context.getNeuronValueFunction(), neuralNet);
+    }
+
     @Override
     public NeuronInterface cloneNeuron(final NeuralNet neuralNet, final NeuronValueFunction neuronValueFunction, final boolean isActiveLayer) {
         final Neuron newNeuron = new Neuron(neuronValueFunction.fetchNextFreeId(neuralNet), this.getNeuronTypeInfoData());
@@ -216,7 +249,8 @@ public class Neuron implements NeuronInterface {
             // Berechne Delta für dieses Neuron
             //final double inputSum = this.getInputSum(outputTypePos);
             final double inputSum = neuronValueFunction.readInputSum(neuralNet, this, outputTypePos);
-            final double delta = errorSum * this.getActivationFunction().derivative(inputSum);
+            final double delta = errorSum *
+                    this.getActivationFunction().derivative(inputSum, SimulationConfig.getInstance().getActivationPrecision());
             //this.setDelta(outputTypePos, delta);
             neuronValueFunction.writeDelta(neuralNet, this, outputTypePos, delta);
         }
@@ -227,6 +261,39 @@ public class Neuron implements NeuronInterface {
         // Nothing special to do.
     }
 
+    /**
+     * Schreibt das Neuron ohne Synapsen für das flache Format von {@link NeuralNet}.
+     */
+    void writeFlat(final ObjectOutputStream oos) throws IOException {
+        oos.writeInt(this.id);
+        oos.writeObject(this.neuronTypeInfoData);
+        oos.writeDouble(this.bias);
+        oos.writeObject(this.activationFunction);
+        oos.writeBoolean(this.isOutputNeuron);
+    }
+
+    /**
+     * Kopie mit derselben Id und denselben Parametern, ohne Synapsen; verbraucht keine Zufallszahlen.
+     */
+    Neuron copyWithSameId() {
+        final Neuron neuron = new Neuron(this.id, this.neuronTypeInfoData, this.bias);
+        neuron.setActivationFunction(this.activationFunction);
+        neuron.setOutputNeuron(this.isOutputNeuron);
+        return neuron;
+    }
+
+    /**
+     * Gegenstück zu {@link #writeFlat(ObjectOutputStream)}, verbraucht keine Zufallszahlen.
+     */
+    static Neuron readFlat(final ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        final int id = ois.readInt();
+        final NeuronTypeInfoData neuronTypeInfoData = (NeuronTypeInfoData) ois.readObject();
+        final Neuron neuron = new Neuron(id, neuronTypeInfoData, ois.readDouble());
+        neuron.setActivationFunction((ActivationFunction) ois.readObject());
+        neuron.setOutputNeuron(ois.readBoolean());
+        return neuron;
+    }
+
     /**
      * Benutzerdefinierte Serialisierungsmethode.
      */
@@ -13,12 +13,22 @@ public interface NeuronInterface extends Serializable {
 
     long activate(NeuronValueFunction neuronValueFunction, final NeuralNet neuralNet);
 
+    /**
+     * Wie {@link #activate(NeuronValueFunction, NeuralNet)}, aller veränderliche Zustand liegt im Kontext.
+     */
+    long activate(final EvaluationContext context, final NeuralNet neuralNet);
+
     NeuronInterface cloneNeuron(final NeuralNet neuralNet, final NeuronValueFunction neuronValueFunction, final boolean isActiveLayer);
 
     void addOutputSynapse(final int outputTypePos, final Synapse synapse);
 
     void addInputSynapse(final int inputTypePos, final Synapse synapse);
 
+    /**
+     * Hängt mehrere Input-Synapsen in Listen-Reihenfolge an, jedes Input-Array wird nur einmal kopiert.
+     */
+    void addInputSynapseList(final List<Synapse> synapseList);
+
     void mutateNeuron(final Random random, double mutationRate, double mutationStrength);
 
     void removeOutputSynapse(final int outputTypePos, final Synapse synapse);
@@ -28,8 +38,18 @@ public interface NeuronInterface extends Serializable {
 
     void setInputSynapseArr(final int inputTypePos, final Synapse[] array);
 
+    /**
+     * Ersetzt die Output-Synapsen, z.B. beim Einlesen des flachen Formats in {@link NeuralNet}.
+     */
+    void setOutputSynapseArr(final int outputTypePos, final Synapse[] array);
+
     int getId();
 
+    /**
+     * Nur für das Verdichten des Id-Raums, siehe {@link NeuralNet#compactNeuronIds}.
+     */
+    void setId(final int id);
+
     List<Synapse> getOutputSynapseList(final int outputTypePos);
 
     Synapse[] getInputSynapseArr(final int outputTypePos);
@@ -1,14 +1,19 @@
 package de.lifecircles.model.neural;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 public class NeuronNetwork implements NeuronInterface {
     private static final long serialVersionUID = 1L;
 
-    private final int id;
+    private int id;
 
     /**
      * Input-Synapes for every Input of the Network.
@@ -20,24 +25,44 @@ public class NeuronNetwork implements NeuronInterface {
     private List<Synapse[]> outputSynapsesList;
     private boolean isOutputNeuron; // Flag für Output-Neuronen
 
-    private final NeuronTypeInfoData neuronTypeInfoData;
+    private NeuronTypeInfoData neuronTypeInfoData;
 
-    private final NeuralNetwork network;
+    /**
+     * Das innere Netz ist das Netz des Neuron-Typs und wird mit allen Neuronen dieses Typs geteilt,
+     * auch mit Eltern und Geschwistern, bis Mutation oder Training es kopieren (siehe {@link #ensureOwnNetwork()}).
+     */
+    private NeuralNetwork network;
 
     //private double[] deltaArr;
     //private double[] inputSumArr;
     private double[] biasArr;
 
+    /**
+     * Zustand dieses Neurons für das geteilte innere Netz: die Werte stehen in der NeuronValueFunction von
+     * {@link #network}, die Layer-Aktivität und die Unter-Kontexte verschachtelter Neuronen im Kontext.
+     */
+    private transient EvaluationContext evaluationContext;
+
+    /**
+     * Das innere Netz ist eine Kopie nur für dieses Neuron (siehe {@link #ensureOwnNetwork()}) und darf
+     * an Ort und Stelle verändert werden. Wird wieder false, sobald ein anderes Neuron den Typ teilt.
+     */
+    private transient boolean ownNetwork;
+
     public NeuronNetwork(final int id, final NeuronTypeInfoData neuronTypeInfoData,
                          final NeuronValueFunctionFactory neuronValueFunctionFactory) {
+        // Dass NN direkt verwenden, nicht als Kopie.
+        this(id, neuronTypeInfoData, new NeuralNetwork(neuronTypeInfoData.getNeuralNet(), neuronValueFunctionFactory));
+    }
+
+    private NeuronNetwork(final int id, final NeuronTypeInfoData neuronTypeInfoData, final NeuralNetwork network) {
         this.id = id;
         this.neuronTypeInfoData = neuronTypeInfoData;
         this.inputSynapsesList = new ArrayList<>();
         this.outputSynapsesList = new ArrayList<>();
         this.isOutputNeuron = false; // Standardmäßig kein Output-Neuron
 
-        // Dass NN direkt verwenden, nicht als Kopie.
-        this.network = new NeuralNetwork(neuronTypeInfoData.getNeuralNet(), neuronValueFunctionFactory);
+        this.network = network;
 
         for (int inputTypePos = 0; inputTypePos < this.neuronTypeInfoData.getInputCount(); inputTypePos++) {
             this.inputSynapsesList.add(new Synapse[0]);
@@ -55,6 +80,11 @@ public class NeuronNetwork implements NeuronInterface {
         return this.id;
     }
 
+    @Override
+    public void setId(final int id) {
+        this.id = id;
+    }
+
     @Override
     public NeuronTypeInfoData getNeuronTypeInfoData() {
         return this.neuronTypeInfoData;
@@ -64,6 +94,7 @@ public class NeuronNetwork implements NeuronInterface {
     public NeuronInterface cloneNeuron(final NeuralNet neuralNet, final NeuronValueFunction neuronValueFunction, final boolean isActiveLayer) {
         final int newId = neuronValueFunction.fetchNextFreeId(neuralNet);
         final NeuronNetwork newNeuron = new NeuronNetwork(newId, this.neuronTypeInfoData, this.network.getNeuronValueFunctionFactory());
+        this.ownNetwork = false;
 
         for (int inputNeuronPos = 0; inputNeuronPos < newNeuron.getNeuronTypeInfoData().getInputCount(); inputNeuronPos++) {
             newNeuron.setBias(inputNeuronPos, this.getBias(inputNeuronPos));
@@ -72,6 +103,17 @@ public class NeuronNetwork implements NeuronInterface {
         return newNeuron;
     }
 
+    /**
+     * Kopie mit derselben Id und denselben Bias-Werten, ohne Synapsen; das Typ-Netz wird weiter geteilt.
+     */
+    NeuronNetwork copyWithSameId() {
+        final NeuronNetwork neuron = new NeuronNetwork(this.id, this.neuronTypeInfoData, this.network.getNeuronValueFunctionFactory());
+        this.ownNetwork = false;
+        neuron.biasArr = this.biasArr.clone();
+        neuron.isOutputNeuron = this.isOutputNeuron;
+        return neuron;
+    }
+
     @Override
     public void addOutputSynapse(final int outputTypePos, final Synapse synapse) {
         final Synapse[] outputSynapseArr = this.outputSynapsesList.get(outputTypePos);
@@ -94,6 +136,28 @@ public class NeuronNetwork implements NeuronInterface {
         this.inputSynapsesList.set(inputTypePos, newInputSynapses);
     }
 
+    @Override
+    public void addInputSynapseList(final List<Synapse> synapseList) {
+        final int[] addCountArr = new int[this.inputSynapsesList.size()];
+        for (final Synapse synapse : synapseList) {
+            addCountArr[synapse.getTargetInputTypePos()]++;
+        }
+        final int[] inputSynapsePosArr = new int[addCountArr.length];
+        for (int inputTypePos = 0; inputTypePos < addCountArr.length; inputTypePos++) {
+            if (addCountArr[inputTypePos] > 0) {
+                final Synapse[] inputSynapseArr = this.inputSynapsesList.get(inputTypePos);
+                final Synapse[] newInputSynapses = new Synapse[inputSynapseArr.length + addCountArr[inputTypePos]];
+                System.arraycopy(inputSynapseArr, 0, newInputSynapses, 0, inputSynapseArr.length);
+                inputSynapsePosArr[inputTypePos] = inputSynapseArr.length;
+                this.inputSynapsesList.set(inputTypePos, newInputSynapses);
+            }
+        }
+        for (final Synapse synapse : synapseList) {
+            final int inputTypePos = synapse.getTargetInputTypePos();
+            this.inputSynapsesList.get(inputTypePos)[inputSynapsePosArr[inputTypePos]++] = synapse;
+        }
+    }
+
     @Override
     public void removeInputSynapse(final int inputTypePos, final Synapse synapse) {
         final Synapse[] inputSynapseArr = this.inputSynapsesList.get(inputTypePos);
@@ -138,7 +202,58 @@ public class NeuronNetwork implements NeuronInterface {
     public long activate(final NeuronValueFunction neuronValueFunction, final NeuralNet neuralNet) {
         this.checkInOutSize();
 
-        final double[] inputArr = new double[this.neuronTypeInfoData.getInputCount()];
+        //final NeuralNet calcNeuralNet = neuralNet;
+        final NeuralNet calcNeuralNet = this.network.getNeuralNet();
+        // Das innere Netz wird geteilt, der Zustand dieses Neurons steht in seinem eigenen Kontext.
+        final EvaluationContext calcContext = this.fetchEvaluationContext();
+        calcNeuralNet.process(calcContext, this.calcInputArr(neuronValueFunction, neuralNet, calcContext));
+
+        this.copyOutputs(calcNeuralNet, calcContext.getNeuronValueFunction(), neuronValueFunction, neuralNet);
+
+        return calcContext.getProccessedSynapses();
+    }
+
+    /**
+     * Berechnet das innere Netz mit dem Unter-Kontext dieses Neurons statt mit dessen eigener NeuronValueFunction.
+     */
+    @Override
+    public long activate(final EvaluationContext context, final NeuralNet neuralNet) {
+        final NeuronValueFunction neuronValueFunction = context.getNeuronValueFunction();
+
+        final NeuralNet calcNeuralNet = this.network.getNeuralNet();
+        final EvaluationContext calcContext = context.fetchSubContext(this);
+        calcNeuralNet.process(calcContext, this.calcInputArr(neuronValueFunction, neuralNet, calcContext));
+
+        this.copyOutputs(calcNeuralNet, calcContext.getNeuronValueFunction(), neuronValueFunction, neuralNet);
+
+        return calcContext.getProccessedSynapses();
+    }
+
+    NeuralNet getSubNeuralNet() {
+        return this.network.getNeuralNet();
+    }
+
+    /**
+     * Eigener Kontext des Neurons für Berechnungen ohne {@link EvaluationContext} des äußeren Netzes.
+     * Er verwendet die NeuronValueFunction des Neurons, damit das Training die Werte dort findet.
+     */
+    EvaluationContext fetchEvaluationContext() {
+        if (this.evaluationContext == null) {
+            this.evaluationContext =
+                    (this.network.getNeuronValueFunction() instanceof ValuesNeuronValueFunction valuesNeuronValueFunction) ?
+                            new EvaluationContext(valuesNeuronValueFunction) :
+                            new EvaluationContext(new ValuesNeuronValueFunction());
+        }
+        return this.evaluationContext;
+    }
+
+    /**
+     * Die Eingaben stehen im Puffer von calcContext: das Neuron kann in geteilten Typ-Netzen von mehreren
+     * Threads zugleich berechnet werden, der Kontext gehört immer nur einem.
+     */
+    private double[] calcInputArr(final NeuronValueFunction neuronValueFunction, final NeuralNet neuralNet,
+                                  final EvaluationContext calcContext) {
+        final double[] inputArr = calcContext.fetchInputArr(this.neuronTypeInfoData.getInputCount());
         for (int inputTypePos = 0; inputTypePos < this.neuronTypeInfoData.getInputCount(); inputTypePos++) {
             double sum = this.getBias(inputTypePos);
             final Synapse[] inputSynapseArr = this.inputSynapsesList.get(inputTypePos);
@@ -150,15 +265,11 @@ public class NeuronNetwork implements NeuronInterface {
             }
             inputArr[inputTypePos] = sum;
         }
+        return inputArr;
+    }
 
-        //final NeuralNet calcNeuralNet = neuralNet;
-        final NeuralNet calcNeuralNet = this.network.getNeuralNet();
-        //final NeuronValueFunction calcNeuronValueFunction = neuronValueFunction;
-        final NeuronValueFunction calcNeuronValueFunction = this.network.getNeuronValueFunction();
-
-        calcNeuralNet.setInputs(calcNeuronValueFunction, inputArr);
-        calcNeuralNet.process(calcNeuronValueFunction);
-
+    private void copyOutputs(final NeuralNet calcNeuralNet, final NeuronValueFunction calcNeuronValueFunction,
+                             final NeuronValueFunction neuronValueFunction, final NeuralNet neuralNet) {
         for (int outputTypePos = 0; outputTypePos < this.neuronTypeInfoData.getOutputCount(); outputTypePos++) {
             Neuron calcOutputNeuron = calcNeuralNet.getOutputNeuronArr()[outputTypePos];
             // Kopieren der Werte des internen NeuralNet in das NeuronNetwork:
@@ -168,8 +279,6 @@ public class NeuronNetwork implements NeuronInterface {
             final double calcOutputNeuronValue = calcNeuronValueFunction.readValue(calcNeuralNet, calcOutputNeuron, outputTypePos);
             neuronValueFunction.writeValue(neuralNet, this, outputTypePos, calcOutputNeuronValue);
         }
-
-        return calcNeuralNet.getProccessedSynapses();
     }
 
     private void checkInOutSize() {
@@ -208,6 +317,7 @@ public class NeuronNetwork implements NeuronInterface {
         }
 
         if (random.nextDouble() < mutationRate) {
+            this.ensureOwnNetwork();
             final NeuralNet neuralNet = this.network.getNeuralNet();
             neuralNet.mutateNeuronTypeInfoDataList(this.network.getNeuronValueFunctionFactory(), this.network.getNeuronValueFunction(),
                     random, mutationRate, mutationStrength);
@@ -219,6 +329,45 @@ public class NeuronNetwork implements NeuronInterface {
         //}
     }
 
+    /**
+     * Copy-on-Write: Bevor das Neuron sein inneres Netz mutiert, erhält es eine eigene Kopie des Typ-Netzes
+     * und damit einen eigenen Typ. Andere Neuronen dieses Typs, Eltern und Geschwister bleiben unverändert.
+     * Kopiert wird nur beim ersten Schreiben, danach ist das Netz eigen ({@link #ownNetwork}).
+     */
+    private void ensureOwnNetwork() {
+        if (!this.ownNetwork) {
+            final NeuronValueFunctionFactory neuronValueFunctionFactory = this.network.getNeuronValueFunctionFactory();
+            final NeuralNet ownNeuralNet = new NeuralNet(this.network.getNeuralNet(), true,
+                    neuronValueFunctionFactory, neuronValueFunctionFactory.create());
+            this.neuronTypeInfoData = new NeuronTypeInfoData(this.neuronTypeInfoData.getInputCount(),
+                    this.neuronTypeInfoData.getOutputCount(), ownNeuralNet);
+            this.network = new NeuralNetwork(ownNeuralNet, neuronValueFunctionFactory);
+            this.ownNetwork = true;
+        }
+        this.evaluationContext = null;
+    }
+
+    /**
+     * Wie {@link #ensureOwnNetwork()} vor dem Training, das die Gewichte des inneren Netzes schreibt.
+     * Die Kopie behält die Ids, damit die Werte der letzten Berechnung in context (und im eigenen Kontext)
+     * für die Backpropagation gültig bleiben.
+     */
+    private void ensureOwnNetwork(final EvaluationContext context) {
+        if (this.ownNetwork) {
+            return;
+        }
+        final Map<NeuronInterface, NeuronInterface> neuronMap = new IdentityHashMap<>();
+        final NeuralNet ownNeuralNet = this.network.getNeuralNet().copyWithSameIds(neuronMap);
+        this.neuronTypeInfoData = new NeuronTypeInfoData(this.neuronTypeInfoData.getInputCount(),
+                this.neuronTypeInfoData.getOutputCount(), ownNeuralNet);
+        this.network = this.network.withNeuralNet(ownNeuralNet);
+        this.ownNetwork = true;
+        context.replaceSubContextNeurons(neuronMap);
+        if ((this.evaluationContext != null) && (this.evaluationContext != context)) {
+            this.evaluationContext.replaceSubContextNeurons(neuronMap);
+        }
+    }
+
     @Override
     public void backpropagateDelta(final NeuralNet neuralNet, final NeuronValueFunction neuronValueFunction) {
         for (int outputTypePos = 0; outputTypePos < this.getNeuronTypeInfoData().getOutputCount(); outputTypePos++) {
@@ -246,7 +395,16 @@ public class NeuronNetwork implements NeuronInterface {
 
     @Override
     public void backpropagateExtra(final double learningRate) {
-        final NeuronValueFunction neuronValueFunction = this.network.getNeuronValueFunction();
+        this.backpropagateExtra(this.fetchEvaluationContext(), learningRate);
+    }
+
+    /**
+     * Trainiert das innere Netz mit den Werten aus context, dem Kontext, mit dem dieses Neuron berechnet wurde.
+     */
+    void backpropagateExtra(final EvaluationContext context, final double learningRate) {
+        // Das Training schreibt Gewichte und Bias des inneren Netzes, ein geteiltes Typ-Netz wird vorher kopiert.
+        this.ensureOwnNetwork(context);
+        final NeuronValueFunction neuronValueFunction = context.getNeuronValueFunction();
         final NeuralNet neuralNet = this.network.getNeuralNet();
 
         for (int outputTypePos = 0; outputTypePos < this.getNeuronTypeInfoData().getOutputCount(); outputTypePos++) {
@@ -271,7 +429,7 @@ public class NeuronNetwork implements NeuronInterface {
         neuralNet.updateBiasAndWeights(neuronValueFunction, learningRate);
 
         // 4. Backpropagiere die speziellen Neuronen (NeuronNetwork).
-        neuralNet.backpropagateExtra(learningRate);
+        neuralNet.backpropagateExtra(context, learningRate);
     }
 
     @Override
@@ -288,5 +446,34 @@ public class NeuronNetwork implements NeuronInterface {
     public void setInputSynapseArr(final int inputTypePos, final Synapse[] inputSynapses) {
         this.inputSynapsesList.set(inputTypePos, inputSynapses);
     }
+
+    @Override
+    public void setOutputSynapseArr(final int outputTypePos, final Synapse[] outputSynapses) {
+        this.outputSynapsesList.set(outputTypePos, outputSynapses);
+    }
+
+    /**
+     * Schreibt das Neuron ohne Synapsen für das flache Format von {@link NeuralNet}.
+     * Das innere Netz ist das des Typs und wird vom Stream nur einmal geschrieben.
+     */
+    void writeFlat(final ObjectOutputStream oos) throws IOException {
+        oos.writeInt(this.id);
+        oos.writeObject(this.neuronTypeInfoData);
+        oos.writeObject(this.network);
+        oos.writeObject(this.biasArr);
+        oos.writeBoolean(this.isOutputNeuron);
+    }
+
+    /**
+     * Gegenstück zu {@link #writeFlat(ObjectOutputStream)}.
+     */
+    static NeuronNetwork readFlat(final ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        final int id = ois.readInt();
+        final NeuronTypeInfoData neuronTypeInfoData = (NeuronTypeInfoData) ois.readObject();
+        final NeuronNetwork neuron = new NeuronNetwork(id, neuronTypeInfoData, (NeuralNetwork) ois.readObject());
+        neuron.biasArr = (double[]) ois.readObject();
+        neuron.isOutputNeuron = ois.readBoolean();
+        return neuron;
+    }
 }
 
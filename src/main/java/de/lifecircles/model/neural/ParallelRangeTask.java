@@ -0,0 +1,59 @@
+package de.lifecircles.model.neural;
+
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Teilt einen Index-Bereich rekursiv auf und rechnet die Abschnitte im Common-Pool von {@link ForkJoinPool}.
+ * Die Abschnitte dürfen nur disjunkte Daten schreiben; jeder Index wird genau einmal und in sich
+ * sequentiell berechnet, das Ergebnis ist damit unabhängig von der Aufteilung.
+ */
+final class ParallelRangeTask extends RecursiveAction {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Berechnet die Indizes start (inklusive) bis end (exklusive).
+     */
+    @FunctionalInterface
+    interface RangeConsumer {
+        void accept(int start, int end);
+    }
+
+    private final int start;
+    private final int end;
+    private final int chunkSize;
+    // Tasks werden nur im Pool ausgeführt, nie serialisiert.
+    private final transient RangeConsumer rangeConsumer;
+
+    private ParallelRangeTask(final int start, final int end, final int chunkSize, final RangeConsumer rangeConsumer) {
+        this.start = start;
+        this.end = end;
+        this.chunkSize = chunkSize;
+        this.rangeConsumer = rangeConsumer;
+    }
+
+    /**
+     * Rechnet start bis end in Abschnitten von höchstens chunkSize Indizes und kehrt erst zurück,
+     * wenn alle Abschnitte fertig sind.
+     */
+    static void forEachRange(final int start, final int end, final int chunkSize, final RangeConsumer rangeConsumer) {
+        if (end - start <= chunkSize) {
+            rangeConsumer.accept(start, end);
+        } else {
+            ForkJoinPool.commonPool().invoke(new ParallelRangeTask(start, end, chunkSize, rangeConsumer));
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (this.end - this.start <= this.chunkSize) {
+            this.rangeConsumer.accept(this.start, this.end);
+        } else {
+            final int middle = (this.start + this.end) >>> 1;
+            invokeAll(new ParallelRangeTask(this.start, middle, this.chunkSize, this.rangeConsumer),
+                    new ParallelRangeTask(middle, this.end, this.chunkSize, this.rangeConsumer));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package de.lifecircles.model.neural;
 
 import java.io.*;
+import java.util.List;
 
 /**
  * Represents a connection between two neurons in the neural network.
@@ -13,6 +14,8 @@ public class Synapse implements Serializable {
     private final NeuronInterface targetNeuron;
     private final int targetInputTypePos;
     private double weight;
+    // Netz, dessen Ausführungsplan bei Gewichtsänderungen nachgeführt werden muss.
+    private transient NeuralNet neuralNet;
 
     public Synapse(final Neuron sourceNeuron, final int sourceOutputTypePos,
                    final Neuron targetNeuron, final int targetInputTypePos) {
@@ -23,14 +26,38 @@ public class Synapse implements Serializable {
     public Synapse(final NeuronInterface sourceNeuron, final int sourceOutputTypePo,
                    final NeuronInterface targetNeuron, final int targetInputTypePos,
                    final double weight) {
+        this(sourceNeuron, sourceOutputTypePo, targetNeuron, targetInputTypePos, weight, true);
+    }
+
+    /**
+     * @param addToTargetNeuron false: nur beim Quell-Neuron eintragen, das Ziel-Neuron übernimmt die Synapse
+     *                          später gesammelt über {@link NeuronInterface#addInputSynapseList(List)}.
+     */
+    Synapse(final NeuronInterface sourceNeuron, final int sourceOutputTypePo,
+            final NeuronInterface targetNeuron, final int targetInputTypePos,
+            final double weight, final boolean addToTargetNeuron) {
+        this(sourceNeuron, sourceOutputTypePo, targetNeuron, targetInputTypePos, weight, true, addToTargetNeuron);
+    }
+
+    /**
+     * @param addToSourceNeuron false: auch das Quell-Neuron übernimmt die Synapse später selbst,
+     *                          z.B. beim Einlesen des flachen Formats in {@link NeuralNet}.
+     */
+    Synapse(final NeuronInterface sourceNeuron, final int sourceOutputTypePo,
+            final NeuronInterface targetNeuron, final int targetInputTypePos,
+            final double weight, final boolean addToSourceNeuron, final boolean addToTargetNeuron) {
         this.sourceNeuron = sourceNeuron;
         this.sourceOutputTypePos = sourceOutputTypePo;
         this.targetNeuron = targetNeuron;
         this.targetInputTypePos = targetInputTypePos;
         this.weight = weight;
         
-        sourceNeuron.addOutputSynapse(sourceOutputTypePo, this);
-        targetNeuron.addInputSynapse(targetInputTypePos, this);
+        if (addToSourceNeuron) {
+            sourceNeuron.addOutputSynapse(sourceOutputTypePo, this);
+        }
+        if (addToTargetNeuron) {
+            targetNeuron.addInputSynapse(targetInputTypePos, this);
+        }
 
         //System.out.println("Synapse created: " + sourceNeuron + " -> " + targetNeuron);
     }
@@ -49,6 +76,13 @@ public class Synapse implements Serializable {
 
     public void setWeight(double weight) {
         this.weight = weight;
+        if (this.neuralNet != null) {
+            this.neuralNet.markExecutionPlanParametersChanged();
+        }
+    }
+
+    void setNeuralNet(final NeuralNet neuralNet) {
+        this.neuralNet = neuralNet;
     }
 
     public int getSourceOutputTypePos() {
@@ -1,12 +1,32 @@
 package de.lifecircles.model.neural;
 
+import java.util.BitSet;
+
 public class ValuesNeuronValueFunction implements NeuronValueFunction {
+    private static final long serialVersionUID = 1177906211537918699L;
+
     private double[] valuesArr = { };
     private transient double[] inputSumArr = { };
     private transient double[] deltaArr = { };
 
+    /**
+     * Kleinste Id, ab der in freeIdSet gesucht wird; darunter ist keine Id frei.
+     */
     private int lowestFreeID = 0;
+    /**
+     * Nächste noch nie vergebene Id.
+     */
     private int lastFreeID = 0;
+    /**
+     * Von releaseNeuron() freigegebene Ids unterhalb von lastFreeID.
+     * Fehlt in älteren Streams und wird dann in readObject() angelegt.
+     */
+    private BitSet freeIdSet = new BitSet();
+
+    /**
+     * Ab dieser Anzahl ungenutzter Ids lohnt sich {@link #isSparse(int)} überhaupt.
+     */
+    private static final int COMPACT_MIN_UNUSED_IDS = 32;
 
     @Override
     public double readValue(final NeuralNet neuralNet, final NeuronInterface neuron, final int outputTypePos) {
@@ -50,56 +70,103 @@ public class ValuesNeuronValueFunction implements NeuronValueFunction {
         this.inputSumArr[id] = inputSum;
     }
 
+    /**
+     * Vergibt die kleinste freigegebene Id oder, wenn es keine gibt, die nächste neue Id.
+     * Aufwand O(1) bzw. proportional zur Länge des Bitsets, unabhängig von der Neuronen-Anzahl des Netzes.
+     */
     @Override
     public int fetchNextFreeId(final NeuralNet neuralNet) {
-        final int currentLowestFreeID = this.lowestFreeID;
-        final int currentLastFreeID = this.lastFreeID;
+        final int freeId = this.freeIdSet.nextSetBit(this.lowestFreeID);
+        if (freeId >= 0) {
+            this.freeIdSet.clear(freeId);
+            this.lowestFreeID = freeId + 1;
+            return freeId;
+        }
+        this.lowestFreeID = this.lastFreeID + 1;
+        return this.lastFreeID++;
+    }
 
-        if (currentLastFreeID == currentLowestFreeID) {
-            // No known gaps, assign a new ID
-            this.lastFreeID++;
-            this.lowestFreeID = this.lastFreeID;
-        } else {
-            // Potential gap exists, search for the next free ID starting from lowestFreeID
-            final java.util.Set<Integer> existingIds = new java.util.HashSet<>();
-            for (final Neuron neuron : neuralNet.getInputNeuronArr()) {
-                existingIds.add(neuron.getId());
-            }
-            for (final Layer layer : neuralNet.getHiddenLayerArr()) {
-                for (final NeuronInterface neuron : layer.getNeuronsArr()) {
-                    existingIds.add(neuron.getId());
-                }
-            }
-            for (final Neuron neuron : neuralNet.getOutputNeuronArr()) {
-                existingIds.add(neuron.getId());
-            }
+    @Override
+    public void releaseNeuron(NeuralNet neuralNet, NeuronInterface neuron) {
+        final int id = neuron.getId();
 
-            int searchId = currentLowestFreeID + 1; // Start searching from the next ID after lowestFreeID
-            while (searchId < currentLastFreeID) {
-                if (!existingIds.contains(searchId)) {
-                    break;
-                }
-                searchId++;
+        // Ids, die dieser Allokator nie vergeben hat, werden ignoriert.
+        if (id >= 0 && id < this.lastFreeID) {
+            this.freeIdSet.set(id);
+            if (this.lowestFreeID > id) {
+                this.lowestFreeID = id;
             }
+        }
+    }
 
-            this.lowestFreeID = searchId;
-            if (searchId > this.lastFreeID) {
-                this.lastFreeID = searchId;
-            }
+    /**
+     * Größe des belegten Id-Raums (Arrays und vergebene Ids).
+     */
+    int getIdSpaceSize() {
+        return Math.max(this.lastFreeID, this.valuesArr.length);
+    }
+
+    /**
+     * Liefert true, wenn bei usedIdCount genutzten Ids mehr als die Hälfte des Id-Raums ungenutzt ist.
+     */
+    boolean isSparse(final int usedIdCount) {
+        final int unusedIdCount = this.getIdSpaceSize() - usedIdCount;
+        return (unusedIdCount >= COMPACT_MIN_UNUSED_IDS) && (unusedIdCount > usedIdCount);
+    }
+
+    /**
+     * Verdichtet den Id-Raum: Der Wert der alten Id oldIdArr[newId] wandert an newId.
+     * Die Arrays werden genau auf oldIdArr.length verkleinert, neue Ids beginnen danach.
+     * Die Neuronen selbst muss der Aufrufer umnummerieren, siehe {@link NeuralNet#compactNeuronIds}.
+     */
+    void compact(final int[] oldIdArr) {
+        final int idCount = oldIdArr.length;
+        final double[] newValuesArr = new double[idCount];
+        final double[] newInputSumArr = new double[idCount];
+        final double[] newDeltaArr = new double[idCount];
+        for (int newId = 0; newId < idCount; newId++) {
+            final int oldId = oldIdArr[newId];
+            this.checkValueArrSize(oldId);
+            newValuesArr[newId] = this.valuesArr[oldId];
+            newInputSumArr[newId] = this.inputSumArr[oldId];
+            newDeltaArr[newId] = this.deltaArr[oldId];
         }
-        return currentLowestFreeID;
+        this.valuesArr = newValuesArr;
+        this.inputSumArr = newInputSumArr;
+        this.deltaArr = newDeltaArr;
+
+        this.freeIdSet.clear();
+        this.lastFreeID = idCount;
+        this.lowestFreeID = idCount;
     }
 
-    @Override
-    public void releaseNeuron(NeuralNet neuralNet, NeuronInterface neuron) {
-        final int id = neuron.getId();
+    /**
+     * Speicher der Wert-Arrays in Bytes.
+     */
+    long estimateMemoryBytes() {
+        return (long) (this.valuesArr.length + this.inputSumArr.length + this.deltaArr.length) * Double.BYTES;
+    }
 
-        if (this.lowestFreeID > id) {
-            // If the neuron ID is less than to the lowest free ID, we can update it
-            this.lowestFreeID = id;
+    /**
+     * Vergrößert die Arrays, sodass Ids bis valueCount - 1 ohne weitere Prüfung gelesen werden können.
+     */
+    void ensureCapacity(final int valueCount) {
+        if (valueCount > 0) {
+            this.checkValueArrSize(valueCount - 1);
         }
     }
 
+    /**
+     * Direkter Zugriff für {@link NeuralNetExecutionPlan}, gültig bis zur nächsten Vergrößerung.
+     */
+    double[] getValuesArr() {
+        return this.valuesArr;
+    }
+
+    double[] getInputSumArr() {
+        return this.inputSumArr;
+    }
+
     /**
      * Initialisiert nach dem Deserialisieren die transienten Felder,
      * um NullPointerExceptions zu vermeiden.
@@ -112,6 +179,14 @@ public class ValuesNeuronValueFunction implements NeuronValueFunction {
         // Standard-Deserialisierung aufrufen
         stream.defaultReadObject();
 
+        // Ältere Streams kennen nur lowestFreeID < lastFreeID als Hinweis auf eine Lücke.
+        if (freeIdSet == null) {
+            freeIdSet = new BitSet();
+            if (lowestFreeID < lastFreeID) {
+                freeIdSet.set(lowestFreeID);
+            }
+        }
+
         // Transiente Felder initialisieren
         if (valuesArr != null) {
             initTransientArrays(valuesArr.length);
@@ -0,0 +1,30 @@
+package de.lifecircles.model.neural;
+
+/**
+ * Speicherform der Gewichte im kompilierten {@link NeuralNetExecutionPlan}.
+ * Die Synapsen des Genoms bleiben unverändert double, Mutation und Serialisierung sind nicht betroffen.
+ */
+public enum WeightStorage {
+    /**
+     * 8 Bytes pro Gewicht, bitgleich zur Berechnung über die Neuronen.
+     */
+    DOUBLE(Double.BYTES),
+    /**
+     * 4 Bytes pro Gewicht, auf float gerundet.
+     */
+    FLOAT32(Float.BYTES),
+    /**
+     * 1 Byte pro Gewicht, symmetrisch quantisiert mit einem Faktor pro Layer (größtes |Gewicht| / 127).
+     */
+    INT8(Byte.BYTES);
+
+    private final int bytesPerWeight;
+
+    WeightStorage(final int bytesPerWeight) {
+        this.bytesPerWeight = bytesPerWeight;
+    }
+
+    public int getBytesPerWeight() {
+        return this.bytesPerWeight;
+    }
+}
@@ -2,12 +2,23 @@ package de.lifecircles.service;
 
 import de.lifecircles.model.*;
 import de.lifecircles.service.dto.SimulationStateDto;
+import de.lifecircles.service.metrics.PrometheusMetricsServer;
+import de.lifecircles.service.metrics.SimulationMetrics;
+import de.lifecircles.service.metrics.SimulationMonitor;
+import de.lifecircles.service.metrics.SimulationStepEvent;
 import de.lifecircles.service.partitioningStrategy.PartitioningStrategy;
 import de.lifecircles.service.partitioningStrategy.PartitioningStrategyFactory;
 import de.lifecircles.service.trainStrategy.*;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -26,9 +37,17 @@ public class CalculationService implements Runnable {
     private volatile double fps = 0.0;
     private final AtomicLong stepCount = new AtomicLong(0);
     private final PartitioningStrategy partitioner;
+    // Einzelschritte, die bei pausierter Simulation noch ausgeführt werden sollen.
+    private final AtomicInteger pendingStepCount = new AtomicInteger(0);
+    // Aufgaben, die der Calc-Thread zwischen zwei Schritten ausführt (z.B. Snapshots per JMX).
+    private final Queue<FutureTask<?>> pendingTaskQueue = new ConcurrentLinkedQueue<>();
 
     public CalculationService() {
         this.config = SimulationConfig.getInstance();
+        final long randomSeed = Objects.nonNull(this.config.getRandomSeed()) ?
+                this.config.getRandomSeed() : new SplittableRandom().nextLong();
+        RandomService.setSeed(randomSeed);
+        System.out.println("Random seed: " + randomSeed);
         this.trainStrategy =
                 switch (config.getTrainMode()) {
                     case HIGH_ENERGY -> new HighEnergyTrainStrategy();
@@ -51,6 +70,11 @@ public class CalculationService implements Runnable {
         this.running = new AtomicBoolean(false);
         this.paused = new AtomicBoolean(false);
         this.initializeSimulation();
+
+        SimulationMonitor.register(this);
+        if (this.config.getMetricsPort() > 0) {
+            PrometheusMetricsServer.start(this.config.getMetricsPort());
+        }
     }
 
     public void resetSimulation() {
@@ -66,31 +90,26 @@ public class CalculationService implements Runnable {
 
     @Override
     public void run() {
-        this.running.set(true);
+        // running wurde von startThread() gesetzt.
         long lastUpdateTime = System.nanoTime();
         final double calcTimeStep = this.config.getCalcTimeStep();
 
         while (this.running.get()) {
+            this.runPendingTasks();
+
             if (!this.paused.get()) {
                 long currentTime = System.nanoTime();
                 double deltaTime = (currentTime - lastUpdateTime) / 1_000_000_000.0;
                 final double targetRunTimeStep = this.config.getRunTimeStep();
 
                 if (deltaTime >= targetRunTimeStep) {
-                    this.update(calcTimeStep);
-
-                    // FPS tracking
-                    this.updateFpsCount++;
-                    this.stepCount.incrementAndGet();
-                    long nowFps = System.nanoTime();
-                    if (nowFps - this.lastFpsTime >= 1_000_000_000L) {
-                        this.fps = this.updateFpsCount / ((nowFps - this.lastFpsTime) / 1_000_000_000.0D);
-                        this.updateFpsCount = 0;
-                        this.lastFpsTime = nowFps;
-                    }
+                    this.calcStep(calcTimeStep);
 
                     lastUpdateTime = currentTime;
                 }
+            } else if (this.pendingStepCount.get() > 0) {
+                this.pendingStepCount.decrementAndGet();
+                this.calcStep(calcTimeStep);
             }
 
             // Reduziere Thread.sleep auf 0, um Verzögerungen zu minimieren
@@ -101,9 +120,60 @@ public class CalculationService implements Runnable {
                 break;
             }
         }
+        this.runPendingTasks();
+    }
+
+    private void calcStep(final double calcTimeStep) {
+        this.update(calcTimeStep);
+
+        // FPS tracking
+        this.updateFpsCount++;
+        this.stepCount.incrementAndGet();
+        long nowFps = System.nanoTime();
+        if (nowFps - this.lastFpsTime >= 1_000_000_000L) {
+            this.fps = this.updateFpsCount / ((nowFps - this.lastFpsTime) / 1_000_000_000.0D);
+            this.updateFpsCount = 0;
+            this.lastFpsTime = nowFps;
+        }
+    }
+
+    private void runPendingTasks() {
+        FutureTask<?> task;
+        while ((task = this.pendingTaskQueue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Führt die Aufgabe zwischen zwei Simulationsschritten im Calc-Thread aus und wartet auf das Ergebnis.
+     * Läuft der Calc-Thread nicht, wird die Aufgabe direkt ausgeführt.
+     */
+    public <T> T callBetweenSteps(final Callable<T> callable) throws Exception {
+        final FutureTask<T> task = new FutureTask<>(callable);
+        if (this.running.get()) {
+            this.pendingTaskQueue.add(task);
+        }
+        while (true) {
+            if (!this.running.get()) {
+                // FutureTask.run() ist wirkungslos, falls der Calc-Thread die Aufgabe schon ausführt.
+                task.run();
+            }
+            try {
+                return task.get(100, TimeUnit.MILLISECONDS);
+            } catch (final TimeoutException e) {
+                // Weiter warten, solange der Calc-Thread läuft.
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
     }
 
     private void update(final double deltaTime) {
+        final SimulationStepEvent stepEvent = SimulationStepEvent.start();
+        SimulationMetrics.getInstance().beginStep();
         final List<Cell> cellList = this.environment.getCellList();
 
         // Update all cells with their neighborhood information
@@ -114,6 +184,13 @@ public class CalculationService implements Runnable {
 
         // Strategy-based selection/mutation
         this.trainStrategy.selectAndMutate(this.environment);
+
+        SimulationMetrics.getInstance().recordStep(this.environment.getCellList(),
+                this.environment.getLastBirthCount(), this.environment.getLastDeathCount());
+
+        stepEvent.finish(this.stepCount.get() + 1, this.environment.getCellList().size(),
+                this.environment.getLastProcessedSynapses(),
+                this.environment.getLastBirthCount(), this.environment.getLastDeathCount());
     }
 
     private void updateState() {
@@ -185,10 +262,18 @@ public class CalculationService implements Runnable {
     }
 
     public void start() {
-        if (!this.running.get()) {
+        this.pendingStepCount.set(0);
+        this.paused.set(false);
+        this.startThread();
+    }
+
+    /**
+     * Startet den Calc-Thread, falls er noch nicht läuft; auch bei gleichzeitigen Aufrufen nur einmal.
+     */
+    private void startThread() {
+        if (this.running.compareAndSet(false, true)) {
             new Thread(this).start();
         }
-        this.paused.set(false);
     }
 
     public void pause() {
@@ -196,9 +281,41 @@ public class CalculationService implements Runnable {
     }
 
     public void resume() {
+        // Einzelschritte gelten nur für die pausierte Simulation.
+        this.pendingStepCount.set(0);
         this.paused.set(false);
     }
 
+    /**
+     * Führt bei pausierter Simulation stepCount weitere Schritte aus.
+     * Läuft der Calc-Thread noch nicht, wird er pausiert gestartet.
+     * Läuft die Simulation ohne Pause, wird der Aufruf ignoriert, statt die Schritte für eine spätere Pause aufzuheben.
+     */
+    public void step(final int stepCount) {
+        if (!this.running.get()) {
+            this.paused.set(true);
+        }
+        if (!this.paused.get()) {
+            return;
+        }
+        this.pendingStepCount.addAndGet(stepCount);
+        this.startThread();
+    }
+
+    /**
+     * Führt stepCount Schritte synchron im aufrufenden Thread aus, z.B. für Headless-Läufe und Tests.
+     * Der Calc-Thread darf dabei nicht laufen.
+     */
+    public void calcSteps(final int stepCount) {
+        if (this.running.get()) {
+            throw new IllegalStateException("Calculation thread is running.");
+        }
+        final double calcTimeStep = this.config.getCalcTimeStep();
+        for (int stepPos = 0; stepPos < stepCount; stepPos++) {
+            this.calcStep(calcTimeStep);
+        }
+    }
+
     public void stop() {
         this.running.set(false);
     }
@@ -211,6 +328,10 @@ public class CalculationService implements Runnable {
         return this.running.get();
     }
 
+    public Environment getEnvironment() {
+        return this.environment;
+    }
+
     public double getFps() {
         return this.fps;
     }
@@ -3,13 +3,43 @@ package de.lifecircles.service;
 import de.lifecircles.model.Cell;
 import de.lifecircles.model.neural.CellBrainService;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * Service for cell calculation operations.
  */
 public class CellCalcService {
     
+    /**
+     * Stream über die Zellen, parallel oder sequentiell nach {@link SimulationConfig#isParallelCalculation()}.
+     * Die Phasen schreiben nur in die jeweilige Zelle, daher ist das Ergebnis in beiden Fällen gleich.
+     */
+    public static Stream<Cell> cellStream(final List<Cell> cellList) {
+        return SimulationConfig.getInstance().isParallelCalculation() ? cellList.parallelStream() : cellList.stream();
+    }
+
+    /**
+     * Reads the sensor inputs of the cell, see {@link CellBrainService#senseInputs}.
+     * Must be called for all cells before {@link #updateCell} is called for any of them.
+     */
+    public static void prepareCell(final Cell cell) {
+        CellBrainService.senseInputs(cell);
+    }
+
+    /**
+     * Berechnet nach {@link #prepareCell} die Gehirne strukturgleicher Zellen gemeinsam vorab,
+     * wenn {@link SimulationConfig#isNeuralNetBatchInference()} gesetzt ist.
+     */
+    public static void prepareBrains(final List<Cell> cellList) {
+        if (SimulationConfig.getInstance().isNeuralNetBatchInference()) {
+            CellBrainService.processBrainBatches(cellList);
+        }
+    }
+
     /**
      * Updates the cell's position, rotation, and behavior based on its current state.
+     * The inputs have to be prepared by {@link #prepareCell}.
      * @param cell The cell to update
      * @param deltaTime Time step in seconds
      */
@@ -17,7 +47,7 @@ public class CellCalcService {
         // Update neural network
         final boolean useSynapseEnergyCost;
         //if (cell.getTempThinkHackCounter() >= SimulationConfig.CELL_TEMP_THINK_HACK_COUNTER_MAX) {
-            CellBrainService.think(cell);
+            CellBrainService.processOutputs(cell);
             useSynapseEnergyCost = true;
         //    cell.setTempThinkHackCounter(0);
         //} else {
@@ -43,7 +73,7 @@ public class CellCalcService {
 
         // Verzögerte Größenänderung nur anwenden, wenn die Zelle nicht wächst
         if (!cell.isGrowing()) {
-            cell.applyDelayedSizeChange();
+            cell.applyDelayedSizeChange(deltaTime);
         }
 
         // Update physics
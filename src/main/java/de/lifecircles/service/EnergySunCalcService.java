@@ -6,7 +6,7 @@ import de.lifecircles.model.SunRay;
 import de.lifecircles.model.Vector2D;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Service handling generation of sun energy rays,
@@ -15,7 +15,6 @@ import java.util.Random;
 public class EnergySunCalcService {
     private double rayAccumulator = 0.0;
     private double timeInCycle = 0.0; // Tracks time within the day/night cycle
-    private final Random random = new Random();
 
     public List<SunRay> calculateSunEnergy(
             final List<Cell> cells,
@@ -23,8 +22,10 @@ public class EnergySunCalcService {
             final double width,
             final double height,
             final SimulationConfig config,
-            final double deltaTime) {
+            final double deltaTime,
+            final long step) {
         final List<SunRay> rays = new ArrayList<>();
+        final SplittableRandom random = RandomService.stream(RandomService.Stream.SUN_RAYS, 0L, step);
 
         // Update time in the day/night cycle
         this.timeInCycle = (this.timeInCycle + deltaTime) % SimulationConfig.SUN_DAY_NIGHT_CYCLE_DURATION;
@@ -2,6 +2,8 @@ package de.lifecircles.service;
 
 import de.lifecircles.model.Cell;
 import de.lifecircles.model.Environment;
+import de.lifecircles.model.neural.GenomeDedupObjectOutputStream;
+import de.lifecircles.service.metrics.FileServiceEvent;
 
 import java.io.*;
 import java.util.ArrayList;
@@ -10,6 +12,8 @@ import java.util.List;
 
 /**
  * Service für das Laden und Speichern von Zellen in Dateien.
+ * Die Gehirne der Zellen schreibt {@link de.lifecircles.model.neural.NeuralNet} im flachen Format,
+ * ältere Dateien werden weiterhin gelesen.
  */
 public class FileService {
     private static FileService instance;
@@ -33,10 +37,12 @@ public class FileService {
      */
     public void saveCellsToFile(String filePath, List<Cell> cells) throws IOException {
         System.out.println("Starte Speichern von " + cells.size() + " Zellen...");
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
+        final FileServiceEvent fileEvent = FileServiceEvent.start(FileServiceEvent.SAVE, filePath);
+        try (GenomeDedupObjectOutputStream oos = new GenomeDedupObjectOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
             oos.writeObject(cells);
-            System.out.println("Speichern abgeschlossen: " + filePath);
+            System.out.println("Speichern abgeschlossen: " + filePath + " (" + oos.getUniqueGenomeCount() + " unterschiedliche Netze)");
         }
+        fileEvent.finish(cells.size());
     }
 
     /**
@@ -45,15 +51,17 @@ public class FileService {
      */
     public void saveCellsToFileWithProgress(String filePath, List<Cell> cells) throws IOException {
         System.out.println("Starte Speichern von " + cells.size() + " Zellen...");
+        final FileServiceEvent fileEvent = FileServiceEvent.start(FileServiceEvent.SAVE, filePath);
 
         try (FileOutputStream fos = new FileOutputStream(filePath);
              BufferedOutputStream bos = new BufferedOutputStream(fos);
              CustomProgressOutputStream pos = new CustomProgressOutputStream(bos, cells.size());
-             ObjectOutputStream oos = new ObjectOutputStream(pos)) {
+             GenomeDedupObjectOutputStream oos = new GenomeDedupObjectOutputStream(pos)) {
 
             oos.writeObject(cells);
-            System.out.println("Speichern abgeschlossen: " + filePath);
+            System.out.println("Speichern abgeschlossen: " + filePath + " (" + oos.getUniqueGenomeCount() + " unterschiedliche Netze)");
         }
+        fileEvent.finish(cells.size());
     }
 
     /**
@@ -62,9 +70,11 @@ public class FileService {
     @SuppressWarnings("unchecked")
     public List<Cell> loadCellsFromFile(String filePath) throws IOException, ClassNotFoundException {
         System.out.println("Starte Laden von Zellen aus " + filePath);
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
+        final FileServiceEvent fileEvent = FileServiceEvent.start(FileServiceEvent.LOAD, filePath);
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
             List<Cell> cells = (List<Cell>) ois.readObject();
             System.out.println("Laden abgeschlossen: " + cells.size() + " Zellen geladen");
+            fileEvent.finish(cells.size());
             return cells;
         }
     }
@@ -76,6 +86,8 @@ public class FileService {
     public List<Cell> loadCellsFromFileWithProgress(String filePath) throws IOException, ClassNotFoundException {
         System.out.println("Starte Laden von Zellen aus " + filePath);
 
+        final FileServiceEvent fileEvent = FileServiceEvent.start(FileServiceEvent.LOAD, filePath);
+
         // Um die Dateigröße für den Fortschritt zu ermitteln
         File file = new File(filePath);
         long fileSize = file.length();
@@ -87,6 +99,7 @@ public class FileService {
 
             List<Cell> cells = (List<Cell>) ois.readObject();
             System.out.println("Laden abgeschlossen: " + cells.size() + " Zellen geladen");
+            fileEvent.finish(cells.size());
             return cells;
         }
     }
@@ -161,10 +174,13 @@ public class FileService {
             }
         }
 
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
+        final FileServiceEvent fileEvent = FileServiceEvent.start(FileServiceEvent.SAVE, filePath);
+        try (GenomeDedupObjectOutputStream oos = new GenomeDedupObjectOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
             oos.writeObject(bestCells);
-            System.out.println("Speichern der besten Zellen abgeschlossen: " + bestCells.size() + " Zellen gespeichert");
+            System.out.println("Speichern der besten Zellen abgeschlossen: " + bestCells.size() + " Zellen gespeichert, " +
+                    oos.getUniqueGenomeCount() + " unterschiedliche Netze");
         }
+        fileEvent.finish(bestCells.size());
     }
 
     /**
@@ -0,0 +1,87 @@
+package de.lifecircles.service;
+
+import de.lifecircles.model.neural.NeuralNetwork;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Zentrale, seedbare Zufallsquelle der Simulation.
+ *
+ * Statt gemeinsamer {@link Random}-Instanzen, deren Zustand von der Thread- und Aufrufreihenfolge abhängt,
+ * wird für jede Verwendung ein eigener {@link SplittableRandom}-Stream aus (Seed, Stream, Schlüssel, Schritt)
+ * abgeleitet. Damit liefert ein Lauf mit gleichem Seed unabhängig von der Parallelisierung dieselben Zahlen.
+ */
+public final class RandomService {
+
+    /**
+     * Verwendungszweck eines Streams; trennt die Zahlenfolgen der einzelnen Simulationsteile.
+     */
+    public enum Stream {
+        CELL_BRAIN,
+        CELL_TYPE,
+        CELL_MUTATION_FACTORS,
+        REPRODUCTION,
+        REPOPULATION,
+        SUN_RAYS,
+        TRAIN_STRATEGY,
+        NEURAL_NETWORK
+    }
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static volatile long seed = new SplittableRandom().nextLong();
+    private static final AtomicLong nextCellId = new AtomicLong();
+
+    private RandomService() {
+    }
+
+    /**
+     * Setzt den Seed des Laufs und die Zell-Ids zurück.
+     * Auch der globale Zufall von {@link NeuralNetwork} wird daraus neu initialisiert.
+     */
+    public static void setSeed(final long seed) {
+        RandomService.seed = seed;
+        nextCellId.set(0L);
+        NeuralNetwork.setRandom(javaRandom(Stream.NEURAL_NETWORK, 0L, 0L));
+    }
+
+    public static long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Vergibt die nächste Zell-Id. Zellen werden nur im Calc-Thread sequentiell erzeugt,
+     * daher ist die Reihenfolge der Ids bei gleichem Seed stabil.
+     */
+    public static long nextCellId() {
+        return nextCellId.getAndIncrement();
+    }
+
+    /**
+     * Liefert einen eigenen Zufalls-Stream für den Zweck, z.B. (REPRODUCTION, Zell-Id, Schritt).
+     */
+    public static SplittableRandom stream(final Stream stream, final long key, final long step) {
+        long hash = mix64(seed + (stream.ordinal() + 1L) * GOLDEN_GAMMA);
+        hash = mix64(hash ^ (key * GOLDEN_GAMMA));
+        hash = mix64(hash ^ (step * 0xBF58476D1CE4E5B9L));
+        return new SplittableRandom(hash);
+    }
+
+    /**
+     * Wie {@link #stream}, aber als {@link Random} für die bestehenden Random-basierten APIs.
+     */
+    public static Random javaRandom(final Stream stream, final long key, final long step) {
+        return Random.from(stream(stream, key, step));
+    }
+
+    /**
+     * Finalizer von SplitMix64.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,6 +2,7 @@ package de.lifecircles.service;
 
 import de.lifecircles.model.*;
 import de.lifecircles.model.neural.*;
+import de.lifecircles.service.metrics.SimulationMetrics;
 
 import java.util.Comparator;
 import java.util.Objects;
@@ -12,7 +13,6 @@ import java.util.Random;
  */
 public class ReproductionManagerService {
     private static double typeMutationStrength = 0.1;
-    private static final Random random = new Random();
 
     /**
      * Checks if a cell is ready to reproduce.
@@ -54,17 +54,27 @@ public class ReproductionManagerService {
                     // Set initial size (slightly mutated from parentCell's initial size)
                     final double parentSize = parentCell.getRadiusSize();
 
+                    // Der Zufalls-Stream hängt nur von der Id des Kindes und dem Schritt ab.
+                    final long childId = RandomService.nextCellId();
+                    final Random random = RandomService.javaRandom(RandomService.Stream.REPRODUCTION,
+                            childId, environment.getStepCount());
+
                     // Create mutated brain for child
                     final CellBrainInterface parentBrain = parentCell.getBrain();
-                    final NeuralNetwork childBrainNetwork = parentBrain.mutate(
-                            config.getMutationRate(),
-                            config.getMutationStrength()
-                    );
+                    final NeuralNetwork childBrainNetwork = NeuralNetwork.callWithRandom(random,
+                            () -> parentBrain.mutate(
+                                    config.getMutationRate(),
+                                    config.getMutationStrength()
+                            ));
+                    if (config.isBrainPruneOnReproduction()) {
+                        SimulationMetrics.getInstance().recordPrunedSynapses(
+                                childBrainNetwork.prune(config.getBrainPruneMinWeight()));
+                    }
 
                     final CellBrain childCellBrain = new CellBrain(childBrainNetwork);
 
                     // Create child cell
-                    childCell = new Cell(childPosition, parentSize, childCellBrain);
+                    childCell = new Cell(childId, childPosition, parentSize, childCellBrain);
 
                     // Starte den Wachstumsprozess der neuen Zelle
                     childCell.startGrowthProcess();
@@ -75,9 +85,9 @@ public class ReproductionManagerService {
                     // Inherit and mutate type
                     final CellType parentType = parentCell.getType();
                     final CellType childType = new CellType(
-                            mutateValue(parentType.getRed(), typeMutationStrength / 10.0D),
-                            mutateValue(parentType.getGreen(), typeMutationStrength / 10.0D),
-                            mutateValue(parentType.getBlue(), typeMutationStrength / 10.0D)
+                            mutateValue(random, parentType.getRed(), typeMutationStrength / 10.0D),
+                            mutateValue(random, parentType.getGreen(), typeMutationStrength / 10.0D),
+                            mutateValue(random, parentType.getBlue(), typeMutationStrength / 10.0D)
                     );
                     childCell.setType(childType);
 
@@ -135,12 +145,12 @@ public class ReproductionManagerService {
         }
     }
 
-    private static double mutateValue(double value, double strength) {
+    private static double mutateValue(final Random random, double value, double strength) {
         double mutation = (random.nextDouble() * 2 - 1) * strength;
         return Math.max(0.0, Math.min(1.0, value + mutation));
     }
 
-    private static double mutateValue(double value, double strength, double max) {
+    private static double mutateValue(final Random random, double value, double strength, double max) {
         double mutation = (random.nextDouble() * 2 - 1) * strength;
         return Math.max(Math.max(0.0, Math.min(max, value + mutation)), max);
     }
@@ -15,7 +15,7 @@ public class RepulsionCellCalcService {
      */
     public static void processRepulsiveForces(final List<Cell> cells, final PartitioningStrategy partitioner) {
         //for (final Cell cell1 : cells) {
-        cells.parallelStream().forEach(cell1 -> {
+        CellCalcService.cellStream(cells).forEach(cell1 -> {
             final List<Cell> neighbors = partitioner.getNeighbors(cell1);
             for (final Cell cell2 : neighbors) {
                 if (cell2 != cell1) {
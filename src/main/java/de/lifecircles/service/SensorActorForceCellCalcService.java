@@ -3,6 +3,7 @@ package de.lifecircles.service;
 import de.lifecircles.model.*;
 import de.lifecircles.service.partitioningStrategy.PartitioningStrategy;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -10,13 +11,19 @@ import java.util.List;
  */
 public class SensorActorForceCellCalcService {
 
+    /**
+     * Gegenkraft auf eine andere Zelle, die erst nach der parallelen Berechnung angewendet wird.
+     */
+    private record OtherCellForce(Cell otherCell, Vector2D force, Vector2D applicationPoint) {
+    }
+
     /**
      * Optimized processing of sensor/actor interactions using a partitioning strategy.
      */
     public static void processInteractions(final List<Cell> cellList, final PartitioningStrategy partitioner) {
         // cache positions for all sensorActors in this simulation step
         //for (final Cell calcCell : cellList) {
-        cellList.parallelStream().forEach(calcCell -> {
+        CellCalcService.cellStream(cellList).forEach(calcCell -> {
             for (final SensorActor actor : calcCell.getSensorActors()) {
                 actor.updateCachedPosition();
                 actor.setSensedCell(null);
@@ -27,19 +34,30 @@ public class SensorActorForceCellCalcService {
         // Prüfe Blocker-Kollisionen
         checkBlockerCollisions(cellList);
         
-        cellList.parallelStream().forEach(calcCell -> {
+        // Parallel werden nur Kräfte auf die eigene Zelle angewendet, die Gegenkräfte auf die Nachbarn
+        // werden gesammelt und danach in fester Reihenfolge angewendet (reproduzierbar, keine Schreib-Races).
+        final List<List<OtherCellForce>> otherCellForceListList = CellCalcService.cellStream(cellList).map(calcCell -> {
+            final List<OtherCellForce> otherCellForceList = new ArrayList<>();
             for (final Cell otherCell : partitioner.getNeighbors(calcCell)) {
                 if (calcCell != otherCell) {
-                    processInteraction(calcCell, otherCell);
+                    processInteraction(calcCell, otherCell, otherCellForceList);
                 }
             }
-        });
+            return otherCellForceList;
+        }).toList();
+
+        for (final List<OtherCellForce> otherCellForceList : otherCellForceListList) {
+            for (final OtherCellForce otherCellForce : otherCellForceList) {
+                otherCellForce.otherCell().applyForce(otherCellForce.force(), otherCellForce.applicationPoint());
+            }
+        }
     }
 
     /**
      * Berechne die Kraft, die der otherCellActor auf calcCellActor ausübt.
      */
-    private static void processInteraction(final Cell calcCell, final Cell otherCell) {
+    private static void processInteraction(final Cell calcCell, final Cell otherCell,
+                                           final List<OtherCellForce> otherCellForceList) {
         //final Vector2D delta = calcCell.getPosition().subtract(otherCell.getPosition());
         //final double cellDistance = delta.length();
         //final double combinedRadius = Math.max(otherCell.getRadiusSize(), calcCell.getRadiusSize());
@@ -83,7 +101,7 @@ public class SensorActorForceCellCalcService {
                                         otherCellForceStrength * calcCellForceStrength);
 
                                 calcCell.applyForce(forceOnCalcCell, calcCellActor.getCachedPosition());
-                                otherCell.applyForce(forceOnOtherCell, calcCellActor.getCachedPosition());
+                                otherCellForceList.add(new OtherCellForce(otherCell, forceOnOtherCell, calcCellActor.getCachedPosition()));
                             }
                         }
                     }
@@ -118,7 +136,7 @@ public class SensorActorForceCellCalcService {
         if (blockers == null || blockers.isEmpty()) return;
         
         // Prüfe für jeden Sensor, ob er einen Blocker berührt
-        cells.parallelStream().forEach(cell -> {
+        CellCalcService.cellStream(cells).forEach(cell -> {
             for (final SensorActor sensor : cell.getSensorActors()) {
                 final Vector2D sensorPos = sensor.getCachedPosition();
                 if (sensorPos != null) {
@@ -1,6 +1,8 @@
 package de.lifecircles.service;
 
 import de.lifecircles.model.Vector2D;
+import de.lifecircles.model.neural.ActivationPrecision;
+import de.lifecircles.model.neural.WeightStorage;
 import de.lifecircles.service.trainStrategy.TrainMode;
 
 /**
@@ -60,6 +62,10 @@ public class SimulationConfig {
 
     // Training mode configuration
     private TrainMode trainMode = TrainMode.NONE;
+    /**
+     * Schritte bis zur Selektion der Trainings-Strategie, 0 = Vorgabe der Strategie.
+     */
+    private int trainGenerationStep = 0;
 
     private int initialCellCount = 30;
     public static final double REPOPULATION_THRESHOLD_PERCENT = 0.25;
@@ -144,6 +150,74 @@ public class SimulationConfig {
     // Verzögerung für Größenänderung in Millisekunden
     private long sizeChangeDelay = 100;
 
+    //-------------------------------------------------------------------------
+    // Monitoring:
+
+    /**
+     * Port des Prometheus-Endpoints (/metrics), 0 = deaktiviert.
+     */
+    private int metricsPort = 0;
+
+    //-------------------------------------------------------------------------
+    // Reproduzierbarkeit:
+
+    /**
+     * Seed für {@link RandomService}, null = bei jedem Start zufällig (wird beim Start ausgegeben).
+     */
+    private Long randomSeed = null;
+
+    /**
+     * Zell-Phasen parallel berechnen; das Ergebnis ist in beiden Fällen bei gleichem Seed identisch.
+     */
+    private boolean parallelCalculation = true;
+
+    //-------------------------------------------------------------------------
+    // Neuronales Netz:
+
+    /**
+     * Für häufig unverändert berechnete Netz-Topologien zur Laufzeit Bytecode erzeugen
+     * (Hidden-Class pro Topologie, gecacht). Das Ergebnis ist bitgleich zum Ausführungsplan.
+     */
+    private boolean neuralNetEvaluatorCompilation = false;
+
+    /**
+     * Gehirne von Zellen mit gleicher Netz-Struktur gemeinsam berechnen (spaltenweise über die Zellen).
+     * Das Ergebnis ist bitgleich zur Einzelberechnung.
+     */
+    private boolean neuralNetBatchInference = false;
+
+    /**
+     * Gehirne inkrementell berechnen: nur Neuronen, deren Eingänge sich um mehr als
+     * {@link #neuralNetSparseUpdateEpsilon} geändert haben. Die Energiekosten zählen weiterhin alle Synapsen.
+     */
+    private boolean neuralNetSparseUpdate = false;
+    /**
+     * Änderungsschwelle für {@link #neuralNetSparseUpdate}; 0.0 rechnet bitgleich zur vollständigen Berechnung.
+     */
+    private double neuralNetSparseUpdateEpsilon = 0.0D;
+
+    /**
+     * Genauigkeit von Sigmoid und Tanh in den Gehirnen. Näherungen sind schneller, ändern aber das Ergebnis.
+     */
+    private ActivationPrecision activationPrecision = ActivationPrecision.EXACT;
+
+    /**
+     * Speicherform der Gewichte im kompilierten Ausführungsplan der Gehirne.
+     * FLOAT32 und INT8 sparen Speicher, ändern aber das Ergebnis.
+     */
+    private WeightStorage brainWeightStorage = WeightStorage.DOUBLE;
+
+    /**
+     * Gehirne der Kinder nach der Mutation beschneiden (kleine Gewichte, tote Neuronen),
+     * siehe {@link de.lifecircles.model.neural.NeuralNet#prune}. Ändert das Ergebnis geringfügig.
+     */
+    private boolean brainPruneOnReproduction = false;
+    /**
+     * Synapsen mit kleinerem Betrag werden beim Beschneiden entfernt.
+     * Neue Synapsen starten mit Gewichten bis 0.001, daher deutlich kleiner.
+     */
+    private double brainPruneMinWeight = 1.0E-5D;
+
     //-------------------------------------------------------------------------
     // Singleton instance
     private static final SimulationConfig INSTANCE = new SimulationConfig();
@@ -284,6 +358,21 @@ public class SimulationConfig {
         this.trainMode = trainMode;
     }
 
+    public int getTrainGenerationStep() {
+        return this.trainGenerationStep;
+    }
+
+    public void setTrainGenerationStep(final int trainGenerationStep) {
+        this.trainGenerationStep = trainGenerationStep;
+    }
+
+    /**
+     * @return {@link #trainGenerationStep} oder die Vorgabe der Strategie, wenn nicht gesetzt.
+     */
+    public int fetchTrainGenerationStep(final int defaultGenerationStep) {
+        return this.trainGenerationStep > 0 ? this.trainGenerationStep : defaultGenerationStep;
+    }
+
     public double getViscosity() {
         return this.viscosity;
     }
@@ -349,5 +438,92 @@ public class SimulationConfig {
     public void setSizeChangeDelay(long sizeChangeDelay) {
         this.sizeChangeDelay = sizeChangeDelay;
     }
-}
 
+    public int getMetricsPort() {
+        return this.metricsPort;
+    }
+
+    public void setMetricsPort(final int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public Long getRandomSeed() {
+        return this.randomSeed;
+    }
+
+    public void setRandomSeed(final Long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
+    public boolean isParallelCalculation() {
+        return this.parallelCalculation;
+    }
+
+    public void setParallelCalculation(final boolean parallelCalculation) {
+        this.parallelCalculation = parallelCalculation;
+    }
+
+    public boolean isNeuralNetEvaluatorCompilation() {
+        return this.neuralNetEvaluatorCompilation;
+    }
+
+    public void setNeuralNetEvaluatorCompilation(final boolean neuralNetEvaluatorCompilation) {
+        this.neuralNetEvaluatorCompilation = neuralNetEvaluatorCompilation;
+    }
+
+    public boolean isNeuralNetBatchInference() {
+        return this.neuralNetBatchInference;
+    }
+
+    public void setNeuralNetBatchInference(final boolean neuralNetBatchInference) {
+        this.neuralNetBatchInference = neuralNetBatchInference;
+    }
+
+    public boolean isNeuralNetSparseUpdate() {
+        return this.neuralNetSparseUpdate;
+    }
+
+    public void setNeuralNetSparseUpdate(final boolean neuralNetSparseUpdate) {
+        this.neuralNetSparseUpdate = neuralNetSparseUpdate;
+    }
+
+    public double getNeuralNetSparseUpdateEpsilon() {
+        return this.neuralNetSparseUpdateEpsilon;
+    }
+
+    public void setNeuralNetSparseUpdateEpsilon(final double neuralNetSparseUpdateEpsilon) {
+        this.neuralNetSparseUpdateEpsilon = neuralNetSparseUpdateEpsilon;
+    }
+
+    public ActivationPrecision getActivationPrecision() {
+        return this.activationPrecision;
+    }
+
+    public void setActivationPrecision(final ActivationPrecision activationPrecision) {
+        this.activationPrecision = activationPrecision;
+    }
+
+    public WeightStorage getBrainWeightStorage() {
+        return this.brainWeightStorage;
+    }
+
+    public void setBrainWeightStorage(final WeightStorage brainWeightStorage) {
+        this.brainWeightStorage = brainWeightStorage;
+    }
+
+    public boolean isBrainPruneOnReproduction() {
+        return this.brainPruneOnReproduction;
+    }
+
+    public void setBrainPruneOnReproduction(final boolean brainPruneOnReproduction) {
+        this.brainPruneOnReproduction = brainPruneOnReproduction;
+    }
+
+    public double getBrainPruneMinWeight() {
+        return this.brainPruneMinWeight;
+    }
+
+    public void setBrainPruneMinWeight(final double brainPruneMinWeight) {
+        this.brainPruneMinWeight = brainPruneMinWeight;
+    }
+}
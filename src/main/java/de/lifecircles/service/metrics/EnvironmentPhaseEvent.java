@@ -0,0 +1,45 @@
+package de.lifecircles.service.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-Event für eine einzelne Phase von {@link de.lifecircles.model.Environment#update}.
+ * Die Dauer der Phase wird zusätzlich immer in {@link SimulationMetrics} erfasst.
+ */
+@Name("de.lifecircles.EnvironmentPhase")
+@Label("Environment Phase")
+@Category({"LifeCircles", "Simulation"})
+@Description("One phase of the environment update.")
+public class EnvironmentPhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Cell Count")
+    public int cellCount;
+
+    // Nicht Teil der Aufzeichnung, nur für die Phasen-Zeiten in SimulationMetrics.
+    private transient SimulationPhase simulationPhase;
+    private transient long phaseStartNanos;
+
+    public static EnvironmentPhaseEvent start(final SimulationPhase phase) {
+        final EnvironmentPhaseEvent event = new EnvironmentPhaseEvent();
+        event.phase = phase.name();
+        event.simulationPhase = phase;
+        event.phaseStartNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    public void finish(final int cellCount) {
+        this.end();
+        SimulationMetrics.getInstance().recordPhase(this.simulationPhase, System.nanoTime() - this.phaseStartNanos);
+        if (this.shouldCommit()) {
+            this.cellCount = cellCount;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package de.lifecircles.service.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.File;
+
+/**
+ * JFR-Event für das Speichern und Laden von Zellen im {@link de.lifecircles.service.FileService}.
+ */
+@Name("de.lifecircles.FileService")
+@Label("Cell File Operation")
+@Category({"LifeCircles", "File"})
+@Description("Saving or loading cells with the FileService.")
+public class FileServiceEvent extends Event {
+    public static final String SAVE = "save";
+    public static final String LOAD = "load";
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("File Path")
+    public String filePath;
+
+    @Label("Cell Count")
+    public int cellCount;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileSize;
+
+    public static FileServiceEvent start(final String operation, final String filePath) {
+        final FileServiceEvent event = new FileServiceEvent();
+        event.operation = operation;
+        event.filePath = filePath;
+        event.begin();
+        return event;
+    }
+
+    public void finish(final int cellCount) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.cellCount = cellCount;
+            this.fileSize = new File(this.filePath).length();
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package de.lifecircles.service.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-Event für einen Generationswechsel in {@link de.lifecircles.service.trainStrategy.TrainStrategy#selectAndMutate}.
+ */
+@Name("de.lifecircles.GenerationTurnover")
+@Label("Generation Turnover")
+@Category({"LifeCircles", "Train Strategy"})
+@Description("Selection of winners and creation of the next generation by a train strategy.")
+public class GenerationTurnoverEvent extends Event {
+    @Label("Strategy")
+    public String strategy;
+
+    @Label("Previous Cell Count")
+    public int previousCellCount;
+
+    @Label("Winners")
+    public int winners;
+
+    @Label("Births")
+    public int births;
+
+    @Label("Cell Count")
+    public int cellCount;
+
+    @Label("Max Generation")
+    public int maxGeneration;
+
+    public static GenerationTurnoverEvent start(final String strategy, final int previousCellCount) {
+        final GenerationTurnoverEvent event = new GenerationTurnoverEvent();
+        event.strategy = strategy;
+        event.previousCellCount = previousCellCount;
+        event.begin();
+        return event;
+    }
+
+    public void finish(final int winners, final int births, final int cellCount, final int maxGeneration) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.winners = winners;
+            this.births = births;
+            this.cellCount = cellCount;
+            this.maxGeneration = maxGeneration;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package de.lifecircles.service.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+
+/**
+ * Optionaler HTTP-Endpoint (/metrics), der {@link SimulationMetrics} im Prometheus-Textformat liefert.
+ * Gelesen werden nur die Adder und veröffentlichten Werte, der Calc-Thread wird nie blockiert.
+ */
+public class PrometheusMetricsServer {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static HttpServer server;
+
+    private PrometheusMetricsServer() {
+    }
+
+    public static synchronized void start(final int port) {
+        if (server != null) {
+            return;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+            server.createContext("/metrics", PrometheusMetricsServer::handleMetrics);
+            server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "metrics-http");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            server.start();
+            System.out.println("Prometheus metrics endpoint: http://localhost:" + port + "/metrics");
+        } catch (final IOException e) {
+            server = null;
+            System.err.println("Starting metrics endpoint on port " + port + " failed: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private static void handleMetrics(final HttpExchange exchange) throws IOException {
+        final byte[] body = formatMetrics(SimulationMetrics.getInstance()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.length);
+        try (final OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    public static String formatMetrics(final SimulationMetrics metrics) {
+        final StringBuilder sb = new StringBuilder(2048);
+
+        appendMetric(sb, "lifecircles_steps_total", "counter", "Calculated simulation steps.", metrics.getStepCount());
+        appendMetric(sb, "lifecircles_steps_per_second", "gauge", "Simulation steps per second.", metrics.getStepsPerSecond());
+        appendMetric(sb, "lifecircles_cells", "gauge", "Current cell population.", metrics.getCellCount());
+        appendMetric(sb, "lifecircles_generation_max", "gauge", "Highest cell generation in the population.", metrics.getMaxGeneration());
+        appendMetric(sb, "lifecircles_births_total", "counter", "Cells born by reproduction or repopulation.", metrics.getBirthCount());
+        appendMetric(sb, "lifecircles_deaths_total", "counter", "Cells died by age or energy.", metrics.getDeathCount());
+        appendMetric(sb, "lifecircles_synapses", "gauge", "Synapses of all cell brains.", metrics.getTotalSynapseCount());
+        appendMetric(sb, "lifecircles_brain_memory_bytes_per_cell", "gauge", "Estimated brain memory per cell.", metrics.getBrainMemoryBytesPerCell());
+        appendMetric(sb, "lifecircles_synapses_processed_total", "counter", "Synapses processed by cell brains.", metrics.getProcessedSynapseCount());
+        appendMetric(sb, "lifecircles_synapses_skipped_total", "counter", "Processed synapses skipped by incremental brain evaluation.", metrics.getSkippedSynapseCount());
+        appendMetric(sb, "lifecircles_synapses_pruned_total", "counter", "Synapses removed by brain pruning.", metrics.getPrunedSynapseCount());
+        appendMetric(sb, "lifecircles_synapses_processed_per_second", "gauge", "Synapses processed per second.", metrics.getSynapsesProcessedPerSecond());
+
+        // Energieverteilung der aktuellen Population: Momentaufnahme pro Schritt, daher Gauges statt Histogramm.
+        final long[] energyBucketCountArr = metrics.getEnergyBucketCounts();
+        sb.append("# HELP lifecircles_cell_energy_bucket_cells Current cells with energy less than or equal to the bound.\n");
+        sb.append("# TYPE lifecircles_cell_energy_bucket_cells gauge\n");
+        long cumulativeCount = 0L;
+        for (int bucketPos = 0; bucketPos < energyBucketCountArr.length; bucketPos++) {
+            cumulativeCount += energyBucketCountArr[bucketPos];
+            final String bound = bucketPos < SimulationMetrics.ENERGY_BUCKET_BOUNDS_ARR.length ?
+                    formatValue(SimulationMetrics.ENERGY_BUCKET_BOUNDS_ARR[bucketPos]) : "+Inf";
+            sb.append("lifecircles_cell_energy_bucket_cells{le=\"").append(bound).append("\"} ").append(cumulativeCount).append('\n');
+        }
+        appendMetric(sb, "lifecircles_cell_energy_sum", "gauge", "Energy of all current cells.", metrics.getEnergySum());
+
+        sb.append("# HELP lifecircles_phase_seconds_total Time spent in each environment update phase.\n");
+        sb.append("# TYPE lifecircles_phase_seconds_total counter\n");
+        for (final SimulationPhase phase : SimulationPhase.values()) {
+            sb.append("lifecircles_phase_seconds_total{phase=\"").append(phase.name().toLowerCase(Locale.ROOT)).append("\"} ")
+                    .append(formatValue(metrics.getPhaseNanos(phase) / 1_000_000_000.0D)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void appendMetric(final StringBuilder sb, final String name, final String type,
+                                     final String help, final double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sb.append(name).append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static void appendMetric(final StringBuilder sb, final String name, final String type,
+                                     final String help, final long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String formatValue(final double value) {
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,46 @@
+package de.lifecircles.service.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-Event für einen Reproduktions-Durchlauf über die Population
+ * (Reproduktion und Tod im Schritt oder Wiederbevölkerung).
+ */
+@Name("de.lifecircles.ReproductionBatch")
+@Label("Reproduction Batch")
+@Category({"LifeCircles", "Simulation"})
+@Description("Reproduction and death handling over the whole population.")
+public class ReproductionBatchEvent extends Event {
+    @Label("Source")
+    public String source;
+
+    @Label("Cell Count")
+    public int cellCount;
+
+    @Label("Births")
+    public int births;
+
+    @Label("Deaths")
+    public int deaths;
+
+    public static ReproductionBatchEvent start(final String source) {
+        final ReproductionBatchEvent event = new ReproductionBatchEvent();
+        event.source = source;
+        event.begin();
+        return event;
+    }
+
+    public void finish(final int cellCount, final int births, final int deaths) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.cellCount = cellCount;
+            this.births = births;
+            this.deaths = deaths;
+            this.commit();
+        }
+    }
+}
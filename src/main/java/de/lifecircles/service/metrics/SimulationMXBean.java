@@ -0,0 +1,45 @@
+package de.lifecircles.service.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX-Schnittstelle für die Überwachung und Steuerung einer laufenden Simulation.
+ * Registriert unter {@link SimulationMonitor#OBJECT_NAME}.
+ */
+public interface SimulationMXBean {
+    double getStepsPerSecond();
+
+    long getStepCount();
+
+    int getCellCount();
+
+    long getTotalSynapses();
+
+    long getBrainMemoryBytesPerCell();
+
+    double getSynapsesProcessedPerSecond();
+
+    /**
+     * Mittlere Dauer pro Schritt in Millisekunden je {@link SimulationPhase}.
+     */
+    Map<String, Double> getPhaseTimingsMillis();
+
+    int getCurrentGeneration();
+
+    boolean isPaused();
+
+    void pause();
+
+    void resume();
+
+    /**
+     * Führt bei pausierter Simulation die angegebene Anzahl Schritte aus, bei laufender Simulation nichts.
+     */
+    void step(int stepCount);
+
+    /**
+     * Speichert die aktuelle Population zwischen zwei Schritten in die angegebene Datei.
+     * @return Anzahl der gespeicherten Zellen
+     */
+    int snapshot(String filePath);
+}
@@ -0,0 +1,253 @@
+package de.lifecircles.service.metrics;
+
+import de.lifecircles.model.Cell;
+import de.lifecircles.service.SimulationConfig;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sammelt Laufzeit-Kennzahlen der Simulation (Phasen-Zeiten, Population, Synapsen).
+ * Geschrieben wird vom Calc-Thread und aus den parallelen Phasen über LongAdder/DoubleAdder,
+ * gelesen z.B. von JMX oder dem {@link PrometheusMetricsServer}, ohne den Calc-Thread zu blockieren.
+ */
+public class SimulationMetrics {
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    /**
+     * Obergrenzen der Energie-Buckets (ohne +Inf).
+     */
+    public static final double[] ENERGY_BUCKET_BOUNDS_ARR = {
+            0.1D * SimulationConfig.CELL_MAX_ENERGY, 0.2D * SimulationConfig.CELL_MAX_ENERGY,
+            0.3D * SimulationConfig.CELL_MAX_ENERGY, 0.4D * SimulationConfig.CELL_MAX_ENERGY,
+            0.5D * SimulationConfig.CELL_MAX_ENERGY, 0.6D * SimulationConfig.CELL_MAX_ENERGY,
+            0.7D * SimulationConfig.CELL_MAX_ENERGY, 0.8D * SimulationConfig.CELL_MAX_ENERGY,
+            0.9D * SimulationConfig.CELL_MAX_ENERGY, 1.0D * SimulationConfig.CELL_MAX_ENERGY };
+
+    private static final SimulationMetrics INSTANCE = new SimulationMetrics();
+
+    private final LongAdder[] phaseNanosArr;
+    private final LongAdder stepCount = new LongAdder();
+    private final LongAdder processedSynapseCount = new LongAdder();
+    private final LongAdder skippedSynapseCount = new LongAdder();
+    private final LongAdder birthCount = new LongAdder();
+    private final LongAdder deathCount = new LongAdder();
+    private final LongAdder prunedSynapseCount = new LongAdder();
+
+    // Energieverteilung der Zellen im laufenden Schritt (aus der parallelen Cell-Update-Phase).
+    private final LongAdder[] energyBucketAdderArr;
+    private final DoubleAdder energySumAdder = new DoubleAdder();
+    // Veröffentlichte Energieverteilung des letzten abgeschlossenen Schritts (nicht kumuliert).
+    private volatile long[] energyBucketCountArr;
+    private volatile double energySum;
+
+    // Werte des letzten Schritts.
+    private volatile int cellCount;
+    private volatile long totalSynapseCount;
+    private volatile long totalBrainMemoryBytes;
+    private volatile int maxGeneration;
+
+    // Über das letzte Zeitfenster gemittelte Werte.
+    private volatile double[] phaseMillisArr;
+    private volatile double synapsesProcessedPerSecond;
+    private volatile double stepsPerSecond;
+
+    private long windowStartTime = System.nanoTime();
+    private long windowStepCount;
+    private long windowProcessedSynapseCount;
+    private final long[] windowPhaseNanosArr;
+
+    private SimulationMetrics() {
+        final int phaseCount = SimulationPhase.values().length;
+        this.phaseNanosArr = new LongAdder[phaseCount];
+        for (int phasePos = 0; phasePos < phaseCount; phasePos++) {
+            this.phaseNanosArr[phasePos] = new LongAdder();
+        }
+        this.phaseMillisArr = new double[phaseCount];
+        this.windowPhaseNanosArr = new long[phaseCount];
+        this.energyBucketAdderArr = new LongAdder[ENERGY_BUCKET_BOUNDS_ARR.length + 1];
+        for (int bucketPos = 0; bucketPos < this.energyBucketAdderArr.length; bucketPos++) {
+            this.energyBucketAdderArr[bucketPos] = new LongAdder();
+        }
+        this.energyBucketCountArr = new long[this.energyBucketAdderArr.length];
+    }
+
+    public static SimulationMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void recordPhase(final SimulationPhase phase, final long nanos) {
+        this.phaseNanosArr[phase.ordinal()].add(nanos);
+    }
+
+    /**
+     * Wird vom Calc-Thread vor jedem Simulationsschritt aufgerufen.
+     */
+    public void beginStep() {
+        for (final LongAdder energyBucketAdder : this.energyBucketAdderArr) {
+            energyBucketAdder.reset();
+        }
+        this.energySumAdder.reset();
+    }
+
+    /**
+     * Wird parallel für jede Zelle nach ihrem Update aufgerufen.
+     */
+    public void recordCellUpdate(final Cell cell, final long processedSynapses, final long skippedSynapses) {
+        this.processedSynapseCount.add(processedSynapses);
+        this.skippedSynapseCount.add(skippedSynapses);
+
+        final double energy = cell.getEnergy();
+        int bucketPos = 0;
+        while ((bucketPos < ENERGY_BUCKET_BOUNDS_ARR.length) && (energy > ENERGY_BUCKET_BOUNDS_ARR[bucketPos])) {
+            bucketPos++;
+        }
+        this.energyBucketAdderArr[bucketPos].increment();
+        this.energySumAdder.add(energy);
+    }
+
+    /**
+     * Wird vom Calc-Thread nach jedem Simulationsschritt aufgerufen.
+     */
+    public void recordStep(final List<Cell> cellList, final int births, final int deaths) {
+        long totalSynapseCount = 0L;
+        long totalBrainMemoryBytes = 0L;
+        int maxGeneration = 0;
+        for (final Cell cell : cellList) {
+            totalSynapseCount += cell.getBrain().getSynapseCount();
+            totalBrainMemoryBytes += cell.getBrain().estimateMemoryBytes();
+            maxGeneration = Math.max(maxGeneration, cell.getGeneration());
+        }
+        this.cellCount = cellList.size();
+        this.totalSynapseCount = totalSynapseCount;
+        this.totalBrainMemoryBytes = totalBrainMemoryBytes;
+        this.maxGeneration = maxGeneration;
+        this.stepCount.increment();
+        this.birthCount.add(births);
+        this.deathCount.add(deaths);
+
+        final long[] energyBucketCountArr = new long[this.energyBucketAdderArr.length];
+        for (int bucketPos = 0; bucketPos < energyBucketCountArr.length; bucketPos++) {
+            energyBucketCountArr[bucketPos] = this.energyBucketAdderArr[bucketPos].sum();
+        }
+        this.energyBucketCountArr = energyBucketCountArr;
+        this.energySum = this.energySumAdder.sum();
+
+        final long now = System.nanoTime();
+        final long windowNanos = now - this.windowStartTime;
+        if (windowNanos >= WINDOW_NANOS) {
+            final long steps = this.stepCount.sum();
+            final long windowSteps = Math.max(1L, steps - this.windowStepCount);
+            final double[] phaseMillisArr = new double[this.phaseNanosArr.length];
+            for (int phasePos = 0; phasePos < this.phaseNanosArr.length; phasePos++) {
+                final long phaseNanos = this.phaseNanosArr[phasePos].sum();
+                phaseMillisArr[phasePos] = ((phaseNanos - this.windowPhaseNanosArr[phasePos]) / (double) windowSteps) / 1_000_000.0D;
+                this.windowPhaseNanosArr[phasePos] = phaseNanos;
+            }
+            this.phaseMillisArr = phaseMillisArr;
+
+            final long processed = this.processedSynapseCount.sum();
+            this.synapsesProcessedPerSecond = (processed - this.windowProcessedSynapseCount) / (windowNanos / 1_000_000_000.0D);
+            this.stepsPerSecond = (steps - this.windowStepCount) / (windowNanos / 1_000_000_000.0D);
+            this.windowProcessedSynapseCount = processed;
+            this.windowStepCount = steps;
+            this.windowStartTime = now;
+        }
+    }
+
+    public int getCellCount() {
+        return this.cellCount;
+    }
+
+    public long getTotalSynapseCount() {
+        return this.totalSynapseCount;
+    }
+
+    /**
+     * Geschätzter Speicher der Gehirne pro Zelle im letzten Schritt, siehe {@link de.lifecircles.model.neural.CellBrainInterface#estimateMemoryBytes()}.
+     */
+    public long getBrainMemoryBytesPerCell() {
+        final int cellCount = this.cellCount;
+        return (cellCount > 0) ? this.totalBrainMemoryBytes / cellCount : 0L;
+    }
+
+    public int getMaxGeneration() {
+        return this.maxGeneration;
+    }
+
+    public double getSynapsesProcessedPerSecond() {
+        return this.synapsesProcessedPerSecond;
+    }
+
+    public double getStepsPerSecond() {
+        return this.stepsPerSecond;
+    }
+
+    public long getStepCount() {
+        return this.stepCount.sum();
+    }
+
+    public long getProcessedSynapseCount() {
+        return this.processedSynapseCount.sum();
+    }
+
+    /**
+     * Teil von {@link #getProcessedSynapseCount()}, der bei inkrementeller Berechnung übersprungen wurde.
+     */
+    public long getSkippedSynapseCount() {
+        return this.skippedSynapseCount.sum();
+    }
+
+    public long getBirthCount() {
+        return this.birthCount.sum();
+    }
+
+    public long getDeathCount() {
+        return this.deathCount.sum();
+    }
+
+    /**
+     * Beim Beschneiden der Gehirne entfernte Synapsen, siehe {@link SimulationConfig#isBrainPruneOnReproduction()}.
+     */
+    public void recordPrunedSynapses(final int synapseCount) {
+        this.prunedSynapseCount.add(synapseCount);
+    }
+
+    public long getPrunedSynapseCount() {
+        return this.prunedSynapseCount.sum();
+    }
+
+    /**
+     * Anzahl Zellen je Energie-Bucket ({@link #ENERGY_BUCKET_BOUNDS_ARR}, letzter Eintrag: darüber)
+     * nach dem letzten Schritt.
+     */
+    public long[] getEnergyBucketCounts() {
+        return this.energyBucketCountArr.clone();
+    }
+
+    public double getEnergySum() {
+        return this.energySum;
+    }
+
+    /**
+     * Summe der Zeit in Nanosekunden, die seit dem Start in der Phase verbracht wurde.
+     */
+    public long getPhaseNanos(final SimulationPhase phase) {
+        return this.phaseNanosArr[phase.ordinal()].sum();
+    }
+
+    /**
+     * Mittlere Dauer pro Schritt in Millisekunden je Phase über das letzte Zeitfenster.
+     */
+    public Map<String, Double> getPhaseMillis() {
+        final double[] phaseMillisArr = this.phaseMillisArr;
+        final Map<String, Double> phaseMillisMap = new LinkedHashMap<>();
+        for (final SimulationPhase phase : SimulationPhase.values()) {
+            phaseMillisMap.put(phase.name(), phaseMillisArr[phase.ordinal()]);
+        }
+        return phaseMillisMap;
+    }
+}
@@ -0,0 +1,120 @@
+package de.lifecircles.service.metrics;
+
+import de.lifecircles.model.Cell;
+import de.lifecircles.service.CalculationService;
+import de.lifecircles.service.FileService;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SimulationMXBean} für einen {@link CalculationService}.
+ * Kennzahlen kommen aus {@link SimulationMetrics}, Steuer-Operationen werden an den Calc-Thread übergeben.
+ */
+public class SimulationMonitor implements SimulationMXBean {
+    public static final String OBJECT_NAME = "de.lifecircles:type=Simulation";
+
+    private final CalculationService calculationService;
+    private final SimulationMetrics metrics = SimulationMetrics.getInstance();
+
+    public SimulationMonitor(final CalculationService calculationService) {
+        this.calculationService = calculationService;
+    }
+
+    /**
+     * Registriert einen Monitor für den CalculationService am Platform-MBeanServer.
+     * Ein bereits registrierter Monitor (z.B. nach einem Reset) wird ersetzt.
+     */
+    public static void register(final CalculationService calculationService) {
+        try {
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(new SimulationMonitor(calculationService), objectName);
+        } catch (final JMException e) {
+            System.err.println("Registering " + OBJECT_NAME + " failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public double getStepsPerSecond() {
+        return this.calculationService.getFps();
+    }
+
+    @Override
+    public long getStepCount() {
+        return this.calculationService.getStepCount();
+    }
+
+    @Override
+    public int getCellCount() {
+        return this.metrics.getCellCount();
+    }
+
+    @Override
+    public long getTotalSynapses() {
+        return this.metrics.getTotalSynapseCount();
+    }
+
+    @Override
+    public long getBrainMemoryBytesPerCell() {
+        return this.metrics.getBrainMemoryBytesPerCell();
+    }
+
+    @Override
+    public double getSynapsesProcessedPerSecond() {
+        return this.metrics.getSynapsesProcessedPerSecond();
+    }
+
+    @Override
+    public Map<String, Double> getPhaseTimingsMillis() {
+        return this.metrics.getPhaseMillis();
+    }
+
+    @Override
+    public int getCurrentGeneration() {
+        return this.metrics.getMaxGeneration();
+    }
+
+    @Override
+    public boolean isPaused() {
+        return this.calculationService.isPaused();
+    }
+
+    @Override
+    public void pause() {
+        this.calculationService.pause();
+    }
+
+    @Override
+    public void resume() {
+        this.calculationService.resume();
+    }
+
+    @Override
+    public void step(final int stepCount) {
+        if (stepCount <= 0) {
+            throw new IllegalArgumentException("stepCount must be positive: " + stepCount);
+        }
+        this.calculationService.step(stepCount);
+    }
+
+    @Override
+    public int snapshot(final String filePath) {
+        try {
+            return this.calculationService.callBetweenSteps(() -> {
+                final List<Cell> cellList = this.calculationService.getEnvironment().getCopyOfCellList();
+                FileService.getInstance().saveCellsToFile(filePath, cellList);
+                return cellList.size();
+            });
+        } catch (final Exception e) {
+            throw new RuntimeException("Snapshot to \"" + filePath + "\" failed: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package de.lifecircles.service.metrics;
+
+/**
+ * Phasen eines Simulationsschritts in der Reihenfolge von {@link de.lifecircles.model.Environment#update}.
+ */
+public enum SimulationPhase {
+    SUN_ENERGY,
+    REPULSION,
+    SENSOR_ACTOR,
+    ENERGY_TRANSFER,
+    PHYSICS,
+    FORCES,
+    CELL_UPDATE,
+    REPRODUCTION,
+    REPOPULATION,
+    STATISTICS
+}
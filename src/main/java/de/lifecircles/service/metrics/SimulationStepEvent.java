@@ -0,0 +1,50 @@
+package de.lifecircles.service.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-Event für einen kompletten Simulationsschritt (Partitionierung, Environment-Update und Train-Strategie).
+ */
+@Name("de.lifecircles.SimulationStep")
+@Label("Simulation Step")
+@Category({"LifeCircles", "Simulation"})
+@Description("One simulation step including partitioning, environment update and train strategy.")
+public class SimulationStepEvent extends Event {
+    @Label("Step")
+    public long step;
+
+    @Label("Cell Count")
+    public int cellCount;
+
+    @Label("Synapses Processed")
+    public long synapsesProcessed;
+
+    @Label("Births")
+    public int births;
+
+    @Label("Deaths")
+    public int deaths;
+
+    public static SimulationStepEvent start() {
+        final SimulationStepEvent event = new SimulationStepEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(final long step, final int cellCount, final long synapsesProcessed,
+                       final int births, final int deaths) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.step = step;
+            this.cellCount = cellCount;
+            this.synapsesProcessed = synapsesProcessed;
+            this.births = births;
+            this.deaths = deaths;
+            this.commit();
+        }
+    }
+}
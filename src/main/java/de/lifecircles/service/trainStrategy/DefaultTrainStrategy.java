@@ -3,9 +3,10 @@ package de.lifecircles.service.trainStrategy;
 import de.lifecircles.model.CellFactory;
 import de.lifecircles.model.Environment;
 import de.lifecircles.model.Vector2D;
+import de.lifecircles.service.RandomService;
 import de.lifecircles.service.SimulationConfig;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Default training strategy: no special behavior (random initialization, no selection).
@@ -59,7 +60,7 @@ public class DefaultTrainStrategy implements TrainStrategy {
 
         environment.addSunBlocker(1600 * 3 / 4, (int)(environment.getHeight() - (environment.getHeight() / 8)), 1600 * 3 / 6);
 
-        Random random = new Random();
+        final SplittableRandom random = RandomService.stream(RandomService.Stream.TRAIN_STRATEGY, 1L, environment.getStepCount());
         for (int i = 0; i < config.getInitialCellCount(); i++) {
             final double x = random.nextDouble() * config.getWidth();
             final double y = (random.nextDouble() * (config.getHeight() - 80.0D)) + 40.0D;
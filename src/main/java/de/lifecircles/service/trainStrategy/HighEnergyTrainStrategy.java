@@ -1,13 +1,15 @@
 package de.lifecircles.service.trainStrategy;
 
 import de.lifecircles.model.*;
+import de.lifecircles.service.RandomService;
 import de.lifecircles.service.ReproductionManagerService;
 import de.lifecircles.service.SimulationConfig;
+import de.lifecircles.service.metrics.GenerationTurnoverEvent;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Training-Strategie: HighEnergy.
@@ -19,7 +21,6 @@ public class HighEnergyTrainStrategy implements TrainStrategy {
     private static final int GENERATION_STEP = 2500 * 1;
     private static final double SELECTION_PERCENT = 0.2;
     private final SimulationConfig config = SimulationConfig.getInstance();
-    private final Random random = new Random();
     private long stepCounter = 0;
 
     @Override
@@ -48,6 +49,7 @@ public class HighEnergyTrainStrategy implements TrainStrategy {
         this.config.setEnergyPerRay(0.02D); // 0.005; //0.015; // 0.025;
 
         // Initiale Population
+        final SplittableRandom random = RandomService.stream(RandomService.Stream.TRAIN_STRATEGY, 1L, environment.getStepCount());
         for (int i = 0; i < INITIAL_COUNT; i++) {
             double x = random.nextDouble() * this.config.getWidth();
             double y = random.nextDouble() * this.config.getHeight();
@@ -63,13 +65,14 @@ public class HighEnergyTrainStrategy implements TrainStrategy {
     @Override
     public void selectAndMutate(Environment environment) {
         this.stepCounter++;
-        if (this.stepCounter % GENERATION_STEP != 0) {
+        if (this.stepCounter % this.config.fetchTrainGenerationStep(GENERATION_STEP) != 0) {
             return;
         }
         List<Cell> cells = environment.getCellList();
         if (cells.isEmpty()) {
             return;
         }
+        final GenerationTurnoverEvent turnoverEvent = GenerationTurnoverEvent.start("HighEnergy", cells.size());
         int winnersCount = Math.max(1, (int) (cells.size() * SELECTION_PERCENT));
         cells.sort((c1, c2) -> Double.compare(c2.getEnergy(), c1.getEnergy()));
         List<Cell> winners = new ArrayList<>(cells.subList(0, winnersCount));
@@ -77,7 +80,7 @@ public class HighEnergyTrainStrategy implements TrainStrategy {
         // Elites unverändert übernehmen
         List<Cell> nextGen = new ArrayList<>();
         nextGen.addAll(winners);
-        Random random = new Random();
+        final SplittableRandom random = RandomService.stream(RandomService.Stream.TRAIN_STRATEGY, 0L, environment.getStepCount());
         // Fülle Population bis INITIAL_COUNT mit mutierten Nachkommen auf
         while (nextGen.size() < INITIAL_COUNT) {
             Cell parentCell = winners.get(random.nextInt(winnersCount));
@@ -96,5 +99,7 @@ public class HighEnergyTrainStrategy implements TrainStrategy {
             }
         }
         environment.resetCells(nextGen);
+        turnoverEvent.finish(winners.size(), nextGen.size() - winners.size(), nextGen.size(),
+                nextGen.stream().mapToInt(Cell::getGeneration).max().orElse(0));
     }
 }
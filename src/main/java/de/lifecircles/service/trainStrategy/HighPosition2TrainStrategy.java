@@ -1,8 +1,10 @@
 package de.lifecircles.service.trainStrategy;
 
 import de.lifecircles.model.*;
+import de.lifecircles.service.RandomService;
 import de.lifecircles.service.ReproductionManagerService;
 import de.lifecircles.service.SimulationConfig;
+import de.lifecircles.service.metrics.GenerationTurnoverEvent;
 
 import java.util.*;
 
@@ -20,7 +22,6 @@ import java.util.*;
 public class HighPosition2TrainStrategy implements TrainStrategy {
     private static final int GENERATION_STEP = 1500 * 2; // Anzahl der Schritte bis zur Selektion
     private final SimulationConfig config = SimulationConfig.getInstance();
-    private final Random random = new Random();
     private long stepCounter = 0;
 
     @Override
@@ -77,13 +78,15 @@ public class HighPosition2TrainStrategy implements TrainStrategy {
     @Override
     public void selectAndMutate(Environment environment) {
         stepCounter++;
-        if (stepCounter % GENERATION_STEP != 0) {
+        if (stepCounter % this.config.fetchTrainGenerationStep(GENERATION_STEP) != 0) {
             return;
         }
         List<Cell> cells = environment.getCellList();
         if (cells.isEmpty()) {
             return;
         }
+        final GenerationTurnoverEvent turnoverEvent = GenerationTurnoverEvent.start("HighPosition2", cells.size());
+        final SplittableRandom random = RandomService.stream(RandomService.Stream.TRAIN_STRATEGY, 0L, environment.getStepCount());
         double xSpace = (config.getWidth() / SeperatorCount);
 
         final double minHeight = cells.stream().
@@ -182,5 +185,7 @@ public class HighPosition2TrainStrategy implements TrainStrategy {
             cell.setPosition(new Vector2D(x, y));
         }
         environment.resetCells(nextGen);
+        turnoverEvent.finish(winners.size(), nextGen.size() - winners.size(), nextGen.size(),
+                nextGen.stream().mapToInt(Cell::getGeneration).max().orElse(0));
     }
 }
@@ -4,8 +4,10 @@ import de.lifecircles.model.Cell;
 import de.lifecircles.model.CellFactory;
 import de.lifecircles.model.Environment;
 import de.lifecircles.model.Vector2D;
+import de.lifecircles.service.RandomService;
 import de.lifecircles.service.ReproductionManagerService;
 import de.lifecircles.service.SimulationConfig;
+import de.lifecircles.service.metrics.GenerationTurnoverEvent;
 
 import java.util.*;
 
@@ -17,7 +19,6 @@ import java.util.*;
 public class HighPositionTrainStrategy implements TrainStrategy {
     private static final int GENERATION_STEP = 2500 * 4;
     private final SimulationConfig config = SimulationConfig.getInstance();
-    private final Random random = new Random();
     private long stepCounter = 0;
 
     @Override
@@ -67,13 +68,15 @@ public class HighPositionTrainStrategy implements TrainStrategy {
     @Override
     public void selectAndMutate(Environment environment) {
         stepCounter++;
-        if (stepCounter % GENERATION_STEP != 0) {
+        if (stepCounter % this.config.fetchTrainGenerationStep(GENERATION_STEP) != 0) {
             return;
         }
         List<Cell> cells = environment.getCellList();
         if (cells.isEmpty()) {
             return;
         }
+        final GenerationTurnoverEvent turnoverEvent = GenerationTurnoverEvent.start("HighPosition", cells.size());
+        final SplittableRandom random = RandomService.stream(RandomService.Stream.TRAIN_STRATEGY, 0L, environment.getStepCount());
         // Sortiere nach Y-Koordinate aufsteigend (höhere Zellen oben)
         //cells.sort(Comparator.comparingDouble((Cell c) -> c.getPosition().getY()).reversed());
         cells.sort(Comparator.comparingDouble((Cell c) -> c.getPosition().getY()));
@@ -104,5 +107,7 @@ public class HighPositionTrainStrategy implements TrainStrategy {
         }
 
         environment.resetCells(nextGen);
+        turnoverEvent.finish(winners.size(), nextGen.size() - winners.size(), nextGen.size(),
+                nextGen.stream().mapToInt(Cell::getGeneration).max().orElse(0));
     }
 }
@@ -112,6 +112,16 @@ public abstract class TestTrainStrategyUtils {
                 return 0L;
             }
 
+            @Override
+            public long getSkippedSynapses() {
+                return 0L;
+            }
+
+            @Override
+            public long estimateMemoryBytes() {
+                return 0L;
+            }
+
             @Override
             public int getSynapseCount() {
                 return 0;
@@ -321,6 +321,103 @@ public class CellDetailView extends Stage {
         needsRedraw = true;
     }
 
+    /**
+     * Positionen der Neuronen für eine Struktur-Version des Netzes und eine Canvas-Größe.
+     * Wird nur neu berechnet, wenn sich eines davon ändert (siehe {@link NeuralNet#getStructureVersion()}).
+     */
+    private static final class BrainLayout {
+        private final NeuralNet neuralNet;
+        private final long structureVersion;
+        private final double width;
+        private final double height;
+        private final int[] layers;
+        private final double screenSizeFactor;
+        private final double nodeRadius;
+        private final double horizontalSpacing;
+        private final double[] vSpacingArr;
+        private final double[] layerYOffsetArr;
+        private final Map<NeuronInterface, double[]> neuronPositions = new HashMap<>();
+
+        private BrainLayout(final NeuralNet neuralNet, final double width, final double height) {
+            this.neuralNet = neuralNet;
+            this.structureVersion = neuralNet.getStructureVersion();
+            this.width = width;
+            this.height = height;
+
+            // Netzwerkarchitektur holen
+            this.layers = neuralNet.getLayerSizes();
+
+            // Zeichenparameter berechnen
+            // Knotengröße dynamisch berechnen
+            int maxLayerSize = 0;
+            for (int size : this.layers) {
+                maxLayerSize = Math.max(maxLayerSize, size);
+            }
+
+            // Verbesserte Neuronengröße - fester Mindestradius
+            this.screenSizeFactor = Math.min(width, height) / 400.0;
+
+            // Konstanter Mindestradius, weniger Abhängigkeit von der Netzwerkgröße
+            this.nodeRadius = 1.0 * this.screenSizeFactor;
+
+            // Horizontalen Abstand anpassen
+            this.horizontalSpacing = width / (this.layers.length + 1);
+
+            // Vertikale Abstände dynamisch anpassen
+            double minVerticalSpacing = this.nodeRadius * 3; // Mindestabstand zwischen Knoten
+            double maxVerticalSpacing = height / (maxLayerSize + 1);
+
+            this.vSpacingArr = new double[this.layers.length];
+            this.layerYOffsetArr = new double[this.layers.length];
+            for (int layerIdx = 0; layerIdx < this.layers.length; layerIdx++) {
+                final int layerSize = this.layers[layerIdx];
+                this.vSpacingArr[layerIdx] = Math.max(minVerticalSpacing,
+                        Math.min(maxVerticalSpacing, height / (layerSize + 1)));
+                this.layerYOffsetArr[layerIdx] = (height - layerSize * this.vSpacingArr[layerIdx]) / 2;
+            }
+
+            // Positions-Map für Neuronen erstellen: Speichert die X,Y-Position für jedes Neuron
+            this.putLayerPositions(0, neuralNet.getInputNeuronArr());
+            for (int li = 0; li < neuralNet.getHiddenLayerArr().length; li++) {
+                this.putLayerPositions(li + 1, neuralNet.getHiddenLayerArr()[li].getNeuronsArr());
+            }
+            this.putLayerPositions(this.layers.length - 1, neuralNet.getOutputNeuronArr());
+        }
+
+        private void putLayerPositions(final int layerIdx, final NeuronInterface[] neuronArr) {
+            final double layerX = this.getLayerX(layerIdx);
+            for (int layerPos = 0; layerPos < this.layers[layerIdx]; layerPos++) {
+                if (layerPos < neuronArr.length) {
+                    this.neuronPositions.put(neuronArr[layerPos], new double[] {layerX, this.getNodeY(layerIdx, layerPos)});
+                }
+            }
+        }
+
+        private boolean isValid(final NeuralNet neuralNet, final double width, final double height) {
+            return (this.neuralNet == neuralNet) && (this.structureVersion == neuralNet.getStructureVersion()) &&
+                    (this.width == width) && (this.height == height);
+        }
+
+        private double getLayerX(final int layerIdx) {
+            return this.horizontalSpacing * (layerIdx + 1);
+        }
+
+        private double getNodeY(final int layerIdx, final int layerPos) {
+            return this.layerYOffsetArr[layerIdx] + this.vSpacingArr[layerIdx] * (layerPos + 0.5);
+        }
+    }
+
+    private BrainLayout brainLayout;
+
+    private BrainLayout fetchBrainLayout(final NeuralNet neuralNet, final double width, final double height) {
+        BrainLayout brainLayout = this.brainLayout;
+        if ((brainLayout == null) || !brainLayout.isValid(neuralNet, width, height)) {
+            brainLayout = new BrainLayout(neuralNet, width, height);
+            this.brainLayout = brainLayout;
+        }
+        return brainLayout;
+    }
+
     /**
      * Visualisiert das neuronale Netzwerk der Zelle
      */
@@ -351,34 +448,17 @@ public class CellDetailView extends Stage {
 
         final CellBrain brain = (CellBrain) brainInterface;
         final NeuralNetwork network = brain.getNeuralNetwork();
-        final NeuralNet neuralNet = network.getNeuralNet();
 
         if (network == null) return;
 
-        // Netzwerkarchitektur holen
-        int[] layers = network.getLayerSizes();
-
-        if (layers == null) return;
-
-        // Zeichenparameter berechnen
-        // Knotengröße dynamisch berechnen
-        int maxLayerSize = 0;
-        for (int size : layers) {
-            maxLayerSize = Math.max(maxLayerSize, size);
-        }
-
-        // Verbesserte Neuronengröße - fester Mindestradius
-        double screenSizeFactor = Math.min(width, height) / 400.0;
-
-        // Konstanter Mindestradius, weniger Abhängigkeit von der Netzwerkgröße
-        double nodeRadius = 1.0 * screenSizeFactor;
-
-        // Horizontalen Abstand anpassen
-        double horizontalSpacing = width / (layers.length + 1);
+        final NeuralNet neuralNet = network.getNeuralNet();
 
-        // Vertikale Abstände dynamisch anpassen
-        double minVerticalSpacing = nodeRadius * 3; // Mindestabstand zwischen Knoten
-        double maxVerticalSpacing = height / (maxLayerSize + 1);
+        // Layout nur nach Änderungen der Struktur oder der Canvas-Größe neu berechnen.
+        final BrainLayout layout = this.fetchBrainLayout(neuralNet, width, height);
+        final int[] layers = layout.layers;
+        final double screenSizeFactor = layout.screenSizeFactor;
+        final double nodeRadius = layout.nodeRadius;
+        final double horizontalSpacing = layout.horizontalSpacing;
 
         // Hintergrund
         //gc.setFill(Color.rgb(30, 30, 30));
@@ -387,44 +467,28 @@ public class CellDetailView extends Stage {
         // Synapse-Liste vom Netzwerk holen
         List<Synapse> synapseList = network.getSynapseList();
 
-        // Positions-Map für Neuronen erstellen: Speichert die X,Y-Position für jedes Neuron
-        Map<NeuronInterface, double[]> neuronPositions = new HashMap<>();
+        final Map<NeuronInterface, double[]> neuronPositions = layout.neuronPositions;
 
-        // Input-Neuronen-Positionen
-        int layerIdx = 0;
-        int layerSize = layers[layerIdx];
-        double layerX = horizontalSpacing * (layerIdx + 1);
-        double vSpacing = Math.max(minVerticalSpacing,
-                Math.min(maxVerticalSpacing, height / (layerSize + 1)));
-        double layerYOffset = (height - layerSize * vSpacing) / 2;
+        int layerIdx;
+        int layerSize;
+        double layerX;
 
-        for (int layerPos = 0; layerPos < layerSize; layerPos++) {
-            double nodeY = layerYOffset + vSpacing * (layerPos + 0.5);
-            if (layerPos < neuralNet.getInputNeuronArr().length) {
-                neuronPositions.put(neuralNet.getInputNeuronArr()[layerPos], new double[] {layerX, nodeY});
-            }
-        }
-
-        // Hidden-Layer-Neuronen-Positionen
+        // Hidden-Layer-Neuronen (Rahmen nach Layer-Aktivität)
+        final int outputTypePos = 0; // Default-Output-Type für Input-Neuronen.
         for (int li = 0; li < neuralNet.getHiddenLayerArr().length; li++) {
             layerIdx = li + 1;
             layerSize = layers[layerIdx];
-            layerX = horizontalSpacing * (layerIdx + 1);
-            vSpacing = Math.max(minVerticalSpacing,
-                    Math.min(maxVerticalSpacing, height / (layerSize + 1)));
-            layerYOffset = (height - layerSize * vSpacing) / 2;
+            layerX = layout.getLayerX(layerIdx);
 
             Layer currentHiddenLayer = neuralNet.getHiddenLayerArr()[li];
             boolean layerIsActive = currentHiddenLayer.isActiveLayer();
-            List<NeuronInterface> neurons = currentHiddenLayer.getNeuronList();
+            NeuronInterface[] neurons = currentHiddenLayer.getNeuronsArr();
 
-            final int outputTypePos = 0; // Default-Output-Type für Input-Neuronen.
             for (int i = 0; i < layerSize; i++) {
-                double nodeY = layerYOffset + vSpacing * (i + 0.5);
+                double nodeY = layout.getNodeY(layerIdx, i);
                 NeuronInterface neuron = null;
-                if (i < neurons.size()) {
-                    neuron = neurons.get(i);
-                    neuronPositions.put(neuron, new double[] {layerX, nodeY});
+                if (i < neurons.length) {
+                    neuron = neurons[i];
                 }
                 // Aktivierungswert direkt vom Hidden-Neuron holen
                 double activation = 0;
@@ -462,21 +526,6 @@ public class CellDetailView extends Stage {
             }
         }
 
-        // Output-Neuronen-Positionen
-        layerIdx = layers.length - 1;
-        layerSize = layers[layerIdx];
-        layerX = horizontalSpacing * (layerIdx + 1);
-        vSpacing = Math.max(minVerticalSpacing,
-                Math.min(maxVerticalSpacing, height / (layerSize + 1)));
-        layerYOffset = (height - layerSize * vSpacing) / 2;
-
-        for (int i = 0; i < layerSize; i++) {
-            double nodeY = layerYOffset + vSpacing * (i + 0.5);
-            if (i < neuralNet.getOutputNeuronArr().length) {
-                neuronPositions.put(neuralNet.getOutputNeuronArr()[i], new double[] {layerX, nodeY});
-            }
-        }
-
         // Verbindungen zeichnen und entsprechend ihres Gewichts einfärben
         gc.setLineWidth(0.02D * screenSizeFactor);
 
@@ -502,14 +551,10 @@ public class CellDetailView extends Stage {
         // Input-Neuronen zeichnen
         layerIdx = 0;
         layerSize = layers[layerIdx];
-        layerX = horizontalSpacing * (layerIdx + 1);
-        vSpacing = Math.max(minVerticalSpacing,
-                Math.min(maxVerticalSpacing, height / (layerSize + 1)));
-        layerYOffset = (height - layerSize * vSpacing) / 2;
+        layerX = layout.getLayerX(layerIdx);
 
-        final int outputTypePos = 0; // Default-Output-Type für Input-Neuronen.
         for (int layerPos = 0; layerPos < layerSize; layerPos++) {
-            double nodeY = layerYOffset + vSpacing * (layerPos + 0.5);
+            double nodeY = layout.getNodeY(layerIdx, layerPos);
 
             // Aktivierungswert direkt vom Input-Neuron holen
             double activation = 0;
@@ -545,21 +590,18 @@ public class CellDetailView extends Stage {
         for (int li = 0; li < neuralNet.getHiddenLayerArr().length; li++) {
             layerIdx = li + 1; // +1 weil Input-Layer bereits gezeichnet wurde
             layerSize = layers[layerIdx];
-            layerX = horizontalSpacing * (layerIdx + 1);
-            vSpacing = Math.max(minVerticalSpacing,
-                    Math.min(maxVerticalSpacing, height / (layerSize + 1)));
-            layerYOffset = (height - layerSize * vSpacing) / 2;
+            layerX = layout.getLayerX(layerIdx);
 
-            List<NeuronInterface> neurons = neuralNet.getHiddenLayerArr()[li].getNeuronList();
+            NeuronInterface[] neurons = neuralNet.getHiddenLayerArr()[li].getNeuronsArr();
 
             for (int i = 0; i < layerSize; i++) {
-                double nodeY = layerYOffset + vSpacing * (i + 0.5);
+                double nodeY = layout.getNodeY(layerIdx, i);
 
                 // Aktivierungswert direkt vom Hidden-Neuron holen
                 double activation = 0;
                 NeuronInterface neuron = null;
-                if (i < neurons.size()) {
-                    neuron = neurons.get(i);
+                if (i < neurons.length) {
+                    neuron = neurons[i];
                     activation = network.readNeuronValue(neuron, outputTypePos);
                     // Aktivierungswert auf den Bereich [0,1] begrenzen
                     activation = Math.max(0, Math.min(1, activation));
@@ -589,13 +631,10 @@ public class CellDetailView extends Stage {
         // Output-Neuronen zeichnen
         layerIdx = layers.length - 1;
         layerSize = layers[layerIdx];
-        layerX = horizontalSpacing * (layerIdx + 1);
-        vSpacing = Math.max(minVerticalSpacing,
-                Math.min(maxVerticalSpacing, height / (layerSize + 1)));
-        layerYOffset = (height - layerSize * vSpacing) / 2;
+        layerX = layout.getLayerX(layerIdx);
 
         for (int i = 0; i < layerSize; i++) {
-            double nodeY = layerYOffset + vSpacing * (i + 0.5);
+            double nodeY = layout.getNodeY(layerIdx, i);
 
             // Aktivierungswert direkt vom Output-Neuron holen
             double activation = 0;
@@ -2,6 +2,9 @@ module de.lifecircles {
     requires javafx.controls;
     requires javafx.graphics;
     requires java.prefs;
+    requires jdk.jfr;
+    requires java.management;
+    requires jdk.httpserver;
 
     exports de.lifecircles;
     exports de.lifecircles.model;
@@ -11,4 +14,5 @@ module de.lifecircles {
     exports de.lifecircles.view;
     exports de.lifecircles.service.trainStrategy;
     exports de.lifecircles.service.partitioningStrategy;
+    exports de.lifecircles.service.metrics;
 }
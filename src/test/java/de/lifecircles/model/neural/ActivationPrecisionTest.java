@@ -0,0 +1,110 @@
+package de.lifecircles.model.neural;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Begrenzt den maximalen Fehler der Genauigkeitsstufen gegenüber {@link ActivationPrecision#EXACT}
+ * und misst den Durchsatz der Stufen (Ausgabe auf System.out).
+ */
+public class ActivationPrecisionTest {
+
+    private static final double LOOKUP_TABLE_MAX_ERROR = 2.0E-6D;
+    private static final double RATIONAL_MAX_ERROR = 1.0E-4D;
+
+    @Test
+    public void testLookupTableMaxError() {
+        assertMaxError(ActivationPrecision.LOOKUP_TABLE, LOOKUP_TABLE_MAX_ERROR);
+    }
+
+    @Test
+    public void testRationalMaxError() {
+        assertMaxError(ActivationPrecision.RATIONAL, RATIONAL_MAX_ERROR);
+    }
+
+    @Test
+    public void testExactMatchesActivationFunction() {
+        for (int stepPos = -4000; stepPos <= 4000; stepPos++) {
+            final double x = stepPos / 100.0D;
+            for (final ActivationFunction activationFunction : ActivationFunction.values()) {
+                assertEquals(activationFunction.apply(x), activationFunction.apply(x, ActivationPrecision.EXACT), 0.0D);
+                assertEquals(activationFunction.derivative(x), activationFunction.derivative(x, ActivationPrecision.EXACT), 0.0D);
+            }
+        }
+    }
+
+    @Test
+    public void testLimitsAndNaN() {
+        for (final ActivationPrecision precision : ActivationPrecision.values()) {
+            assertEquals(1.0D, precision.sigmoid(1000.0D), 0.0D, precision.name());
+            assertEquals(0.0D, precision.sigmoid(-1000.0D), 0.0D, precision.name());
+            assertEquals(1.0D, precision.tanh(Double.POSITIVE_INFINITY), 0.0D, precision.name());
+            assertEquals(-1.0D, precision.tanh(Double.NEGATIVE_INFINITY), 0.0D, precision.name());
+            assertTrue(Double.isNaN(precision.sigmoid(Double.NaN)), precision.name());
+            assertTrue(Double.isNaN(precision.tanh(Double.NaN)), precision.name());
+        }
+    }
+
+    @Test
+    public void testBenchmark() {
+        final double[] xArr = new double[1 << 16];
+        final Random random = new Random(1L);
+        for (int xPos = 0; xPos < xArr.length; xPos++) {
+            xArr[xPos] = random.nextGaussian() * 4.0D;
+        }
+        double blackhole = 0.0D;
+        for (final ActivationPrecision precision : ActivationPrecision.values()) {
+            // Aufwärmen, dann messen.
+            for (int roundPos = 0; roundPos < 20; roundPos++) {
+                blackhole += run(precision, xArr);
+            }
+            final int rounds = 50;
+            final long startTime = System.nanoTime();
+            for (int roundPos = 0; roundPos < rounds; roundPos++) {
+                blackhole += run(precision, xArr);
+            }
+            final long runTime = System.nanoTime() - startTime;
+            System.out.printf("ActivationPrecision %s: %.2f ns per sigmoid+tanh%n",
+                    precision, (double) runTime / ((long) rounds * xArr.length));
+        }
+        assertTrue(!Double.isNaN(blackhole));
+    }
+
+    private static double run(final ActivationPrecision precision, final double[] xArr) {
+        double sum = 0.0D;
+        for (final double x : xArr) {
+            sum += precision.sigmoid(x) + precision.tanh(x);
+        }
+        return sum;
+    }
+
+    private static void assertMaxError(final ActivationPrecision precision, final double maxError) {
+        double maxSigmoidError = 0.0D;
+        double maxTanhError = 0.0D;
+        double maxSigmoidDerivativeError = 0.0D;
+        double maxTanhDerivativeError = 0.0D;
+        // Dicht abgetastet über den relevanten Bereich und darüber hinaus.
+        for (int stepPos = -300_000; stepPos <= 300_000; stepPos++) {
+            final double x = stepPos / 10_000.0D;
+            maxSigmoidError = Math.max(maxSigmoidError,
+                    Math.abs(precision.sigmoid(x) - ActivationPrecision.EXACT.sigmoid(x)));
+            maxTanhError = Math.max(maxTanhError,
+                    Math.abs(precision.tanh(x) - ActivationPrecision.EXACT.tanh(x)));
+            maxSigmoidDerivativeError = Math.max(maxSigmoidDerivativeError,
+                    Math.abs(ActivationFunction.Sigmoid.derivative(x, precision) - ActivationFunction.Sigmoid.derivative(x)));
+            maxTanhDerivativeError = Math.max(maxTanhDerivativeError,
+                    Math.abs(ActivationFunction.Tanh.derivative(x, precision) - ActivationFunction.Tanh.derivative(x)));
+        }
+        System.out.printf("ActivationPrecision %s: max error sigmoid=%.3e, tanh=%.3e, sigmoid'=%.3e, tanh'=%.3e%n",
+                precision, maxSigmoidError, maxTanhError, maxSigmoidDerivativeError, maxTanhDerivativeError);
+        assertTrue(maxSigmoidError <= maxError, "Sigmoid error " + maxSigmoidError);
+        assertTrue(maxTanhError <= maxError, "Tanh error " + maxTanhError);
+        // Die Ableitungen setzen sich aus den Funktionswerten zusammen: |d(1-t²)| <= 2|dt|, |d(s(1-s))| <= |ds|.
+        assertTrue(maxSigmoidDerivativeError <= maxError, "Sigmoid derivative error " + maxSigmoidDerivativeError);
+        assertTrue(maxTanhDerivativeError <= 2.0D * maxError, "Tanh derivative error " + maxTanhDerivativeError);
+    }
+}
@@ -2,9 +2,12 @@ package de.lifecircles.model.neural;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class BackpropagateTest {
     private static final double THRESHOLD = 0.1;
@@ -68,6 +71,129 @@ public class BackpropagateTest {
         this.testProblem(XXX_INPUTS, XXX_OUTPUTS);
     }
 
+    /**
+     * Misst einen Backpropagation-Schritt bei wachsender Netzgröße (Ausgabe auf System.out).
+     * Die Zeit pro Synapse soll dabei ungefähr gleich bleiben.
+     */
+    @Test
+    public void testBackpropagateBenchmark() {
+        final NeuronValueFunctionFactory neuronValueFunctionFactory = new ValuesNeuronValueFunctionFactory();
+        final Random random = new Random(4711L);
+        double blackhole = 0.0D;
+        for (final int hiddenCount : new int[] { 16, 64, 256 }) {
+            NeuralNetwork.setRandom(random);
+            final NeuralNetwork nn = new NeuralNetwork(neuronValueFunctionFactory,
+                    16, new int[] { hiddenCount, hiddenCount }, 8, 0.5D, 0);
+            final double[] inputArr = new double[16];
+            final double[] targetArr = new double[8];
+            for (int inputPos = 0; inputPos < inputArr.length; inputPos++) {
+                inputArr[inputPos] = random.nextDouble();
+            }
+            final int steps = 200;
+            // Aufwärmen, dann messen.
+            for (int stepPos = 0; stepPos < steps; stepPos++) {
+                blackhole += nn.calcTrainError(inputArr, targetArr);
+            }
+            final long startTime = System.nanoTime();
+            for (int stepPos = 0; stepPos < steps; stepPos++) {
+                blackhole += nn.calcTrainError(inputArr, targetArr);
+            }
+            final long runTime = System.nanoTime() - startTime;
+            System.out.printf("Backpropagate hidden %d x 2: %d synapses, %.2f ns per synapse%n",
+                    hiddenCount, nn.getSynapseCount(), (double) runTime / ((long) steps * nn.getSynapseCount()));
+        }
+        assertTrue(!Double.isNaN(blackhole));
+    }
+
+    /**
+     * Mit Batch-Größe 1 und einem Thread entspricht das Mini-Batch-Training dem Training pro Beispiel.
+     */
+    @Test
+    public void testMiniBatchWithSingleSampleMatchesTrain() {
+        final NeuralNetwork nn = createMiniBatchNetwork();
+        final NeuralNetwork miniBatchNn = new NeuralNetwork(nn);
+
+        final double error = nn.train(XXX_INPUTS, XXX_OUTPUTS, 50);
+        final double miniBatchError = miniBatchNn.train(XXX_INPUTS, XXX_OUTPUTS, 50, 1, 1);
+
+        assertEquals(error, miniBatchError, 0.0D);
+        assertArrayEquals(getWeights(nn), getWeights(miniBatchNn), 0.0D);
+        assertArrayEquals(getOutputs(nn, XXX_INPUTS), getOutputs(miniBatchNn, XXX_INPUTS), 0.0D);
+    }
+
+    /**
+     * Bei gleicher Thread-Anzahl hängt das Ergebnis nicht von der Ausführungsreihenfolge der Threads ab.
+     */
+    @Test
+    public void testMiniBatchIsDeterministic() {
+        final double[][] inputs = new double[64][];
+        final double[][] targets = new double[64][];
+        for (int samplePos = 0; samplePos < inputs.length; samplePos++) {
+            inputs[samplePos] = XXX_INPUTS[samplePos % XXX_INPUTS.length];
+            targets[samplePos] = XXX_OUTPUTS[samplePos % XXX_OUTPUTS.length];
+        }
+        final NeuralNetwork nn = createMiniBatchNetwork();
+        final NeuralNetwork firstNn = new NeuralNetwork(nn);
+        final NeuralNetwork secondNn = new NeuralNetwork(nn);
+
+        final double firstError = firstNn.train(inputs, targets, 20, 8, 4);
+        final double secondError = secondNn.train(inputs, targets, 20, 8, 4);
+
+        assertEquals(firstError, secondError, 0.0D);
+        assertArrayEquals(getWeights(firstNn), getWeights(secondNn), 0.0D);
+        assertTrue(!Arrays.equals(getWeights(nn), getWeights(firstNn)));
+    }
+
+    /**
+     * Die Abschnitte haben eine feste Größe, ein Thread und mehrere Threads ergeben die gleichen Gewichte.
+     */
+    @Test
+    public void testMiniBatchDoesNotDependOnThreadCount() {
+        final double[][] inputs = new double[61][];
+        final double[][] targets = new double[61][];
+        for (int samplePos = 0; samplePos < inputs.length; samplePos++) {
+            inputs[samplePos] = XXX_INPUTS[samplePos % XXX_INPUTS.length];
+            targets[samplePos] = XXX_OUTPUTS[samplePos % XXX_OUTPUTS.length];
+        }
+        final NeuralNetwork nn = createMiniBatchNetwork();
+        final NeuralNetwork singleThreadNn = new NeuralNetwork(nn);
+        final double singleThreadError = singleThreadNn.train(inputs, targets, 20, 16, 1);
+
+        for (final int threadCount : new int[] { 2, 3, 4 }) {
+            final NeuralNetwork multiThreadNn = new NeuralNetwork(nn);
+            final double multiThreadError = multiThreadNn.train(inputs, targets, 20, 16, threadCount);
+
+            assertEquals(singleThreadError, multiThreadError, 0.0D, "Threads " + threadCount);
+            assertArrayEquals(getWeights(singleThreadNn), getWeights(multiThreadNn), 0.0D, "Threads " + threadCount);
+        }
+    }
+
+    private static NeuralNetwork createMiniBatchNetwork() {
+        NeuralNetwork.setRandom(new Random(2342));
+        final NeuralNetwork nn = new NeuralNetwork(new ValuesNeuronValueFunctionFactory(),
+                3, new int[] { 6, 6 }, 2, synapseConnectivity, 0);
+        nn.setDisableLayerDeactivation(true);
+        return nn;
+    }
+
+    private static double[] getWeights(final NeuralNetwork nn) {
+        final Synapse[] synapseArr = nn.getNeuralNet().getSynapseArr();
+        final double[] weightArr = new double[synapseArr.length];
+        for (int synapsePos = 0; synapsePos < synapseArr.length; synapsePos++) {
+            weightArr[synapsePos] = synapseArr[synapsePos].getWeight();
+        }
+        return weightArr;
+    }
+
+    private static double[] getOutputs(final NeuralNetwork nn, final double[][] inputs) {
+        final double[] outputArr = new double[inputs.length * (int) nn.getOutputLayerSize()];
+        for (int inputPos = 0; inputPos < inputs.length; inputPos++) {
+            final double[] output = nn.calcProcess(inputs[inputPos]);
+            System.arraycopy(output, 0, outputArr, inputPos * output.length, output.length);
+        }
+        return outputArr;
+    }
+
     private static double synapseConnectivity = 0.8D;
 
     public void testProblem(final double[][] inputs, final double[][] outputs) {
@@ -0,0 +1,186 @@
+package de.lifecircles.model.neural;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static de.lifecircles.model.neural.NeuralNetTestSupport.INPUT_COUNT;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.addRandomSynapses;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.containsNeuronNetwork;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.createNetwork;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.mutate;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Berechnung mit {@link EvaluationContext}: eigener Zustand pro Aufrufer, das Netz bleibt unverändert.
+ */
+public class EvaluationContextTest {
+
+    @Test
+    public void testEvaluationContextsRunConcurrently() throws Exception {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 43L);
+        network.setDisableLayerDeactivation(true);
+        final Random inputRandom = new Random(7L);
+        final double[][] inputArrArr = new double[50][INPUT_COUNT];
+        for (final double[] inputArr : inputArrArr) {
+            for (int inputPos = 0; inputPos < INPUT_COUNT; inputPos++) {
+                inputArr[inputPos] = inputRandom.nextDouble() * 2.0D - 1.0D;
+            }
+        }
+
+        // Flaches Netz: gleiche Ausgaben wie über die NeuronValueFunction des Netzwerks.
+        final EvaluationContext flatContext = network.acquireEvaluationContext();
+        for (final double[] inputArr : inputArrArr) {
+            assertArrayEquals(network.calcProcess(inputArr), network.process(flatContext, inputArr), 0.0D);
+        }
+        network.releaseEvaluationContext(flatContext);
+
+        for (int mutationPos = 0; mutationPos < 40 && !containsNeuronNetwork(network); mutationPos++) {
+            mutate(network, 1000L + mutationPos * 10L);
+        }
+        assertTrue(containsNeuronNetwork(network), "Mutations should have created NeuronNetwork neurons.");
+
+        final EvaluationContext referenceContext = new EvaluationContext();
+        final double[][] expectedOutputArrArr = new double[inputArrArr.length][];
+        for (int inputPos = 0; inputPos < inputArrArr.length; inputPos++) {
+            expectedOutputArrArr[inputPos] = network.process(referenceContext, inputArrArr[inputPos]).clone();
+        }
+
+        final int threadCount = 4;
+        final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Callable<double[][]>> taskList = new ArrayList<>();
+            for (int threadPos = 0; threadPos < threadCount; threadPos++) {
+                taskList.add(() -> {
+                    final EvaluationContext context = network.acquireEvaluationContext();
+                    try {
+                        final double[][] outputArrArr = new double[inputArrArr.length][];
+                        for (int inputPos = 0; inputPos < inputArrArr.length; inputPos++) {
+                            outputArrArr[inputPos] = network.process(context, inputArrArr[inputPos]).clone();
+                        }
+                        return outputArrArr;
+                    } finally {
+                        network.releaseEvaluationContext(context);
+                    }
+                });
+            }
+            for (final Future<double[][]> future : executorService.invokeAll(taskList)) {
+                final double[][] outputArrArr = future.get();
+                for (int inputPos = 0; inputPos < inputArrArr.length; inputPos++) {
+                    assertArrayEquals(expectedOutputArrArr[inputPos], outputArrArr[inputPos], 0.0D, "Input " + inputPos);
+                }
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Ein Kontext aus dem Pool startet wie ein neuer: rückgekoppelte Werte des vorherigen Aufrufers bleiben nicht stehen.
+     */
+    @Test
+    public void testPooledEvaluationContextStartsCleared() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 47L);
+        network.setDisableLayerDeactivation(true);
+        addRandomSynapses(network, 60, 11L);
+
+        final double[] firstInputArr = new double[INPUT_COUNT];
+        final double[] secondInputArr = new double[INPUT_COUNT];
+        for (int inputPos = 0; inputPos < INPUT_COUNT; inputPos++) {
+            firstInputArr[inputPos] = 1.0D;
+            secondInputArr[inputPos] = -0.5D;
+        }
+
+        final EvaluationContext usedContext = network.acquireEvaluationContext();
+        for (int stepPos = 0; stepPos < 5; stepPos++) {
+            network.process(usedContext, firstInputArr);
+        }
+        network.releaseEvaluationContext(usedContext);
+
+        final double[] expectedOutputArr = network.process(new EvaluationContext(), secondInputArr).clone();
+        final EvaluationContext pooledContext = network.acquireEvaluationContext();
+        assertSame(usedContext, pooledContext);
+        assertArrayEquals(expectedOutputArr, network.process(pooledContext, secondInputArr), 0.0D);
+        network.releaseEvaluationContext(pooledContext);
+    }
+
+    /**
+     * Zwei Gehirne mit geteilten Typ-Netzen abwechselnd berechnen: jedes Neuron führt seine Layer-Aktivität selbst,
+     * die Ergebnisse gleichen der getrennten Berechnung und die Layer der Typ-Netze bleiben unverändert.
+     */
+    @Test
+    public void testSharedTypeNetsKeepStatePerNeuron() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 53L);
+        for (int mutationPos = 0; mutationPos < 40 && !containsNeuronNetwork(network); mutationPos++) {
+            mutate(network, 2000L + mutationPos * 10L);
+        }
+        assertTrue(containsNeuronNetwork(network), "Mutations should have created NeuronNetwork neurons.");
+        final List<Layer> typeLayerList = new ArrayList<>();
+        for (final NeuronTypeInfoData neuronTypeInfoData : network.getNeuralNet().getNeuronTypeInfoDataList()) {
+            if (neuronTypeInfoData.getNeuralNet() != null) {
+                typeLayerList.addAll(List.of(neuronTypeInfoData.getNeuralNet().getHiddenLayerArr()));
+            }
+        }
+        final boolean[] typeLayerActiveArr = new boolean[typeLayerList.size()];
+        final double[] typeLayerCounterArr = new double[typeLayerList.size()];
+        for (int layerPos = 0; layerPos < typeLayerList.size(); layerPos++) {
+            typeLayerActiveArr[layerPos] = typeLayerList.get(layerPos).isActiveLayer();
+            typeLayerCounterArr[layerPos] = typeLayerList.get(layerPos).getActivationCounter();
+        }
+
+        final int stepCount = 30;
+        final double[][] firstInputArrArr = createInputArrArr(stepCount, 3L);
+        final double[][] secondInputArrArr = createInputArrArr(stepCount, 5L);
+
+        // Getrennt: erst das eine, dann das andere Gehirn.
+        final double[][] firstExpectedArrArr = processSteps(new NeuralNetwork(network), firstInputArrArr);
+        final double[][] secondExpectedArrArr = processSteps(new NeuralNetwork(network), secondInputArrArr);
+
+        // Abwechselnd mit denselben Typ-Netzen.
+        final NeuralNetwork firstNetwork = new NeuralNetwork(network);
+        final NeuralNetwork secondNetwork = new NeuralNetwork(network);
+        for (int stepPos = 0; stepPos < stepCount; stepPos++) {
+            firstNetwork.setInputs(firstInputArrArr[stepPos]);
+            assertArrayEquals(firstExpectedArrArr[stepPos], firstNetwork.process(), 0.0D, "First, step " + stepPos);
+            secondNetwork.setInputs(secondInputArrArr[stepPos]);
+            assertArrayEquals(secondExpectedArrArr[stepPos], secondNetwork.process(), 0.0D, "Second, step " + stepPos);
+        }
+
+        for (int layerPos = 0; layerPos < typeLayerList.size(); layerPos++) {
+            assertEquals(typeLayerActiveArr[layerPos], typeLayerList.get(layerPos).isActiveLayer());
+            assertEquals(typeLayerCounterArr[layerPos], typeLayerList.get(layerPos).getActivationCounter());
+        }
+    }
+
+    private static double[][] createInputArrArr(final int stepCount, final long seed) {
+        final Random inputRandom = new Random(seed);
+        final double[][] inputArrArr = new double[stepCount][INPUT_COUNT];
+        for (final double[] inputArr : inputArrArr) {
+            for (int inputPos = 0; inputPos < INPUT_COUNT; inputPos++) {
+                inputArr[inputPos] = inputRandom.nextDouble() * 2.0D - 1.0D;
+            }
+        }
+        return inputArrArr;
+    }
+
+    private static double[][] processSteps(final NeuralNetwork network, final double[][] inputArrArr) {
+        final double[][] outputArrArr = new double[inputArrArr.length][];
+        for (int stepPos = 0; stepPos < inputArrArr.length; stepPos++) {
+            network.setInputs(inputArrArr[stepPos]);
+            outputArrArr[stepPos] = network.process().clone();
+        }
+        return outputArrArr;
+    }
+}
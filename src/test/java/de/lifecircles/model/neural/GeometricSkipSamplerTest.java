@@ -0,0 +1,81 @@
+package de.lifecircles.model.neural;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prüft, dass die Auswahl per Sprung dieselbe Verteilung hat wie {@code random.nextDouble() < p} pro Element.
+ */
+public class GeometricSkipSamplerTest {
+
+    private static final int ELEMENT_COUNT = 400_000;
+    private static final int BUCKET_COUNT = 20;
+
+    @Test
+    public void testSelectionMatchesBernoulliDistribution() {
+        for (final double probability : new double[] { 0.025D, 0.1D, 0.5D, 0.9D }) {
+            assertBernoulliDistribution(probability);
+        }
+    }
+
+    @Test
+    public void testLimits() {
+        final Random random = new Random(7L);
+        final long seedCheck = new Random(7L).nextLong();
+        assertEquals(0, GeometricSkipSampler.nextSkip(random, 1.0D));
+        assertEquals(0, GeometricSkipSampler.nextSkip(random, 1.5D));
+        // Für p >= 1 wird keine Zufallszahl verbraucht.
+        assertEquals(seedCheck, random.nextLong());
+
+        assertEquals(Integer.MAX_VALUE, GeometricSkipSampler.nextSkip(random, 0.0D));
+        assertEquals(Integer.MAX_VALUE, GeometricSkipSampler.nextSkip(random, -0.1D));
+        assertEquals(Integer.MAX_VALUE, GeometricSkipSampler.nextIndex(random, 0.0D, 5));
+        assertEquals(Integer.MAX_VALUE, GeometricSkipSampler.nextIndex(random, 1.0E-300D, Integer.MAX_VALUE - 1));
+    }
+
+    private static void assertBernoulliDistribution(final double probability) {
+        final Random random = new Random(4711L);
+        final int bucketSize = ELEMENT_COUNT / BUCKET_COUNT;
+        final int[] bucketCountArr = new int[BUCKET_COUNT];
+        int selectedCount = 0;
+        long skipSum = 0L;
+        long skipSquareSum = 0L;
+        int lastIndex = -1;
+        for (int index = GeometricSkipSampler.nextSkip(random, probability); index < ELEMENT_COUNT;
+             index = GeometricSkipSampler.nextIndex(random, probability, index)) {
+            bucketCountArr[index / bucketSize]++;
+            final long skip = index - lastIndex - 1;
+            skipSum += skip;
+            skipSquareSum += skip * skip;
+            lastIndex = index;
+            selectedCount++;
+        }
+
+        // Anzahl ausgewählter Elemente: Binomialverteilung, Toleranz 5 Standardabweichungen.
+        final double expectedCount = ELEMENT_COUNT * probability;
+        final double sigma = Math.sqrt(ELEMENT_COUNT * probability * (1.0D - probability));
+        assertEquals(expectedCount, selectedCount, 5.0D * sigma, "selected count for p=" + probability);
+
+        // Gleichmäßig über die Positionen verteilt (Chi-Quadrat, 19 Freiheitsgrade, p < 1e-6 für > 60).
+        final double expectedBucketCount = bucketSize * probability;
+        double chiSquare = 0.0D;
+        for (final int bucketCount : bucketCountArr) {
+            final double diff = bucketCount - expectedBucketCount;
+            chiSquare += diff * diff / (expectedBucketCount * (1.0D - probability));
+        }
+        assertTrue(chiSquare < 60.0D, "chi square " + chiSquare + " for p=" + probability);
+
+        // Abstände geometrisch verteilt: Mittelwert (1-p)/p, Varianz (1-p)/p².
+        final double meanSkip = (double) skipSum / selectedCount;
+        final double varianceSkip = (double) skipSquareSum / selectedCount - meanSkip * meanSkip;
+        final double expectedMeanSkip = (1.0D - probability) / probability;
+        final double expectedVarianceSkip = (1.0D - probability) / (probability * probability);
+        assertEquals(expectedMeanSkip, meanSkip, 5.0D * Math.sqrt(expectedVarianceSkip / expectedCount) + 0.01D,
+                "mean skip for p=" + probability);
+        assertEquals(expectedVarianceSkip, varianceSkip, 0.1D * expectedVarianceSkip + 0.01D, "skip variance for p=" + probability);
+    }
+}
@@ -0,0 +1,145 @@
+package de.lifecircles.model.neural;
+
+import de.lifecircles.service.SimulationConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static de.lifecircles.model.neural.NeuralNetTestSupport.INPUT_COUNT;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.addRandomSynapses;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.createNetwork;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.mutate;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.setWeights;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prüft den erzeugten Bytecode segmentweise gegen eine einfache Referenzrechnung aus den Plan-Arrays,
+ * unabhängig von der Ausführung über den Plan.
+ */
+public class NeuralNetEvaluatorCompilerTest {
+
+    @Test
+    public void testEvaluatorMatchesReferenceForEachActivationFunction() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        for (final ActivationFunction activationFunction : ActivationFunction.values()) {
+            final NeuralNetwork network = createNetwork(factory, 42L);
+            addRandomSynapses(network, 60, 7L);
+            for (final List<NeuronInterface> neuronList : network.getNeuralNet().getStructureInfo().getLayerNeuronListList()) {
+                for (final NeuronInterface neuron : neuronList) {
+                    if (neuron instanceof Neuron flatNeuron) {
+                        flatNeuron.setActivationFunction(activationFunction);
+                    }
+                }
+            }
+            assertEvaluatorMatchesReference(network.getNeuralNet().fetchExecutionPlan(), 100L, activationFunction.name());
+        }
+    }
+
+    @Test
+    public void testEvaluatorMatchesReferenceWithMutations() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 42L);
+        for (int mutationPos = 0; mutationPos < 20; mutationPos++) {
+            mutate(network, 300L + mutationPos);
+            setWeights(network.getNeuralNet().getSynapseList(), 400L + mutationPos);
+            // Nach jeder Mutation neu erzeugen: andere Ids, Synapsen und Aktivierungsfunktionen.
+            assertEvaluatorMatchesReference(network.getNeuralNet().fetchExecutionPlan(), 500L + mutationPos,
+                    "Mutation " + mutationPos);
+        }
+    }
+
+    @Test
+    public void testEqualTopologiesShareTheEvaluator() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 42L);
+        final NeuralNetwork otherNetwork = createNetwork(factory, 42L);
+        // Gewichte und Bias stehen nicht im Code, andere Werte ergeben die gleiche Klasse.
+        setWeights(otherNetwork.getNeuralNet().getSynapseList(), 11L);
+
+        final NeuralNetEvaluator evaluator = NeuralNetEvaluatorCompiler.fetchEvaluator(network.getNeuralNet().fetchExecutionPlan());
+        assertNotNull(evaluator, "No evaluator was compiled.");
+        assertSame(evaluator, NeuralNetEvaluatorCompiler.fetchEvaluator(otherNetwork.getNeuralNet().fetchExecutionPlan()));
+        assertEvaluatorMatchesReference(otherNetwork.getNeuralNet().fetchExecutionPlan(), 12L, "Other weights");
+    }
+
+    @Test
+    public void testCompilationOptionIsCheckedOnEveryExecution() {
+        final SimulationConfig config = SimulationConfig.getInstance();
+        final boolean evaluatorCompilation = config.isNeuralNetEvaluatorCompilation();
+        try {
+            final NeuralNetwork network = createNetwork(new ValuesNeuronValueFunctionFactory(), 42L);
+            final double[] inputArr = new double[INPUT_COUNT];
+
+            config.setNeuralNetEvaluatorCompilation(false);
+            for (int stepPos = 0; stepPos < NeuralNetExecutionPlan.EVALUATOR_COMPILE_THRESHOLD * 2; stepPos++) {
+                network.setInputs(inputArr);
+                network.process();
+            }
+            assertNull(network.getNeuralNet().fetchExecutionPlan().getEvaluator(), "Compiled while switched off.");
+
+            // Später eingeschaltet: erreicht die Schwelle erneut und kompiliert dann.
+            config.setNeuralNetEvaluatorCompilation(true);
+            for (int stepPos = 0; stepPos <= NeuralNetExecutionPlan.EVALUATOR_COMPILE_THRESHOLD; stepPos++) {
+                network.setInputs(inputArr);
+                network.process();
+            }
+            assertNotNull(network.getNeuralNet().fetchExecutionPlan().getEvaluator(), "Not compiled after switching on.");
+        } finally {
+            config.setNeuralNetEvaluatorCompilation(evaluatorCompilation);
+        }
+    }
+
+    /**
+     * Rechnet jedes flache Segment über den Evaluator und über die Referenz mit gleichen Startwerten;
+     * Eingangssummen und Werte müssen bitgleich sein.
+     */
+    private static void assertEvaluatorMatchesReference(final NeuralNetExecutionPlan plan, final long seed,
+                                                        final String message) {
+        final NeuralNetEvaluator evaluator = NeuralNetEvaluatorCompiler.fetchEvaluator(plan);
+        assertNotNull(evaluator, message + ": no evaluator was compiled.");
+
+        final double[] weightArr = new double[plan.getSynapseCount()];
+        for (int synapsePos = 0; synapsePos < weightArr.length; synapsePos++) {
+            weightArr[synapsePos] = plan.getWeight(synapsePos);
+        }
+        final double[] biasArr = new double[plan.getOperationCount()];
+        for (int opPos = 0; opPos < biasArr.length; opPos++) {
+            biasArr[opPos] = plan.getBias(opPos);
+        }
+
+        final Random random = new Random(seed);
+        final double[] valuesArr = new double[plan.getValueCount()];
+        for (int id = 0; id < valuesArr.length; id++) {
+            // Auch große Beträge, damit Sättigung und negative Zweige der Aktivierungen durchlaufen werden.
+            valuesArr[id] = (random.nextDouble() * 2.0D - 1.0D) * 8.0D;
+        }
+        final double[] inputSumArr = new double[plan.getValueCount()];
+        final double[] referenceValuesArr = valuesArr.clone();
+        final double[] referenceInputSumArr = inputSumArr.clone();
+
+        boolean flatSegmentFound = false;
+        for (int segmentPos = 0; segmentPos < plan.getSegmentCount(); segmentPos++) {
+            if (!plan.isFlatSegment(segmentPos)) {
+                continue;
+            }
+            flatSegmentFound = true;
+            evaluator.evaluateSegment(segmentPos, valuesArr, inputSumArr, weightArr, biasArr);
+            for (int opPos = plan.getSegmentStart(segmentPos); opPos < plan.getSegmentEnd(segmentPos); opPos++) {
+                double sum = biasArr[opPos];
+                for (int synapsePos = plan.getSynapseStart(opPos); synapsePos < plan.getSynapseEnd(opPos); synapsePos++) {
+                    sum += referenceValuesArr[plan.getSourceId(synapsePos)] * weightArr[synapsePos];
+                }
+                referenceInputSumArr[plan.getTargetId(opPos)] = sum;
+                referenceValuesArr[plan.getTargetId(opPos)] = NeuralNetExecutionPlan.activate(plan.getActivationCode(opPos), sum);
+            }
+            assertArrayEquals(referenceInputSumArr, inputSumArr, 0.0D, message + ", segment " + segmentPos);
+            assertArrayEquals(referenceValuesArr, valuesArr, 0.0D, message + ", segment " + segmentPos);
+        }
+        assertTrue(flatSegmentFound, message + ": no flat segment.");
+    }
+}
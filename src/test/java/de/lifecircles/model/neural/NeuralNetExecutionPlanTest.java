@@ -0,0 +1,567 @@
+package de.lifecircles.model.neural;
+
+import de.lifecircles.service.SimulationConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static de.lifecircles.model.neural.NeuralNetTestSupport.INPUT_COUNT;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.OUTPUT_COUNT;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.addRandomSynapses;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.containsNeuronNetwork;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.containsFeedbackSynapse;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.createNetwork;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.getWeights;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.measureAllocatedBytes;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.mutate;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.setWeights;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vergleicht den kompilierten Ausführungsplan mit der Berechnung über die Neuronen-Objekte.
+ * Zwei mit gleichem Zufall erzeugte Netze werden identisch mutiert; eines rechnet über den Plan,
+ * das andere über eine NeuronValueFunction, die der Plan nicht direkt adressiert.
+ */
+public class NeuralNetExecutionPlanTest {
+
+    /**
+     * Reicht alle Aufrufe durch; erzwingt die Berechnung ohne Ausführungsplan.
+     */
+    private record InterpretedNeuronValueFunction(NeuronValueFunction delegate) implements NeuronValueFunction {
+        @Override
+        public double readValue(final NeuralNet neuralNet, final NeuronInterface neuron, final int outputTypePos) {
+            return this.delegate.readValue(neuralNet, neuron, outputTypePos);
+        }
+
+        @Override
+        public void writeValue(final NeuralNet neuralNet, final NeuronInterface neuron, final int outputTypePos, final double value) {
+            this.delegate.writeValue(neuralNet, neuron, outputTypePos, value);
+        }
+
+        @Override
+        public double readDelta(final NeuralNet neuralNet, final NeuronInterface neuron, final int outputTypePos) {
+            return this.delegate.readDelta(neuralNet, neuron, outputTypePos);
+        }
+
+        @Override
+        public void writeDelta(final NeuralNet neuralNet, final NeuronInterface neuron, final int outputTypePos, final double delta) {
+            this.delegate.writeDelta(neuralNet, neuron, outputTypePos, delta);
+        }
+
+        @Override
+        public double readInputSum(final NeuralNet neuralNet, final NeuronInterface neuron, final int outputTypePos) {
+            return this.delegate.readInputSum(neuralNet, neuron, outputTypePos);
+        }
+
+        @Override
+        public void writeInputSum(final NeuralNet neuralNet, final NeuronInterface neuron, final int outputTypePos, final double inputSum) {
+            this.delegate.writeInputSum(neuralNet, neuron, outputTypePos, inputSum);
+        }
+
+        @Override
+        public int fetchNextFreeId(final NeuralNet neuralNet) {
+            return this.delegate.fetchNextFreeId(neuralNet);
+        }
+
+        @Override
+        public void releaseNeuron(final NeuralNet neuralNet, final NeuronInterface neuron) {
+            this.delegate.releaseNeuron(neuralNet, neuron);
+        }
+    }
+
+    @Test
+    public void testPlanMatchesInterpreterWithMutations() {
+        assertPlanMatchesInterpreter(10);
+    }
+
+    @Test
+    public void testCompiledEvaluatorMatchesInterpreter() {
+        final SimulationConfig config = SimulationConfig.getInstance();
+        final boolean evaluatorCompilation = config.isNeuralNetEvaluatorCompilation();
+        config.setNeuralNetEvaluatorCompilation(true);
+        try {
+            // Seltener mutieren, damit der Plan die Schwelle zum Kompilieren erreicht.
+            assertPlanMatchesInterpreter(NeuralNetExecutionPlan.EVALUATOR_COMPILE_THRESHOLD * 2);
+            assertTrue(NeuralNetEvaluatorCompiler.getCacheSize() > 0, "No evaluator was compiled.");
+        } finally {
+            config.setNeuralNetEvaluatorCompilation(evaluatorCompilation);
+        }
+    }
+
+    private static void assertPlanMatchesInterpreter(final int mutationInterval) {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork planNetwork = createNetwork(factory, 42L);
+        final NeuralNetwork interpretedNetwork = createNetwork(factory, 42L);
+        final NeuronValueFunction interpretedValueFunction =
+                new InterpretedNeuronValueFunction(interpretedNetwork.getNeuronValueFunction());
+        // Typ-Netze entstehen nur zufällig; vorab mutieren, bis es NeuronNetwork-Neuronen gibt.
+        for (int mutationPos = 0; mutationPos < 40 && !containsNeuronNetwork(planNetwork); mutationPos++) {
+            mutate(planNetwork, 500L + mutationPos);
+            mutate(interpretedNetwork, 500L + mutationPos);
+        }
+
+        final Random inputRandom = new Random(7L);
+        boolean neuronNetworkFound = false;
+        for (int stepPos = 0; stepPos < mutationInterval * 40; stepPos++) {
+            final double[] inputArr = new double[INPUT_COUNT];
+            for (int inputPos = 0; inputPos < INPUT_COUNT; inputPos++) {
+                inputArr[inputPos] = inputRandom.nextDouble() * 2.0D - 1.0D;
+            }
+            planNetwork.setInputs(inputArr);
+            interpretedNetwork.setInputs(inputArr);
+
+            final double[] planOutputArr = planNetwork.process();
+            final double[] interpretedOutputArr = interpretedNetwork.getNeuralNet().process(interpretedValueFunction);
+
+            assertArrayEquals(interpretedOutputArr, planOutputArr, 0.0D, "Step " + stepPos);
+            assertEquals(interpretedNetwork.getNeuralNet().getProccessedSynapses(),
+                    planNetwork.getNeuralNet().getProccessedSynapses(), "Step " + stepPos);
+
+            if (stepPos % mutationInterval == 0) {
+                // Strukturelle und Parameter-Mutationen mit gleichem Zufall auf beide Netze anwenden.
+                mutate(planNetwork, 1000L + stepPos);
+                mutate(interpretedNetwork, 1000L + stepPos);
+            }
+            if (stepPos % (mutationInterval * 5 / 2) == 0) {
+                // Gewichte direkt setzen, wie es Tests und Crossover tun.
+                setWeights(planNetwork.getNeuralNet().getSynapseList(), 2000L + stepPos);
+                setWeights(interpretedNetwork.getNeuralNet().getSynapseList(), 2000L + stepPos);
+            }
+            for (final Layer layer : planNetwork.getHiddenLayerArr()) {
+                for (final NeuronInterface neuron : layer.getNeuronsArr()) {
+                    neuronNetworkFound |= neuron instanceof NeuronNetwork;
+                }
+            }
+        }
+        assertTrue(neuronNetworkFound, "Mutations should have created NeuronNetwork neurons.");
+        // NeuronNetwork-Neuronen laufen als eigene Operation über den Plan, nicht über activate().
+        final NeuralNetExecutionPlan plan = planNetwork.getNeuralNet().fetchExecutionPlan();
+        boolean subNetOperationFound = false;
+        for (int opPos = 0; opPos < plan.getOperationCount(); opPos++) {
+            subNetOperationFound |= plan.getActivationCode(opPos) == NeuralNetExecutionPlan.ACTIVATION_SUB_NET;
+        }
+        assertTrue(subNetOperationFound, "NeuronNetwork neurons should be compiled into sub-net operations.");
+    }
+
+    @Test
+    public void testPlanIsRecompiledAfterStructuralChange() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 11L);
+        network.getNeuralNet().setDisableLayerDeactivation(true);
+        network.setInputs(new double[]{ 1.0D, 0.5D, 0.0D, -0.5D, -1.0D, 0.25D });
+        network.process();
+        final int synapseCount = network.getNeuralNet().getSynapseCount();
+
+        network.getNeuralNet().addRandomSynapse(new Random(3L));
+        network.process();
+
+        final NeuralNetExecutionPlan plan = NeuralNetExecutionPlan.compile(network.getNeuralNet());
+        assertEquals(synapseCount + 1, network.getNeuralNet().getSynapseCount());
+        assertEquals(network.getNeuralNet().getSynapseCount(), plan.getSynapseCount());
+        assertEquals(network.getNeuralNet().getProccessedSynapses(), plan.getSynapseCount());
+    }
+
+    @Test
+    public void testBatchMatchesSingleProcessing() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final int batchSize = 5;
+        final NeuralNetwork[] batchNetworkArr = new NeuralNetwork[batchSize];
+        final NeuralNetwork[] singleNetworkArr = new NeuralNetwork[batchSize];
+        for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+            // Gleiche Struktur, unterschiedliche Gewichte.
+            batchNetworkArr[batchPos] = createNetwork(factory, 42L);
+            singleNetworkArr[batchPos] = createNetwork(factory, 42L);
+            setWeights(batchNetworkArr[batchPos].getNeuralNet().getSynapseList(), 100L + batchPos);
+            setWeights(singleNetworkArr[batchPos].getNeuralNet().getSynapseList(), 100L + batchPos);
+        }
+        final NeuralNet[] neuralNetArr = new NeuralNet[batchSize];
+        final ValuesNeuronValueFunction[] valueFunctionArr = new ValuesNeuronValueFunction[batchSize];
+        for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+            neuralNetArr[batchPos] = batchNetworkArr[batchPos].getNeuralNet();
+            valueFunctionArr[batchPos] = (ValuesNeuronValueFunction) batchNetworkArr[batchPos].getNeuronValueFunction();
+        }
+        assertTrue(neuralNetArr[0].fetchExecutionPlan().getStructureKey().equals(
+                neuralNetArr[1].fetchExecutionPlan().getStructureKey()));
+
+        final Random inputRandom = new Random(5L);
+        long packedColumnCount = 0L;
+        for (int stepPos = 0; stepPos < 200; stepPos++) {
+            for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+                final double[] inputArr = new double[INPUT_COUNT];
+                for (int inputPos = 0; inputPos < INPUT_COUNT; inputPos++) {
+                    inputArr[inputPos] = inputRandom.nextDouble() * 2.0D - 1.0D;
+                }
+                batchNetworkArr[batchPos].setInputs(inputArr);
+                singleNetworkArr[batchPos].setInputs(inputArr);
+            }
+            final double[][] batchOutputArrArr = NeuralNet.processBatch(neuralNetArr, valueFunctionArr);
+            for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+                final double[] singleOutputArr = singleNetworkArr[batchPos].process();
+                assertArrayEquals(singleOutputArr, batchOutputArrArr[batchPos], 0.0D, "Step " + stepPos);
+                assertEquals(singleNetworkArr[batchPos].getNeuralNet().getProccessedSynapses(),
+                        neuralNetArr[batchPos].getProccessedSynapses(), "Step " + stepPos);
+            }
+            if (stepPos == 1) {
+                packedColumnCount = NeuralNetBatchProcessor.getPackedParameterColumnCount();
+            }
+            if (stepPos == 50) {
+                // Unveränderte Parameter werden nicht neu gepackt, geänderte nur für ihr Netz.
+                assertEquals(packedColumnCount, NeuralNetBatchProcessor.getPackedParameterColumnCount());
+                setWeights(batchNetworkArr[3].getNeuralNet().getSynapseList(), 300L);
+                setWeights(singleNetworkArr[3].getNeuralNet().getSynapseList(), 300L);
+            }
+            if (stepPos == 51) {
+                assertEquals(packedColumnCount + 1L, NeuralNetBatchProcessor.getPackedParameterColumnCount());
+            }
+            if (stepPos == 100) {
+                // Ein Netz weicht in der Struktur ab: der Batch fällt auf die Einzelberechnung zurück.
+                batchNetworkArr[2].getNeuralNet().addRandomSynapse(new Random(9L));
+                singleNetworkArr[2].getNeuralNet().addRandomSynapse(new Random(9L));
+            }
+        }
+    }
+
+    @Test
+    public void testSparseUpdateWithZeroEpsilonMatchesFullProcessing() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork sparseNetwork = createNetwork(factory, 42L);
+        final NeuralNetwork fullNetwork = createNetwork(factory, 42L);
+        final double[] sparseOutputArr = new double[OUTPUT_COUNT];
+
+        final Random inputRandom = new Random(13L);
+        final double[] inputArr = new double[INPUT_COUNT];
+        long skippedSynapses = 0L;
+        for (int stepPos = 0; stepPos < 400; stepPos++) {
+            // Nur ein Teil der Eingänge ändert sich pro Schritt.
+            inputArr[stepPos % INPUT_COUNT] = inputRandom.nextDouble() * 2.0D - 1.0D;
+            sparseNetwork.setInputs(inputArr);
+            fullNetwork.setInputs(inputArr);
+
+            sparseNetwork.processSparse(sparseOutputArr, 0.0D);
+            final double[] fullOutputArr = fullNetwork.process();
+
+            assertArrayEquals(fullOutputArr, sparseOutputArr, 0.0D, "Step " + stepPos);
+            assertEquals(fullNetwork.getProccessedSynapses(), sparseNetwork.getProccessedSynapses(), "Step " + stepPos);
+            skippedSynapses += sparseNetwork.getSkippedSynapses();
+
+            if (stepPos % 25 == 0) {
+                mutate(sparseNetwork, 3000L + stepPos);
+                mutate(fullNetwork, 3000L + stepPos);
+            }
+        }
+        assertTrue(skippedSynapses > 0L, "Unchanged inputs should have skipped synapses.");
+    }
+
+    /**
+     * Rückgekoppelte Werte wirken erst im nächsten Schritt; auch ohne geänderte Eingänge muss neu gerechnet werden.
+     */
+    @Test
+    public void testSparseUpdateWithFeedbackSynapsesMatchesFullProcessing() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork sparseNetwork = createNetwork(factory, 42L);
+        final NeuralNetwork fullNetwork = createNetwork(factory, 42L);
+        sparseNetwork.setDisableLayerDeactivation(true);
+        fullNetwork.setDisableLayerDeactivation(true);
+        addRandomSynapses(sparseNetwork, 60, 19L);
+        addRandomSynapses(fullNetwork, 60, 19L);
+        assertTrue(containsFeedbackSynapse(sparseNetwork.getNeuralNet()));
+        for (final NeuralNetwork network : new NeuralNetwork[] { sparseNetwork, fullNetwork }) {
+            // Starke Rückkopplung, damit sich die Werte über mehrere Schritte weiter ändern.
+            for (final Synapse synapse : network.getNeuralNet().getSynapseArr()) {
+                synapse.setWeight(synapse.getWeight() * 1000.0D);
+            }
+        }
+        final double[] sparseOutputArr = new double[OUTPUT_COUNT];
+
+        final Random inputRandom = new Random(29L);
+        final double[] inputArr = new double[INPUT_COUNT];
+        for (int stepPos = 0; stepPos < 200; stepPos++) {
+            // Eingänge ändern sich nur jeden zehnten Schritt.
+            if (stepPos % 10 == 0) {
+                inputArr[inputRandom.nextInt(INPUT_COUNT)] = inputRandom.nextDouble() * 2.0D - 1.0D;
+            }
+            sparseNetwork.setInputs(inputArr);
+            fullNetwork.setInputs(inputArr);
+
+            sparseNetwork.processSparse(sparseOutputArr, 0.0D);
+            final double[] fullOutputArr = fullNetwork.process();
+
+            assertArrayEquals(fullOutputArr, sparseOutputArr, 0.0D, "Step " + stepPos);
+        }
+    }
+
+    @Test
+    public void testSparseUpdateSkipsMoreWithEpsilon() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork exactNetwork = createNetwork(factory, 42L);
+        final NeuralNetwork epsilonNetwork = createNetwork(factory, 42L);
+        final double[] outputArr = new double[OUTPUT_COUNT];
+
+        final Random inputRandom = new Random(17L);
+        final double[] inputArr = new double[INPUT_COUNT];
+        long exactSkippedSynapses = 0L;
+        long epsilonSkippedSynapses = 0L;
+        for (int stepPos = 0; stepPos < 200; stepPos++) {
+            // Kleine Schwankungen aller Eingänge.
+            for (int inputPos = 0; inputPos < INPUT_COUNT; inputPos++) {
+                inputArr[inputPos] = 0.5D + inputRandom.nextDouble() * 0.001D;
+            }
+            exactNetwork.setInputs(inputArr);
+            epsilonNetwork.setInputs(inputArr);
+            exactNetwork.processSparse(outputArr, 0.0D);
+            exactSkippedSynapses += exactNetwork.getSkippedSynapses();
+            epsilonNetwork.processSparse(outputArr, 0.01D);
+            epsilonSkippedSynapses += epsilonNetwork.getSkippedSynapses();
+            assertEquals(exactNetwork.getProccessedSynapses(), epsilonNetwork.getProccessedSynapses(), "Step " + stepPos);
+        }
+        assertTrue(epsilonSkippedSynapses > exactSkippedSynapses,
+                "Epsilon " + epsilonSkippedSynapses + " should skip more than exact " + exactSkippedSynapses + ".");
+    }
+
+    @Test
+    public void testCompactWeightStorageStaysCloseToDouble() {
+        assertWeightStorageCloseToDouble(WeightStorage.FLOAT32, 1.0E-6D);
+        assertWeightStorageCloseToDouble(WeightStorage.INT8, 0.05D);
+    }
+
+    private static void assertWeightStorageCloseToDouble(final WeightStorage weightStorage, final double maxError) {
+        final SimulationConfig config = SimulationConfig.getInstance();
+        final WeightStorage configWeightStorage = config.getBrainWeightStorage();
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork doubleNetwork = createNetwork(factory, 42L);
+        final NeuralNetwork compactNetwork = createNetwork(factory, 42L);
+        try {
+            final Random inputRandom = new Random(19L);
+            double maxOutputError = 0.0D;
+            for (int stepPos = 0; stepPos < 100; stepPos++) {
+                final double[] inputArr = new double[INPUT_COUNT];
+                for (int inputPos = 0; inputPos < INPUT_COUNT; inputPos++) {
+                    inputArr[inputPos] = inputRandom.nextDouble() * 2.0D - 1.0D;
+                }
+                doubleNetwork.setInputs(inputArr);
+                compactNetwork.setInputs(inputArr);
+                config.setBrainWeightStorage(WeightStorage.DOUBLE);
+                final double[] doubleOutputArr = doubleNetwork.process();
+                config.setBrainWeightStorage(weightStorage);
+                final double[] compactOutputArr = compactNetwork.process();
+                for (int outputPos = 0; outputPos < OUTPUT_COUNT; outputPos++) {
+                    maxOutputError = Math.max(maxOutputError, Math.abs(doubleOutputArr[outputPos] - compactOutputArr[outputPos]));
+                }
+                assertEquals(doubleNetwork.getProccessedSynapses(), compactNetwork.getProccessedSynapses(), "Step " + stepPos);
+            }
+            assertTrue(maxOutputError <= maxError, weightStorage + " error " + maxOutputError);
+            final long compactPlanBytes = compactNetwork.getNeuralNet().fetchExecutionPlan().estimateMemoryBytes();
+            config.setBrainWeightStorage(WeightStorage.DOUBLE);
+            final long doublePlanBytes = doubleNetwork.getNeuralNet().fetchExecutionPlan().estimateMemoryBytes();
+            assertTrue(compactPlanBytes < doublePlanBytes, weightStorage + " plan should be smaller.");
+        } finally {
+            config.setBrainWeightStorage(configWeightStorage);
+        }
+    }
+
+    @Test
+    public void testMemoryEstimateCoversPlanAndSynapses() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 42L);
+        final NeuralNet neuralNet = network.getNeuralNet();
+        final long netBytes = neuralNet.estimateMemoryBytes();
+
+        network.setInputs(new double[INPUT_COUNT]);
+        network.process();
+        final long planBytes = neuralNet.fetchExecutionPlan().estimateMemoryBytes();
+        assertTrue(planBytes > 0L);
+        assertEquals(netBytes + planBytes, neuralNet.estimateMemoryBytes());
+        assertTrue(network.estimateMemoryBytes() > neuralNet.estimateMemoryBytes(), "Value arrays should be counted.");
+
+        addRandomSynapses(network, 20, 5L);
+        network.process();
+        assertTrue(neuralNet.estimateMemoryBytes() > netBytes + planBytes);
+    }
+
+    /**
+     * Nach dem Aufwärmen (Pläne, Kontexte, Puffer) allokiert die Berechnung pro Schritt nichts mehr:
+     * über den Plan, über die Neuronen-Objekte (NeuronNetwork.activate) und im Batch.
+     */
+    @Test
+    public void testProcessAllocatesNothingInSteadyState() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 53L);
+        for (int mutationPos = 0; mutationPos < 40 && !containsNeuronNetwork(network); mutationPos++) {
+            mutate(network, 2000L + mutationPos * 10L);
+        }
+        assertTrue(containsNeuronNetwork(network), "No NeuronNetwork was created.");
+        // Alle Layer rechnen, auch die mit NeuronNetworks.
+        network.setDisableLayerDeactivation(true);
+        final NeuralNet neuralNet = network.getNeuralNet();
+        final NeuronValueFunction interpretedValueFunction = new InterpretedNeuronValueFunction(network.getNeuronValueFunction());
+        final double[] inputArr = new double[INPUT_COUNT];
+        final double[] outputArr = new double[neuralNet.getOutputLayerSize()];
+        final int stepCount = 5000;
+        assertNoAllocationPerStep(stepCount, "Plan", () -> {
+            for (int stepPos = 0; stepPos < stepCount; stepPos++) {
+                inputArr[stepPos % INPUT_COUNT] = (stepPos % 7) * 0.25D - 0.75D;
+                network.setInputs(inputArr);
+                network.process(outputArr);
+            }
+        });
+        assertNoAllocationPerStep(stepCount, "Interpreted", () -> {
+            for (int stepPos = 0; stepPos < stepCount; stepPos++) {
+                inputArr[stepPos % INPUT_COUNT] = (stepPos % 7) * 0.25D - 0.75D;
+                neuralNet.setInputs(interpretedValueFunction, inputArr);
+                neuralNet.process(interpretedValueFunction, outputArr);
+            }
+        });
+
+        final int batchSize = 4;
+        final NeuralNet[] neuralNetArr = new NeuralNet[batchSize];
+        final ValuesNeuronValueFunction[] valueFunctionArr = new ValuesNeuronValueFunction[batchSize];
+        final double[][] outputArrArr = new double[batchSize][];
+        for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+            final NeuralNetwork batchNetwork = createNetwork(factory, 42L);
+            neuralNetArr[batchPos] = batchNetwork.getNeuralNet();
+            valueFunctionArr[batchPos] = (ValuesNeuronValueFunction) batchNetwork.getNeuronValueFunction();
+            outputArrArr[batchPos] = new double[batchNetwork.getNeuralNet().getOutputLayerSize()];
+        }
+        assertNoAllocationPerStep(stepCount, "Batch", () -> {
+            for (int stepPos = 0; stepPos < stepCount; stepPos++) {
+                inputArr[stepPos % INPUT_COUNT] = (stepPos % 5) * 0.5D - 1.0D;
+                for (int batchPos = 0; batchPos < batchSize; batchPos++) {
+                    neuralNetArr[batchPos].setInputs(valueFunctionArr[batchPos], inputArr);
+                }
+                NeuralNet.processBatch(neuralNetArr, valueFunctionArr, outputArrArr);
+            }
+        });
+    }
+
+    /**
+     * Einmal zum Aufwärmen, dann gemessen; weniger als ein Byte pro Schritt lässt Rauschen der Messung zu,
+     * aber kein Objekt pro Schritt.
+     */
+    private static void assertNoAllocationPerStep(final int stepCount, final String message, final Runnable steps) {
+        steps.run();
+        final long allocatedBytes = measureAllocatedBytes(steps);
+        if (allocatedBytes >= 0L) {
+            assertTrue(allocatedBytes < stepCount, message + ": " + allocatedBytes + " bytes allocated in " + stepCount + " steps.");
+        }
+    }
+
+    @Test
+    public void testCopiedNeuronTypesAreCopiedOnWrite() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork parentNetwork = createNetwork(factory, 61L);
+        final NeuralNet parentNet = parentNetwork.getNeuralNet();
+        final Random random = new Random(62L);
+        // Der einzige Eintrag ist der "echte" Neuron-Typ, daraus entsteht ein neuer Typ mit eigenem Netz.
+        parentNet.mutateNeuronTypeInfoDataList(factory, parentNetwork.getNeuronValueFunction(), random, 0.5D, 0.0D);
+        final NeuronTypeInfoData parentTypeInfo = parentNet.getNeuronTypeInfoDataList().get(1);
+        final double[] parentWeightArr = getWeights(parentTypeInfo.getNeuralNet());
+
+        final NeuronValueFunction childValueFunction = factory.create();
+        final NeuralNet childNet = new NeuralNet(parentNet, true, factory, childValueFunction);
+        assertSame(parentTypeInfo, childNet.getNeuronTypeInfoDataList().get(1));
+
+        for (int mutationPos = 0; mutationPos < 50 && childNet.getNeuronTypeInfoDataList().get(1) == parentTypeInfo; mutationPos++) {
+            childNet.mutateNeuronTypeInfoDataList(factory, childValueFunction, random, 0.5D, 0.5D);
+        }
+        assertNotSame(parentTypeInfo, childNet.getNeuronTypeInfoDataList().get(1));
+        assertSame(parentTypeInfo, parentNet.getNeuronTypeInfoDataList().get(1));
+        assertEquals(2, parentNet.getNeuronTypeInfoDataList().size());
+        assertArrayEquals(parentWeightArr, getWeights(parentTypeInfo.getNeuralNet()));
+
+        // Ein NeuronNetwork mutiert die Typ-Liste seines inneren Netzes nur auf einer eigenen Kopie.
+        final NeuralNet parentTypeNet = parentTypeInfo.getNeuralNet();
+        final List<NeuronTypeInfoData> parentTypeNetTypeList = new ArrayList<>(parentTypeNet.getNeuronTypeInfoDataList());
+        final NeuronNetwork childNeuron = new NeuronNetwork(childValueFunction.fetchNextFreeId(childNet), parentTypeInfo, factory);
+        childNeuron.mutateNeuron(random, 1.0D, 0.5D);
+        assertNotSame(parentTypeInfo, childNeuron.getNeuronTypeInfoData());
+        assertNotSame(parentTypeNet, childNeuron.getSubNeuralNet());
+        assertSame(childNeuron.getNeuronTypeInfoData().getNeuralNet(), childNeuron.getSubNeuralNet());
+        assertTrue(childNeuron.getSubNeuralNet().getNeuronTypeInfoDataList().size() > parentTypeNetTypeList.size(),
+                "The neuron's own type net should have been mutated.");
+        assertEquals(parentTypeNetTypeList, parentTypeNet.getNeuronTypeInfoDataList());
+        assertArrayEquals(parentWeightArr, getWeights(parentTypeNet));
+    }
+
+    @Test
+    public void testNeuronNetworkCopiesItsTypeNetOnlyOnFirstWrite() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 61L);
+        final NeuralNet neuralNet = network.getNeuralNet();
+        final Random random = new Random(62L);
+        neuralNet.mutateNeuronTypeInfoDataList(factory, network.getNeuronValueFunction(), random, 0.5D, 0.0D);
+        final NeuronTypeInfoData typeInfo = neuralNet.getNeuronTypeInfoDataList().get(1);
+        // Der Typ ist noch nicht weitergegeben: strukturelle Mutationen ändern ihn an Ort und Stelle.
+        for (int mutationPos = 0; mutationPos < 5; mutationPos++) {
+            neuralNet.mutateNeuronTypeInfoDataList(factory, network.getNeuronValueFunction(), random, 0.5D, 1.0D);
+            assertSame(typeInfo, neuralNet.getNeuronTypeInfoDataList().get(1));
+        }
+
+        final NeuronNetwork neuron = new NeuronNetwork(network.getNeuronValueFunction().fetchNextFreeId(neuralNet), typeInfo, factory);
+        neuron.mutateNeuron(random, 1.0D, 0.5D);
+        final NeuralNet ownNeuralNet = neuron.getSubNeuralNet();
+        assertNotSame(typeInfo.getNeuralNet(), ownNeuralNet);
+        neuron.mutateNeuron(random, 1.0D, 0.5D);
+        assertSame(ownNeuralNet, neuron.getSubNeuralNet(), "The own type net should be mutated in place.");
+
+        // Ein Klon teilt den Typ wieder, beide kopieren vor dem nächsten Schreiben.
+        final NeuronNetwork clonedNeuron = (NeuronNetwork) neuron.cloneNeuron(neuralNet, network.getNeuronValueFunction(), true);
+        final double[] ownWeightArr = getWeights(ownNeuralNet);
+        clonedNeuron.mutateNeuron(random, 1.0D, 0.5D);
+        assertNotSame(ownNeuralNet, clonedNeuron.getSubNeuralNet());
+        assertArrayEquals(ownWeightArr, getWeights(ownNeuralNet));
+        neuron.mutateNeuron(random, 1.0D, 0.5D);
+        assertNotSame(ownNeuralNet, neuron.getSubNeuralNet());
+    }
+
+    @Test
+    public void testTrainingCopiesSharedTypeNets() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork parentNetwork = createNetwork(factory, 53L);
+        for (int mutationPos = 0; mutationPos < 40 && !containsNeuronNetwork(parentNetwork); mutationPos++) {
+            mutate(parentNetwork, 2000L + mutationPos * 10L);
+        }
+        assertTrue(containsNeuronNetwork(parentNetwork), "No NeuronNetwork was created.");
+        parentNetwork.setDisableLayerDeactivation(true);
+        final List<NeuralNet> parentSubNeuralNetList = collectSubNeuralNets(parentNetwork);
+        final List<double[]> parentSubWeightArrList = new ArrayList<>();
+        for (final NeuralNet subNeuralNet : parentSubNeuralNetList) {
+            parentSubWeightArrList.add(getWeights(subNeuralNet));
+        }
+
+        final NeuralNetwork childNetwork = new NeuralNetwork(parentNetwork);
+        childNetwork.setDisableLayerDeactivation(true);
+        final double[][] inputArrArr = { { 0.3D, -0.7D, 0.1D, 0.9D, -0.2D, 0.5D } };
+        final double[][] targetArrArr = { new double[OUTPUT_COUNT] };
+        childNetwork.train(inputArrArr, targetArrArr, 1);
+        final List<NeuralNet> childSubNeuralNetList = collectSubNeuralNets(childNetwork);
+        for (int subNetPos = 0; subNetPos < parentSubNeuralNetList.size(); subNetPos++) {
+            assertSame(parentSubNeuralNetList.get(subNetPos), collectSubNeuralNets(parentNetwork).get(subNetPos));
+            assertNotSame(parentSubNeuralNetList.get(subNetPos), childSubNeuralNetList.get(subNetPos));
+            assertArrayEquals(parentSubWeightArrList.get(subNetPos), getWeights(parentSubNeuralNetList.get(subNetPos)),
+                    "Training the child changed a shared type net.");
+        }
+
+        // Die Kopien gehören jetzt dem Kind, weiteres Training kopiert nicht erneut.
+        childNetwork.train(inputArrArr, targetArrArr, 1);
+        assertEquals(childSubNeuralNetList, collectSubNeuralNets(childNetwork));
+    }
+
+    private static List<NeuralNet> collectSubNeuralNets(final NeuralNetwork network) {
+        final List<NeuralNet> subNeuralNetList = new ArrayList<>();
+        for (final Layer layer : network.getHiddenLayerArr()) {
+            for (final NeuronInterface neuron : layer.getNeuronsArr()) {
+                if (neuron instanceof NeuronNetwork neuronNetwork) {
+                    subNeuralNetList.add(neuronNetwork.getSubNeuralNet());
+                }
+            }
+        }
+        return subNeuralNetList;
+    }
+
+}
@@ -0,0 +1,54 @@
+package de.lifecircles.model.neural;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static de.lifecircles.model.neural.NeuralNetTestSupport.getWeights;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parallele Berechnung breiter Layer: gleiche Ergebnisse wie die sequentielle Berechnung.
+ */
+public class NeuralNetParallelLayerTest {
+
+    @Test
+    public void testParallelLayerEvaluationMatchesSequential() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final int inputCount = 32;
+        final int[] hiddenCountArr = { 300, 280 };
+        final int outputCount = 8;
+        NeuralNetwork.setRandom(new Random(17L));
+        final NeuralNetwork sequentialNetwork = new NeuralNetwork(factory, inputCount, hiddenCountArr, outputCount, 0.5D, 0);
+        NeuralNetwork.setRandom(new Random(17L));
+        final NeuralNetwork parallelNetwork = new NeuralNetwork(factory, inputCount, hiddenCountArr, outputCount, 0.5D, 0);
+        sequentialNetwork.setDisableLayerDeactivation(true);
+        parallelNetwork.setDisableLayerDeactivation(true);
+        parallelNetwork.setParallelLayerEvaluation(true);
+
+        final NeuralNetExecutionPlan plan = parallelNetwork.getNeuralNet().fetchExecutionPlan();
+        assertTrue(plan.isParallelSegment(0));
+        assertTrue(plan.isParallelSegment(1));
+        assertTrue(!plan.isParallelSegment(2), "Output layer is narrower than the threshold.");
+        assertTrue(parallelNetwork.getNeuralNet().getSynapseCount() >= NeuralNet.PARALLEL_MIN_SYNAPSE_COUNT);
+
+        final Random random = new Random(23L);
+        for (int stepPos = 0; stepPos < 10; stepPos++) {
+            final double[] inputArr = new double[inputCount];
+            for (int inputPos = 0; inputPos < inputCount; inputPos++) {
+                inputArr[inputPos] = random.nextDouble() * 2.0D - 1.0D;
+            }
+            final double[] targetArr = new double[outputCount];
+            for (int outputPos = 0; outputPos < outputCount; outputPos++) {
+                targetArr[outputPos] = random.nextDouble();
+            }
+            assertArrayEquals(sequentialNetwork.calcProcess(inputArr), parallelNetwork.calcProcess(inputArr), 0.0D,
+                    "Step " + stepPos);
+            assertEquals(sequentialNetwork.backpropagate(targetArr), parallelNetwork.backpropagate(targetArr), 0.0D);
+            assertArrayEquals(getWeights(sequentialNetwork.getNeuralNet()), getWeights(parallelNetwork.getNeuralNet()), 0.0D,
+                    "Step " + stepPos);
+        }
+    }
+}
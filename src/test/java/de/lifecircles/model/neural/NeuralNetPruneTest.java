@@ -0,0 +1,98 @@
+package de.lifecircles.model.neural;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static de.lifecircles.model.neural.NeuralNetTestSupport.HIDDEN_COUNTS;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.INPUT_COUNT;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.OUTPUT_COUNT;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.assertSynapsesConsistent;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.createNetwork;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Entfernen kleiner Gewichte und toter Neuronen mit {@link NeuralNet#prune(NeuronValueFunction, double)}.
+ */
+public class NeuralNetPruneTest {
+
+    @Test
+    public void testPruneRemovesDeadNeuronsAndKeepsOutputs() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 101L);
+        network.setDisableLayerDeactivation(true);
+        final NeuralNet neuralNet = network.getNeuralNet();
+        // Ohne Eingänge (wird in die Ziele gefaltet) bzw. ohne Pfad zu den Outputs.
+        final NeuronInterface noInputNeuron = neuralNet.getHiddenLayerArr()[0].getNeuronsArr()[1];
+        final NeuronInterface unreachableNeuron = neuralNet.getHiddenLayerArr()[2].getNeuronsArr()[1];
+        for (final Synapse synapse : noInputNeuron.getInputSynapseArr(0)) {
+            synapse.setWeight(1.0E-7D);
+        }
+        for (final Synapse synapse : unreachableNeuron.getOutputSynapseList(0)) {
+            synapse.setWeight(-1.0E-7D);
+        }
+        final double[] inputArr = { 0.3D, -0.7D, 0.1D, 0.9D, -0.2D, 0.5D };
+        final double[] expectedOutputArr = network.calcProcess(inputArr).clone();
+        final int synapseCount = neuralNet.getSynapseArr().length;
+        final int neuronCount = neuralNet.getHiddenLayerArr()[0].size() + neuralNet.getHiddenLayerArr()[2].size();
+
+        final int removedSynapseCount = network.prune(1.0E-6D);
+
+        assertTrue(removedSynapseCount > 0);
+        assertEquals(synapseCount - removedSynapseCount, neuralNet.getSynapseArr().length);
+        assertEquals(neuronCount - 2, neuralNet.getHiddenLayerArr()[0].size() + neuralNet.getHiddenLayerArr()[2].size());
+        assertTrue(Arrays.stream(neuralNet.getHiddenLayerArr()[0].getNeuronsArr()).noneMatch(neuron -> neuron == noInputNeuron));
+        assertTrue(Arrays.stream(neuralNet.getHiddenLayerArr()[2].getNeuronsArr()).noneMatch(neuron -> neuron == unreachableNeuron));
+        assertSynapsesConsistent(neuralNet);
+        assertArrayEquals(expectedOutputArr, network.calcProcess(inputArr), 1.0E-6D);
+        assertEquals(0, network.prune(1.0E-6D));
+    }
+
+    /**
+     * In abschaltbaren Layern werden Neuronen ohne Eingänge nicht gefaltet: ist der Layer aus, liefern sie 0 statt f(bias).
+     */
+    @Test
+    public void testPruneKeepsNoInputNeuronsInDeactivatableLayers() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        NeuralNetwork.setRandom(new Random(103L));
+        // Layer 0 wird über den Zustand geschaltet, Layer 1 ist immer aktiv.
+        final NeuralNetwork network = new NeuralNetwork(factory, INPUT_COUNT, HIDDEN_COUNTS, OUTPUT_COUNT, 0.8D, 1);
+        final NeuralNet neuralNet = network.getNeuralNet();
+        final NeuronInterface deactivatableNeuron = neuralNet.getHiddenLayerArr()[0].getNeuronsArr()[1];
+        final NeuronInterface activeNeuron = neuralNet.getHiddenLayerArr()[1].getNeuronsArr()[1];
+        for (final NeuronInterface neuron : new NeuronInterface[] { deactivatableNeuron, activeNeuron }) {
+            for (final Synapse synapse : neuron.getInputSynapseArr(0)) {
+                synapse.setWeight(1.0E-7D);
+            }
+        }
+        final double[] inputArr = { 0.3D, -0.7D, 0.1D, 0.9D, -0.2D, 0.5D };
+        final double[] expectedActiveOutputArr = network.calcProcess(inputArr).clone();
+        final double[] expectedInactiveOutputArr = calcProcessWithInactiveLayer(network, 0, inputArr);
+        neuralNet.getHiddenLayerArr()[0].setActiveLayer(true);
+
+        assertTrue(network.prune(1.0E-6D) > 0);
+
+        assertTrue(Arrays.stream(neuralNet.getHiddenLayerArr()[0].getNeuronsArr()).anyMatch(neuron -> neuron == deactivatableNeuron));
+        assertTrue(Arrays.stream(neuralNet.getHiddenLayerArr()[1].getNeuronsArr()).noneMatch(neuron -> neuron == activeNeuron));
+        assertSynapsesConsistent(neuralNet);
+        assertArrayEquals(expectedActiveOutputArr, network.calcProcess(inputArr), 1.0E-6D);
+        assertArrayEquals(expectedInactiveOutputArr, calcProcessWithInactiveLayer(network, 0, inputArr), 1.0E-6D);
+    }
+
+    /**
+     * Schaltet den Layer ab wie {@link de.lifecircles.service.ReproductionManagerService#calcActiveLayersByState}.
+     */
+    private static double[] calcProcessWithInactiveLayer(final NeuralNetwork network, final int layerPos, final double[] inputArr) {
+        final Layer layer = network.getNeuralNet().getHiddenLayerArr()[layerPos];
+        layer.setActiveLayer(false);
+        for (final NeuronInterface neuron : layer.getNeuronsArr()) {
+            for (int outputTypePos = 0; outputTypePos < neuron.getNeuronTypeInfoData().getOutputCount(); outputTypePos++) {
+                network.writeNeuronValue(neuron, outputTypePos, 0.0D);
+            }
+        }
+        return network.calcProcess(inputArr).clone();
+    }
+}
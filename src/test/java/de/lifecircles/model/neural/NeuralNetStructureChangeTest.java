@@ -0,0 +1,40 @@
+package de.lifecircles.model.neural;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static de.lifecircles.model.neural.NeuralNetTestSupport.assertSynapsesConsistent;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.createNetwork;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Strukturänderungen über {@link NeuralNet#beginStructureChange()} und {@link NeuralNet#commitStructureChange()}.
+ */
+public class NeuralNetStructureChangeTest {
+
+    @Test
+    public void testStructureChangeKeepsSynapsesConsistent() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 71L);
+        final NeuralNet neuralNet = network.getNeuralNet();
+        final NeuronValueFunction neuronValueFunction = network.getNeuronValueFunction();
+        final Random random = new Random(72L);
+
+        neuralNet.beginStructureChange();
+        final int synapseCount = neuralNet.getSynapseArr().length;
+        neuralNet.addNeuronToHiddenLayer(factory, neuronValueFunction, random, 0, 1.0D);
+        neuralNet.addNeuronToHiddenLayer(factory, neuronValueFunction, random, 1, 1.0D);
+        // Bis zum Abschluss bleiben die Arrays unverändert.
+        assertEquals(synapseCount, neuralNet.getSynapseArr().length);
+        neuralNet.commitStructureChange();
+        assertTrue(neuralNet.getSynapseArr().length > synapseCount);
+        assertSynapsesConsistent(neuralNet);
+
+        neuralNet.removeNeuronFromHiddenLayer(neuronValueFunction, random, 0);
+        neuralNet.removeNeuronFromHiddenLayer(neuronValueFunction, random, 1);
+        assertSynapsesConsistent(neuralNet);
+        assertSynapsesConsistent(new NeuralNet(neuralNet, true, factory, factory.create()));
+    }
+}
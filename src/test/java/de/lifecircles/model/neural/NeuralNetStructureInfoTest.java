@@ -0,0 +1,59 @@
+package de.lifecircles.model.neural;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static de.lifecircles.model.neural.NeuralNetTestSupport.INPUT_COUNT;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.OUTPUT_COUNT;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.createNetwork;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.setWeights;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Zwischengespeicherte Struktur-Metadaten ({@link NeuralNetStructureInfo}) und der Ausführungsplan
+ * folgen der Strukturversion.
+ */
+public class NeuralNetStructureInfoTest {
+
+    @Test
+    public void testStructureInfoFollowsStructureVersion() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 42L);
+        final NeuralNet neuralNet = network.getNeuralNet();
+        final long structureVersion = neuralNet.getStructureVersion();
+        final NeuralNetStructureInfo structureInfo = neuralNet.getStructureInfo();
+        final NeuralNetExecutionPlan plan = neuralNet.fetchExecutionPlan();
+        assertEquals(structureVersion, plan.getStructureVersion());
+
+        network.setInputs(new double[INPUT_COUNT]);
+        network.process();
+        setWeights(neuralNet.getSynapseList(), 7L);
+        assertEquals(structureVersion, neuralNet.getStructureVersion());
+        assertSame(structureInfo, neuralNet.getStructureInfo());
+        assertSame(plan, neuralNet.fetchExecutionPlan());
+        assertSame(neuralNet.getSynapseList(), neuralNet.getSynapseList());
+        assertArrayEquals(new int[] { INPUT_COUNT, 8, 6, 4, OUTPUT_COUNT }, neuralNet.getLayerSizes());
+        assertEquals(INPUT_COUNT + 18 + OUTPUT_COUNT, neuralNet.getAllNeuronsSize());
+
+        final NeuralNetwork copiedNetwork = new NeuralNetwork(network);
+        assertEquals(plan.getStructureKey(), copiedNetwork.getNeuralNet().fetchExecutionPlan().getStructureKey());
+        assertTrue(structureVersion != copiedNetwork.getNeuralNet().getStructureVersion());
+
+        neuralNet.addNeuronToHiddenLayer(factory, network.getNeuronValueFunction(), new Random(3L), 1, 0.5D);
+        assertTrue(structureVersion != neuralNet.getStructureVersion());
+        assertNotSame(structureInfo, neuralNet.getStructureInfo());
+        assertArrayEquals(new int[] { INPUT_COUNT, 8, 7, 4, OUTPUT_COUNT }, neuralNet.getLayerSizes());
+        assertEquals(INPUT_COUNT + 19 + OUTPUT_COUNT, neuralNet.getAllNeuronsSize());
+        assertEquals(neuralNet.getSynapseCount(), neuralNet.getSynapseList().size());
+        final NeuralNetExecutionPlan changedPlan = neuralNet.fetchExecutionPlan();
+        assertNotSame(plan, changedPlan);
+        assertEquals(neuralNet.getStructureVersion(), changedPlan.getStructureVersion());
+        assertNotEquals(plan.getStructureKey(), changedPlan.getStructureKey());
+    }
+}
@@ -0,0 +1,140 @@
+package de.lifecircles.model.neural;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Gemeinsame Netze und Prüfungen für die NeuralNet-Tests.
+ */
+final class NeuralNetTestSupport {
+
+    static final int INPUT_COUNT = 6;
+    static final int[] HIDDEN_COUNTS = { 8, 6, 4 };
+    static final int OUTPUT_COUNT = 5;
+
+    private NeuralNetTestSupport() {
+    }
+
+    /**
+     * Kleines Netz mit aktivierten Neuron-Typen; gleicher Seed ergibt das gleiche Netz.
+     */
+    static NeuralNetwork createNetwork(final NeuronValueFunctionFactory factory, final long seed) {
+        NeuralNetwork.setRandom(new Random(seed));
+        final NeuralNetwork network = new NeuralNetwork(factory, INPUT_COUNT, HIDDEN_COUNTS, OUTPUT_COUNT, 0.8D, 0);
+        network.getNeuralNet().setEnableNeuronType(true);
+        return network;
+    }
+
+    static void mutate(final NeuralNetwork network, final long seed) {
+        NeuralNetwork.setRandom(new Random(seed));
+        network.getNeuralNet().mutate(network.getNeuronValueFunctionFactory(), network.getNeuronValueFunction(),
+                0.5D, 0.3D, true);
+    }
+
+    /**
+     * Zufällige Synapsen zwischen beliebigen Layern, darunter auch rückwärts gerichtete (Feedback).
+     */
+    static void addRandomSynapses(final NeuralNetwork network, final int count, final long seed) {
+        final Random random = new Random(seed);
+        for (int synapsePos = 0; synapsePos < count; synapsePos++) {
+            network.getNeuralNet().addRandomSynapse(random);
+        }
+    }
+
+    /**
+     * Gibt es eine Synapse, deren Quelle nicht in einem früheren Layer liegt als ihr Ziel?
+     */
+    static boolean containsFeedbackSynapse(final NeuralNet neuralNet) {
+        final Map<NeuronInterface, Integer> layerPosMap = new IdentityHashMap<>();
+        final List<List<NeuronInterface>> layerNeuronListList = neuralNet.getStructureInfo().getLayerNeuronListList();
+        for (int layerPos = 0; layerPos < layerNeuronListList.size(); layerPos++) {
+            for (final NeuronInterface neuron : layerNeuronListList.get(layerPos)) {
+                layerPosMap.put(neuron, layerPos);
+            }
+        }
+        for (final Synapse synapse : neuralNet.getSynapseArr()) {
+            if (layerPosMap.get(synapse.getSourceNeuron()) >= layerPosMap.get(synapse.getTargetNeuron())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void setWeights(final List<Synapse> synapseList, final long seed) {
+        final Random random = new Random(seed);
+        for (final Synapse synapse : synapseList) {
+            if (random.nextDouble() < 0.3D) {
+                synapse.setWeight(random.nextDouble() * 2.0D - 1.0D);
+            }
+        }
+    }
+
+    static double[] getWeights(final NeuralNet neuralNet) {
+        final Synapse[] synapseArr = neuralNet.getSynapseArr();
+        final double[] weightArr = new double[synapseArr.length];
+        for (int synapsePos = 0; synapsePos < synapseArr.length; synapsePos++) {
+            weightArr[synapsePos] = synapseArr[synapsePos].getWeight();
+        }
+        return weightArr;
+    }
+
+    static boolean containsNeuronNetwork(final NeuralNetwork network) {
+        for (final Layer layer : network.getHiddenLayerArr()) {
+            for (final NeuronInterface neuron : layer.getNeuronsArr()) {
+                if (neuron instanceof NeuronNetwork) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Jede Synapse des Netzes ist genau einmal bei Quelle und Ziel eingetragen, es bleiben keine Tombstones.
+     */
+    static void assertSynapsesConsistent(final NeuralNet neuralNet) {
+        for (final Synapse synapse : neuralNet.getSynapseArr()) {
+            assertTrue(synapse != null, "Tombstone left in synapse array.");
+            assertEquals(1L, synapse.getSourceNeuron().getOutputSynapseList(synapse.getSourceOutputTypePos()).stream()
+                    .filter(outputSynapse -> outputSynapse == synapse).count());
+            assertEquals(1L, Arrays.stream(synapse.getTargetNeuron().getInputSynapseArr(synapse.getTargetInputTypePos()))
+                    .filter(inputSynapse -> inputSynapse == synapse).count());
+        }
+    }
+
+    /**
+     * Vom aktuellen Thread in runnable allokierte Bytes, ohne die Kosten der Abfrage selbst;
+     * -1 wenn die JVM das nicht unterstützt. Abfrage über den MBeanServer wie im GoldenRunTest.
+     */
+    static long measureAllocatedBytes(final Runnable runnable) {
+        final long calibrationStart = currentThreadAllocatedBytes();
+        final long calibrationEnd = currentThreadAllocatedBytes();
+        final long start = currentThreadAllocatedBytes();
+        runnable.run();
+        final long end = currentThreadAllocatedBytes();
+        if ((calibrationStart < 0L) || (end < 0L)) {
+            return -1L;
+        }
+        return Math.max(0L, (end - start) - (calibrationEnd - calibrationStart));
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        try {
+            return (Long) ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME), "getThreadAllocatedBytes",
+                    new Object[]{ Thread.currentThread().threadId() }, new String[]{ long.class.getName() });
+        } catch (final JMException | RuntimeException e) {
+            return -1L;
+        }
+    }
+}
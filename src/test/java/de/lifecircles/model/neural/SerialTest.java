@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.*;
 import java.util.Arrays;
+import java.util.Random;
 
 public class SerialTest {
 
@@ -92,6 +93,134 @@ public class SerialTest {
         }
     }
 
+    @Test
+    void testFlatFormatKeepsOutputsAndSynapseOrder() throws IOException, ClassNotFoundException {
+        final NeuronValueFunctionFactory neuronValueFunctionFactory = new ValuesNeuronValueFunctionFactory();
+        NeuralNetwork.setRandom(new Random(5L));
+        final NeuralNetwork network = new NeuralNetwork(neuronValueFunctionFactory, 4, new int[] { 5, 4 }, 3, 0.8D, 0);
+        network.getNeuralNet().setEnableNeuronType(true);
+        for (int mutationPos = 0; mutationPos < 20; mutationPos++) {
+            NeuralNetwork.setRandom(new Random(3000L + mutationPos));
+            network.getNeuralNet().mutate(neuronValueFunctionFactory, network.getNeuronValueFunction(), 0.5D, 0.3D, true);
+        }
+        network.setDisableLayerDeactivation(true);
+        final double[] inputArr = { 0.3D, -0.7D, 0.1D, 0.9D };
+        final double[] expectedOutputArr = network.calcProcess(inputArr).clone();
+
+        final NeuralNetwork deserializedNetwork = (NeuralNetwork) deserialize(serialize(network));
+        deserializedNetwork.setDisableLayerDeactivation(true);
+
+        Assertions.assertArrayEquals(expectedOutputArr, deserializedNetwork.calcProcess(inputArr), 0.0D);
+        final Synapse[] synapseArr = network.getNeuralNet().getSynapseArr();
+        final Synapse[] deserializedSynapseArr = deserializedNetwork.getNeuralNet().getSynapseArr();
+        Assertions.assertEquals(synapseArr.length, deserializedSynapseArr.length);
+        for (int synapsePos = 0; synapsePos < synapseArr.length; synapsePos++) {
+            Assertions.assertEquals(synapseArr[synapsePos].getWeight(), deserializedSynapseArr[synapsePos].getWeight());
+            Assertions.assertEquals(synapseArr[synapsePos].getSourceNeuron().getId(), deserializedSynapseArr[synapsePos].getSourceNeuron().getId());
+            Assertions.assertEquals(synapseArr[synapsePos].getTargetNeuron().getId(), deserializedSynapseArr[synapsePos].getTargetNeuron().getId());
+        }
+    }
+
+    /**
+     * legacy-neural-network.ser wurde vor dem flachen Format geschrieben (Objekt-Graph) und enthält
+     * nach dem Netzwerk die damals berechneten Ausgaben.
+     */
+    @Test
+    void testLegacyFormatIsStillReadable() throws IOException, ClassNotFoundException {
+        final NeuralNetwork network;
+        final double[] expectedOutputArr;
+        try (ObjectInputStream in = new ObjectInputStream(SerialTest.class.getResourceAsStream("legacy-neural-network.ser"))) {
+            network = (NeuralNetwork) in.readObject();
+            expectedOutputArr = (double[]) in.readObject();
+        }
+        network.setDisableLayerDeactivation(true);
+
+        Assertions.assertArrayEquals(expectedOutputArr, network.calcProcess(new double[] { 0.3D, -0.7D, 0.1D, 0.9D }), 0.0D);
+
+        final NeuralNetwork reserializedNetwork = (NeuralNetwork) deserialize(serialize(network));
+        reserializedNetwork.setDisableLayerDeactivation(true);
+        Assertions.assertArrayEquals(expectedOutputArr, reserializedNetwork.calcProcess(new double[] { 0.3D, -0.7D, 0.1D, 0.9D }), 0.0D);
+    }
+
+    @Test
+    void testGenomeDedupWritesIdenticalBrainsOnce() throws IOException, ClassNotFoundException {
+        final NeuronValueFunctionFactory neuronValueFunctionFactory = new ValuesNeuronValueFunctionFactory();
+        NeuralNetwork.setRandom(new Random(7L));
+        final NeuralNetwork network = new NeuralNetwork(neuronValueFunctionFactory, 4, new int[] { 6, 4 }, 3, 0.8D, 0);
+        final CellBrain[] brainArr = new CellBrain[3];
+        for (int brainPos = 0; brainPos < brainArr.length; brainPos++) {
+            brainArr[brainPos] = new CellBrain(network.withNeuralNet(network.getNeuralNet().copyWithSameIds()));
+        }
+        Assertions.assertTrue(GenomeStore.isSameGenome(brainArr[0].getNeuralNetwork().getNeuralNet(), brainArr[2].getNeuralNetwork().getNeuralNet()));
+
+        final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        try (GenomeDedupObjectOutputStream out = new GenomeDedupObjectOutputStream(byteOut)) {
+            out.writeObject(brainArr);
+            Assertions.assertEquals(1, out.getUniqueGenomeCount());
+        }
+        Assertions.assertTrue(byteOut.size() < serialize(brainArr).length / 2);
+
+        final CellBrain[] deserializedBrainArr = (CellBrain[]) deserialize(byteOut.toByteArray());
+        final double[] inputArr = { 0.3D, -0.7D, 0.1D, 0.9D };
+        final double[] expectedOutputArr = network.calcProcess(inputArr).clone();
+        for (final CellBrain deserializedBrain : deserializedBrainArr) {
+            final NeuralNetwork deserializedNetwork = deserializedBrain.getNeuralNetwork();
+            Assertions.assertArrayEquals(expectedOutputArr, deserializedNetwork.calcProcess(inputArr), 0.0D);
+        }
+        Assertions.assertNotSame(deserializedBrainArr[0].getNeuralNetwork().getNeuralNet(), deserializedBrainArr[1].getNeuralNetwork().getNeuralNet());
+        Assertions.assertNotSame(deserializedBrainArr[1].getNeuralNetwork().getNeuralNet(), deserializedBrainArr[2].getNeuralNetwork().getNeuralNet());
+    }
+
+    /**
+     * Die direkte Kopie muss sich wie die frühere Kopie über den Stream verhalten.
+     */
+    @Test
+    void testCopyWithSameIdsMatchesSerializedCopy() throws IOException, ClassNotFoundException {
+        final NeuralNetwork network = createMutatedNetwork();
+        final NeuralNet copyNeuralNet = network.getNeuralNet().copyWithSameIds();
+        NeuralNetTestSupport.assertSynapsesConsistent(copyNeuralNet);
+        // Gleiche Reihenfolgen von Neuronen, Layern und Synapsen ergeben das gleiche flache Format.
+        Assertions.assertArrayEquals(serialize(network.getNeuralNet()), serialize(copyNeuralNet));
+
+        // Die Kopien teilen die NeuronValueFunction ihres Netzwerks, daher je ein gleich erzeugtes Netzwerk.
+        final NeuralNetwork copyNetwork = createMutatedNetwork().withNeuralNet(copyNeuralNet);
+        final NeuralNetwork serializedCopyNetwork = createMutatedNetwork()
+                .withNeuralNet((NeuralNet) deserialize(serialize(network.getNeuralNet())));
+        final Random random = new Random(3L);
+        for (int stepPos = 0; stepPos < 20; stepPos++) {
+            final double[] inputArr = new double[NeuralNetTestSupport.INPUT_COUNT];
+            for (int inputPos = 0; inputPos < inputArr.length; inputPos++) {
+                inputArr[inputPos] = random.nextDouble() * 2.0D - 1.0D;
+            }
+            Assertions.assertArrayEquals(serializedCopyNetwork.calcProcess(inputArr).clone(), copyNetwork.calcProcess(inputArr),
+                    0.0D, "Step " + stepPos);
+        }
+    }
+
+    private static NeuralNetwork createMutatedNetwork() {
+        final NeuralNetwork network = NeuralNetTestSupport.createNetwork(new ValuesNeuronValueFunctionFactory(), 53L);
+        for (int mutationPos = 0; mutationPos < 40 && !NeuralNetTestSupport.containsNeuronNetwork(network); mutationPos++) {
+            NeuralNetTestSupport.mutate(network, 2000L + mutationPos * 10L);
+        }
+        Assertions.assertTrue(NeuralNetTestSupport.containsNeuronNetwork(network), "No NeuronNetwork was created.");
+        NeuralNetTestSupport.addRandomSynapses(network, 30, 9L);
+        return network;
+    }
+
+    private static byte[] serialize(final Object object) throws IOException {
+        final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(byteOut)) {
+            out.writeObject(object);
+        }
+        return byteOut.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] byteArr) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(byteArr))) {
+            return in.readObject();
+        }
+    }
+
     @Test
     void testNoProblematicCycles() throws IOException, ClassNotFoundException {
         Cell cell = CellFactory.createCell(new Vector2D(10, 20), 5.0);
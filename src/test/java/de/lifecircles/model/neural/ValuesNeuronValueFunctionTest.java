@@ -0,0 +1,73 @@
+package de.lifecircles.model.neural;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static de.lifecircles.model.neural.NeuralNetTestSupport.containsNeuronNetwork;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.createNetwork;
+import static de.lifecircles.model.neural.NeuralNetTestSupport.mutate;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vergabe, Freigabe und Verdichtung der Neuron-Ids in {@link ValuesNeuronValueFunction}.
+ */
+public class ValuesNeuronValueFunctionTest {
+
+    @Test
+    public void testReleasedNeuronIdsAreReusedLowestFirst() {
+        final ValuesNeuronValueFunction neuronValueFunction = new ValuesNeuronValueFunction();
+        for (int id = 0; id < 5; id++) {
+            assertEquals(id, neuronValueFunction.fetchNextFreeId(null));
+        }
+        neuronValueFunction.releaseNeuron(null, new Neuron(3, null));
+        neuronValueFunction.releaseNeuron(null, new Neuron(1, null));
+        // Nie vergebene Ids werden ignoriert.
+        neuronValueFunction.releaseNeuron(null, new Neuron(9, null));
+
+        assertEquals(1, neuronValueFunction.fetchNextFreeId(null));
+        assertEquals(3, neuronValueFunction.fetchNextFreeId(null));
+        assertEquals(5, neuronValueFunction.fetchNextFreeId(null));
+    }
+
+    @Test
+    public void testCompactNeuronIdsKeepsOutputs() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 91L);
+        network.setDisableLayerDeactivation(true);
+        for (int mutationPos = 0; mutationPos < 40 && !containsNeuronNetwork(network); mutationPos++) {
+            mutate(network, 2000L + mutationPos * 10L);
+        }
+        final NeuralNet neuralNet = network.getNeuralNet();
+        final ValuesNeuronValueFunction neuronValueFunction = (ValuesNeuronValueFunction) network.getNeuronValueFunction();
+        final double[] inputArr = { 0.3D, -0.7D, 0.1D, 0.9D, -0.2D, 0.5D };
+        final double[] expectedOutputArr = network.calcProcess(inputArr).clone();
+        final int idSpaceSize = neuronValueFunction.getIdSpaceSize();
+
+        assertTrue(neuralNet.compactNeuronIds(neuronValueFunction, false));
+
+        assertTrue(neuronValueFunction.getIdSpaceSize() < idSpaceSize, "Id space should shrink.");
+        neuralNet.applyToAllNeurons(neuron -> assertTrue(neuron.getId() < neuronValueFunction.getIdSpaceSize()));
+        assertArrayEquals(expectedOutputArr, network.calcProcess(inputArr), 0.0D);
+        // Neue Neuronen erhalten Ids direkt hinter dem verdichteten Bereich.
+        assertEquals(neuronValueFunction.getIdSpaceSize(), neuronValueFunction.fetchNextFreeId(neuralNet));
+    }
+
+    /**
+     * Beim Anlegen eines Typ-Netzes werden Ids vergeben, während dessen Layer noch unvollständig sind.
+     * Die frühere Lückensuche über alle Neuronen des Netzes lief dabei auf null-Einträge.
+     */
+    @Test
+    public void testFetchNextFreeIdWhileTypeNetsAreBuilt() {
+        final NeuronValueFunctionFactory factory = new ValuesNeuronValueFunctionFactory();
+        final NeuralNetwork network = createNetwork(factory, 42L);
+        for (int mutationPos = 0; mutationPos < 200; mutationPos++) {
+            NeuralNetwork.setRandom(new Random(42000L + mutationPos));
+            network.getNeuralNet().mutate(factory, network.getNeuronValueFunction(), 0.9D, 0.3D, true);
+            network.process();
+        }
+        assertTrue(containsNeuronNetwork(network), "Mutations should have created NeuronNetwork neurons.");
+    }
+}
@@ -0,0 +1,201 @@
+package de.lifecircles.service;
+
+import de.lifecircles.model.Cell;
+import de.lifecircles.model.CellType;
+import de.lifecircles.model.SensorActor;
+import de.lifecircles.service.trainStrategy.TrainMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Properties;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Golden-Run: rechnet ein festes Szenario (HighPosition2, fester Seed) headless und vergleicht
+ * den Hash des Populationszustands und die Kosten pro Schritt mit golden-run-budget.properties.
+ * Der Generationsschritt ist verkürzt, damit der Lauf mehrere Generationswechsel enthält.
+ *
+ * Ändert sich das Simulationsergebnis gewollt (Physik, Zufallsverbrauch), muss stateHash in der
+ * Budget-Datei mit dem ausgegebenen Hash aktualisiert werden.
+ */
+public class GoldenRunTest {
+
+    private static final String BUDGET_FILE = "golden-run-budget.properties";
+
+    private record RunResult(String stateHash, int cellCount, double nanosPerStep, long allocatedBytesPerStep) {
+    }
+
+    private TrainMode savedTrainMode;
+    private int savedTrainGenerationStep;
+    private int savedInitialCellCount;
+    private Long savedRandomSeed;
+    private boolean savedParallelCalculation;
+    private int savedMetricsPort;
+    // Von der Trainings-Strategie gesetzt.
+    private double savedWidth;
+    private double savedHeight;
+    private double savedScaleSimulation;
+    private double savedEnergyPerRay;
+    private double savedReproductionAgeThreshold;
+
+    @BeforeEach
+    public void saveConfig() {
+        final SimulationConfig config = SimulationConfig.getInstance();
+        this.savedTrainMode = config.getTrainMode();
+        this.savedTrainGenerationStep = config.getTrainGenerationStep();
+        this.savedInitialCellCount = config.getInitialCellCount();
+        this.savedRandomSeed = config.getRandomSeed();
+        this.savedParallelCalculation = config.isParallelCalculation();
+        this.savedMetricsPort = config.getMetricsPort();
+        this.savedWidth = config.getWidth();
+        this.savedHeight = config.getHeight();
+        this.savedScaleSimulation = config.getScaleSimulation();
+        this.savedEnergyPerRay = config.getEnergyPerRay();
+        this.savedReproductionAgeThreshold = config.getReproductionAgeThreshold();
+    }
+
+    @AfterEach
+    public void restoreConfig() {
+        final SimulationConfig config = SimulationConfig.getInstance();
+        config.setTrainMode(this.savedTrainMode);
+        config.setTrainGenerationStep(this.savedTrainGenerationStep);
+        config.setInitialCellCount(this.savedInitialCellCount);
+        config.setRandomSeed(this.savedRandomSeed);
+        config.setParallelCalculation(this.savedParallelCalculation);
+        config.setMetricsPort(this.savedMetricsPort);
+        config.setWidth(this.savedWidth);
+        config.setHeight(this.savedHeight);
+        config.setScaleSimulation(this.savedScaleSimulation);
+        config.setEnergyPerRay(this.savedEnergyPerRay);
+        config.setReproductionAgeThreshold(this.savedReproductionAgeThreshold);
+    }
+
+    @Test
+    public void testGoldenRun() throws IOException {
+        final Properties budget = loadBudget();
+        final long seed = Long.parseLong(budget.getProperty("seed"));
+        final int steps = Integer.parseInt(budget.getProperty("steps"));
+        final int generationStep = Integer.parseInt(budget.getProperty("generationStep"));
+        assertTrue(steps >= generationStep * 2, "The run must cover several generation turnovers.");
+
+        // Sequentiell: nur der aufrufende Thread rechnet, damit die Allokationen messbar sind.
+        final RunResult sequentialResult = run(seed, steps, generationStep, false);
+        final RunResult parallelResult = run(seed, steps, generationStep, true);
+
+        System.out.printf("Golden run: %d steps, %d cells, hash=%s, %.1f steps/s, %d bytes/step%n",
+                steps, sequentialResult.cellCount(), sequentialResult.stateHash(),
+                1_000_000_000.0D / sequentialResult.nanosPerStep(), sequentialResult.allocatedBytesPerStep());
+
+        assertEquals(sequentialResult.stateHash(), parallelResult.stateHash(),
+                "Parallel and sequential runs with the same seed must produce the same state.");
+        assertEquals(budget.getProperty("stateHash"), sequentialResult.stateHash(),
+                "Simulation result changed, update stateHash in " + BUDGET_FILE + " if intended.");
+
+        final double maxNanosPerStep = Double.parseDouble(budget.getProperty("maxNanosPerStep"));
+        assertTrue(sequentialResult.nanosPerStep() <= maxNanosPerStep,
+                "Step time " + sequentialResult.nanosPerStep() + " ns exceeds budget " + maxNanosPerStep + " ns.");
+
+        final long maxAllocatedBytesPerStep = Long.parseLong(budget.getProperty("maxAllocatedBytesPerStep"));
+        if (sequentialResult.allocatedBytesPerStep() >= 0L) {
+            assertTrue(sequentialResult.allocatedBytesPerStep() <= maxAllocatedBytesPerStep,
+                    "Allocation " + sequentialResult.allocatedBytesPerStep() + " bytes/step exceeds budget " +
+                            maxAllocatedBytesPerStep + " bytes/step.");
+        }
+    }
+
+    private static RunResult run(final long seed, final int steps, final int generationStep, final boolean parallel) {
+        final SimulationConfig config = SimulationConfig.getInstance();
+        config.setTrainMode(TrainMode.HIGH_POSITION2);
+        config.setTrainGenerationStep(generationStep);
+        config.setInitialCellCount(30);
+        config.setRandomSeed(seed);
+        config.setParallelCalculation(parallel);
+        config.setMetricsPort(0);
+
+        final CalculationService calculationService = new CalculationService();
+
+        final long startAllocatedBytes = currentThreadAllocatedBytes();
+        final long startTime = System.nanoTime();
+        calculationService.calcSteps(steps);
+        final long runTime = System.nanoTime() - startTime;
+        final long endAllocatedBytes = currentThreadAllocatedBytes();
+
+        final List<Cell> cellList = calculationService.getEnvironment().getCellList();
+        final long allocatedBytesPerStep = (startAllocatedBytes >= 0L) && !parallel ?
+                (endAllocatedBytes - startAllocatedBytes) / steps : -1L;
+        return new RunResult(calcStateHash(cellList), cellList.size(), (double) runTime / steps, allocatedBytesPerStep);
+    }
+
+    /**
+     * Hash über alle Zustandswerte der Zellen in Listenreihenfolge (FNV-1a über die Bit-Muster).
+     */
+    static String calcStateHash(final List<Cell> cellList) {
+        long hash = 0xCBF29CE484222325L;
+        hash = mixHash(hash, cellList.size());
+        for (final Cell cell : cellList) {
+            hash = mixHash(hash, cell.getPosition().getX());
+            hash = mixHash(hash, cell.getPosition().getY());
+            hash = mixHash(hash, cell.getVelocity().getX());
+            hash = mixHash(hash, cell.getVelocity().getY());
+            hash = mixHash(hash, cell.getRotation());
+            hash = mixHash(hash, cell.getAngularVelocity());
+            hash = mixHash(hash, cell.getRadiusSize());
+            hash = mixHash(hash, cell.getEnergy());
+            hash = mixHash(hash, cell.getAge());
+            hash = mixHash(hash, cell.getGeneration());
+            hash = mixHash(hash, cell.getCellState());
+            final CellType cellType = cell.getType();
+            hash = mixHash(hash, cellType.getRed());
+            hash = mixHash(hash, cellType.getGreen());
+            hash = mixHash(hash, cellType.getBlue());
+            for (final SensorActor sensorActor : cell.getSensorActors()) {
+                hash = mixHash(hash, sensorActor.getForceStrength());
+            }
+        }
+        return Long.toHexString(hash);
+    }
+
+    private static long mixHash(final long hash, final double value) {
+        return mixHash(hash, Double.doubleToLongBits(value));
+    }
+
+    private static long mixHash(long hash, final long value) {
+        for (int bytePos = 0; bytePos < Long.BYTES; bytePos++) {
+            hash ^= (value >>> (bytePos * 8)) & 0xFFL;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Vom aktuellen Thread allokierte Bytes, -1 wenn die JVM das nicht unterstützt.
+     * Abfrage über den MBeanServer, damit das Modul nicht von jdk.management abhängt.
+     */
+    private static long currentThreadAllocatedBytes() {
+        try {
+            return (Long) ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME), "getThreadAllocatedBytes",
+                    new Object[]{ Thread.currentThread().threadId() }, new String[]{ long.class.getName() });
+        } catch (final JMException | RuntimeException e) {
+            return -1L;
+        }
+    }
+
+    private static Properties loadBudget() throws IOException {
+        final Properties budget = new Properties();
+        try (final InputStream inputStream = GoldenRunTest.class.getResourceAsStream(BUDGET_FILE)) {
+            assertNotNull(inputStream, BUDGET_FILE + " not found.");
+            budget.load(inputStream);
+        }
+        return budget;
+    }
+}